@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.inputs.codecs.GelfChunkAggregator;
+import org.graylog2.inputs.codecs.GelfCodec;
+import org.graylog2.inputs.codecs.SyslogCodec;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+    private static final InetSocketAddress REMOTE_ADDRESS = new InetSocketAddress("127.0.0.1", 5140);
+    private static final byte[] RFC3164_MESSAGE = "<34>Jan  1 12:00:00 benchmark su: 'su root' failed for lonvick on /dev/pts/8"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RFC5424_MESSAGE = ("<165>1 2024-01-01T12:00:00.003Z benchmark.example.org evntslog - ID47 "
+            + "[exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"] An application event log entry")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GELF_MESSAGE = ("{\"version\":\"1.1\",\"host\":\"benchmark.example.org\","
+            + "\"short_message\":\"A short message that helps you identify what is going on\","
+            + "\"full_message\":\"Backtrace here\\n\\nmore stuff\",\"timestamp\":1704110400.123,\"level\":1,"
+            + "\"_user_id\":9001,\"_some_info\":\"foo\",\"_some_env_var\":\"bar\",\"_request_duration\":0.25}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ScheduledExecutorService scheduler;
+    private SyslogCodec syslogCodec;
+    private GelfCodec gelfCodec;
+
+    @Setup
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("gelf-chunk-eviction-%d").setDaemon(true).build());
+        syslogCodec = new SyslogCodec(new Configuration(ImmutableMap.of("expand_structured_data", true)), new MetricRegistry());
+        gelfCodec = new GelfCodec(new Configuration(ImmutableMap.of()), new GelfChunkAggregator(scheduler, new MetricRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public Message syslogRfc3164() {
+        return syslogCodec.decode(new RawMessage(RFC3164_MESSAGE, REMOTE_ADDRESS));
+    }
+
+    @Benchmark
+    public Message syslogRfc5424() {
+        return syslogCodec.decode(new RawMessage(RFC5424_MESSAGE, REMOTE_ADDRESS));
+    }
+
+    @Benchmark
+    public Message gelf() {
+        return gelfCodec.decode(new RawMessage(GELF_MESSAGE, REMOTE_ADDRESS));
+    }
+}
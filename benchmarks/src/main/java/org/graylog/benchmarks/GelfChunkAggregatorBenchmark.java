@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.Unpooled;
+import org.graylog2.inputs.codecs.GelfChunkAggregator;
+import org.graylog2.plugin.inputs.codecs.CodecAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates a chunked GELF message. Every invocation uses a new message ID, so that the chunks are not treated as
+ * duplicates of an already completed message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GelfChunkAggregatorBenchmark {
+    private static final byte[] CHUNK_MAGIC_BYTES = new byte[]{0x1e, 0x0f};
+    private static final int HEADER_LENGTH = 12;
+    private static final int MAX_CHUNK_PAYLOAD = 1420;
+
+    @Param({"1", "8"})
+    public int chunkCount;
+
+    private ScheduledExecutorService scheduler;
+    private GelfChunkAggregator aggregator;
+    private byte[][] chunks;
+    private long messageId;
+
+    @Setup
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("gelf-chunk-eviction-%d").setDaemon(true).build());
+        aggregator = new GelfChunkAggregator(scheduler, new MetricRegistry());
+
+        final byte[] payload = new byte[chunkCount * MAX_CHUNK_PAYLOAD];
+        Arrays.fill(payload, (byte) 'a');
+        chunks = new byte[chunkCount][];
+        for (int sequenceNumber = 0; sequenceNumber < chunkCount; sequenceNumber++) {
+            final byte[] chunk = new byte[HEADER_LENGTH + MAX_CHUNK_PAYLOAD];
+            chunk[0] = CHUNK_MAGIC_BYTES[0];
+            chunk[1] = CHUNK_MAGIC_BYTES[1];
+            chunk[10] = (byte) sequenceNumber;
+            chunk[11] = (byte) chunkCount;
+            System.arraycopy(payload, sequenceNumber * MAX_CHUNK_PAYLOAD, chunk, HEADER_LENGTH, MAX_CHUNK_PAYLOAD);
+            chunks[sequenceNumber] = chunk;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public CodecAggregator.Result aggregate() {
+        final long id = ++messageId;
+        CodecAggregator.Result result = null;
+        for (byte[] chunk : chunks) {
+            for (int i = 0; i < 8; i++) {
+                chunk[2 + i] = (byte) (id >>> (56 - 8 * i));
+            }
+            result = aggregator.addChunk(Unpooled.wrappedBuffer(chunk));
+        }
+        return result;
+    }
+}
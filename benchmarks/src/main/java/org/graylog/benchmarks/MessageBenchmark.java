@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.AbstractModule;
+import org.graylog2.configuration.ElasticsearchConfiguration;
+import org.graylog2.plugin.Message;
+import org.graylog2.shared.bindings.GuiceInjectorHolder;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBenchmark {
+    private static final DateTime TIMESTAMP = new DateTime(2024, 1, 1, 12, 0, DateTimeZone.UTC);
+
+    @Param({"10", "50"})
+    public int fieldCount;
+
+    private ObjectMapper objectMapper;
+    private Meter invalidTimestampMeter;
+    private String[] fieldNames;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        // Message#toElasticSearchObject looks up the Elasticsearch configuration through the global injector
+        GuiceInjectorHolder.clearInjector();
+        GuiceInjectorHolder.createInjector(List.of(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ElasticsearchConfiguration.class).toInstance(new ElasticsearchConfiguration());
+            }
+        }));
+        objectMapper = new ObjectMapperProvider().get();
+        invalidTimestampMeter = new Meter();
+        fieldNames = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fieldNames[i] = "field_" + i;
+        }
+        message = createMessage();
+    }
+
+    @Benchmark
+    public Message addFields() {
+        return createMessage();
+    }
+
+    @Benchmark
+    public Map<String, Object> toElasticSearchObject() {
+        return message.toElasticSearchObject(objectMapper, invalidTimestampMeter);
+    }
+
+    private Message createMessage() {
+        final Message message = new Message("Benchmark message with some text", "benchmark.example.org", TIMESTAMP);
+        for (int i = 0; i < fieldNames.length; i++) {
+            message.addField(fieldNames[i], (i & 1) == 0 ? "value " + i : i);
+        }
+        return message;
+    }
+}
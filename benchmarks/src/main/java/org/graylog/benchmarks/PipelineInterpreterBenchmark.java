@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bson.types.ObjectId;
+import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
+import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
+import org.graylog.plugins.pipelineprocessor.db.PipelineService;
+import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
+import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigDto;
+import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigService;
+import org.graylog.plugins.pipelineprocessor.db.RuleService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryRuleService;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
+import org.graylog.plugins.pipelineprocessor.functions.strings.Contains;
+import org.graylog.plugins.pipelineprocessor.functions.strings.Lowercase;
+import org.graylog.plugins.pipelineprocessor.functions.strings.RegexMatch;
+import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
+import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog.plugins.pipelineprocessor.processors.ConfigurationStateUpdater;
+import org.graylog.plugins.pipelineprocessor.processors.PipelineInterpreter;
+import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Messages;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.shared.messageq.MessageQueueAcknowledger;
+import org.graylog2.streams.StreamImpl;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs a message through a pipeline connected to the default stream. The pipeline parses the request line of the
+ * message, normalizes a field and tags errors, which is typical for log enrichment rules.
+ * <p>
+ * Every invocation creates a new message, because processing modifies the message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineInterpreterBenchmark {
+    private static final DateTime TIMESTAMP = new DateTime(2024, 1, 1, 12, 0, DateTimeZone.UTC);
+
+    private static final String PARSE_REQUEST_RULE = """
+            rule "parse request"
+            when
+                contains(to_string($message.message), "HTTP/1.1")
+            then
+                let request = regex("^(\\\\w+) (\\\\S+)", to_string($message.message));
+                set_field("http_method", request["0"]);
+                set_field("http_path", request["1"]);
+            end""";
+    private static final String NORMALIZE_APPLICATION_RULE = """
+            rule "normalize application"
+            when
+                has_field("application")
+            then
+                set_field("application", lowercase(to_string($message.application)));
+            end""";
+    private static final String TAG_ERRORS_RULE = """
+            rule "tag errors"
+            when
+                to_string($message.level) == "3"
+            then
+                set_field("is_error", true);
+            end""";
+    private static final String PIPELINE = """
+            pipeline "enrichment"
+            stage 0 match either
+                rule "parse request";
+                rule "normalize application";
+            stage 1 match all
+                rule "tag errors";
+            end""";
+
+    @Param({"false", "true"})
+    public boolean compiledRules;
+
+    private ScheduledExecutorService scheduler;
+    private PipelineInterpreter interpreter;
+    private Stream defaultStream;
+
+    @Setup
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("pipeline-state-updater-%d").setDaemon(true).build());
+        defaultStream = new StreamImpl(new ObjectId(Stream.DEFAULT_STREAM_ID), Map.of(
+                StreamImpl.FIELD_TITLE, "Default Stream",
+                StreamImpl.FIELD_DEFAULT_STREAM, true), Collections.emptyList(), Collections.emptySet(), mock(IndexSet.class));
+
+        final ClusterEventBus clusterEventBus = new ClusterEventBus(MoreExecutors.directExecutor());
+        final RuleService ruleService = new InMemoryRuleService(clusterEventBus);
+        ruleService.save(RuleDao.create(null, "parse request", null, PARSE_REQUEST_RULE, TIMESTAMP, null, null, null));
+        ruleService.save(RuleDao.create(null, "normalize application", null, NORMALIZE_APPLICATION_RULE, TIMESTAMP, null, null, null));
+        ruleService.save(RuleDao.create(null, "tag errors", null, TAG_ERRORS_RULE, TIMESTAMP, null, null, null));
+
+        final PipelineService pipelineService = new InMemoryPipelineService(clusterEventBus);
+        final PipelineDao pipeline = pipelineService.save(PipelineDao.create(null, "enrichment", null, PIPELINE, TIMESTAMP, null));
+
+        final PipelineStreamConnectionsService connectionsService = new InMemoryPipelineStreamConnectionsService(clusterEventBus);
+        connectionsService.save(PipelineConnections.create(null, Stream.DEFAULT_STREAM_ID, Set.of(pipeline.id())));
+
+        final Map<String, Function<?>> functions = ImmutableMap.<String, Function<?>>builder()
+                .put(Contains.NAME, new Contains())
+                .put(HasField.NAME, new HasField())
+                .put(Lowercase.NAME, new Lowercase())
+                .put(RegexMatch.NAME, new RegexMatch())
+                .put(SetField.NAME, new SetField())
+                .put(StringConversion.NAME, new StringConversion())
+                .build();
+
+        final RuleMetricsConfigService ruleMetricsConfigService = mock(RuleMetricsConfigService.class);
+        when(ruleMetricsConfigService.get()).thenReturn(RuleMetricsConfigDto.createDefault());
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final ConfigurationStateUpdater stateUpdater = new ConfigurationStateUpdater(ruleService,
+                pipelineService,
+                connectionsService,
+                new PipelineRuleParser(new FunctionRegistry(functions)),
+                ruleMetricsConfigService,
+                metricRegistry,
+                scheduler,
+                new EventBus(),
+                (currentPipelines, streamPipelineConnections, ruleMetricsConfig) -> new PipelineInterpreter.State(
+                        currentPipelines, streamPipelineConnections, ruleMetricsConfig, metricRegistry, 1, true),
+                compiledRules);
+        interpreter = new PipelineInterpreter(mock(MessageQueueAcknowledger.class), metricRegistry, stateUpdater);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public Messages process() {
+        final Message message = new Message("GET /api/v1/resource HTTP/1.1 500", "benchmark.example.org", TIMESTAMP);
+        message.addField("application", "Benchmark-App");
+        message.addField("level", 3);
+        message.addStream(defaultStream);
+        return interpreter.process(message);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.plugin.system.SimpleNodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawMessageBenchmark {
+    private static final byte[] PAYLOAD = ("<34>1 2024-01-01T12:00:00.000Z benchmark.example.org app 1234 ID47 "
+            + "[exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"] Benchmark message with some text")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private RawMessage rawMessage;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        rawMessage = new RawMessage(PAYLOAD, new InetSocketAddress("127.0.0.1", 5140));
+        rawMessage.addSourceNode("5ca1ab1e0000000000000000", new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"));
+        rawMessage.setCodecName("syslog");
+        rawMessage.setCodecConfig(new Configuration(ImmutableMap.of(
+                "bind_address", "0.0.0.0",
+                "port", 5140,
+                "recv_buffer_size", 262144,
+                "store_full_message", true,
+                "expand_structured_data", true)));
+        encoded = rawMessage.encode();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return rawMessage.encode();
+    }
+
+    @Benchmark
+    public RawMessage decode() {
+        return RawMessage.decode(encoded, 42L);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import org.bson.types.ObjectId;
+import org.graylog2.Configuration;
+import org.graylog2.notifications.NotificationService;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.plugin.streams.StreamRuleType;
+import org.graylog2.streams.StreamFaultManager;
+import org.graylog2.streams.StreamImpl;
+import org.graylog2.streams.StreamMetrics;
+import org.graylog2.streams.StreamRouterEngine;
+import org.graylog2.streams.StreamRouterEngineType;
+import org.graylog2.streams.StreamRuleImpl;
+import org.graylog2.streams.StreamService;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Matches messages against a rule set that resembles a typical installation: most streams route by exact source or
+ * application, some use regular expressions, presence checks or numeric comparisons.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamRouterEngineBenchmark {
+    private static final DateTime TIMESTAMP = new DateTime(2024, 1, 1, 12, 0, DateTimeZone.UTC);
+
+    @Param({"10", "100"})
+    public int streamCount;
+
+    @Param({"sequential", "compiled"})
+    public String engine;
+
+    private StreamRouterEngine streamRouterEngine;
+    private Message[] messages;
+    private int messageIndex;
+
+    @Setup
+    public void setUp() {
+        final Stream defaultStream = new StreamImpl(new ObjectId(), Map.of(
+                StreamImpl.FIELD_TITLE, "Default Stream",
+                StreamImpl.FIELD_DEFAULT_STREAM, true), Collections.emptyList(), Collections.emptySet(), null);
+
+        final List<Stream> streams = new ArrayList<>(streamCount);
+        for (int i = 0; i < streamCount; i++) {
+            streams.add(stream(i));
+        }
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final StreamMetrics streamMetrics = new StreamMetrics(metricRegistry);
+        final StreamFaultManager streamFaultManager = new StreamFaultManager(new Configuration(), streamMetrics,
+                mock(NotificationService.class), mock(StreamService.class));
+        streamRouterEngine = new StreamRouterEngine(streams, streamFaultManager, streamMetrics, () -> defaultStream,
+                metricRegistry, new StreamRouterEngineType.Converter().convertFrom(engine));
+
+        messages = new Message[16];
+        for (int i = 0; i < messages.length; i++) {
+            final Message message = new Message("GET /api/v1/resource/" + i + " HTTP/1.1 200", "host-" + (i % 20), TIMESTAMP);
+            message.addField("application", "app-" + (i % 10));
+            message.addField("facility", "local" + (i % 8));
+            message.addField("level", i % 8);
+            message.addField("http_status", i % 4 == 0 ? 500 : 200);
+            if (i % 3 == 0) {
+                message.addField("user_id", "user-" + i);
+            }
+            messages[i] = message;
+        }
+    }
+
+    @Benchmark
+    public List<Stream> match() {
+        final Message message = messages[messageIndex++ & (messages.length - 1)];
+        return streamRouterEngine.match(message);
+    }
+
+    private static Stream stream(int i) {
+        final ObjectId streamId = new ObjectId();
+        final List<StreamRule> rules = new ArrayList<>();
+        switch (i % 5) {
+            case 0 -> rules.add(rule(streamId, StreamRuleType.EXACT, "source", "host-" + (i % 20)));
+            case 1 -> rules.add(rule(streamId, StreamRuleType.EXACT, "application", "app-" + (i % 10)));
+            case 2 -> rules.add(rule(streamId, StreamRuleType.REGEX, "message", "^GET /api/v1/resource/" + (i % 16) + "\\b"));
+            case 3 -> {
+                rules.add(rule(streamId, StreamRuleType.PRESENCE, "user_id", ""));
+                rules.add(rule(streamId, StreamRuleType.EXACT, "facility", "local" + (i % 8)));
+            }
+            default -> rules.add(rule(streamId, StreamRuleType.GREATER, "http_status", "499"));
+        }
+
+        final Map<String, Object> fields = new HashMap<>();
+        fields.put(StreamImpl.FIELD_TITLE, "Stream " + i);
+        fields.put(StreamImpl.FIELD_MATCHING_TYPE, Stream.MatchingType.AND.name());
+        return new StreamImpl(streamId, fields, rules, Collections.emptySet(), null);
+    }
+
+    private static StreamRule rule(ObjectId streamId, StreamRuleType type, String field, String value) {
+        final Map<String, Object> fields = new HashMap<>();
+        fields.put(StreamRuleImpl.FIELD_TYPE, type.getValue());
+        fields.put(StreamRuleImpl.FIELD_FIELD, field);
+        fields.put(StreamRuleImpl.FIELD_VALUE, value);
+        fields.put(StreamRuleImpl.FIELD_INVERTED, false);
+        fields.put(StreamRuleImpl.FIELD_STREAM_ID, streamId);
+        return new StreamRuleImpl(fields);
+    }
+}
@@ -18,7 +18,6 @@ package org.graylog.storage.elasticsearch7;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Iterables;
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.ElasticsearchException;
@@ -32,6 +31,7 @@ import org.graylog.shaded.elasticsearch7.org.elasticsearch.client.indices.Analyz
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.client.indices.AnalyzeResponse;
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.common.xcontent.XContentType;
 import org.graylog.shaded.elasticsearch7.org.elasticsearch.rest.RestStatus;
+import org.graylog2.indexer.messages.BulkDocumentSerializer;
 import org.graylog2.indexer.messages.ChunkedBulkIndexer;
 import org.graylog2.indexer.messages.DocumentNotFoundException;
 import org.graylog2.indexer.messages.Indexable;
@@ -72,14 +72,14 @@ public class MessagesAdapterES7 implements MessagesAdapter {
     private final ElasticsearchClient client;
     private final Meter invalidTimestampMeter;
     private final ChunkedBulkIndexer chunkedBulkIndexer;
-    private final ObjectMapper objectMapper;
+    private final BulkDocumentSerializer documentSerializer;
 
     @Inject
     public MessagesAdapterES7(ElasticsearchClient elasticsearchClient, MetricRegistry metricRegistry, ChunkedBulkIndexer chunkedBulkIndexer, ObjectMapper objectMapper) {
         this.client = elasticsearchClient;
         this.invalidTimestampMeter = metricRegistry.meter(name(Messages.class, "invalid-timestamps"));
         this.chunkedBulkIndexer = chunkedBulkIndexer;
-        this.objectMapper = objectMapper;
+        this.documentSerializer = new BulkDocumentSerializer(objectMapper, invalidTimestampMeter);
     }
 
     @Override
@@ -107,10 +107,12 @@ public class MessagesAdapterES7 implements MessagesAdapter {
 
     @Override
     public IndexingResults bulkIndex(List<IndexingRequest> messageList) throws IOException {
-        return chunkedBulkIndexer.index(messageList, this::bulkIndexChunked);
+        // Messages written to several index sets are only serialized once, also across retried chunks
+        final Function<Indexable, byte[]> serializer = documentSerializer.deduplicatingSerializer();
+        return chunkedBulkIndexer.index(messageList, command -> bulkIndexChunked(command, serializer));
     }
 
-    private IndexingResults bulkIndexChunked(ChunkedBulkIndexer.Chunk command) throws ChunkedBulkIndexer.EntityTooLargeException {
+    private IndexingResults bulkIndexChunked(ChunkedBulkIndexer.Chunk command, Function<Indexable, byte[]> serializer) throws ChunkedBulkIndexer.EntityTooLargeException {
         final List<IndexingRequest> messageList = command.requests;
         final int offset = command.offset;
         final int chunkSize = command.size;
@@ -125,7 +127,7 @@ public class MessagesAdapterES7 implements MessagesAdapter {
         int indexedSuccessfully = 0;
         for (List<IndexingRequest> chunk : chunks) {
 
-            final BulkResponse response = runBulkRequest(indexedSuccessfully, accumulatedResults.build(), chunk);
+            final BulkResponse response = runBulkRequest(indexedSuccessfully, accumulatedResults.build(), chunk, serializer);
             indexedSuccessfully += chunk.size();
             final IndexingResults results = indexingResultsFrom(response, messageList);
             accumulatedResults.addResults(results);
@@ -158,8 +160,8 @@ public class MessagesAdapterES7 implements MessagesAdapter {
         }
     }
 
-    private BulkResponse runBulkRequest(int indexedSuccessfully, IndexingResults previousResults, List<IndexingRequest> chunk) throws ChunkedBulkIndexer.EntityTooLargeException {
-        final BulkRequest bulkRequest = createBulkRequest(chunk);
+    private BulkResponse runBulkRequest(int indexedSuccessfully, IndexingResults previousResults, List<IndexingRequest> chunk, Function<Indexable, byte[]> serializer) throws ChunkedBulkIndexer.EntityTooLargeException {
+        final BulkRequest bulkRequest = createBulkRequest(chunk, serializer);
 
         final BulkResponse result;
         try {
@@ -178,10 +180,10 @@ public class MessagesAdapterES7 implements MessagesAdapter {
         return result;
     }
 
-    private BulkRequest createBulkRequest(List<IndexingRequest> chunk) {
+    private BulkRequest createBulkRequest(List<IndexingRequest> chunk, Function<Indexable, byte[]> serializer) {
         final BulkRequest bulkRequest = new BulkRequest();
         chunk.forEach(request -> bulkRequest.add(
-                indexRequestFrom(request)
+                indexRequestFrom(request, serializer)
         ));
         return bulkRequest;
     }
@@ -244,13 +246,8 @@ public class MessagesAdapterES7 implements MessagesAdapter {
         }
     }
 
-    private IndexRequest indexRequestFrom(IndexingRequest request) {
-        final byte[] body;
-        try {
-            body = this.objectMapper.writeValueAsBytes(request.message().toElasticSearchObject(objectMapper, this.invalidTimestampMeter));
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+    private IndexRequest indexRequestFrom(IndexingRequest request, Function<Indexable, byte[]> serializer) {
+        final byte[] body = serializer.apply(request.message());
         return new IndexRequest(request.indexSet().getWriteIndexAlias())
                 .id(request.message().getId())
                 .source(body, XContentType.JSON);
@@ -37,6 +37,7 @@ import org.graylog.storage.opensearch2.cat.NodeResponse;
 import org.graylog2.indexer.ElasticsearchException;
 import org.graylog2.indexer.cluster.ClusterAdapter;
 import org.graylog2.indexer.cluster.PendingTasksStats;
+import org.graylog2.indexer.cluster.WriteThreadPoolStats;
 import org.graylog2.indexer.cluster.health.ClusterAllocationDiskSettings;
 import org.graylog2.indexer.cluster.health.ClusterAllocationDiskSettingsFactory;
 import org.graylog2.indexer.cluster.health.NodeDiskUsageStats;
@@ -222,6 +223,34 @@ public class ClusterAdapterOS2 implements ClusterAdapter {
         return PendingTasksStats.create(pendingTasksSize, pendingTasksTimeInQueue);
     }
 
+    @Override
+    public WriteThreadPoolStats writeThreadPoolStats() {
+        final Request request = new Request("GET", "/_nodes/stats/thread_pool");
+        request.addParameter("filter_path", "nodes.*.thread_pool.write");
+
+        final JsonNode response = jsonApi.perform(request, "Couldn't read Opensearch write thread pool stats");
+
+        int nodes = 0;
+        long active = 0;
+        long queue = 0;
+        long maxNodeQueue = 0;
+        long rejected = 0;
+        for (JsonNode node : response.path("nodes")) {
+            final JsonNode writePool = node.path("thread_pool").path("write");
+            if (writePool.isMissingNode()) {
+                continue;
+            }
+            final long nodeQueue = writePool.path("queue").asLong();
+            nodes++;
+            active += writePool.path("active").asLong();
+            queue += nodeQueue;
+            maxNodeQueue = Math.max(maxNodeQueue, nodeQueue);
+            rejected += writePool.path("rejected").asLong();
+        }
+
+        return WriteThreadPoolStats.create(nodes, active, queue, maxNodeQueue, rejected);
+    }
+
     @Override
     public ClusterStats clusterStats() {
         final JsonNode clusterStatsResponseJson = rawClusterStats();
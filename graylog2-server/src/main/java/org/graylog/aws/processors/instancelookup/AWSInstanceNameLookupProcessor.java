@@ -26,15 +26,18 @@ import org.graylog.aws.AWS;
 import org.graylog.aws.auth.AWSAuthProvider;
 import org.graylog.aws.config.AWSPluginConfiguration;
 import org.graylog.aws.migrations.V20200505121200_EncryptAWSSecretKey;
+import org.graylog.failure.ProcessingFailureCause;
 import org.graylog2.Configuration;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.cluster.ClusterConfigService;
 import org.graylog2.plugin.messageprocessors.MessageProcessor;
+import org.graylog2.shared.utilities.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.Locale;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -145,31 +148,48 @@ public class AWSInstanceNameLookupProcessor implements MessageProcessor {
         }
 
         for (Message message : messages) {
-            Object awsGroupId = message.getField(AWS.SOURCE_GROUP_IDENTIFIER);
-            if(awsGroupId != null && awsGroupId.equals(true)) {
-                // This is a message from one of our own inputs and we want to do a lookup.
-                TRANSLATABLE_FIELD_NAMES.stream().filter(fieldName -> message.hasField(fieldName)).forEach(fieldName -> {
-                    // Make it so!
-                    message.addField(
-                            fieldName + "_entity",
-                            table.findByIp(message.getField(fieldName).toString()).getName()
-                    );
-
-                    message.addField(
-                            fieldName + "_entity_description",
-                            table.findByIp(message.getField(fieldName).toString()).getDescription()
-                    );
-
-                    message.addField(
-                            fieldName + "_entity_aws_type",
-                            table.findByIp(message.getField(fieldName).toString()).getAWSType()
-                    );
-                });
-
+            try {
+                lookupInstanceNames(message);
+            } catch (Exception e) {
+                final String shortError = String.format(Locale.US, "Could not look up AWS instance names of message <%s>", message.getId());
+                LOG.error("{}:\n{}", shortError, ExceptionUtils.getShortenedStackTrace(e));
+                message.addProcessingError(new Message.ProcessingError(ProcessingFailureCause.UNKNOWN,
+                        shortError, ExceptionUtils.getRootCauseMessage(e)));
             }
         }
 
         return messages;
     }
 
+    @Override
+    public boolean isolatesMessageFailures() {
+        // failing lookups are recorded as processing errors of the single message
+        return true;
+    }
+
+    private void lookupInstanceNames(Message message) {
+        Object awsGroupId = message.getField(AWS.SOURCE_GROUP_IDENTIFIER);
+        if(awsGroupId != null && awsGroupId.equals(true)) {
+            // This is a message from one of our own inputs and we want to do a lookup.
+            TRANSLATABLE_FIELD_NAMES.stream().filter(fieldName -> message.hasField(fieldName)).forEach(fieldName -> {
+                // Make it so!
+                message.addField(
+                        fieldName + "_entity",
+                        table.findByIp(message.getField(fieldName).toString()).getName()
+                );
+
+                message.addField(
+                        fieldName + "_entity_description",
+                        table.findByIp(message.getField(fieldName).toString()).getDescription()
+                );
+
+                message.addField(
+                        fieldName + "_entity_aws_type",
+                        table.findByIp(message.getField(fieldName).toString()).getAWSType()
+                );
+            });
+
+        }
+    }
+
 }
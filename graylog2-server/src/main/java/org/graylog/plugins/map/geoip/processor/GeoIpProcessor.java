@@ -19,6 +19,7 @@ package org.graylog.plugins.map.geoip.processor;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import org.graylog.failure.ProcessingFailureCause;
 import org.graylog.plugins.map.config.GeoIpResolverConfig;
 import org.graylog.plugins.map.config.S3GeoIpFileService;
 import org.graylog.plugins.map.geoip.GeoIpDbFileChangedEvent;
@@ -30,11 +31,13 @@ import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.cluster.ClusterConfigService;
 import org.graylog2.plugin.messageprocessors.MessageProcessor;
+import org.graylog2.shared.utilities.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.Locale;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -95,13 +98,27 @@ public class GeoIpProcessor implements MessageProcessor {
             reload();
         }
 
+        final GeoIpResolverEngine engine = filterEngine.get();
         for (Message message : messages) {
-            filterEngine.get().filter(message);
+            try {
+                engine.filter(message);
+            } catch (Exception e) {
+                final String shortError = String.format(Locale.US, "Could not resolve GeoIP data of message <%s>", message.getId());
+                LOG.error("{}:\n{}", shortError, ExceptionUtils.getShortenedStackTrace(e));
+                message.addProcessingError(new Message.ProcessingError(ProcessingFailureCause.UNKNOWN,
+                        shortError, ExceptionUtils.getRootCauseMessage(e)));
+            }
         }
 
         return messages;
     }
 
+    @Override
+    public boolean isolatesMessageFailures() {
+        // failing lookups are recorded as processing errors of the single message
+        return true;
+    }
+
     @Subscribe
     @SuppressWarnings("unused")
     public void updateConfig(ClusterConfigChangedEvent event) {
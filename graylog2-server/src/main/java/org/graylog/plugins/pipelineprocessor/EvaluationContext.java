@@ -61,6 +61,8 @@ public class EvaluationContext {
     private List<EvalError> evalErrors;
     @Nullable
     private Rule currentRule;
+    @Nullable
+    private Object[] compiledValues;
 
     public void setRule(Rule rule) {
         currentRule = rule;
@@ -85,6 +87,20 @@ public class EvaluationContext {
         ruleVars.put(identifier, new TypedValue(type, value));
     }
 
+    /**
+     * Scratch space for compiled rule conditions, which use it to evaluate expressions shared between the rules of a
+     * stage only once per message. See {@link org.graylog.plugins.pipelineprocessor.compiler.RuleCompiler}.
+     *
+     * @param size the number of values the compiled stage needs
+     * @return the values of the current evaluation, {@code null} entries have not been computed yet
+     */
+    public Object[] compiledValues(int size) {
+        if (compiledValues == null) {
+            compiledValues = new Object[size];
+        }
+        return compiledValues;
+    }
+
     public Message currentMessage() {
         return message;
     }
@@ -26,6 +26,7 @@ import org.antlr.v4.runtime.CommonToken;
 import org.graylog.plugins.pipelineprocessor.ast.expressions.BooleanExpression;
 import org.graylog.plugins.pipelineprocessor.ast.expressions.LogicalExpression;
 import org.graylog.plugins.pipelineprocessor.ast.statements.Statement;
+import org.graylog.plugins.pipelineprocessor.compiler.CompiledRule;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
@@ -49,6 +50,8 @@ public abstract class Rule {
     private transient Meter globalNotMatched;
     private transient Meter localNotMatched;
 
+    private transient CompiledRule compiledRule;
+
     @Nullable
     public abstract String id();
 
@@ -154,6 +157,21 @@ public abstract class Rule {
         }
     }
 
+    /**
+     * The compiled form of this rule, if the pipeline rule compiler is enabled.
+     * Like the metrics, it is not carried over to {@link #copy() copies} of this rule.
+     *
+     * @return the compiled rule or {@code null} if the rule is interpreted
+     */
+    @Nullable
+    public CompiledRule compiledRule() {
+        return compiledRule;
+    }
+
+    public void setCompiledRule(@Nullable CompiledRule compiledRule) {
+        this.compiledRule = compiledRule;
+    }
+
     /**
      * Creates a copy of this Rule.
      *
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.pipelineprocessor.compiler;
+
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.statements.Statement;
+
+import java.util.List;
+
+/**
+ * The executable form of a {@link org.graylog.plugins.pipelineprocessor.ast.Rule rule} produced by the
+ * {@link RuleCompiler}. It evaluates exactly like the rule's AST, but without walking the tree.
+ */
+public class CompiledRule {
+    private final RuleCompiler.CompiledCondition condition;
+    private final List<Statement> actions;
+    private final int foldedConstants;
+    private final int interpretedNodes;
+    private final boolean indexed;
+
+    CompiledRule(RuleCompiler.CompiledCondition condition,
+                 List<Statement> actions,
+                 int foldedConstants,
+                 int interpretedNodes,
+                 boolean indexed) {
+        this.condition = condition;
+        this.actions = actions;
+        this.foldedConstants = foldedConstants;
+        this.interpretedNodes = interpretedNodes;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Evaluates the rule's condition. Like {@link org.graylog.plugins.pipelineprocessor.ast.expressions.LogicalExpression#evaluateBool(EvaluationContext)}
+     * this is allowed to throw exceptions, which the caller has to report on the context.
+     *
+     * @param context the context to evaluate the condition in
+     * @return {@code true} if the rule matches
+     */
+    public boolean evaluateCondition(EvaluationContext context) {
+        return condition.evaluate(context);
+    }
+
+    /**
+     * The compiled actions of the rule, in the same order as {@link org.graylog.plugins.pipelineprocessor.ast.Rule#then()}.
+     */
+    public List<Statement> actions() {
+        return actions;
+    }
+
+    /**
+     * @return the number of constant sub-expressions which have been evaluated once at compile time
+     */
+    public int foldedConstants() {
+        return foldedConstants;
+    }
+
+    /**
+     * @return the number of expressions the compiler has no specialized form for, and which are still interpreted
+     */
+    public int interpretedNodes() {
+        return interpretedNodes;
+    }
+
+    /**
+     * @return {@code true} if the condition is guarded by the constant index of its stage
+     */
+    public boolean indexed() {
+        return indexed;
+    }
+}
@@ -0,0 +1,678 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.pipelineprocessor.compiler;
+
+import com.swrve.ratelimitedlogger.RateLimitedLog;
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.AndExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.BooleanValuedFunctionWrapper;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.ComparisonExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.ConstantExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.EqualityExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.Expression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.FunctionExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.LogicalExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.MessageRefExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.NotExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.OrExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.VarRefExpression;
+import org.graylog.plugins.pipelineprocessor.ast.statements.FunctionStatement;
+import org.graylog.plugins.pipelineprocessor.ast.statements.Statement;
+import org.graylog.plugins.pipelineprocessor.ast.statements.VarAssignStatement;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.BooleanConversion;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.DoubleConversion;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.LongConversion;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.strings.Lowercase;
+import org.graylog.plugins.pipelineprocessor.functions.strings.Uppercase;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.graylog.plugins.pipelineprocessor.processors.PipelineInterpreter.getRateLimitedLog;
+
+/**
+ * Compiles the AST of a {@link Rule} into a tree of pre-bound closures.
+ * <p>
+ * Constant sub-expressions are evaluated once at compile time, message field names and comparison operators are
+ * resolved up front and function calls are bound to their parsed arguments. Every node the compiler has no
+ * specialized form for is evaluated by the AST itself, so a compiled rule always behaves exactly like the interpreted
+ * one, including the exceptions it raises and the evaluation errors it records.
+ * <p>
+ * When the rules of a stage are compiled together, side effect free function calls that occur more than once in their
+ * conditions are evaluated only once per message. Conditions starting with a {@code value == "constant"} check (after
+ * any number of {@code has_field()} checks) are additionally grouped by their value expression: the value is looked
+ * up once in a hash index of all constants of the group, and rules which cannot match are rejected without evaluating
+ * their conditions at all.
+ */
+public class RuleCompiler {
+    private static final Logger LOG = LoggerFactory.getLogger(RuleCompiler.class);
+    private static final RateLimitedLog log = getRateLimitedLog(RuleCompiler.class);
+
+    // functions which only read their arguments and the message, and can therefore be evaluated in any order
+    private static final Set<Class<?>> SIDE_EFFECT_FREE_FUNCTIONS = Set.of(
+            HasField.class,
+            StringConversion.class,
+            LongConversion.class,
+            DoubleConversion.class,
+            BooleanConversion.class,
+            Lowercase.class,
+            Uppercase.class);
+
+    private static final Object NULL_VALUE = new Object();
+    private static final Object NOT_INDEXED = new Object();
+
+    /**
+     * Compiles the condition and the actions of the given rule.
+     *
+     * @param rule the parsed rule
+     * @return the compiled rule
+     */
+    public CompiledRule compile(Rule rule) {
+        return compileStage(List.of(rule)).get(0);
+    }
+
+    /**
+     * Compiles the rules of a stage, sharing common expressions between their conditions.
+     * The conditions of all rules of a stage have to be evaluated in the same {@link EvaluationContext}, before any
+     * of their actions run.
+     *
+     * @param rules the rules of the stage, in evaluation order
+     * @return the compiled rules, in the same order
+     */
+    public List<CompiledRule> compileStage(List<Rule> rules) {
+        final Map<String, Integer> sharedSlots = sharedExpressionSlots(rules);
+        final Map<String, GuardGroupBuilder> guardGroups = new LinkedHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            final Guard guard = guard(rules.get(i).when());
+            if (guard != null) {
+                guardGroups.computeIfAbsent(guard.left().toString(), key -> new GuardGroupBuilder(guard.left()))
+                        .add(i, guard.value());
+            }
+        }
+        guardGroups.values().removeIf(group -> group.rules.size() < 2);
+
+        final int slots = sharedSlots.size() + guardGroups.size();
+        final GuardGroup[] ruleGuards = new GuardGroup[rules.size()];
+        int slot = sharedSlots.size();
+        for (GuardGroupBuilder builder : guardGroups.values()) {
+            final GuardGroup group = new GuardGroup(slot++, slots,
+                    new Compilation(sharedSlots, slots).expression(builder.left), builder.index);
+            builder.rules.forEach(i -> ruleGuards[i] = group);
+        }
+
+        final List<CompiledRule> compiledRules = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            final Rule rule = rules.get(i);
+            final Compilation compilation = new Compilation(sharedSlots, slots);
+            final CompiledCondition condition = guarded(ruleGuards[i], i, compilation.condition(rule.when()));
+            // actions may change the message, so they never use the values shared between the conditions
+            final Compilation actionCompilation = new Compilation(Map.of(), 0);
+            final List<Statement> actions = rule.then().stream()
+                    .map(actionCompilation::statement)
+                    .collect(Collectors.toList());
+
+            final int foldedConstants = compilation.foldedConstants + actionCompilation.foldedConstants;
+            final int interpretedNodes = compilation.interpretedNodes + actionCompilation.interpretedNodes;
+            LOG.debug("Compiled rule {}, folded {} constant expressions, {} expressions remain interpreted, indexed: {}",
+                    rule, foldedConstants, interpretedNodes, ruleGuards[i] != null);
+            compiledRules.add(new CompiledRule(condition, actions, foldedConstants, interpretedNodes, ruleGuards[i] != null));
+        }
+        return compiledRules;
+    }
+
+    private static CompiledCondition guarded(@Nullable GuardGroup group, int rule, CompiledCondition condition) {
+        if (group == null) {
+            return condition;
+        }
+        return context -> {
+            final BitSet candidates = group.candidates(context);
+            return (candidates == null || candidates.get(rule)) && condition.evaluate(context);
+        };
+    }
+
+    // assigns a slot to every side effect free function call which occurs more than once in the conditions
+    private static Map<String, Integer> sharedExpressionSlots(List<Rule> rules) {
+        final Map<String, Integer> occurrences = new HashMap<>();
+        for (Rule rule : rules) {
+            countSharable(rule.when(), occurrences);
+        }
+        final Map<String, Integer> slots = new HashMap<>();
+        occurrences.forEach((key, count) -> {
+            if (count > 1) {
+                slots.put(key, slots.size());
+            }
+        });
+        return slots;
+    }
+
+    private static void countSharable(@Nullable Expression expr, Map<String, Integer> occurrences) {
+        if (expr == null) {
+            return;
+        }
+        if (expr instanceof FunctionExpression && isSideEffectFree(expr)) {
+            occurrences.merge(expr.toString(), 1, Integer::sum);
+        }
+        for (Expression child : expr.children()) {
+            countSharable(child, occurrences);
+        }
+    }
+
+    @Nullable
+    private static Guard guard(LogicalExpression condition) {
+        final List<Expression> conjuncts = new ArrayList<>();
+        conjuncts(condition, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            if (conjunct instanceof EqualityExpression equality
+                    && equality.isCheckEquality()
+                    && !(equality.left() instanceof ConstantExpression)
+                    && isSideEffectFree(equality.left())
+                    && isFoldable(equality.right())) {
+                try {
+                    final Object value = equality.right().evaluateUnsafe();
+                    if (isIndexable(value)) {
+                        return new Guard(equality.left(), value);
+                    }
+                } catch (Exception e) {
+                    LOG.debug("Unable to evaluate constant {}, not indexing the condition", equality.right(), e);
+                }
+                return null;
+            }
+            // has_field() never fails, so skipping it cannot hide evaluation errors
+            if (!(conjunct instanceof BooleanValuedFunctionWrapper wrapper
+                    && wrapper.expression() instanceof FunctionExpression function
+                    && function.getFunction() instanceof HasField
+                    && isSideEffectFree(function))) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // the operands of top level AND expressions, in evaluation order
+    private static void conjuncts(Expression expr, List<Expression> conjuncts) {
+        if (expr instanceof AndExpression and) {
+            conjuncts(and.left(), conjuncts);
+            conjuncts(and.right(), conjuncts);
+        } else {
+            conjuncts.add(expr);
+        }
+    }
+
+    private static boolean isSideEffectFree(@Nullable Expression expr) {
+        if (expr == null || isFoldable(expr)) {
+            return true;
+        }
+        if (expr instanceof MessageRefExpression messageRef) {
+            return messageRef.getFieldExpr() == messageRef || isSideEffectFree(messageRef.getFieldExpr());
+        }
+        if (expr instanceof FunctionExpression function) {
+            if (!SIDE_EFFECT_FREE_FUNCTIONS.contains(function.getFunction().getClass())) {
+                return false;
+            }
+            for (Expression arg : function.getArgs().getArgs().values()) {
+                if (!isSideEffectFree(arg)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isFoldable(Expression expr) {
+        return expr.isConstant() && !referencesVariables(expr);
+    }
+
+    // constant variables only have a value in the evaluation context they have been defined in
+    private static boolean referencesVariables(@Nullable Expression expr) {
+        if (expr == null) {
+            return false;
+        }
+        if (expr instanceof VarRefExpression) {
+            return true;
+        }
+        for (Expression child : expr.children()) {
+            if (referencesVariables(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // sharing mutable values such as lists or maps between messages would leak modifications
+    private static boolean isImmutable(@Nullable Object value) {
+        return value == null
+                || value instanceof String
+                || value instanceof Boolean
+                || value instanceof Long
+                || value instanceof Double
+                || value instanceof DateTime
+                || value instanceof Period;
+    }
+
+    // values whose equals() is consistent with hashCode(), so that a hash lookup finds exactly the equal constants
+    private static boolean isIndexable(@Nullable Object value) {
+        return value instanceof String
+                || value instanceof Boolean
+                || value instanceof Long
+                || value instanceof Integer
+                || value instanceof Double;
+    }
+
+    @FunctionalInterface
+    interface CompiledCondition {
+        boolean evaluate(EvaluationContext context);
+    }
+
+    @FunctionalInterface
+    interface CompiledExpression {
+        @Nullable
+        Object evaluate(EvaluationContext context);
+    }
+
+    private record ConstantValue(@Nullable Object value) implements CompiledExpression {
+        @Override
+        public Object evaluate(EvaluationContext context) {
+            return value;
+        }
+    }
+
+    private record SharedValue(int slot, int slots, CompiledExpression expression) implements CompiledExpression {
+        @Override
+        public Object evaluate(EvaluationContext context) {
+            final Object[] values = context.compiledValues(slots);
+            final Object value = values[slot];
+            if (value == null) {
+                final Object computed = expression.evaluate(context);
+                values[slot] = computed == null ? NULL_VALUE : computed;
+                return computed;
+            }
+            return value == NULL_VALUE ? null : value;
+        }
+    }
+
+    private record Guard(Expression left, Object value) {
+    }
+
+    private static class GuardGroupBuilder {
+        private final Expression left;
+        private final Map<Object, BitSet> index = new HashMap<>();
+        private final List<Integer> rules = new ArrayList<>();
+
+        GuardGroupBuilder(Expression left) {
+            this.left = left;
+        }
+
+        void add(int rule, Object value) {
+            index.computeIfAbsent(value, v -> new BitSet()).set(rule);
+            rules.add(rule);
+        }
+    }
+
+    private record GuardGroup(int slot, int slots, CompiledExpression left, Map<Object, BitSet> index) {
+        private static final BitSet NO_CANDIDATES = new BitSet();
+
+        /**
+         * @return the rules whose guard matches the current message, {@code null} if the value cannot be looked up
+         */
+        @Nullable
+        BitSet candidates(EvaluationContext context) {
+            final Object[] values = context.compiledValues(slots);
+            Object candidates = values[slot];
+            if (candidates == null) {
+                candidates = lookup(context);
+                values[slot] = candidates;
+            }
+            return candidates == NOT_INDEXED ? null : (BitSet) candidates;
+        }
+
+        private Object lookup(EvaluationContext context) {
+            final Object value;
+            try {
+                value = left.evaluate(context);
+            } catch (Exception e) {
+                // let the rules' conditions report the error
+                return NOT_INDEXED;
+            }
+            // null values need the warning logged by the equality check
+            if (!isIndexable(value)) {
+                return NOT_INDEXED;
+            }
+            return index.getOrDefault(value, NO_CANDIDATES);
+        }
+    }
+
+    private static class Compilation {
+        private final Map<String, Integer> sharedSlots;
+        private final int slots;
+        private int foldedConstants = 0;
+        private int interpretedNodes = 0;
+
+        Compilation(Map<String, Integer> sharedSlots, int slots) {
+            this.sharedSlots = sharedSlots;
+            this.slots = slots;
+        }
+
+        Statement statement(Statement statement) {
+            if (statement instanceof FunctionStatement functionStatement) {
+                final Expression source = functionStatement.getFunctionExpression();
+                final CompiledExpression expression = expression(source);
+                return context -> evaluate(expression, source, context);
+            }
+            if (statement instanceof VarAssignStatement varAssign) {
+                final String name = varAssign.getName();
+                final Expression source = varAssign.getValueExpression();
+                final Class type = source.getType();
+                final CompiledExpression expression = expression(source);
+                return context -> {
+                    context.define(name, type, evaluate(expression, source, context));
+                    return null;
+                };
+            }
+            interpretedNodes++;
+            return statement;
+        }
+
+        CompiledCondition condition(LogicalExpression expr) {
+            if (isFoldable(expr)) {
+                try {
+                    final boolean value = expr.evaluateBool(EvaluationContext.emptyContext());
+                    foldedConstants++;
+                    return context -> value;
+                } catch (Exception e) {
+                    LOG.debug("Unable to fold constant condition {}, evaluating it at runtime", expr, e);
+                }
+            }
+            final Expression.Type type = expr.nodeType();
+            if (type != null) {
+                switch (type) {
+                    case AND: {
+                        final AndExpression and = (AndExpression) expr;
+                        if (and.left() instanceof LogicalExpression left && and.right() instanceof LogicalExpression right) {
+                            final CompiledCondition l = condition(left);
+                            final CompiledCondition r = condition(right);
+                            return context -> l.evaluate(context) && r.evaluate(context);
+                        }
+                        break;
+                    }
+                    case OR: {
+                        final OrExpression or = (OrExpression) expr;
+                        if (or.left() instanceof LogicalExpression left && or.right() instanceof LogicalExpression right) {
+                            final CompiledCondition l = condition(left);
+                            final CompiledCondition r = condition(right);
+                            return context -> l.evaluate(context) || r.evaluate(context);
+                        }
+                        break;
+                    }
+                    case NOT: {
+                        if (((NotExpression) expr).right() instanceof LogicalExpression right) {
+                            final CompiledCondition r = condition(right);
+                            return context -> !r.evaluate(context);
+                        }
+                        break;
+                    }
+                    case EQUALITY:
+                        return equality((EqualityExpression) expr);
+                    case COMPARISON: {
+                        final ComparisonExpression comparison = (ComparisonExpression) expr;
+                        final Comparison operator = Comparison.forOperator(comparison.getOperator());
+                        if (operator != null) {
+                            return comparison(operator, expression(comparison.left()), expression(comparison.right()));
+                        }
+                        break;
+                    }
+                    case BOOLEAN_FUNC_WRAPPER: {
+                        final CompiledExpression wrapped = expression(((BooleanValuedFunctionWrapper) expr).expression());
+                        return context -> {
+                            final Object value = wrapped.evaluate(context);
+                            return value != null && (Boolean) value;
+                        };
+                    }
+                    default:
+                        break;
+                }
+            }
+            interpretedNodes++;
+            return expr::evaluateBool;
+        }
+
+        CompiledExpression expression(Expression expr) {
+            if (isFoldable(expr)) {
+                try {
+                    final Object value = expr.evaluateUnsafe();
+                    if (isImmutable(value)) {
+                        foldedConstants++;
+                        return new ConstantValue(value);
+                    }
+                } catch (Exception e) {
+                    LOG.debug("Unable to fold constant expression {}, evaluating it at runtime", expr, e);
+                }
+            }
+            final Expression.Type type = expr.nodeType();
+            if (type != null) {
+                switch (type) {
+                    case AND:
+                    case OR:
+                    case NOT:
+                    case EQUALITY:
+                    case COMPARISON:
+                    case BOOLEAN_FUNC_WRAPPER: {
+                        final CompiledCondition condition = condition((LogicalExpression) expr);
+                        return condition::evaluate;
+                    }
+                    case MESSAGE:
+                        return messageRef((MessageRefExpression) expr);
+                    case FUNCTION: {
+                        // the function and its constant arguments have already been bound by the parser
+                        final Integer slot = sharedSlots.get(expr.toString());
+                        if (slot != null && isSideEffectFree(expr)) {
+                            return new SharedValue(slot, slots, expr::evaluateUnsafe);
+                        }
+                        return expr::evaluateUnsafe;
+                    }
+                    default:
+                        break;
+                }
+            }
+            interpretedNodes++;
+            return expr::evaluateUnsafe;
+        }
+
+        private CompiledExpression messageRef(MessageRefExpression expr) {
+            final Expression fieldExpr = expr.getFieldExpr();
+            if (fieldExpr == expr) {
+                return EvaluationContext::currentMessage;
+            }
+            final CompiledExpression field = expression(fieldExpr);
+            if (field instanceof ConstantValue constant) {
+                if (constant.value() == null) {
+                    return context -> null;
+                }
+                final String fieldName = constant.value().toString();
+                return context -> context.currentMessage().getField(fieldName);
+            }
+            return context -> {
+                final Object fieldName = field.evaluate(context);
+                if (fieldName == null) {
+                    return null;
+                }
+                return context.currentMessage().getField(fieldName.toString());
+            };
+        }
+
+        private CompiledCondition equality(EqualityExpression expr) {
+            final Expression leftExpr = expr.left();
+            final CompiledExpression left = expression(leftExpr);
+            final CompiledExpression right = expression(expr.right());
+            final boolean checkEquality = expr.isCheckEquality();
+
+            if (right instanceof ConstantValue constant && !(constant.value() instanceof DateTime)) {
+                // a constant that isn't a DateTime never needs the chronology-agnostic comparison
+                final Object rightValue = constant.value();
+                return context -> {
+                    final Object leftValue = left.evaluate(context);
+                    if (leftValue == null) {
+                        log.warn(context.pipelineErrorMessage("left expression evaluated to null, returning false: " + leftExpr));
+                        return false;
+                    }
+                    return leftValue.equals(rightValue) == checkEquality;
+                };
+            }
+            return context -> {
+                final Object leftValue = left.evaluate(context);
+                final Object rightValue = right.evaluate(context);
+                if (leftValue == null) {
+                    log.warn(context.pipelineErrorMessage("left expression evaluated to null, returning false: " + leftExpr));
+                    return false;
+                }
+                final boolean equals;
+                if (leftValue instanceof DateTime && rightValue instanceof DateTime) {
+                    equals = ((DateTime) leftValue).isEqual((DateTime) rightValue);
+                } else {
+                    equals = leftValue.equals(rightValue);
+                }
+                return equals == checkEquality;
+            };
+        }
+
+        private CompiledCondition comparison(Comparison comparison, CompiledExpression left, CompiledExpression right) {
+            return context -> {
+                final Object leftValue = left.evaluate(context);
+                final Object rightValue = right.evaluate(context);
+                if (leftValue instanceof DateTime && rightValue instanceof DateTime) {
+                    return comparison.compare((DateTime) leftValue, (DateTime) rightValue);
+                }
+                if (leftValue instanceof Double || rightValue instanceof Double) {
+                    return comparison.compare((double) leftValue, (double) rightValue);
+                }
+                return comparison.compare((long) leftValue, (long) rightValue);
+            };
+        }
+
+        private static Object evaluate(CompiledExpression expression, Expression source, EvaluationContext context) {
+            try {
+                return expression.evaluate(context);
+            } catch (Exception e) {
+                context.onEvaluationException(e, source);
+            }
+            return null;
+        }
+    }
+
+    private enum Comparison {
+        GREATER(">") {
+            @Override
+            boolean compare(long left, long right) {
+                return left > right;
+            }
+
+            @Override
+            boolean compare(double left, double right) {
+                return left > right;
+            }
+
+            @Override
+            boolean compare(DateTime left, DateTime right) {
+                return left.isAfter(right);
+            }
+        },
+        GREATER_OR_EQUAL(">=") {
+            @Override
+            boolean compare(long left, long right) {
+                return left >= right;
+            }
+
+            @Override
+            boolean compare(double left, double right) {
+                return left >= right;
+            }
+
+            @Override
+            boolean compare(DateTime left, DateTime right) {
+                return !left.isBefore(right);
+            }
+        },
+        LESS("<") {
+            @Override
+            boolean compare(long left, long right) {
+                return left < right;
+            }
+
+            @Override
+            boolean compare(double left, double right) {
+                return left < right;
+            }
+
+            @Override
+            boolean compare(DateTime left, DateTime right) {
+                return left.isBefore(right);
+            }
+        },
+        LESS_OR_EQUAL("<=") {
+            @Override
+            boolean compare(long left, long right) {
+                return left <= right;
+            }
+
+            @Override
+            boolean compare(double left, double right) {
+                return left <= right;
+            }
+
+            @Override
+            boolean compare(DateTime left, DateTime right) {
+                return !left.isAfter(right);
+            }
+        };
+
+        private final String operator;
+
+        Comparison(String operator) {
+            this.operator = operator;
+        }
+
+        abstract boolean compare(long left, long right);
+
+        abstract boolean compare(double left, double right);
+
+        abstract boolean compare(DateTime left, DateTime right);
+
+        @Nullable
+        static Comparison forOperator(String operator) {
+            for (Comparison comparison : values()) {
+                if (comparison.operator.equals(operator)) {
+                    return comparison;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor.object;
 import static org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor.string;
@@ -69,9 +70,10 @@ public class LookupAll extends AbstractFunction<List<Object>> {
         if (table == null) {
             return List.of();
         }
+        final Map<Object, LookupResult> lookupResults = table.lookupAll(keys);
         final List<Object> results = new ArrayList<>();
         for (Object key : keys) {
-            LookupResult result = table.lookup(key);
+            LookupResult result = lookupResults.get(key);
             if (result != null && !result.isEmpty()) {
                 results.add(result.singleValue());
             }
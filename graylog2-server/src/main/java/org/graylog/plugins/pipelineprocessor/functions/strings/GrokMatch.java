@@ -25,6 +25,8 @@ import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.graylog2.grok.GrokPatternRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.Map;
@@ -33,7 +35,11 @@ import static com.google.common.collect.ImmutableList.of;
 
 public class GrokMatch extends AbstractFunction<GrokMatch.GrokResult> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(GrokMatch.class);
+
     public static final String NAME = "grok";
+    // not a parameter, holds the pattern compiled at parse time if both the pattern and the capture mode are constant
+    private static final String PRECOMPILED_GROK = "__precompiled_grok";
 
     private final ParameterDescriptor<String, String> valueParam;
     private final ParameterDescriptor<String, String> patternParam;
@@ -50,6 +56,27 @@ public class GrokMatch extends AbstractFunction<GrokMatch.GrokResult> {
         namedOnly = ParameterDescriptor.bool("only_named_captures").optional().description("Whether to only use explicitly named groups in the patterns").build();
     }
 
+    @Override
+    public void preprocessArgs(FunctionArgs args) {
+        super.preprocessArgs(args);
+
+        final Object pattern = args.getPreComputedValue(patternParam.name());
+        final boolean constantNamedOnly = !args.isPresent(namedOnly.name()) || args.getPreComputedValue(namedOnly.name()) != null;
+        if (pattern == null || !constantNamedOnly) {
+            return;
+        }
+        final boolean onlyNamedCaptures = Boolean.TRUE.equals(args.getPreComputedValue(namedOnly.name()));
+        // read the generation before compiling, so a concurrent reload can only make the result look outdated
+        final long generation = grokPatternRegistry.generation();
+        try {
+            final Grok grok = grokPatternRegistry.cachedGrokForPattern((String) pattern, onlyNamedCaptures);
+            args.setPreComputedValue(PRECOMPILED_GROK, new PrecompiledGrok(grok, generation));
+        } catch (Exception e) {
+            // the pattern might refer to grok patterns which do not exist yet, report it during evaluation as before
+            LOG.debug("Unable to precompile grok pattern {}", pattern, e);
+        }
+    }
+
     @Override
     public GrokResult evaluate(FunctionArgs args, EvaluationContext context) {
         final String value = valueParam.required(args, context);
@@ -60,7 +87,13 @@ public class GrokMatch extends AbstractFunction<GrokMatch.GrokResult> {
             return null;
         }
 
-        final Grok grok = grokPatternRegistry.cachedGrokForPattern(pattern, onlyNamedCaptures);
+        final PrecompiledGrok precompiled = (PrecompiledGrok) args.getPreComputedValue(PRECOMPILED_GROK);
+        final Grok grok;
+        if (precompiled != null && precompiled.generation() == grokPatternRegistry.generation()) {
+            grok = precompiled.grok();
+        } else {
+            grok = grokPatternRegistry.cachedGrokForPattern(pattern, onlyNamedCaptures);
+        }
 
         final Match match = grok.match(value);
         return new GrokResult(match.captureFlattened());
@@ -76,6 +109,8 @@ public class GrokMatch extends AbstractFunction<GrokMatch.GrokResult> {
                 .build();
     }
 
+    private record PrecompiledGrok(Grok grok, long generation) {}
+
     public static class GrokResult extends ForwardingMap<String, Object> {
         private final Map<String, Object> captures;
 
@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.strings;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ForwardingMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -25,6 +26,7 @@ import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 
+import javax.inject.Inject;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +44,12 @@ public class RegexMatch extends AbstractFunction<RegexMatch.RegexMatchResult> {
     private final ParameterDescriptor<List, List> optionalGroupNames;
 
     public RegexMatch() {
-        pattern = ParameterDescriptor.string("pattern", Pattern.class).transform(Pattern::compile).description("The regular expression to match against 'value', uses Java regex syntax").build();
+        this(new RegexPatternCache(new MetricRegistry()));
+    }
+
+    @Inject
+    public RegexMatch(RegexPatternCache patternCache) {
+        pattern = ParameterDescriptor.string("pattern", Pattern.class).transform(patternCache::get).description("The regular expression to match against 'value', uses Java regex syntax").build();
         value = ParameterDescriptor.string("value").description("The string to match the pattern against").build();
         optionalGroupNames = ParameterDescriptor.type("group_names", List.class).optional().description("List of names to use for matcher groups").build();
     }
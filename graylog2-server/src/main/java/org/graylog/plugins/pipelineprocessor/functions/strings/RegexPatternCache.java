@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.strings;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.graylog2.metrics.CacheStatsSet;
+import org.graylog2.shared.metrics.MetricUtils;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.regex.Pattern;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Compiled regular expressions shared by all rules.
+ * <br>
+ * Constant patterns are already compiled once when a rule is parsed, this cache covers patterns which are only known
+ * at evaluation time, e.g. because they are built from message fields. It is bounded, so rules producing a large number
+ * of distinct patterns only lose the benefit of the cache instead of exhausting the heap.
+ */
+@Singleton
+public class RegexPatternCache {
+    static final int MAXIMUM_SIZE = 1000;
+
+    private final LoadingCache<String, Pattern> cache;
+
+    @Inject
+    public RegexPatternCache(MetricRegistry metricRegistry) {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .recordStats()
+                .build(CacheLoader.from(Pattern::compile));
+
+        MetricUtils.safelyRegisterAll(metricRegistry, new CacheStatsSet(name(RegexPatternCache.class, "cache"), cache));
+    }
+
+    /**
+     * Returns the compiled form of the given regular expression, compiling it if necessary.
+     *
+     * @param regex the regular expression in Java syntax
+     * @return the compiled pattern
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid, like {@link Pattern#compile(String)}
+     */
+    public Pattern get(String regex) {
+        try {
+            return cache.getUnchecked(regex);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    long size() {
+        return cache.size();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.strings;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
 import com.google.common.reflect.TypeToken;
@@ -26,6 +27,7 @@ import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.graylog.plugins.pipelineprocessor.rulebuilder.RuleBuilderFunctionGroup;
 
+import javax.inject.Inject;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -44,8 +46,13 @@ public class Split extends AbstractFunction<List<String>> {
     private final ParameterDescriptor<Long, Integer> limit;
 
     public Split() {
+        this(new RegexPatternCache(new MetricRegistry()));
+    }
+
+    @Inject
+    public Split(RegexPatternCache patternCache) {
         pattern = ParameterDescriptor.string("pattern", Pattern.class)
-                .transform(Pattern::compile)
+                .transform(patternCache::get)
                 .description("The regular expression to split by, uses Java regex syntax")
                 .build();
         value = ParameterDescriptor.string("value").ruleBuilderVariable()
@@ -26,6 +26,8 @@ import com.google.common.eventbus.Subscribe;
 import com.swrve.ratelimitedlogger.RateLimitedLog;
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
 import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.graylog.plugins.pipelineprocessor.compiler.CompiledRule;
+import org.graylog.plugins.pipelineprocessor.compiler.RuleCompiler;
 import org.graylog.plugins.pipelineprocessor.db.PipelineService;
 import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
 import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigDto;
@@ -67,6 +69,7 @@ public class ConfigurationStateUpdater {
     private final ScheduledExecutorService scheduler;
     private final EventBus serverEventBus;
     private final PipelineInterpreter.State.Factory stateFactory;
+    private final RuleCompiler ruleCompiler;
     /**
      * non-null if the update has successfully loaded a state
      */
@@ -81,7 +84,8 @@ public class ConfigurationStateUpdater {
                                      MetricRegistry metricRegistry,
                                      @Named("daemonScheduler") ScheduledExecutorService scheduler,
                                      EventBus serverEventBus,
-                                     PipelineInterpreter.State.Factory stateFactory) {
+                                     PipelineInterpreter.State.Factory stateFactory,
+                                     @Named("compiled_pipeline_rules") boolean compiledRules) {
         this.ruleService = ruleService;
         this.pipelineService = pipelineService;
         this.pipelineStreamConnectionsService = pipelineStreamConnectionsService;
@@ -91,6 +95,7 @@ public class ConfigurationStateUpdater {
         this.scheduler = scheduler;
         this.serverEventBus = serverEventBus;
         this.stateFactory = stateFactory;
+        this.ruleCompiler = compiledRules ? new RuleCompiler() : null;
 
         // listens to cluster wide Rule, Pipeline and pipeline stream connection changes
         serverEventBus.register(this);
@@ -175,6 +180,12 @@ public class ConfigurationStateUpdater {
                         return rule;
                     })
                     .collect(Collectors.toList());
+            if (ruleCompiler != null) {
+                final List<CompiledRule> compiledRules = ruleCompiler.compileStage(resolvedRules);
+                for (int i = 0; i < resolvedRules.size(); i++) {
+                    resolvedRules.get(i).setCompiledRule(compiledRules.get(i));
+                }
+            }
             stage.setRules(resolvedRules);
             stage.setPipeline(pipeline);
             stage.registerMetrics(metricRegistry, pipeline.id());
@@ -22,6 +22,7 @@ import com.codahale.metrics.Timer;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
@@ -38,6 +39,7 @@ import org.graylog.plugins.pipelineprocessor.ast.Rule;
 import org.graylog.plugins.pipelineprocessor.ast.Stage;
 import org.graylog.plugins.pipelineprocessor.ast.expressions.LogicalExpression;
 import org.graylog.plugins.pipelineprocessor.ast.statements.Statement;
+import org.graylog.plugins.pipelineprocessor.compiler.CompiledRule;
 import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigDto;
 import org.graylog.plugins.pipelineprocessor.processors.listeners.InterpreterListener;
 import org.graylog.plugins.pipelineprocessor.processors.listeners.NoopInterpreterListener;
@@ -53,25 +55,26 @@ import org.graylog2.shared.buffers.processors.ProcessBufferProcessor;
 import org.graylog2.shared.messageq.MessageQueueAcknowledger;
 import org.graylog2.shared.metrics.MetricUtils;
 import org.graylog2.shared.utilities.ExceptionUtils;
-import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 import static com.codahale.metrics.MetricRegistry.name;
-import static org.jooq.lambda.tuple.Tuple.tuple;
 
 public class PipelineInterpreter implements MessageProcessor {
     private static final RateLimitedLog log = getRateLimitedLog(PipelineInterpreter.class);
@@ -109,6 +112,12 @@ public class PipelineInterpreter implements MessageProcessor {
         }
     }
 
+    @Override
+    public boolean isolatesMessageFailures() {
+        // failing rule conditions and actions are recorded as processing errors of the single message
+        return true;
+    }
+
     /**
      * Evaluates all pipelines that apply to the given messages, based on the current stream routing
      * of the messages.
@@ -125,8 +134,9 @@ public class PipelineInterpreter implements MessageProcessor {
      */
     public Messages process(Messages messages, InterpreterListener interpreterListener, State state) {
         interpreterListener.startProcessing();
-        // message id + stream id
-        final Set<Tuple2<String, String>> processingBlacklist = Sets.newHashSet();
+        // the connected streams each message has already been processed for, indexed by State#streamIndex
+        // only needed for messages that are run again, so it is created lazily
+        Map<Message, BitSet> processedStreams = null;
 
         final List<Message> toProcess = Lists.newArrayList(messages);
         final List<Message> fullyProcessed = Lists.newArrayListWithExpectedSize(toProcess.size());
@@ -139,24 +149,29 @@ public class PipelineInterpreter implements MessageProcessor {
             for (Message message : currentSet) {
                 final String msgId = message.getId();
 
-                // this makes a copy of the list, which is mutated later in updateStreamBlacklist
-                // it serves as a worklist, to keep track of which <msg, stream> tuples need to be re-run again
-                final Set<String> initialStreamIds = message.getStreams().stream().map(Stream::getId).collect(Collectors.toSet());
+                final BitSet messageProcessedStreams = processedStreams == null ? null : processedStreams.get(message);
 
                 final ImmutableSet<Pipeline> pipelinesToRun = selectPipelines(interpreterListener,
-                        processingBlacklist,
+                        messageProcessedStreams,
                         message,
-                        initialStreamIds,
-                        state.getStreamPipelineConnections());
+                        message.getStreamsView(),
+                        state);
+                if (pipelinesToRun.isEmpty()) {
+                    // without pipelines to run the streams of the message cannot change
+                    potentiallyDropFilteredMessage(message);
+                    log.debug("[{}] no pipelines to run, not running again", msgId);
+                    fullyProcessed.add(message);
+                    continue;
+                }
+
+                // an immutable snapshot of the streams before processing, to detect the streams added by the pipelines
+                final Set<Stream> initialStreams = message.getStreams();
 
                 toProcess.addAll(processForResolvedPipelines(message, msgId, pipelinesToRun, interpreterListener, state));
 
-                // add each processed message-stream combination to the blacklist set and figure out if the processing
-                // has added a stream to the message, in which case we need to cycle and determine whether to process
-                // its pipeline connections, too
-                boolean addedStreams = updateStreamBlacklist(processingBlacklist,
-                        message,
-                        initialStreamIds);
+                // figure out if the processing has added a stream to the message, in which case we need to cycle and
+                // determine whether to process its pipeline connections, too
+                final boolean addedStreams = hasAddedStreams(message, initialStreams);
                 potentiallyDropFilteredMessage(message);
 
                 // go to 1 and iterate over all messages again until no more streams are being assigned
@@ -166,6 +181,13 @@ public class PipelineInterpreter implements MessageProcessor {
                 } else {
                     // process again, we've added a stream
                     log.debug("[{}] new streams assigned, running again for those streams", msgId);
+                    if (processedStreams == null) {
+                        processedStreams = new IdentityHashMap<>();
+                    }
+                    markProcessedStreams(processedStreams.computeIfAbsent(message, m -> new BitSet(state.getStreamCount())),
+                            message,
+                            initialStreams,
+                            state);
                     toProcess.add(message);
                 }
             }
@@ -185,43 +207,78 @@ public class PipelineInterpreter implements MessageProcessor {
         }
     }
 
-    // given the initial streams the message was on before the processing and its current state, update the set of
-    // <msgid, stream> that should not be run again (which prevents re-running pipelines over and over again)
-    private boolean updateStreamBlacklist(Set<Tuple2<String, String>> processingBlacklist,
-                                          Message message,
-                                          Set<String> initialStreamIds) {
-        boolean addedStreams = false;
-        for (Stream stream : message.getStreams()) {
-            if (!initialStreamIds.remove(stream.getId())) {
-                addedStreams = true;
-            } else {
-                // only add pre-existing streams to blacklist, this has the effect of only adding already processed streams,
-                // not newly added ones.
-                processingBlacklist.add(tuple(message.getId(), stream.getId()));
+    // messages are usually only routed into a handful of streams, so comparing the ids pairwise is cheaper than
+    // building a set of them
+    private static boolean hasAddedStreams(Message message, Set<Stream> initialStreams) {
+        for (Stream stream : message.getStreamsView()) {
+            if (!containsStream(initialStreams, stream.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsStream(Set<Stream> streams, String streamId) {
+        for (Stream stream : streams) {
+            if (stream.getId().equals(streamId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // only add pre-existing streams, this has the effect of only marking already processed streams, not newly added ones
+    private static void markProcessedStreams(BitSet processedStreams, Message message, Set<Stream> initialStreams, State state) {
+        for (Stream stream : message.getStreamsView()) {
+            final int index = state.streamIndex(stream.getId());
+            if (index >= 0 && containsStream(initialStreams, stream.getId())) {
+                processedStreams.set(index);
             }
         }
-        return addedStreams;
     }
 
     // determine which pipelines should be executed give the stream-pipeline connections and the current message
-    // the initialStreamIds are not mutated, but are being passed for efficiency, as they are used later in #process()
     private ImmutableSet<Pipeline> selectPipelines(InterpreterListener interpreterListener,
-                                                   Set<Tuple2<String, String>> processingBlacklist,
+                                                   @Nullable BitSet processedStreams,
                                                    Message message,
-                                                   Set<String> initialStreamIds,
-                                                   ImmutableSetMultimap<String, Pipeline> streamConnection) {
-        final String msgId = message.getId();
-
-        // if a message-stream combination has already been processed (is in the set), skip that execution
-        final Set<String> streamsIds = initialStreamIds.stream()
-                .filter(streamId -> !processingBlacklist.contains(tuple(msgId, streamId)))
-                .filter(streamConnection::containsKey)
-                .collect(Collectors.toSet());
-        final ImmutableSet<Pipeline> pipelinesToRun = streamsIds.stream()
-                .flatMap(streamId -> streamConnection.get(streamId).stream())
-                .collect(ImmutableSet.toImmutableSet());
+                                                   Set<Stream> initialStreams,
+                                                   State state) {
+        // the common case of a single connected stream uses the pipeline set precomputed by the state
+        int firstStream = -1;
+        ImmutableSet.Builder<Pipeline> pipelines = null;
+        ImmutableSet.Builder<String> streamIds = null;
+        for (Stream stream : initialStreams) {
+            final int index = state.streamIndex(stream.getId());
+            // if a message-stream combination has already been processed, skip that execution
+            if (index < 0 || (processedStreams != null && processedStreams.get(index))) {
+                continue;
+            }
+            if (firstStream < 0) {
+                firstStream = index;
+                continue;
+            }
+            if (pipelines == null) {
+                pipelines = ImmutableSet.<Pipeline>builder().addAll(state.getStreamPipelines(firstStream));
+                streamIds = ImmutableSet.<String>builder().add(state.getStreamId(firstStream));
+            }
+            pipelines.addAll(state.getStreamPipelines(index));
+            streamIds.add(state.getStreamId(index));
+        }
+
+        final ImmutableSet<Pipeline> pipelinesToRun;
+        final Set<String> streamsIds;
+        if (pipelines != null) {
+            pipelinesToRun = pipelines.build();
+            streamsIds = streamIds.build();
+        } else if (firstStream >= 0) {
+            pipelinesToRun = state.getStreamPipelines(firstStream);
+            streamsIds = ImmutableSet.of(state.getStreamId(firstStream));
+        } else {
+            pipelinesToRun = ImmutableSet.of();
+            streamsIds = ImmutableSet.of();
+        }
         interpreterListener.processStreams(message, pipelinesToRun, streamsIds);
-        log.debug("[{}] running pipelines {} for streams {}", msgId, pipelinesToRun, streamsIds);
+        log.debug("[{}] running pipelines {} for streams {}", message.getId(), pipelinesToRun, streamsIds);
         return pipelinesToRun;
     }
 
@@ -380,7 +437,9 @@ public class PipelineInterpreter implements MessageProcessor {
         interpreterListener.executeRule(rule, pipeline);
         try {
             log.debug("[{}] rule `{}` matched running actions", msgId, rule.name());
-            for (Statement statement : rule.then()) {
+            final CompiledRule compiledRule = rule.compiledRule();
+            final Collection<Statement> actions = compiledRule != null ? compiledRule.actions() : rule.then();
+            for (Statement statement : actions) {
                 if (!evaluateStatement(message, interpreterListener, pipeline, context, rule, statement)) {
                     // statement raised an error, skip the rest of the rule
                     return false;
@@ -427,7 +486,12 @@ public class PipelineInterpreter implements MessageProcessor {
         final boolean matched;
         final LogicalExpression logicalExpression = rule.when();
         try {
-            matched = logicalExpression.evaluateBool(context);
+            final CompiledRule compiledRule = rule.compiledRule();
+            if (compiledRule != null) {
+                matched = compiledRule.evaluateCondition(context);
+            } else {
+                matched = logicalExpression.evaluateBool(context);
+            }
         } catch (Exception e) {
 
             context.onEvaluationException(e, logicalExpression);
@@ -484,6 +548,10 @@ public class PipelineInterpreter implements MessageProcessor {
         private final LoadingCache<Set<Pipeline>, StageIterator.Configuration> cache;
         private final boolean cachedIterators;
         private final RuleMetricsConfigDto ruleMetricsConfig;
+        // dense index of the streams connected to pipelines, used to track processed streams in bit sets
+        private final ImmutableMap<String, Integer> streamIndex;
+        private final ImmutableList<String> streamIds;
+        private final ImmutableList<ImmutableSet<Pipeline>> streamPipelines;
 
         @AssistedInject
         public State(@Assisted ImmutableMap<String, Pipeline> currentPipelines,
@@ -497,6 +565,19 @@ public class PipelineInterpreter implements MessageProcessor {
             this.cachedIterators = cachedIterators;
             this.ruleMetricsConfig = ruleMetricsConfig;
 
+            final ImmutableMap.Builder<String, Integer> streamIndexBuilder = ImmutableMap.builder();
+            final ImmutableList.Builder<String> streamIdsBuilder = ImmutableList.builder();
+            final ImmutableList.Builder<ImmutableSet<Pipeline>> streamPipelinesBuilder = ImmutableList.builder();
+            int index = 0;
+            for (String streamId : streamPipelineConnections.keySet()) {
+                streamIndexBuilder.put(streamId, index++);
+                streamIdsBuilder.add(streamId);
+                streamPipelinesBuilder.add(streamPipelineConnections.get(streamId));
+            }
+            this.streamIndex = streamIndexBuilder.build();
+            this.streamIds = streamIdsBuilder.build();
+            this.streamPipelines = streamPipelinesBuilder.build();
+
             cache = CacheBuilder.newBuilder()
                     .concurrencyLevel(processorCount)
                     .recordStats()
@@ -524,6 +605,29 @@ public class PipelineInterpreter implements MessageProcessor {
             return streamPipelineConnections;
         }
 
+        /**
+         * Returns the position of the given stream in the dense index of all streams connected to pipelines.
+         *
+         * @param streamId the stream id
+         * @return the index of the stream, or {@code -1} if the stream is not connected to any pipeline
+         */
+        public int streamIndex(String streamId) {
+            final Integer index = streamIndex.get(streamId);
+            return index == null ? -1 : index;
+        }
+
+        public int getStreamCount() {
+            return streamIds.size();
+        }
+
+        public String getStreamId(int streamIndex) {
+            return streamIds.get(streamIndex);
+        }
+
+        public ImmutableSet<Pipeline> getStreamPipelines(int streamIndex) {
+            return streamPipelines.get(streamIndex);
+        }
+
         public boolean enableRuleMetrics() {
             return ruleMetricsConfig.metricsEnabled();
         }
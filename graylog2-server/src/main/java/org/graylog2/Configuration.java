@@ -23,9 +23,11 @@ import com.github.joschi.jadconfig.ValidatorMethod;
 import com.github.joschi.jadconfig.converters.StringSetConverter;
 import com.github.joschi.jadconfig.converters.TrimmedStringSetConverter;
 import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.util.Size;
 import com.github.joschi.jadconfig.validators.PositiveDurationValidator;
 import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 import com.github.joschi.jadconfig.validators.PositiveLongValidator;
+import com.github.joschi.jadconfig.validators.PositiveSizeValidator;
 import com.github.joschi.jadconfig.validators.StringNotBlankValidator;
 import com.google.common.collect.Sets;
 import org.graylog.security.certutil.CaConfiguration;
@@ -35,7 +37,9 @@ import org.graylog2.cluster.leader.LeaderElectionService;
 import org.graylog2.cluster.lock.MongoLockService;
 import org.graylog2.configuration.converters.JavaDurationConverter;
 import org.graylog2.notifications.Notification;
+import org.graylog2.outputs.OutputBatchStriping;
 import org.graylog2.security.realm.RootAccountRealm;
+import org.graylog2.streams.StreamRouterEngineType;
 import org.graylog2.utilities.IPSubnetConverter;
 import org.graylog2.utilities.IpSubnet;
 import org.joda.time.DateTimeZone;
@@ -78,12 +82,33 @@ public class Configuration extends CaConfiguration {
     @Parameter(value = "output_flush_interval", required = true, validators = PositiveIntegerValidator.class)
     private int outputFlushInterval = 1;
 
+    @Parameter(value = "output_batch_max_bytes", validators = PositiveSizeValidator.class)
+    private Size outputBatchMaxBytes = Size.bytes(0L);
+
+    @Parameter(value = "output_batch_striping", converter = OutputBatchStriping.Converter.class)
+    private OutputBatchStriping outputBatchStriping = OutputBatchStriping.NONE;
+
+    @Parameter(value = "output_max_inflight_bulk_requests", validators = PositiveIntegerValidator.class)
+    private int outputMaxInflightBulkRequests = 3;
+
+    @Parameter(value = "output_adaptive_bulk_control")
+    private boolean outputAdaptiveBulkControl = false;
+
+    @Parameter(value = "output_adaptive_bulk_max_concurrency", validators = PositiveIntegerValidator.class)
+    private int outputAdaptiveBulkMaxConcurrency = 8;
+
+    @Parameter(value = "output_adaptive_bulk_target_latency", validators = PositiveDurationValidator.class)
+    private Duration outputAdaptiveBulkTargetLatency = Duration.seconds(2);
+
     @Parameter(value = "outputbuffer_processors", required = true, validators = PositiveIntegerValidator.class)
     private int outputBufferProcessors = 3;
 
     @Parameter(value = "outputbuffer_processor_threads_core_pool_size", required = true, validators = PositiveIntegerValidator.class)
     private int outputBufferProcessorThreadsCorePoolSize = 3;
 
+    @Parameter(value = "outputbuffer_processor_default_output_inline")
+    private boolean outputBufferProcessorDefaultOutputInline = false;
+
     @Parameter(value = "node_id_file", validators = NodeIdFileValidator.class)
     private String nodeIdFile = "/etc/graylog/server/node-id";
 
@@ -118,6 +143,9 @@ public class Configuration extends CaConfiguration {
     @Parameter(value = "stream_processing_max_faults", validators = PositiveIntegerValidator.class)
     private int streamProcessingMaxFaults = 3;
 
+    @Parameter(value = "stream_router_engine", converter = StreamRouterEngineType.Converter.class)
+    private StreamRouterEngineType streamRouterEngine = StreamRouterEngineType.SEQUENTIAL;
+
     @Parameter(value = "output_module_timeout", validators = PositiveLongValidator.class)
     private long outputModuleTimeout = 10000;
 
@@ -293,6 +321,33 @@ public class Configuration extends CaConfiguration {
         return outputFlushInterval;
     }
 
+    /**
+     * Returns the targeted byte size of output batches. A size of zero disables byte-based batching.
+     */
+    public Size getOutputBatchMaxBytes() {
+        return outputBatchMaxBytes;
+    }
+
+    public OutputBatchStriping getOutputBatchStriping() {
+        return outputBatchStriping;
+    }
+
+    public int getOutputMaxInflightBulkRequests() {
+        return outputMaxInflightBulkRequests;
+    }
+
+    public boolean isOutputAdaptiveBulkControl() {
+        return outputAdaptiveBulkControl;
+    }
+
+    public int getOutputAdaptiveBulkMaxConcurrency() {
+        return outputAdaptiveBulkMaxConcurrency;
+    }
+
+    public Duration getOutputAdaptiveBulkTargetLatency() {
+        return outputAdaptiveBulkTargetLatency;
+    }
+
     public int getOutputBufferProcessors() {
         return outputBufferProcessors;
     }
@@ -301,6 +356,10 @@ public class Configuration extends CaConfiguration {
         return outputBufferProcessorThreadsCorePoolSize;
     }
 
+    public boolean isOutputBufferProcessorDefaultOutputInline() {
+        return outputBufferProcessorDefaultOutputInline;
+    }
+
     public boolean isCloud() {
         return isCloud;
     }
@@ -361,6 +420,10 @@ public class Configuration extends CaConfiguration {
         return streamProcessingMaxFaults;
     }
 
+    public StreamRouterEngineType getStreamRouterEngine() {
+        return streamRouterEngine;
+    }
+
     public long getOutputModuleTimeout() {
         return outputModuleTimeout;
     }
@@ -37,6 +37,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -100,6 +101,16 @@ public class OutputBuffer extends Buffer {
         insert(message);
     }
 
+    /**
+     * Inserts the given messages with as few ring buffer claims as possible.
+     */
+    public void insertBlocking(List<Message> messages) {
+        final int size = messages.size();
+        for (int from = 0; from < size; from += ringBufferSize) {
+            insert(messages.subList(from, Math.min(size, from + ringBufferSize)).toArray(new Message[0]));
+        }
+    }
+
     @Override
     protected void afterInsert(int n) {
         incomingMessages.mark(n);
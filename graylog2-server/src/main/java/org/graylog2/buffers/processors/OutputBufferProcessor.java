@@ -36,6 +36,7 @@ import org.graylog2.plugin.outputs.MessageOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -65,6 +66,7 @@ public class OutputBufferProcessor implements WorkHandler<MessageEvent> {
 
     private final OutputRouter outputRouter;
     private final MessageOutput defaultMessageOutput;
+    private final boolean defaultOutputInline;
 
     @Inject
     public OutputBufferProcessor(Configuration configuration,
@@ -76,6 +78,7 @@ public class OutputBufferProcessor implements WorkHandler<MessageEvent> {
         this.serverStatus = serverStatus;
         this.outputRouter = outputRouter;
         this.defaultMessageOutput = defaultMessageOutput;
+        this.defaultOutputInline = configuration.isOutputBufferProcessorDefaultOutputInline();
 
         final String nameFormat = "outputbuffer-processor-executor-%d";
         final int corePoolSize = configuration.getOutputBufferProcessorThreadsCorePoolSize();
@@ -109,6 +112,8 @@ public class OutputBufferProcessor implements WorkHandler<MessageEvent> {
      * <p>
      * The default output, however, is allowed to block and is not subject to time limiting. This is important because it
      * can exert back pressure on the processing pipeline this way, making sure we don't run into excessive heap usage.
+     * If {@code outputbuffer_processor_default_output_inline} is enabled, the default output is written to in the calling
+     * thread instead of the executor, while the stream outputs are being written to.
      * </p>
      *
      * @param event the message to write to outputs
@@ -128,25 +133,35 @@ public class OutputBufferProcessor implements WorkHandler<MessageEvent> {
         final Set<MessageOutput> messageOutputs = outputRouter.getStreamOutputsForMessage(msg);
         msg.recordCounter(serverStatus, "matched-outputs", messageOutputs.size());
 
-        final Future<?> defaultOutputCompletion = processMessage(msg, defaultMessageOutput);
+        final Future<?> defaultOutputCompletion = defaultOutputInline ? null : processMessage(msg, defaultMessageOutput, null);
 
-        final CountDownLatch streamOutputsDoneSignal = new CountDownLatch(messageOutputs.size());
+        final CountDownLatch streamOutputsDoneSignal = messageOutputs.isEmpty() ? null : new CountDownLatch(messageOutputs.size());
+        // the stream outputs are given the output module timeout from the moment they have been submitted, the time
+        // spent writing to an inline default output is not added on top of it
+        final long streamOutputsDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configuration.getOutputModuleTimeout());
         for (final MessageOutput output : messageOutputs) {
             processMessage(msg, output, streamOutputsDoneSignal);
         }
 
+        // The stream outputs keep writing in the executor while the default output blocks this thread
+        if (defaultOutputInline) {
+            writeMessageInline(msg, defaultMessageOutput);
+        }
+
         // Wait until all writer threads for stream outputs have finished or timeout is reached.
-        if (!streamOutputsDoneSignal.await(configuration.getOutputModuleTimeout(), TimeUnit.MILLISECONDS)) {
+        if (streamOutputsDoneSignal != null && !streamOutputsDoneSignal.await(streamOutputsDeadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
             LOG.warn("Timeout reached. Not waiting any longer for stream output writer threads to complete.");
         }
 
         // now block until the default output has finished. most batching outputs will already been done because their
         // fast path is really fast (usually an insert into a queue), but the slow flush path might block for a long time
         // this exerts the back pressure to the system
-        if (defaultOutputCompletion != null) {
-            Uninterruptibles.getUninterruptibly(defaultOutputCompletion);
-        } else {
-            LOG.error("The default output future was null, this is a bug!");
+        if (!defaultOutputInline) {
+            if (defaultOutputCompletion != null) {
+                Uninterruptibles.getUninterruptibly(defaultOutputCompletion);
+            } else {
+                LOG.error("The default output future was null, this is a bug!");
+            }
         }
 
         if (msg.hasRecordings()) {
@@ -160,19 +175,20 @@ public class OutputBufferProcessor implements WorkHandler<MessageEvent> {
         event.clearMessages();
     }
 
-    private Future<?> processMessage(final Message msg, final MessageOutput defaultMessageOutput) {
-        return processMessage(msg, defaultMessageOutput, new CountDownLatch(0));
+    private void writeMessageInline(final Message msg, final MessageOutput output) {
+        if (!isWritable(output)) {
+            return;
+        }
+        LOG.debug("Writing message to [{}].", output.getClass());
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Message id for [{}]: <{}>", output.getClass(), msg.getId());
+        }
+        writeMessage(msg, output);
     }
 
-    private Future<?> processMessage(final Message msg, final MessageOutput output, final CountDownLatch doneSignal) {
-        if (output == null) {
-            LOG.error("Output was null!");
-            doneSignal.countDown();
-            return Futures.immediateCancelledFuture();
-        }
-        if (!output.isRunning()) {
-            LOG.debug("Skipping stopped output {}", output.getClass().getName());
-            doneSignal.countDown();
+    private Future<?> processMessage(final Message msg, final MessageOutput output, @Nullable final CountDownLatch doneSignal) {
+        if (!isWritable(output)) {
+            countDown(doneSignal);
             return Futures.immediateCancelledFuture();
         }
 
@@ -185,19 +201,43 @@ public class OutputBufferProcessor implements WorkHandler<MessageEvent> {
             future = executor.submit(new Runnable() {
                 @Override
                 public void run() {
-                    try (Timer.Context ignored = processTime.time()) {
-                        output.write(msg);
-                    } catch (Exception e) {
-                        LOG.error("Error in output [" + output.getClass() + "].", e);
+                    try {
+                        writeMessage(msg, output);
                     } finally {
-                        doneSignal.countDown();
+                        countDown(doneSignal);
                     }
                 }
             });
         } catch (Exception e) {
             LOG.error("Could not write message batch to output [" + output.getClass() + "].", e);
-            doneSignal.countDown();
+            countDown(doneSignal);
         }
         return future;
     }
+
+    private boolean isWritable(@Nullable final MessageOutput output) {
+        if (output == null) {
+            LOG.error("Output was null!");
+            return false;
+        }
+        if (!output.isRunning()) {
+            LOG.debug("Skipping stopped output {}", output.getClass().getName());
+            return false;
+        }
+        return true;
+    }
+
+    private void writeMessage(final Message msg, final MessageOutput output) {
+        try (Timer.Context ignored = processTime.time()) {
+            output.write(msg);
+        } catch (Exception e) {
+            LOG.error("Error in output [" + output.getClass() + "].", e);
+        }
+    }
+
+    private static void countDown(@Nullable final CountDownLatch doneSignal) {
+        if (doneSignal != null) {
+            doneSignal.countDown();
+        }
+    }
 }
@@ -16,6 +16,7 @@
  */
 package org.graylog2.grok;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -25,6 +26,8 @@ import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.krakens.grok.api.Grok;
 import io.krakens.grok.api.GrokCompiler;
+import org.graylog2.metrics.CacheStatsSet;
+import org.graylog2.shared.metrics.MetricUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,34 +40,48 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.cache.CacheLoader.asyncReloading;
 
 @Singleton
 public class GrokPatternRegistry {
     private static final Logger log = LoggerFactory.getLogger(GrokPatternRegistry.class);
 
+    // upper bound per cache, so rules building their patterns from message content cannot grow it without limit
+    static final int MAXIMUM_CACHE_SIZE = 1000;
+
     private final GrokPatternService grokPatternService;
 
     private final AtomicReference<Set<GrokPattern>> patterns = new AtomicReference<>(Collections.emptySet());
     private final LoadingCache<String, Grok> grokCache;
     private final LoadingCache<String, Grok> grokCacheNamedOnly;
+    private final AtomicLong generation = new AtomicLong();
 
     @Inject
     public GrokPatternRegistry(EventBus serverEventBus,
                                GrokPatternService grokPatternService,
-                               @Named("daemonScheduler") ScheduledExecutorService daemonExecutor) {
+                               @Named("daemonScheduler") ScheduledExecutorService daemonExecutor,
+                               MetricRegistry metricRegistry) {
         this.grokPatternService = grokPatternService;
 
         grokCache = CacheBuilder.newBuilder()
                 .expireAfterAccess(1, TimeUnit.MINUTES) // prevent from hanging on to memory forever
+                .maximumSize(MAXIMUM_CACHE_SIZE)
+                .recordStats()
                 .build(asyncReloading(new GrokReloader(false), daemonExecutor));
 
         grokCacheNamedOnly = CacheBuilder.newBuilder()
                 .expireAfterAccess(1, TimeUnit.MINUTES) // prevent from hanging on to memory forever
+                .maximumSize(MAXIMUM_CACHE_SIZE)
+                .recordStats()
                 .build(asyncReloading(new GrokReloader(true), daemonExecutor));
 
+        MetricUtils.safelyRegisterAll(metricRegistry, new CacheStatsSet(name(GrokPatternRegistry.class, "grok-cache"), grokCache));
+        MetricUtils.safelyRegisterAll(metricRegistry, new CacheStatsSet(name(GrokPatternRegistry.class, "grok-cache-named-only"), grokCacheNamedOnly));
+
         // trigger initial loading
         reload();
 
@@ -105,11 +122,23 @@ public class GrokPatternRegistry {
         }
     }
 
+    /**
+     * The generation of the registered patterns, which changes whenever they are reloaded. Callers holding on to a
+     * {@link Grok} instance outside of the registry's caches use this to detect that it has been compiled against
+     * outdated patterns.
+     *
+     * @return the current generation
+     */
+    public long generation() {
+        return generation.get();
+    }
+
     private void reload() {
         final Set<GrokPattern> grokPatterns = grokPatternService.loadAll();
         patterns.set(grokPatterns);
         grokCache.invalidateAll();
         grokCacheNamedOnly.invalidateAll();
+        generation.incrementAndGet();
     }
 
     public Set<GrokPattern> patterns() {
@@ -196,6 +196,10 @@ public class Cluster {
         return clusterAdapter.clusterHealthStats();
     }
 
+    public WriteThreadPoolStats writeThreadPoolStats() {
+        return clusterAdapter.writeThreadPoolStats();
+    }
+
     public ElasticsearchStats elasticsearchStats() {
         final org.graylog2.system.stats.elasticsearch.ClusterStats clusterStats = clusterAdapter.clusterStats();
 
@@ -56,6 +56,8 @@ public interface ClusterAdapter {
 
     PendingTasksStats pendingTasks();
 
+    WriteThreadPoolStats writeThreadPoolStats();
+
     Map<String, NodeInfo> nodesInfo();
 
     ShardStats shardStats();
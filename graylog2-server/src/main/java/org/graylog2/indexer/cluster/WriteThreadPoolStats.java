@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.cluster;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Aggregated statistics of the {@code write} thread pool of all nodes in the indexer cluster.
+ */
+@AutoValue
+@JsonAutoDetect
+public abstract class WriteThreadPoolStats {
+    @JsonProperty
+    public abstract int nodes();
+
+    @JsonProperty
+    public abstract long active();
+
+    /**
+     * Number of queued write tasks summed up over all nodes.
+     */
+    @JsonProperty
+    public abstract long queue();
+
+    /**
+     * Largest number of queued write tasks on a single node.
+     */
+    @JsonProperty
+    public abstract long maxNodeQueue();
+
+    /**
+     * Total number of rejected write tasks since the nodes have been started.
+     */
+    @JsonProperty
+    public abstract long rejected();
+
+    public static WriteThreadPoolStats create(int nodes, long active, long queue, long maxNodeQueue, long rejected) {
+        return new AutoValue_WriteThreadPoolStats(nodes, active, queue, maxNodeQueue, rejected);
+    }
+}
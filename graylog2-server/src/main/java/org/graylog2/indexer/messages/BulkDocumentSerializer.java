@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.messages;
+
+import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Serializes {@link Indexable indexables} into the JSON documents of a bulk request.
+ * <p>
+ * Documents are written with {@link Indexable#writeElasticSearchObject(JsonGenerator, ObjectMapper, Meter)} into a
+ * per-thread buffer, so the only allocation per document is the resulting byte array.
+ */
+public class BulkDocumentSerializer {
+    private final ObjectMapper objectMapper;
+    private final Meter invalidTimestampMeter;
+    // The builder caps its block size, so the memory retained per thread stays bounded after a reset.
+    private final ThreadLocal<ByteArrayBuilder> buffers = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    public BulkDocumentSerializer(ObjectMapper objectMapper, Meter invalidTimestampMeter) {
+        this.objectMapper = objectMapper;
+        this.invalidTimestampMeter = invalidTimestampMeter;
+    }
+
+    public byte[] serialize(Indexable indexable) {
+        final ByteArrayBuilder buffer = buffers.get();
+        try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            indexable.writeElasticSearchObject(generator, objectMapper, invalidTimestampMeter);
+        } catch (IOException e) {
+            buffer.reset();
+            throw new UncheckedIOException("Unable to serialize message <" + indexable.getId() + ">", e);
+        }
+        final byte[] document = buffer.toByteArray();
+        buffer.reset();
+        return document;
+    }
+
+    /**
+     * Returns a function which serializes every distinct indexable only once and returns the same bytes when it is
+     * written to several index sets. The returned function is not thread-safe and is meant to be used for a single
+     * bulk request.
+     */
+    public Function<Indexable, byte[]> deduplicatingSerializer() {
+        final Map<Indexable, byte[]> documents = new IdentityHashMap<>();
+        return indexable -> documents.computeIfAbsent(indexable, this::serialize);
+    }
+}
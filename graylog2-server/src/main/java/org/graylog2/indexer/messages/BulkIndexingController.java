@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.messages;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.annotations.VisibleForTesting;
+import org.graylog2.indexer.cluster.WriteThreadPoolStats;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) controller for bulk indexing requests.
+ * <p>
+ * The controller limits the number of concurrent bulk requests and the chunk size used by the
+ * {@link ChunkedBulkIndexer}. Every bulk request which completes in time and without rejections raises the
+ * concurrency limit by {@code 1 / limit} (so roughly by one per round of requests) and the chunk size limit by a
+ * constant. Rejected requests ("429 Too Many Requests" or rejected bulk items) halve both limits, slow requests and
+ * congested write thread pools in the cluster reduce the concurrency limit by 20%. To avoid reacting several times to
+ * the same overload, the limits are reduced at most once per target latency period.
+ * <p>
+ * If adaptive bulk control is disabled, the controller doesn't limit anything.
+ */
+@Singleton
+public class BulkIndexingController {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIndexingController.class);
+
+    public interface BulkCall {
+        IndexingResults call() throws IOException;
+    }
+
+    @VisibleForTesting
+    static final int MIN_CHUNK_SIZE = 50;
+    @VisibleForTesting
+    static final int CHUNK_SIZE_INCREMENT = 50;
+    @VisibleForTesting
+    static final long WRITE_QUEUE_CONGESTION_THRESHOLD = 1000;
+    private static final double REJECTION_DECREASE_FACTOR = 0.5;
+    private static final double CONGESTION_DECREASE_FACTOR = 0.8;
+    private static final String REJECTED_EXECUTION_ERROR = "rejected_execution_exception";
+
+    private final boolean enabled;
+    private final int maxConcurrency;
+    private final long targetLatencyNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    // All following fields are guarded by the lock
+    private double concurrencyLimit = 1.0;
+    private int inflightRequests = 0;
+    private int waitingRequests = 0;
+    private int chunkSizeLimit = Integer.MAX_VALUE;
+    private int largestRequestSize = 0;
+    private long lastDecreaseNanos;
+    private long lastLatencyNanos = 0;
+    private long writeQueue = 0;
+    private boolean writeQueueCongested = false;
+    private long rejectedWriteTasks = -1;
+
+    private final Meter rejections;
+    private final Meter congestions;
+    private final Timer latency;
+
+    @Inject
+    public BulkIndexingController(@Named("output_adaptive_bulk_control") boolean enabled,
+                                  @Named("output_adaptive_bulk_max_concurrency") int maxConcurrency,
+                                  @Named("output_adaptive_bulk_target_latency") Duration targetLatency,
+                                  MetricRegistry metricRegistry) {
+        this(enabled, maxConcurrency, targetLatency, metricRegistry, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    BulkIndexingController(boolean enabled, int maxConcurrency, Duration targetLatency, MetricRegistry metricRegistry,
+                           LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.maxConcurrency = maxConcurrency;
+        this.targetLatencyNanos = targetLatency.toNanoseconds();
+        this.nanoClock = nanoClock;
+        this.lastDecreaseNanos = nanoClock.getAsLong() - targetLatencyNanos;
+
+        this.rejections = metricRegistry.meter(name(BulkIndexingController.class, "rejections"));
+        this.congestions = metricRegistry.meter(name(BulkIndexingController.class, "congestions"));
+        this.latency = metricRegistry.timer(name(BulkIndexingController.class, "latency"));
+        MetricUtils.safelyRegister(metricRegistry, name(BulkIndexingController.class, "concurrency-limit"), (Gauge<Integer>) this::getConcurrencyLimit);
+        MetricUtils.safelyRegister(metricRegistry, name(BulkIndexingController.class, "inflight-requests"), (Gauge<Integer>) this::getInflightRequests);
+        MetricUtils.safelyRegister(metricRegistry, name(BulkIndexingController.class, "waiting-requests"), (Gauge<Integer>) this::getWaitingRequests);
+        MetricUtils.safelyRegister(metricRegistry, name(BulkIndexingController.class, "chunk-size-limit"), (Gauge<Integer>) this::getChunkSizeLimit);
+        MetricUtils.safelyRegister(metricRegistry, name(BulkIndexingController.class, "write-queue"), (Gauge<Long>) this::getWriteQueue);
+    }
+
+    /**
+     * Returns a controller which doesn't limit bulk requests at all.
+     */
+    public static BulkIndexingController disabled() {
+        return new BulkIndexingController(false, 1, Duration.seconds(1), new MetricRegistry());
+    }
+
+    /**
+     * Runs the given bulk request once a slot within the current concurrency limit is available and adjusts the
+     * limits based on its outcome.
+     *
+     * @param size the number of documents in the bulk request
+     */
+    public IndexingResults run(int size, BulkCall call) throws IOException {
+        if (!enabled) {
+            return call.call();
+        }
+
+        acquire();
+        try {
+            final long start = nanoClock.getAsLong();
+            final IndexingResults results = call.call();
+            final long duration = nanoClock.getAsLong() - start;
+            latency.update(duration, TimeUnit.NANOSECONDS);
+            onCompleted(size, duration, hasRejectedItems(results));
+            return results;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Called when the cluster rejected a whole bulk request of the given size with "429 Too Many Requests".
+     */
+    public void onRejectedRequest(int chunkSize) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            rejections.mark();
+            decrease(REJECTION_DECREASE_FACTOR, chunkSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void updateWriteThreadPoolStats(WriteThreadPoolStats stats) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            final boolean newRejections = rejectedWriteTasks >= 0 && stats.rejected() > rejectedWriteTasks;
+            rejectedWriteTasks = stats.rejected();
+            writeQueue = stats.maxNodeQueue();
+            writeQueueCongested = writeQueue >= WRITE_QUEUE_CONGESTION_THRESHOLD;
+
+            if (newRejections) {
+                // The rejected tasks might belong to other clients, so only the concurrency is reduced.
+                rejections.mark();
+                decrease(REJECTION_DECREASE_FACTOR, Integer.MAX_VALUE);
+            } else if (writeQueueCongested) {
+                congestions.mark();
+                decrease(CONGESTION_DECREASE_FACTOR, Integer.MAX_VALUE);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            waitingRequests++;
+            while (inflightRequests >= (int) concurrencyLimit) {
+                // Not interruptible: permits are released as soon as the running bulk requests complete.
+                permitReleased.awaitUninterruptibly();
+            }
+            waitingRequests--;
+            inflightRequests++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inflightRequests--;
+            permitReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onCompleted(int size, long duration, boolean rejectedItems) {
+        lock.lock();
+        try {
+            lastLatencyNanos = duration;
+            largestRequestSize = Math.max(largestRequestSize, size);
+
+            if (rejectedItems) {
+                rejections.mark();
+                decrease(REJECTION_DECREASE_FACTOR, size);
+            } else if (duration > targetLatencyNanos || writeQueueCongested) {
+                congestions.mark();
+                decrease(CONGESTION_DECREASE_FACTOR, Integer.MAX_VALUE);
+            } else {
+                increase();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void increase() {
+        if (concurrencyLimit < maxConcurrency) {
+            final int previousLimit = (int) concurrencyLimit;
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+            if ((int) concurrencyLimit > previousLimit) {
+                permitReleased.signalAll();
+            }
+        }
+        if (chunkSizeLimit != Integer.MAX_VALUE) {
+            chunkSizeLimit += CHUNK_SIZE_INCREMENT;
+            if (chunkSizeLimit >= largestRequestSize) {
+                chunkSizeLimit = Integer.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Reduces the concurrency limit by the given factor. If a chunk size is given, the chunk size limit is reduced
+     * as well.
+     */
+    private void decrease(double factor, int chunkSize) {
+        final long now = nanoClock.getAsLong();
+        if (now - lastDecreaseNanos < targetLatencyNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+
+        concurrencyLimit = Math.max(1.0, concurrencyLimit * factor);
+        if (chunkSize != Integer.MAX_VALUE) {
+            chunkSizeLimit = Math.max(MIN_CHUNK_SIZE, (int) (Math.min(chunkSizeLimit, chunkSize) * factor));
+        }
+        LOG.debug("Reduced bulk concurrency limit to {} and chunk size limit to {}", concurrencyLimit, chunkSizeLimit);
+    }
+
+    private static boolean hasRejectedItems(IndexingResults results) {
+        return results.errors().stream()
+                .anyMatch(error -> error.error().errorMessage() != null && error.error().errorMessage().contains(REJECTED_EXECUTION_ERROR));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getTargetLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos);
+    }
+
+    public int getConcurrencyLimit() {
+        return withLock(() -> enabled ? (int) concurrencyLimit : 0);
+    }
+
+    public int getInflightRequests() {
+        return withLock(() -> inflightRequests);
+    }
+
+    public int getWaitingRequests() {
+        return withLock(() -> waitingRequests);
+    }
+
+    /**
+     * Returns the maximum number of documents per bulk request, or {@link Integer#MAX_VALUE} if there is no limit.
+     */
+    public int getChunkSizeLimit() {
+        return withLock(() -> chunkSizeLimit);
+    }
+
+    public long getLastLatencyMillis() {
+        return withLock(() -> TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos));
+    }
+
+    public long getWriteQueue() {
+        return withLock(() -> writeQueue);
+    }
+
+    private <T> T withLock(Supplier<T> supplier) {
+        lock.lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
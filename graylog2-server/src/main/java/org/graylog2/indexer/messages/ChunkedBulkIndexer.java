@@ -20,6 +20,7 @@ import org.graylog2.indexer.ElasticsearchException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import java.io.IOException;
 import java.util.List;
 
@@ -30,12 +31,23 @@ public class ChunkedBulkIndexer {
         IndexingResults apply(Chunk chunk) throws ChunkedBulkIndexer.EntityTooLargeException, IOException;
     }
 
+    private final BulkIndexingController bulkIndexingController;
+
+    public ChunkedBulkIndexer() {
+        this(BulkIndexingController.disabled());
+    }
+
+    @Inject
+    public ChunkedBulkIndexer(BulkIndexingController bulkIndexingController) {
+        this.bulkIndexingController = bulkIndexingController;
+    }
+
     public IndexingResults index(List<IndexingRequest> messageList, BulkIndex bulkIndex) throws IOException {
         if (messageList.isEmpty()) {
             return IndexingResults.empty();
         }
 
-        int chunkSize = messageList.size();
+        int chunkSize = Math.min(messageList.size(), bulkIndexingController.getChunkSizeLimit());
         int offset = 0;
         IndexingResults.Builder accumulatedResults = IndexingResults.Builder.create();
         for (; ; ) {
@@ -45,12 +57,13 @@ public class ChunkedBulkIndexer {
                 return accumulatedResults.build();
             } catch (EntityTooLargeException e) {
                 if (e instanceof TooManyRequestsException) {
+                    bulkIndexingController.onRejectedRequest(chunkSize);
                     LOG.warn("Bulk index failed with 'Too many requests' error. Retrying by splitting up batch size <{}>.", chunkSize);
                 } else {
                     LOG.warn("Bulk index failed with 'Request Entity Too Large' error. Retrying by splitting up batch size <{}>.", chunkSize);
                 }
                 if (chunkSize == messageList.size()) {
-                    LOG.warn("Consider lowering the \"output_batch_size\" setting. Or resizing your Search cluster");
+                    LOG.warn("Consider lowering the \"output_batch_size\" or \"output_batch_max_bytes\" setting. Or resizing your Search cluster");
                 }
                 offset += e.indexedSuccessfully;
                 chunkSize /= 2;
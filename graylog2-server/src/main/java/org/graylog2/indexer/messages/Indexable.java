@@ -17,10 +17,12 @@
 package org.graylog2.indexer.messages;
 
 import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.joda.time.DateTime;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.Map;
 
 public interface Indexable {
@@ -41,6 +43,15 @@ public interface Indexable {
     long getSize();
     DateTime getReceiveTime();
     Map<String, Object> toElasticSearchObject(ObjectMapper objectMapper,@Nonnull final Meter invalidTimestampMeter);
+
+    /**
+     * Writes the document returned by {@link #toElasticSearchObject(ObjectMapper, Meter)} as a JSON object to the
+     * given generator. Implementations can override this to serialize their fields directly without building an
+     * intermediate map.
+     */
+    default void writeElasticSearchObject(JsonGenerator generator, ObjectMapper objectMapper, @Nonnull final Meter invalidTimestampMeter) throws IOException {
+        objectMapper.writeValue(generator, toElasticSearchObject(objectMapper, invalidTimestampMeter));
+    }
     DateTime getTimestamp();
 
     /**
@@ -20,4 +20,16 @@ import org.graylog2.indexer.IndexSet;
 import org.graylog2.plugin.Message;
 
 public record MessageWithIndex(Message message, IndexSet indexSet) {
+    // Bulk action line including the index name and the message ID
+    private static final int BULK_ACTION_BYTES = 128;
+    // Quotes, colon and comma of every field in the JSON document
+    private static final int FIELD_SYNTAX_BYTES = 6;
+
+    /**
+     * Returns an estimate of the number of bytes this entry adds to a bulk request body.
+     * The estimate is based on the accounted {@link Message#getSize() message size}, so it is cheap to compute.
+     */
+    public long estimatedBulkSize() {
+        return BULK_ACTION_BYTES + message.getSize() + (long) message.getFieldCount() * FIELD_SYNTAX_BYTES;
+    }
 }
@@ -91,16 +91,19 @@ public class Messages {
     private final MessagesAdapter messagesAdapter;
     private final ProcessingStatusRecorder processingStatusRecorder;
     private final TrafficAccounting trafficAccounting;
+    private final BulkIndexingController bulkIndexingController;
 
     @Inject
     public Messages(TrafficAccounting trafficAccounting,
                     MessagesAdapter messagesAdapter,
                     ProcessingStatusRecorder processingStatusRecorder,
-                    FailureSubmissionService failureSubmissionService) {
+                    FailureSubmissionService failureSubmissionService,
+                    BulkIndexingController bulkIndexingController) {
         this.trafficAccounting = trafficAccounting;
         this.messagesAdapter = messagesAdapter;
         this.processingStatusRecorder = processingStatusRecorder;
         this.failureSubmissionService = failureSubmissionService;
+        this.bulkIndexingController = bulkIndexingController;
     }
 
     public ResultMessage get(String messageId, String index) throws DocumentNotFoundException, IOException {
@@ -220,7 +223,7 @@ public class Messages {
                 : createBulkRequestRetryerBuilder().withRetryListener(retryListenerFor(indexingListener)).build();
 
         try {
-            return bulkRequestRetryer.call(() -> messagesAdapter.bulkIndex(indexingRequestList));
+            return bulkRequestRetryer.call(() -> bulkIndexingController.run(indexingRequestList.size(), () -> messagesAdapter.bulkIndex(indexingRequestList)));
         } catch (ExecutionException | RetryException e) {
             if (e instanceof RetryException) {
                 LOG.error("Could not bulk index {} messages. Giving up after {} attempts.", count, ((RetryException) e).getNumberOfFailedAttempts());
@@ -18,11 +18,15 @@ package org.graylog2.inputs.codecs;
 
 import com.eaio.uuid.UUID;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.assistedinject.Assisted;
 import org.apache.commons.lang3.StringUtils;
 import org.graylog2.inputs.codecs.gelf.GELFMessage;
+import org.graylog2.inputs.codecs.gelf.GELFPayloadBuffer;
 import org.graylog2.inputs.transports.TcpTransport;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.ResolvableInetSocketAddress;
@@ -46,14 +50,23 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 @Codec(name = "gelf", displayName = "GELF")
 public class GelfCodec extends AbstractCodec {
     private static final Logger log = LoggerFactory.getLogger(GelfCodec.class);
     private static final String CK_DECOMPRESS_SIZE_LIMIT = "decompress_size_limit";
     private static final int DEFAULT_DECOMPRESS_SIZE_LIMIT = 8388608;
+    // The fields read by the codec itself, everything else is only added to the message.
+    private static final Set<String> STANDARD_FIELDS = ImmutableSet.of("host", "short_message", "message",
+            "full_message", Message.FIELD_TIMESTAMP, "file", "line", "level", "facility");
+    private static final Object NULL_VALUE = new Object();
+    private static final Object UNSUPPORTED_VALUE = new Object();
+    private static final ThreadLocal<GELFPayloadBuffer> PAYLOAD_BUFFERS = ThreadLocal.withInitial(GELFPayloadBuffer::new);
 
     private final GelfChunkAggregator aggregator;
     private final ObjectMapper objectMapper;
@@ -118,23 +131,66 @@ public class GelfCodec extends AbstractCodec {
         }
     }
 
+    private static Object fieldValue(final JsonNode value) {
+        // Convert JSON containers to Strings, and pick a suitable number representation.
+        if (value.isContainerNode()) {
+            return value.toString();
+        } else if (value.isFloatingPointNumber()) {
+            return value.asDouble();
+        } else if (value.isIntegralNumber()) {
+            return value.asLong();
+        } else if (value.isNull()) {
+            return NULL_VALUE;
+        } else if (value.isTextual()) {
+            return value.asText();
+        } else {
+            return UNSUPPORTED_VALUE;
+        }
+    }
+
+    // The same conversion as above, straight from the current token of the parser.
+    private static Object fieldValue(final JsonParser parser, final JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+            case START_ARRAY:
+                return parser.readValueAsTree().toString();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER ?
+                        parser.getBigIntegerValue().longValue() : parser.getLongValue();
+            case VALUE_NULL:
+                return NULL_VALUE;
+            case VALUE_STRING:
+                return parser.getText();
+            default:
+                return UNSUPPORTED_VALUE;
+        }
+    }
+
+    // Jackson detects the encoding of byte input, which has to be the same UTF-8 the payload would be decoded with.
+    private static boolean isPlainUtf8(final byte[] bytes, final int length) {
+        if (length < 4 || bytes[0] == (byte) 0xEF || bytes[0] == (byte) 0xFE || bytes[0] == (byte) 0xFF) {
+            return false;
+        }
+        return bytes[0] != 0 && bytes[1] != 0 && bytes[2] != 0 && bytes[3] != 0;
+    }
+
     @Nullable
     @Override
     public Message decode(@Nonnull final RawMessage rawMessage) {
         final GELFMessage gelfMessage = new GELFMessage(rawMessage.getPayload(), rawMessage.getRemoteAddress());
-        final String json = gelfMessage.getJSON(decompressSizeLimit, charset);
 
-        final JsonNode node;
-
-        try {
-            node = objectMapper.readTree(json);
-            if (node == null) {
-                throw new IOException("null result");
+        // All fields of the GELF message in their order, converted to message field values.
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        JsonNode node = parseStreaming(gelfMessage, fields);
+        if (node == null) {
+            node = parseTree(gelfMessage);
+            final Iterator<Map.Entry<String, JsonNode>> treeFields = node.fields();
+            while (treeFields.hasNext()) {
+                final Map.Entry<String, JsonNode> entry = treeFields.next();
+                fields.put(entry.getKey(), fieldValue(entry.getValue()));
             }
-        } catch (final Exception e) {
-            log.error("Could not parse JSON, first 400 characters: " +
-                    StringUtils.abbreviate(json, 403), e);
-            throw new IllegalStateException("JSON is null/could not be parsed (invalid JSON)", e);
         }
 
         try {
@@ -186,11 +242,7 @@ public class GelfCodec extends AbstractCodec {
         }
 
         // Add additional data if there is some.
-        final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
-
-        while (fields.hasNext()) {
-            final Map.Entry<String, JsonNode> entry = fields.next();
-
+        for (final Map.Entry<String, Object> entry : fields.entrySet()) {
             String key = entry.getKey();
             // Do not index useless GELF "version" field.
             if ("version".equals(key)) {
@@ -212,22 +264,11 @@ public class GelfCodec extends AbstractCodec {
                 continue;
             }
 
-            // Convert JSON containers to Strings, and pick a suitable number representation.
-            final JsonNode value = entry.getValue();
-
-            final Object fieldValue;
-            if (value.isContainerNode()) {
-                fieldValue = value.toString();
-            } else if (value.isFloatingPointNumber()) {
-                fieldValue = value.asDouble();
-            } else if (value.isIntegralNumber()) {
-                fieldValue = value.asLong();
-            } else if (value.isNull()) {
+            final Object fieldValue = entry.getValue();
+            if (fieldValue == NULL_VALUE) {
                 log.debug("Field [{}] is NULL. Skipping.", key);
                 continue;
-            } else if (value.isTextual()) {
-                fieldValue = value.asText();
-            } else {
+            } else if (fieldValue == UNSUPPORTED_VALUE) {
                 log.debug("Field [{}] has unknown value type. Skipping.", key);
                 continue;
             }
@@ -238,6 +279,71 @@ public class GelfCodec extends AbstractCodec {
         return message;
     }
 
+    /**
+     * Parses the GELF message from its (decompressed) bytes without building a JSON tree or a String of the whole
+     * payload. Only the standard GELF fields are kept as JSON nodes, all other fields are converted to their message
+     * field values right away.
+     *
+     * @return a JSON object with the standard GELF fields, or {@code null} if the message has to be parsed by
+     * {@link #parseTree(GELFMessage)}, which also reports errors
+     */
+    @Nullable
+    private JsonNode parseStreaming(final GELFMessage gelfMessage, final Map<String, Object> fields) {
+        final GELFPayloadBuffer buffer = PAYLOAD_BUFFERS.get();
+        try {
+            if (gelfMessage.getGELFType() == GELFMessage.Type.UNCOMPRESSED && !StandardCharsets.UTF_8.equals(charset)) {
+                return null;
+            }
+            buffer.read(gelfMessage, decompressSizeLimit);
+            if (!isPlainUtf8(buffer.array(), buffer.length())) {
+                return null;
+            }
+            try (final JsonParser parser = objectMapper.createParser(buffer.array(), 0, buffer.length())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                final ObjectNode node = objectMapper.createObjectNode();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String key = parser.currentName();
+                    final JsonToken token = parser.nextToken();
+                    if (STANDARD_FIELDS.contains(key)) {
+                        final JsonNode value = parser.readValueAsTree();
+                        node.set(key, value);
+                        fields.put(key, fieldValue(value));
+                    } else {
+                        fields.put(key, fieldValue(parser, token));
+                    }
+                }
+                return node;
+            }
+        } catch (Exception e) {
+            // e.g. invalid UTF-8, which is replaced when decoding the payload to a String
+            log.debug("Unable to parse GELF message while streaming, parsing it again", e);
+            fields.clear();
+            return null;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private JsonNode parseTree(final GELFMessage gelfMessage) {
+        final String json = gelfMessage.getJSON(decompressSizeLimit, charset);
+
+        final JsonNode node;
+
+        try {
+            node = objectMapper.readTree(json);
+            if (node == null) {
+                throw new IOException("null result");
+            }
+        } catch (final Exception e) {
+            log.error("Could not parse JSON, first 400 characters: " +
+                    StringUtils.abbreviate(json, 403), e);
+            throw new IllegalStateException("JSON is null/could not be parsed (invalid JSON)", e);
+        }
+        return node;
+    }
+
     private void validateGELFMessage(JsonNode jsonNode, UUID id, ResolvableInetSocketAddress remoteAddress) {
         final String prefix = "GELF message <" + id + "> " + (remoteAddress == null ? "" : "(received from <" + remoteAddress + ">) ");
 
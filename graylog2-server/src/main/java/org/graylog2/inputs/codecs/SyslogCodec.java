@@ -23,6 +23,8 @@ import com.google.common.net.InetAddresses;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import org.apache.commons.lang3.StringUtils;
+import org.graylog2.inputs.codecs.syslog.ParsedSyslogMessage;
+import org.graylog2.inputs.codecs.syslog.SinglePassSyslogParser;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.ResolvableInetSocketAddress;
 import org.graylog2.plugin.Tools;
@@ -54,6 +56,7 @@ import javax.inject.Inject;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -75,6 +78,7 @@ public class SyslogCodec extends AbstractCodec {
     static final String CK_EXPAND_STRUCTURED_DATA = "expand_structured_data";
     static final String CK_STORE_FULL_MESSAGE = "store_full_message";
     static final String CK_TIMEZONE = "timezone";
+    static final String CK_SINGLE_PASS_PARSER = "single_pass_parser";
 
     private final Timer resolveTime;
     private final Timer decodeTime;
@@ -89,7 +93,6 @@ public class SyslogCodec extends AbstractCodec {
     @Nullable
     @Override
     public Message decode(@Nonnull RawMessage rawMessage) {
-        final String msg = new String(rawMessage.getPayload(), charset);
         try (Timer.Context ignored = this.decodeTime.time()) {
             final ResolvableInetSocketAddress address = rawMessage.getRemoteAddress();
             final InetSocketAddress remoteAddress;
@@ -98,10 +101,38 @@ public class SyslogCodec extends AbstractCodec {
             } else {
                 remoteAddress = address.getInetSocketAddress();
             }
-            return parse(msg, remoteAddress == null ? null : remoteAddress.getAddress(), rawMessage.getTimestamp());
+            final InetAddress inetAddress = remoteAddress == null ? null : remoteAddress.getAddress();
+
+            // The single-pass parser only works on UTF-8 and leaves everything it doesn't support to syslog4j.
+            if (configuration.getBoolean(CK_SINGLE_PASS_PARSER) && StandardCharsets.UTF_8.equals(charset)) {
+                final ParsedSyslogMessage parsed = SinglePassSyslogParser.parse(rawMessage.getPayload(), defaultTimeZone());
+                if (parsed != null) {
+                    return buildMessage(parsed, rawMessage.getPayload(), inetAddress);
+                }
+            }
+            return parse(new String(rawMessage.getPayload(), charset), inetAddress, rawMessage.getTimestamp());
         }
     }
 
+    private Message buildMessage(ParsedSyslogMessage parsed, byte[] payload, InetAddress remoteAddress) {
+        final Message m = new Message(parsed.message(), parseHost(parsed.host(), remoteAddress), new DateTime(parsed.date()));
+        m.addField("facility", Tools.syslogFacilityToReadable(parsed.facility()));
+        m.addField("level", parsed.level());
+        m.addField("facility_num", parsed.facility());
+
+        if (configuration.getBoolean(CK_STORE_FULL_MESSAGE)) {
+            m.addField("full_message", new String(payload, charset));
+        }
+
+        if (parsed.isStructured()) {
+            final boolean expandStructuredData = configuration.getBoolean(CK_EXPAND_STRUCTURED_DATA);
+            final Map<String, Object> fields = expandFields(parsed.structuredData(), expandStructuredData);
+            m.addFields(structuredFields(fields, parsed.applicationName(), parsed.processId()));
+        }
+
+        return m;
+    }
+
     private Message parse(String msg, InetAddress remoteAddress, DateTime receivedTimestamp) {
         /*
          * ZOMG funny 80s neckbeard protocols. We are now deciding if to parse
@@ -125,10 +156,8 @@ public class SyslogCodec extends AbstractCodec {
          *  http://open.spotify.com/track/2ZtQKBB8wDTtPPqDZhy7xZ
          *
          */
-        String timeZoneConfig = configuration.getString(CK_TIMEZONE);
         final SyslogServerEventIF e;
-        boolean isDefaultTimeZoneSet = StringUtils.isNotBlank(timeZoneConfig) && !DropdownField.NOT_CONFIGURED.equals(timeZoneConfig);
-        DateTimeZone defaultTimeZone = isDefaultTimeZoneSet ? DateTimeZone.forID(timeZoneConfig) : null;
+        final DateTimeZone defaultTimeZone = defaultTimeZone();
         if (STRUCTURED_SYSLOG_PATTERN.matcher(msg).matches()) {
             e = new StructuredSyslogServerEvent(msg, remoteAddress, defaultTimeZone);
         } else if (CISCO_WITH_SEQUENCE_NUMBERS_PATTERN.matcher(msg).matches()) {
@@ -149,7 +178,7 @@ public class SyslogCodec extends AbstractCodec {
             syslogMessage = e.getMessage();
         }
 
-        final Message m = new Message(syslogMessage, parseHost(e, remoteAddress), parseDate(e, receivedTimestamp));
+        final Message m = new Message(syslogMessage, parseHost(e.getHost(), remoteAddress), parseDate(e, receivedTimestamp));
         m.addField("facility", Tools.syslogFacilityToReadable(e.getFacility()));
         m.addField("level", e.getLevel());
         m.addField("facility_num", e.getFacility());
@@ -177,28 +206,40 @@ public class SyslogCodec extends AbstractCodec {
         return m;
     }
 
+    @Nullable
+    private DateTimeZone defaultTimeZone() {
+        final String timeZoneConfig = configuration.getString(CK_TIMEZONE);
+        final boolean isDefaultTimeZoneSet = StringUtils.isNotBlank(timeZoneConfig) && !DropdownField.NOT_CONFIGURED.equals(timeZoneConfig);
+        return isDefaultTimeZoneSet ? DateTimeZone.forID(timeZoneConfig) : null;
+    }
+
     private Map<String, Object> parseAdditionalData(SyslogServerEventIF msg, boolean expand) {
 
         // Structured syslog has more data we can parse.
         if (msg instanceof StructuredSyslogServerEvent) {
             final StructuredSyslogServerEvent sMsg = (StructuredSyslogServerEvent) msg;
-            final Map<String, Object> structuredData = new HashMap<>(extractFields(sMsg, expand));
+            return structuredFields(extractFields(sMsg, expand), sMsg.getApplicationName(), sMsg.getProcessId());
+        } else {
+            return Collections.emptyMap();
+        }
+    }
 
-            if (!isNullOrEmpty(sMsg.getApplicationName())) {
-                structuredData.put("application_name", sMsg.getApplicationName());
-            }
+    private Map<String, Object> structuredFields(Map<String, Object> fields, @Nullable String applicationName,
+                                                 @Nullable String processId) {
+        final Map<String, Object> structuredData = new HashMap<>(fields);
 
-            if (!isNullOrEmpty(sMsg.getProcessId())) {
-                structuredData.put("process_id", sMsg.getProcessId());
-            }
+        if (!isNullOrEmpty(applicationName)) {
+            structuredData.put("application_name", applicationName);
+        }
 
-            return structuredData;
-        } else {
-            return Collections.emptyMap();
+        if (!isNullOrEmpty(processId)) {
+            structuredData.put("process_id", processId);
         }
+
+        return structuredData;
     }
 
-    private String parseHost(SyslogServerEventIF msg, InetAddress remoteAddress) {
+    private String parseHost(@Nullable String host, InetAddress remoteAddress) {
         if (remoteAddress != null && configuration.getBoolean(CK_FORCE_RDNS)) {
             try (Timer.Context ignored = this.resolveTime.time()) {
                 return Tools.rdnsLookup(remoteAddress);
@@ -207,7 +248,6 @@ public class SyslogCodec extends AbstractCodec {
             }
         }
 
-        final String host = msg.getHost();
         return isNullOrEmpty(host) && remoteAddress != null ? InetAddresses.toAddrString(remoteAddress) : host;
     }
 
@@ -289,6 +329,15 @@ public class SyslogCodec extends AbstractCodec {
                     )
             );
 
+            r.addField(
+                    new BooleanField(
+                            CK_SINGLE_PASS_PARSER,
+                            "Use single-pass parser?",
+                            false,
+                            "Parse RFC 5424 and RFC 3164 messages with a faster parser working on the raw bytes? Other messages are still parsed as before. Only used with UTF-8."
+                    )
+            );
+
             r.addField(new DropdownField(
                     CK_TIMEZONE,
                     "Time Zone",
@@ -319,25 +368,29 @@ public class SyslogCodec extends AbstractCodec {
     @VisibleForTesting
     Map<String, Object> extractFields(final StructuredSyslogServerEvent msg, final boolean expand) {
         try {
-            final Map<String, Map<String, String>> raw = msg.getStructuredMessage().getStructuredData();
-
-            if (raw != null && !raw.isEmpty()) {
-                final Map<String, Object> fields = new HashMap<>();
-                for (Map.Entry<String, Map<String, String>> entry : raw.entrySet()) {
-                    if (expand) {
-                        fields.putAll(prefixElements(entry.getKey(), entry.getValue()));
-                    } else {
-                        fields.putAll(entry.getValue());
-                    }
-                }
-                return fields;
-            }
+            return expandFields(msg.getStructuredMessage().getStructuredData(), expand);
         } catch (Exception e) {
             LOG.debug("Could not extract structured syslog", e);
         }
         return Collections.emptyMap();
     }
 
+    private Map<String, Object> expandFields(@Nullable Map<String, Map<String, String>> raw, boolean expand) {
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, Object> fields = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : raw.entrySet()) {
+            if (expand) {
+                fields.putAll(prefixElements(entry.getKey(), entry.getValue()));
+            } else {
+                fields.putAll(entry.getValue());
+            }
+        }
+        return fields;
+    }
+
     private Map<String, String> prefixElements(final String prefix, final Map<String, String> elements) {
         if (elements == null || elements.isEmpty()) {
             return Collections.emptyMap();
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs.gelf;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A reusable buffer for the JSON payload of {@link GELFMessage GELF messages}. Compressed payloads are decompressed
+ * into the buffer, uncompressed payloads are used as they are. Instances are not thread-safe.
+ */
+public class GELFPayloadBuffer {
+    private static final int INITIAL_SIZE = 16 * 1024;
+    // don't hold on to the memory of unusually large messages
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private final Inflater inflater = new Inflater();
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    private byte[] array;
+    private int length;
+
+    /**
+     * Reads the JSON payload of the given GELF message, decompressing it the same way as
+     * {@link GELFMessage#getJSON(long)}.
+     *
+     * @param message  the GELF message
+     * @param maxBytes The maximum number of bytes to read from a compressed GELF payload.
+     */
+    public void read(GELFMessage message, long maxBytes) throws IOException {
+        final byte[] payload = message.getPayload();
+        switch (message.getGELFType()) {
+            case ZLIB:
+                inflater.reset();
+                try (final InputStream in = ByteStreams.limit(new InflaterInputStream(new ByteArrayInputStream(payload), inflater), maxBytes)) {
+                    readFully(in);
+                }
+                break;
+            case GZIP:
+                try (final InputStream in = ByteStreams.limit(new GZIPInputStream(new ByteArrayInputStream(payload)), maxBytes)) {
+                    readFully(in);
+                }
+                break;
+            case UNCOMPRESSED:
+                array = payload;
+                length = payload.length;
+                break;
+            default:
+                throw new IllegalStateException("Unknown GELF type. Not supported.");
+        }
+    }
+
+    private void readFully(InputStream in) throws IOException {
+        int count = 0;
+        int read;
+        while ((read = in.read(buffer, count, buffer.length - count)) != -1) {
+            count += read;
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        array = buffer;
+        length = count;
+    }
+
+    /**
+     * @return the array holding the payload, which is only valid until the next call to {@link #read(GELFMessage, long)}
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Releases the payload after it has been processed.
+     */
+    public void release() {
+        array = null;
+        length = 0;
+        if (buffer.length > MAX_RETAINED_SIZE) {
+            buffer = new byte[INITIAL_SIZE];
+        }
+    }
+}
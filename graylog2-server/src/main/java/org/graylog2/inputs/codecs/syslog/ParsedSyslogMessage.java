@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs.syslog;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * The fields of a syslog message parsed by the {@link SinglePassSyslogParser}.
+ *
+ * @param facility        the facility of the message priority
+ * @param level           the severity of the message priority
+ * @param date            the timestamp of the message
+ * @param host            the hostname of the message header
+ * @param message         the message, without the RFC 5424 header and structured data if there are any
+ * @param applicationName the RFC 5424 APP-NAME, or {@code null} if missing
+ * @param processId       the RFC 5424 PROCID, or {@code null} if missing
+ * @param structuredData  the RFC 5424 structured data by SD-ID, or {@code null} for RFC 3164 messages
+ */
+public record ParsedSyslogMessage(int facility,
+                                  int level,
+                                  Date date,
+                                  String host,
+                                  String message,
+                                  @Nullable String applicationName,
+                                  @Nullable String processId,
+                                  @Nullable Map<String, Map<String, String>> structuredData) {
+    public boolean isStructured() {
+        return structuredData != null;
+    }
+}
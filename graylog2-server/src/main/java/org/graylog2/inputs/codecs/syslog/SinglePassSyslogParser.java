@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs.syslog;
+
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses RFC 5424 and RFC 3164 syslog messages in a single pass over the UTF-8 encoded payload, without matching
+ * regular expressions or copying the message around.
+ * <p>
+ * The results are the same as the ones of the syslog4j events used by the
+ * {@link org.graylog2.inputs.codecs.SyslogCodec SyslogCodec}, including their quirks: the hostname stays part of
+ * RFC 3164 messages, and the message of RFC 5424 messages with invalid structured data contains the MSGID and the
+ * structured data. Messages the parser doesn't handle the same way, like Cisco and FortiGate messages, RFC 3164
+ * messages with other timestamp formats or RFC 5424 messages with a NILVALUE timestamp, are rejected instead.
+ */
+public final class SinglePassSyslogParser {
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final long INVALID_TIMESTAMP = Long.MIN_VALUE;
+    // results of parseStructuredData() for invalid structured data, and for messages syslog4j fails on
+    private static final int NO_MESSAGE = -1;
+    private static final int UNSUPPORTED = -2;
+
+    private SinglePassSyslogParser() {
+    }
+
+    /**
+     * Parses the given syslog message.
+     *
+     * @param payload         the UTF-8 encoded syslog message
+     * @param defaultTimeZone the time zone of RFC 3164 timestamps, or {@code null} to use the system time zone
+     * @return the parsed message, or {@code null} if the message is not supported by this parser
+     */
+    @Nullable
+    public static ParsedSyslogMessage parse(byte[] payload, @Nullable DateTimeZone defaultTimeZone) {
+        if (payload.length == 0 || payload[0] != '<') {
+            return null;
+        }
+        int pos = 1;
+        int priority = 0;
+        while (pos < payload.length && pos <= 3 && isDigit(payload[pos])) {
+            priority = priority * 10 + payload[pos++] - '0';
+        }
+        if (pos == 1 || pos >= payload.length || payload[pos] != '>') {
+            return null;
+        }
+        pos++;
+
+        final int facility = priority >> 3;
+        final int level = priority - (facility << 3);
+        if (pos < payload.length && isDigit(payload[pos])) {
+            return parseStructured(payload, pos, facility, level);
+        }
+        return parseUnstructured(payload, pos, facility, level, defaultTimeZone);
+    }
+
+    // VERSION SP TIMESTAMP SP HOSTNAME SP APP-NAME SP PROCID SP MSGID SP STRUCTURED-DATA [SP MSG]
+    @Nullable
+    private static ParsedSyslogMessage parseStructured(byte[] payload, int start, int facility, int level) {
+        int pos = start;
+        while (pos < payload.length && pos - start < 3 && isDigit(payload[pos])) {
+            pos++;
+        }
+        if (pos >= payload.length || payload[pos] != ' ') {
+            return null;
+        }
+
+        final int timestampStart = pos + 1;
+        final int timestampEnd = indexOf(payload, (byte) ' ', timestampStart);
+        if (timestampEnd == -1) {
+            return null;
+        }
+        final long timestamp = parseTimestamp(payload, timestampStart, timestampEnd);
+        if (timestamp == INVALID_TIMESTAMP) {
+            return null;
+        }
+
+        final int hostEnd = tokenEnd(payload, timestampEnd + 1);
+        final int applicationNameEnd = hostEnd == -1 ? -1 : tokenEnd(payload, hostEnd + 1);
+        final int processIdEnd = applicationNameEnd == -1 ? -1 : tokenEnd(payload, applicationNameEnd + 1);
+        if (processIdEnd == -1) {
+            return null;
+        }
+
+        final int rest = processIdEnd + 1;
+        final Map<String, Map<String, String>> structuredData = new HashMap<>();
+        final int messageStart = parseStructuredData(payload, rest, structuredData);
+        if (messageStart == UNSUPPORTED) {
+            return null;
+        }
+        if (messageStart == NO_MESSAGE) {
+            structuredData.clear();
+        }
+
+        // like syslog4j, fall back to the part after PROCID if there is no message
+        final int messageEnd = payload.length;
+        final String message = messageStart < 0 || messageStart == messageEnd
+                ? string(payload, rest, messageEnd)
+                : string(payload, messageStart, messageEnd);
+
+        return new ParsedSyslogMessage(facility,
+                level,
+                new Date(timestamp),
+                string(payload, timestampEnd + 1, hostEnd),
+                message,
+                nilToNull(payload, hostEnd + 1, applicationNameEnd),
+                nilToNull(payload, applicationNameEnd + 1, processIdEnd),
+                structuredData.isEmpty() ? Collections.emptyMap() : structuredData);
+    }
+
+    /**
+     * Parses MSGID and STRUCTURED-DATA starting at {@code start} into the given map.
+     *
+     * @return the start of MSG, {@link #NO_MESSAGE} if the structured data is invalid and the whole rest is the
+     * message, or {@link #UNSUPPORTED}
+     */
+    private static int parseStructuredData(byte[] payload, int start, Map<String, Map<String, String>> structuredData) {
+        final int end = payload.length;
+        if (startsWith(payload, start, "- -")) {
+            final int messageStart = start + 4;
+            if (messageStart > end || payload[messageStart - 1] < 0) {
+                return UNSUPPORTED;
+            }
+            return messageStart;
+        }
+
+        final int openBracket = indexOf(payload, (byte) '[', start);
+        if (openBracket <= start || !isSingleWord(payload, start, openBracket)) {
+            return NO_MESSAGE;
+        }
+
+        int closing;
+        final int emptyData = indexOf(payload, "[0@0]", start);
+        if (emptyData != -1) {
+            closing = emptyData + 4;
+        } else {
+            closing = -1;
+            int pos = openBracket;
+            while (pos < end && payload[pos] == '[') {
+                closing = matchChar(payload, pos, (byte) ']', (byte) ']');
+                if (closing == -1) {
+                    return NO_MESSAGE;
+                }
+                final int idEnd = matchChar(payload, pos + 1, (byte) ']', (byte) ' ');
+                final String id = string(payload, pos + 1, idEnd);
+                final Map<String, String> params = new HashMap<>();
+                pos = idEnd;
+                while (pos < closing) {
+                    if (payload[pos] != ' ') {
+                        return NO_MESSAGE;
+                    }
+                    pos++;
+                    final int equals = indexOf(payload, (byte) '=', pos);
+                    if (equals == -1) {
+                        return NO_MESSAGE;
+                    }
+                    if (equals + 1 >= end) {
+                        // syslog4j fails on these messages
+                        return UNSUPPORTED;
+                    }
+                    if (payload[equals + 1] != '"') {
+                        return NO_MESSAGE;
+                    }
+                    final int endQuote = matchChar(payload, equals + 2, (byte) '"', (byte) '"');
+                    if (endQuote == -1) {
+                        return NO_MESSAGE;
+                    }
+                    params.put(string(payload, pos, equals), unescape(payload, equals + 2, endQuote));
+                    pos = endQuote + 1;
+                }
+                pos++;
+                structuredData.put(id, params);
+            }
+        }
+
+        // the message follows the separator after the structured data
+        if (closing + 1 >= end) {
+            return end;
+        }
+        if (payload[closing + 1] < 0) {
+            return UNSUPPORTED;
+        }
+        return closing + 2;
+    }
+
+    // TIMESTAMP SP HOSTNAME SP MSG
+    @Nullable
+    private static ParsedSyslogMessage parseUnstructured(byte[] payload, int start, int facility, int level,
+                                                         @Nullable DateTimeZone defaultTimeZone) {
+        if (start + 15 > payload.length) {
+            return null;
+        }
+        final int month = parseMonth(payload, start);
+        if (month == -1 || payload[start + 3] != ' ') {
+            return null;
+        }
+
+        // "Oct 11", "Oct  1" or "Oct 1"
+        final int day;
+        final int timeStart;
+        if (payload[start + 5] == ' ') {
+            day = digits(payload, start + 4, 1);
+            timeStart = start + 6;
+        } else {
+            day = payload[start + 4] == ' ' ? digits(payload, start + 5, 1) : digits(payload, start + 4, 2);
+            timeStart = start + 7;
+        }
+        if (day < 1 || timeStart + 9 > payload.length) {
+            return null;
+        }
+        final int hour = digits(payload, timeStart, 2);
+        final int minute = digits(payload, timeStart + 3, 2);
+        final int second = digits(payload, timeStart + 6, 2);
+        if (hour < 0 || minute < 0 || second < 0
+                || payload[timeStart + 2] != ':' || payload[timeStart + 5] != ':' || payload[timeStart + 8] != ' ') {
+            return null;
+        }
+
+        final int messageStart = timeStart + 9;
+        final int hostEnd = tokenEnd(payload, messageStart);
+        if (hostEnd == -1) {
+            return null;
+        }
+
+        final ZoneId zone = defaultTimeZone == null ? ZoneId.systemDefault() : defaultTimeZone.toTimeZone().toZoneId();
+        final long timestamp;
+        try {
+            final LocalDateTime localDateTime = LocalDateTime.of(Year.now(ZoneId.systemDefault()).getValue(), month, day, hour, minute, second);
+            final List<ZoneOffset> offsets = zone.getRules().getValidOffsets(localDateTime);
+            // skip local times in DST gaps and overlaps, the calendar of syslog4j resolves them differently
+            if (offsets.size() != 1) {
+                return null;
+            }
+            timestamp = localDateTime.toEpochSecond(offsets.get(0)) * 1000;
+        } catch (DateTimeException e) {
+            return null;
+        }
+
+        return new ParsedSyslogMessage(facility,
+                level,
+                new Date(timestamp),
+                string(payload, messageStart, hostEnd),
+                string(payload, messageStart, payload.length),
+                null,
+                null,
+                null);
+    }
+
+    // YYYY-MM-DDThh:mm:ss[.fraction](Z|+hh:mm|-hh:mm)
+    private static long parseTimestamp(byte[] payload, int start, int end) {
+        if (end - start < 20) {
+            return INVALID_TIMESTAMP;
+        }
+        final int year = digits(payload, start, 4);
+        final int month = digits(payload, start + 5, 2);
+        final int day = digits(payload, start + 8, 2);
+        final int hour = digits(payload, start + 11, 2);
+        final int minute = digits(payload, start + 14, 2);
+        final int second = digits(payload, start + 17, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0
+                || payload[start + 4] != '-' || payload[start + 7] != '-' || payload[start + 10] != 'T'
+                || payload[start + 13] != ':' || payload[start + 16] != ':') {
+            return INVALID_TIMESTAMP;
+        }
+
+        int pos = start + 19;
+        int millis = 0;
+        if (payload[pos] == '.') {
+            final int fractionStart = ++pos;
+            while (pos < end && isDigit(payload[pos])) {
+                if (pos - fractionStart < 3) {
+                    millis = millis * 10 + payload[pos] - '0';
+                }
+                pos++;
+            }
+            final int fractionDigits = pos - fractionStart;
+            if (fractionDigits == 0 || fractionDigits > 9) {
+                return INVALID_TIMESTAMP;
+            }
+            // the fraction is truncated to milliseconds
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        final int offsetSeconds;
+        if (pos + 1 == end && payload[pos] == 'Z') {
+            offsetSeconds = 0;
+        } else if (pos + 6 == end && (payload[pos] == '+' || payload[pos] == '-') && payload[pos + 3] == ':') {
+            final int offsetHours = digits(payload, pos + 1, 2);
+            final int offsetMinutes = digits(payload, pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return INVALID_TIMESTAMP;
+            }
+            final int seconds = offsetHours * 3600 + offsetMinutes * 60;
+            offsetSeconds = payload[pos] == '-' ? -seconds : seconds;
+        } else {
+            return INVALID_TIMESTAMP;
+        }
+
+        try {
+            final LocalDateTime localDateTime = LocalDateTime.of(year, month, day, hour, minute, second);
+            return (localDateTime.toEpochSecond(ZoneOffset.UTC) - offsetSeconds) * 1000 + millis;
+        } catch (DateTimeException e) {
+            return INVALID_TIMESTAMP;
+        }
+    }
+
+    private static int parseMonth(byte[] payload, int start) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (startsWith(payload, start, MONTHS[i])) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value of the given number of decimal digits, or -1 if there are other characters
+     */
+    private static int digits(byte[] payload, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(payload[i])) {
+                return -1;
+            }
+            value = value * 10 + payload[i] - '0';
+        }
+        return value;
+    }
+
+    /**
+     * @return the position of the space after the header field starting at {@code start}, or -1 if the field is
+     * empty, not terminated by a space, or contains characters syslog4j would trim
+     */
+    private static int tokenEnd(byte[] payload, int start) {
+        int pos = start;
+        while (pos < payload.length && payload[pos] != ' ') {
+            if (payload[pos] >= 0 && payload[pos] < ' ') {
+                return -1;
+            }
+            pos++;
+        }
+        return pos == start || pos == payload.length ? -1 : pos;
+    }
+
+    // MSGID must be a single word before the first SD-ELEMENT, trailing spaces are ignored
+    private static boolean isSingleWord(byte[] payload, int start, int end) {
+        int wordEnd = end;
+        while (wordEnd > start && payload[wordEnd - 1] == ' ') {
+            wordEnd--;
+        }
+        final int space = indexOf(payload, (byte) ' ', start);
+        return wordEnd > start && (space == -1 || space >= wordEnd);
+    }
+
+    /**
+     * Finds the first of the given characters which isn't escaped by a backslash, like syslog4j does.
+     */
+    private static int matchChar(byte[] payload, int start, byte first, byte second) {
+        int pos = start;
+        while (pos < payload.length) {
+            final byte b = payload[pos];
+            if (b == '\\') {
+                pos += 2;
+            } else if (b == first || b == second) {
+                return pos;
+            } else {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    // syslog4j drops every backslash of PARAM-VALUEs
+    private static String unescape(byte[] payload, int start, int end) {
+        final int backslash = indexOf(payload, (byte) '\\', start);
+        if (backslash == -1 || backslash >= end) {
+            return string(payload, start, end);
+        }
+        final byte[] unescaped = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            if (payload[i] != '\\') {
+                unescaped[length++] = payload[i];
+            }
+        }
+        return new String(unescaped, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    private static String nilToNull(byte[] payload, int start, int end) {
+        return end - start == 1 && payload[start] == '-' ? null : string(payload, start, end);
+    }
+
+    private static String string(byte[] payload, int start, int end) {
+        return new String(payload, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(byte[] payload, int start, String prefix) {
+        if (start + prefix.length() > payload.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (payload[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] payload, byte b, int start) {
+        for (int i = start; i < payload.length; i++) {
+            if (payload[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] payload, String s, int start) {
+        for (int i = start; i <= payload.length - s.length(); i++) {
+            if (startsWith(payload, i, s)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
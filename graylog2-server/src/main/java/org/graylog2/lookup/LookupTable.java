@@ -26,7 +26,11 @@ import org.graylog2.plugin.lookup.LookupResult;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.Streams.stream;
@@ -72,6 +76,68 @@ public abstract class LookupTable {
     public LookupResult lookup(@Nonnull Object key) {
         final LookupResult result = cache().get(LookupCacheKey.create(dataAdapter(), key), () -> dataAdapter().get(key));
 
+        return withDefaults(result);
+    }
+
+    /**
+     * Looks up all given keys. Keys which are not cached are loaded from the data adapter with a single
+     * {@link LookupDataAdapter#getAll(Collection)} call.
+     *
+     * @param keys the keys to look up
+     * @return the lookup results, keyed by the given keys
+     */
+    public Map<Object, LookupResult> lookupAll(@Nonnull Collection<Object> keys) {
+        final Map<LookupCacheKey, Object> cacheKeys = new LinkedHashMap<>(keys.size());
+        for (Object key : keys) {
+            cacheKeys.put(LookupCacheKey.create(dataAdapter(), key), key);
+        }
+
+        final Map<LookupCacheKey, LookupResult> cached = cache().getAll(cacheKeys.keySet(), missingKeys -> {
+            final Map<Object, LookupResult> loaded = dataAdapter().getAll(missingKeys.stream().map(LookupCacheKey::key).toList());
+            final Map<LookupCacheKey, LookupResult> results = new LinkedHashMap<>(loaded.size());
+            loaded.forEach((key, result) -> results.put(LookupCacheKey.create(dataAdapter(), key), result));
+            return results;
+        });
+
+        final Map<Object, LookupResult> results = new LinkedHashMap<>(cacheKeys.size());
+        cacheKeys.forEach((cacheKey, key) -> results.put(key, withDefaults(cached.get(cacheKey))));
+        return results;
+    }
+
+    /**
+     * Looks up the given key without blocking the calling thread, if the cache and the data adapter support it.
+     *
+     * @param key the key to look up
+     * @return a future for the lookup result
+     */
+    public CompletableFuture<LookupResult> lookupAsync(@Nonnull Object key) {
+        return cache().getAsync(LookupCacheKey.create(dataAdapter(), key), () -> dataAdapter().getAsync(key))
+                .thenApply(this::withDefaults);
+    }
+
+    /**
+     * Looks up all given keys without blocking the calling thread, if the cache and the data adapter support it.
+     *
+     * @param keys the keys to look up
+     * @return a future for the lookup results, keyed by the given keys
+     */
+    public CompletableFuture<Map<Object, LookupResult>> lookupAllAsync(@Nonnull Collection<Object> keys) {
+        final Map<Object, CompletableFuture<LookupResult>> futures = new LinkedHashMap<>(keys.size());
+        for (Object key : keys) {
+            futures.computeIfAbsent(key, this::lookupAsync);
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    final Map<Object, LookupResult> results = new LinkedHashMap<>(futures.size());
+                    futures.forEach((key, future) -> results.put(key, future.join()));
+                    return results;
+                });
+    }
+
+    private LookupResult withDefaults(@Nullable LookupResult result) {
+        if (result == null) {
+            return LookupResult.addDefaults(defaultSingleValue(), defaultMultiValue()).build();
+        }
         if (result.hasError()) {
             return result;
         }
@@ -48,6 +48,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -630,8 +631,28 @@ public class LookupTableService extends AbstractIdleService {
                 return LookupResult.withError();
             }
 
-            final LookupResult result = lookupTable.lookup(key);
+            return normalize(lookupTable.lookup(key));
+        }
+
+        /**
+         * Looks up all given keys with as few data adapter requests as possible.
+         *
+         * @param keys the keys to look up
+         * @return the lookup results, keyed by the given keys
+         */
+        public Map<Object, LookupResult> lookupAll(@Nonnull Collection<Object> keys) {
+            final LookupTable lookupTable = lookupTableService.getTable(lookupTableName);
+            final Map<Object, LookupResult> results = new LinkedHashMap<>(keys.size());
+            if (lookupTable == null) {
+                keys.forEach(key -> results.put(key, LookupResult.withError()));
+                return results;
+            }
+
+            lookupTable.lookupAll(keys).forEach((key, result) -> results.put(key, normalize(result)));
+            return results;
+        }
 
+        private static LookupResult normalize(@Nullable LookupResult result) {
             if (result == null) {
                 return LookupResult.empty();
             }
@@ -34,6 +34,7 @@ import com.google.inject.assistedinject.Assisted;
 import org.apache.commons.lang3.StringUtils;
 import org.graylog.autovalue.WithBeanGetter;
 import org.graylog2.lookup.AllowedAuxiliaryPathChecker;
+import org.graylog2.lookup.adapters.csvfile.MappedLookupIndex;
 import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupDataAdapter;
 import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
@@ -46,6 +47,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Size;
@@ -56,13 +58,21 @@ import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.graylog2.shared.utilities.StringUtils.f;
@@ -82,10 +92,16 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
     public static final String ALLOWED_PATH_ERROR =
             "The specified CSV file either does not exist or is not in an allowed path.";
 
+    // the index directories of all running memory-mapped adapters
+    private static final Set<Path> RUNNING_INDEX_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
     private final Config config;
     private final AllowedAuxiliaryPathChecker pathChecker;
     private final AtomicReference<Map<String, String>> lookupRef = new AtomicReference<>(ImmutableMap.of());
     private final String name;
+    private final Path adapterDirectory;
+    private final Path indexDirectory;
+    private final AtomicLong indexGeneration = new AtomicLong();
 
     private FileInfo fileInfo = FileInfo.empty();
 
@@ -94,11 +110,15 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
                               @Assisted("name") String name,
                               @Assisted LookupDataAdapterConfiguration config,
                               MetricRegistry metricRegistry,
-                              AllowedAuxiliaryPathChecker pathChecker) {
+                              AllowedAuxiliaryPathChecker pathChecker,
+                              @Named("data_dir") Path dataDir) {
         super(id, name, config, metricRegistry);
         this.name = name;
         this.config = (Config) config;
         this.pathChecker = pathChecker;
+        this.adapterDirectory = dataDir.resolve("lookup-tables").resolve(NAME).resolve(id);
+        // Every instance gets its own directory, an updated adapter is started before the old instance is stopped
+        this.indexDirectory = adapterDirectory.resolve(UUID.randomUUID().toString());
     }
 
     @Override
@@ -114,9 +134,16 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             throw new IllegalStateException("Check interval setting cannot be smaller than 1");
         }
 
+        if (config.isMemoryMapped()) {
+            // Index files of a previous run are never reused, the CSV file might have changed in the meantime
+            deleteStaleIndexDirectories();
+            Files.createDirectories(indexDirectory);
+            RUNNING_INDEX_DIRECTORIES.add(indexDirectory);
+        }
+
         // Set file info before parsing the data for the first time
         fileInfo = getNewFileInfo();
-        lookupRef.set(parseCSVFile());
+        swapLookup(loadLookup());
     }
 
     @Override
@@ -150,7 +177,7 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             }
 
             LOG.debug("CSV file {} has changed, updating data", config.path());
-            lookupRef.set(parseCSVFile());
+            swapLookup(loadLookup());
             cachePurge.purgeAll();
             // If the file has been moved, then moved back, the fileInfo might have been disconnected.
             // In this case, create a new fileInfo.
@@ -162,10 +189,75 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
         }
     }
 
-    private Map<String, String> parseCSVFile() throws IOException {
+    private Map<String, String> loadLookup() throws IOException {
+        if (!config.isMemoryMapped()) {
+            final ImmutableMap.Builder<String, String> newLookupBuilder = ImmutableMap.builder();
+            parseCSVFile(newLookupBuilder::put);
+            return newLookupBuilder.build();
+        }
+
+        final Path indexFile = indexDirectory.resolve("index-" + indexGeneration.incrementAndGet());
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(indexFile)) {
+            parseCSVFile(writer::add);
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Replaces the active lookup data. A memory-mapped index which is replaced is deleted right away, the mapping
+     * itself stays valid for lookups which are still running on it.
+     */
+    private void swapLookup(Map<String, String> lookup) throws IOException {
+        final Map<String, String> previous = lookupRef.getAndSet(lookup);
+        if (previous instanceof MappedLookupIndex index) {
+            Files.deleteIfExists(index.path());
+        }
+    }
+
+    /**
+     * Deletes the index files of previous runs of this adapter, but not the ones of other instances which are still
+     * running in this process.
+     */
+    private void deleteStaleIndexDirectories() throws IOException {
+        if (!Files.exists(adapterDirectory)) {
+            return;
+        }
+        try (final Stream<Path> paths = Files.list(adapterDirectory)) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                if (!RUNNING_INDEX_DIRECTORIES.contains(path)) {
+                    deleteRecursively(path);
+                }
+            }
+        }
+    }
+
+    private void deleteIndexDirectory() throws IOException {
+        RUNNING_INDEX_DIRECTORIES.remove(indexDirectory);
+        deleteRecursively(indexDirectory);
+        try {
+            Files.deleteIfExists(adapterDirectory);
+        } catch (DirectoryNotEmptyException e) {
+            // another instance of the adapter is still running
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        } catch (NoSuchFileException e) {
+            // already deleted
+        }
+    }
+
+    private interface EntryConsumer {
+        void accept(String key, String value) throws IOException;
+    }
+
+    private void parseCSVFile(EntryConsumer newLookupBuilder) throws IOException {
         final InputStream inputStream = Files.newInputStream(Paths.get(config.path()));
         final InputStreamReader fileReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-        final ImmutableMap.Builder<String, String> newLookupBuilder = ImmutableMap.builder();
 
         try (final CSVReader csvReader = new CSVReader(fileReader, config.separatorAsChar(), config.quotecharAsChar())) {
             int line = 0;
@@ -216,19 +308,19 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
 
                     if (!config.isCidrLookup()) {
                         if (config.isCaseInsensitiveLookup()) {
-                            newLookupBuilder.put(key.toLowerCase(Locale.ENGLISH), value);
+                            newLookupBuilder.accept(key.toLowerCase(Locale.ENGLISH), value);
                         } else {
-                            newLookupBuilder.put(key, value);
+                            newLookupBuilder.accept(key, value);
                         }
                     } else {
                         Optional<IpSubnet> optSubnet = ReservedIpChecker.stringToSubnet(key);
                         if (optSubnet.isPresent()) {
-                            newLookupBuilder.put(key, value);
+                            newLookupBuilder.accept(key, value);
                         } else {
                             // If key in a CIDR lookup adapter is not already a valid CIDR range, check if it is an IP
                             String cidr = ipAddressToCIDR(key);
                             if (cidr != null) {
-                                newLookupBuilder.put(cidr, value);
+                                newLookupBuilder.accept(cidr, value);
                             }
                         }
                     }
@@ -240,8 +332,6 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             setError(e);
             throw new IllegalStateException(e);
         }
-
-        return newLookupBuilder.build();
     }
 
     private String ipAddressToCIDR(String ip) {
@@ -266,6 +356,10 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
     @Override
     public void doStop() throws Exception {
         LOG.debug("Stopping CSV data adapter for file: {}", config.path());
+        swapLookup(ImmutableMap.of());
+        if (config.isMemoryMapped()) {
+            deleteIndexDirectory();
+        }
     }
 
     @Override
@@ -342,6 +436,7 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
                     .checkInterval(60)
                     .caseInsensitiveLookup(false)
                     .cidrLookup(false)
+                    .memoryMapped(false)
                     .build();
         }
     }
@@ -408,10 +503,21 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             return caseInsensitiveLookup().isPresent() && caseInsensitiveLookup().get();
         }
 
+        /**
+         * Keep the lookup data in a memory-mapped index file in the data directory instead of on the heap.
+         * Useful for very large CSV files, lookups are slightly slower because the values are decoded on access.
+         */
+        @JsonProperty("memory_mapped")
+        public abstract Optional<Boolean> memoryMapped();
+
         public boolean isCidrLookup() {
             return cidrLookup().isPresent() && cidrLookup().get();
         }
 
+        public boolean isMemoryMapped() {
+            return memoryMapped().isPresent() && memoryMapped().get();
+        }
+
         public static Builder builder() {
             return new AutoValue_CSVFileDataAdapter_Config.Builder();
         }
@@ -472,6 +578,9 @@ public class CSVFileDataAdapter extends LookupDataAdapter {
             @JsonProperty("cidr_lookup")
             public abstract Builder cidrLookup(Boolean cidrLookup);
 
+            @JsonProperty("memory_mapped")
+            public abstract Builder memoryMapped(Boolean memoryMapped);
+
             public abstract Config build();
         }
     }
@@ -18,6 +18,7 @@ package org.graylog2.lookup.adapters;
 
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -31,6 +32,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.inject.assistedinject.Assisted;
+import io.netty.resolver.dns.DnsNameResolverTimeoutException;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.graylog.autovalue.WithBeanGetter;
@@ -55,6 +57,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
@@ -62,7 +65,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 public class DnsLookupDataAdapter extends LookupDataAdapter {
 
@@ -79,11 +89,21 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
     private static final String TIMER_RESOLVE_DOMAIN_NAME = "resolveDomainNameTime";
     private static final String TIMER_REVERSE_LOOKUP = "reverseLookupTime";
     private static final String TIMER_TEXT_LOOKUP = "textLookupTime";
+    private static final String IN_FLIGHT_COUNTER = "inFlight";
+    private static final String TIMEOUTS_METER = "timeouts";
+    private static final String COALESCED_METER = "coalesced";
+    private static final long WAIT_TIMEOUT_GRACE_MILLIS = 50;
     private DnsClient dnsClient;
     private final Config config;
     private final DnsLookupAdapterConfiguration adapterConfiguration;
 
     private final Counter errorCounter;
+    private final Counter inFlightCounter;
+    private final Meter timeoutMeter;
+    private final Meter coalescedMeter;
+
+    // Running DNS queries by key, used to answer concurrent lookups for the same key with a single query.
+    private final ConcurrentMap<String, CompletableFuture<LookupResult>> inFlightLookups = new ConcurrentHashMap<>();
 
     // Timers exist for all request types, so that each can be troubleshot individually.
     private final Timer resolveDomainNameTimer;
@@ -98,6 +118,9 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
         this.config = (Config) dto.config();
         this.adapterConfiguration = adapterConfiguration;
         this.errorCounter = metricRegistry.counter(MetricRegistry.name(getClass(), dto.id(), ERROR_COUNTER));
+        this.inFlightCounter = metricRegistry.counter(MetricRegistry.name(getClass(), dto.id(), IN_FLIGHT_COUNTER));
+        this.timeoutMeter = metricRegistry.meter(MetricRegistry.name(getClass(), dto.id(), TIMEOUTS_METER));
+        this.coalescedMeter = metricRegistry.meter(MetricRegistry.name(getClass(), dto.id(), COALESCED_METER));
         this.resolveDomainNameTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_RESOLVE_DOMAIN_NAME));
         this.reverseLookupTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_REVERSE_LOOKUP));
         this.textLookupTimer = metricRegistry.timer(MetricRegistry.name(getClass(), dto.id(), TIMER_TEXT_LOOKUP));
@@ -132,55 +155,142 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
 
     }
 
+    /**
+     * Waits for the asynchronous lookup, which completes with the error result if the DNS server didn't answer within
+     * the configured request timeout, so the lookup table falls back to its default value and only caches the miss for
+     * the configured error TTL. The query keeps running in the background and concurrent lookups for the same key can
+     * still use its result.
+     */
     @Override
     protected LookupResult doGet(Object key) {
+        try {
+            return doGetAsync(key).get(maxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Only happens if the DNS client didn't time out the request itself, the query timeout is counted there
+            LOG.debug("[{}] DNS resolution for key [{}] didn't complete in {} ms", config.lookupType(), key, maxWaitMillis());
+            return getErrorResult();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return getErrorResult();
+        } catch (ExecutionException e) {
+            LOG.error("[{}] DNS resolution for key [{}] failed. Cause [{}]", config.lookupType(), key, ExceptionUtils.getRootCauseOrMessage(e));
+            errorCounter.inc();
+            return getErrorResult();
+        }
+    }
+
+    @Override
+    protected Map<Object, LookupResult> doGetAll(Collection<Object> keys) {
+        final Map<Object, CompletableFuture<LookupResult>> futures = new LinkedHashMap<>(keys.size());
+        for (Object key : keys) {
+            futures.computeIfAbsent(key, this::doGetAsync);
+        }
+        final Map<Object, LookupResult> results = new LinkedHashMap<>(keys.size());
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis());
+        for (Map.Entry<Object, CompletableFuture<LookupResult>> entry : futures.entrySet()) {
+            try {
+                final long remaining = Math.max(0, deadline - System.nanoTime());
+                results.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                results.put(entry.getKey(), getErrorResult());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.put(entry.getKey(), getErrorResult());
+            } catch (ExecutionException e) {
+                errorCounter.inc();
+                results.put(entry.getKey(), getErrorResult());
+            }
+        }
+        return results;
+    }
+
+    // The DNS client completes every request after its request timeout at the latest. Waiting a little longer lets the
+    // request decide about the result, instead of racing against its timeout.
+    private long maxWaitMillis() {
+        return dnsClient.getRequestTimeout() + WAIT_TIMEOUT_GRACE_MILLIS;
+    }
+
+    /**
+     * Runs the DNS query without blocking the calling thread. Concurrent lookups for the same key share a single
+     * DNS query.
+     */
+    @Override
+    protected CompletableFuture<LookupResult> doGetAsync(Object key) {
 
         final String trimmedKey = StringUtils.trimToNull(key.toString());
         if (trimmedKey == null) {
             LOG.debug("A blank key was supplied");
-            return getEmptyResult();
+            return CompletableFuture.completedFuture(getEmptyResult());
+        }
+
+        final CompletableFuture<LookupResult> lookup = new CompletableFuture<>();
+        final CompletableFuture<LookupResult> inFlight = inFlightLookups.putIfAbsent(trimmedKey, lookup);
+        if (inFlight != null) {
+            coalescedMeter.mark();
+            // Callers must not be able to complete the shared future
+            return inFlight.copy();
         }
 
+        inFlightCounter.inc();
         LOG.debug("Beginning [{}] DNS resolution for key [{}]", config.lookupType(), trimmedKey);
 
-        LookupResult lookupResult;
+        CompletableFuture<LookupResult> resolution;
+        try {
+            resolution = resolve(trimmedKey);
+        } catch (Exception e) {
+            resolution = CompletableFuture.failedFuture(e);
+        }
+        resolution.whenComplete((lookupResult, throwable) -> {
+            inFlightLookups.remove(trimmedKey, lookup);
+            inFlightCounter.dec();
+            if (throwable != null) {
+                LOG.error("Could not perform [{}] DNS resolution for key [{}]. Cause [{}]", config.lookupType(), trimmedKey, ExceptionUtils.getRootCauseOrMessage(throwable));
+                errorCounter.inc();
+                lookup.complete(getErrorResult());
+            } else {
+                LOG.debug("[{}] DNS resolution complete for key [{}]. Response [{}]", config.lookupType(), trimmedKey, lookupResult);
+                lookup.complete(lookupResult);
+            }
+        });
+        return lookup.copy();
+    }
+
+    private static boolean isTimeout(Throwable throwable) {
+        return ExceptionUtils.hasCauseOf(throwable, DnsNameResolverTimeoutException.class)
+                || ExceptionUtils.hasCauseOf(throwable, TimeoutException.class);
+    }
+
+    /**
+     * A DNS server that doesn't answer in time is counted as timeout instead of an error, but the lookup completes
+     * with the error result, just like it does when waiting for the query takes too long. That way a transient
+     * timeout is only cached for the configured error TTL, and not as a missing record.
+     */
+    private LookupResult timedOut(String key) {
+        LOG.debug("[{}] DNS resolution for key [{}] didn't complete in {} ms", config.lookupType(), key, config.requestTimeout());
+        timeoutMeter.mark();
+        return getErrorResult();
+    }
+
+    private CompletableFuture<LookupResult> resolve(String key) {
         switch (config.lookupType()) {
             case A:
-                try (final Timer.Context ignored = resolveDomainNameTimer.time()) {
-                    lookupResult = resolveIPv4AddressForHostname(trimmedKey);
-                }
-                break;
-            case AAAA: {
-                try (final Timer.Context ignored = resolveDomainNameTimer.time()) {
-                    lookupResult = resolveIPv6AddressForHostname(trimmedKey);
-                }
-                break;
-            }
-            case A_AAAA: {
-                try (final Timer.Context ignored = resolveDomainNameTimer.time()) {
-                    lookupResult = resolveAllAddressesForHostname(trimmedKey);
-                }
-                break;
-            }
-            case PTR: {
-                try (final Timer.Context ignored = reverseLookupTimer.time()) {
-                    lookupResult = performReverseLookup(trimmedKey);
-                }
-                break;
-            }
-            case TXT: {
-                try (final Timer.Context ignored = textLookupTimer.time()) {
-                    lookupResult = performTextLookup(trimmedKey);
-                }
-                break;
-            }
+                return timed(resolveDomainNameTimer, resolveIPv4AddressForHostname(key));
+            case AAAA:
+                return timed(resolveDomainNameTimer, resolveIPv6AddressForHostname(key));
+            case A_AAAA:
+                return timed(resolveDomainNameTimer, resolveAllAddressesForHostname(key));
+            case PTR:
+                return timed(reverseLookupTimer, performReverseLookup(key));
+            case TXT:
+                return timed(textLookupTimer, performTextLookup(key));
             default:
                 throw new IllegalArgumentException(String.format(Locale.ENGLISH, "DnsLookupType [%s] is not supported", config.lookupType()));
         }
+    }
 
-        LOG.debug("[{}] DNS resolution complete for key [{}]. Response [{}]", config.lookupType(), trimmedKey, lookupResult);
-
-        return lookupResult;
+    private static <T> CompletableFuture<T> timed(Timer timer, CompletableFuture<T> future) {
+        final Timer.Context time = timer.time();
+        return future.whenComplete((result, throwable) -> time.stop());
     }
 
     /**
@@ -188,25 +298,28 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
      * resolution request is to resolve to a single IP address (so that communication can be initiated with it).
      * We also resolve all addresses in case they are needed.
      */
-    private LookupResult resolveIPv4AddressForHostname(Object key) {
+    private CompletableFuture<LookupResult> resolveIPv4AddressForHostname(String key) {
 
-        final List<ADnsAnswer> aDnsAnswers;
-        try {
-            aDnsAnswers = dnsClient.resolveIPv4AddressForHostname(key.toString(), false);
-        } catch (UnknownHostException e) {
-            return LookupResult.empty(); // UnknownHostException is a valid case when the DNS record does not exist. Do not log an error.
-        } catch (Exception e) {
-            LOG.error("Could not resolve [{}] records for hostname [{}]. Cause [{}]", A_RECORD_LABEL, key, ExceptionUtils.getRootCauseOrMessage(e));
-            errorCounter.inc();
-            return getEmptyResult();
-        }
+        return call(() -> dnsClient.resolveIPv4AddressForHostnameAsync(key, false)).handle((aDnsAnswers, throwable) -> {
+            if (throwable != null) {
+                if (isTimeout(throwable)) {
+                    return timedOut(key);
+                }
+                if (isUnknownHost(throwable)) {
+                    return LookupResult.empty(); // UnknownHostException is a valid case when the DNS record does not exist. Do not log an error.
+                }
+                LOG.error("Could not resolve [{}] records for hostname [{}]. Cause [{}]", A_RECORD_LABEL, key, ExceptionUtils.getRootCauseOrMessage(throwable));
+                errorCounter.inc();
+                return getEmptyResult();
+            }
 
-        if (CollectionUtils.isNotEmpty(aDnsAnswers)) {
-            return buildLookupResult(aDnsAnswers);
-        }
+            if (CollectionUtils.isNotEmpty(aDnsAnswers)) {
+                return buildLookupResult(aDnsAnswers);
+            }
 
-        LOG.debug("Could not resolve [{}] records for hostname [{}].", A_RECORD_LABEL, key);
-        return getEmptyResult();
+            LOG.debug("Could not resolve [{}] records for hostname [{}].", A_RECORD_LABEL, key);
+            return getEmptyResult();
+        });
     }
 
     /**
@@ -214,25 +327,44 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
      * resolution request is to resolve to a single IP address (so that communication can be initiated with it).
      * We also resolve all addresses in case they are needed.
      */
-    private LookupResult resolveIPv6AddressForHostname(Object key) {
+    private CompletableFuture<LookupResult> resolveIPv6AddressForHostname(String key) {
+
+        return call(() -> dnsClient.resolveIPv6AddressForHostnameAsync(key, false)).handle((aDnsAnswers, throwable) -> {
+            if (throwable != null) {
+                if (isTimeout(throwable)) {
+                    return timedOut(key);
+                }
+                if (isUnknownHost(throwable)) {
+                    return getEmptyResult(); // UnknownHostException is a valid case when the DNS record does not exist. Do not log an error.
+                }
+                LOG.error("Could not resolve [{}] records for hostname [{}]. Cause [{}]", AAAA_RECORD_LABEL, key, ExceptionUtils.getRootCauseOrMessage(throwable));
+                errorCounter.inc();
+                return getErrorResult();
+            }
+
+            if (CollectionUtils.isNotEmpty(aDnsAnswers)) {
+                return buildLookupResult(aDnsAnswers);
+            }
+
+            LOG.debug("Could not resolve [{}] records for hostname [{}].", AAAA_RECORD_LABEL, key);
+            return getEmptyResult();
+        });
+    }
 
-        final List<ADnsAnswer> aDnsAnswers;
+    /**
+     * Turns exceptions which are thrown before the DNS query has been sent, e.g. for invalid keys, into a failed future.
+     */
+    private static <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> query) {
         try {
-            aDnsAnswers = dnsClient.resolveIPv6AddressForHostname(key.toString(), false);
-        } catch (UnknownHostException e) {
-            return getEmptyResult(); // UnknownHostException is a valid case when the DNS record does not exist. Do not log an error.
+            return query.get();
         } catch (Exception e) {
-            LOG.error("Could not resolve [{}] records for hostname [{}]. Cause [{}]", AAAA_RECORD_LABEL, key, ExceptionUtils.getRootCauseOrMessage(e));
-            errorCounter.inc();
-            return getErrorResult();
-        }
-
-        if (CollectionUtils.isNotEmpty(aDnsAnswers)) {
-            return buildLookupResult(aDnsAnswers);
+            return CompletableFuture.failedFuture(e);
         }
+    }
 
-        LOG.debug("Could not resolve [{}] records for hostname [{}].", AAAA_RECORD_LABEL, key);
-        return getEmptyResult();
+    private static boolean isUnknownHost(Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        return cause instanceof UnknownHostException;
     }
 
     private LookupResult buildLookupResult(List<ADnsAnswer> aDnsAnswers) {
@@ -253,27 +385,20 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
     /**
      * Resolves all IPv4 and IPv6 addresses for the hostname. A single IP address will be returned in the singleValue
      * field (IPv4 address will be returned if present). All IPv4 and IPv6 addresses will be included in the multiValue
-     * field.
+     * field. Both queries run concurrently.
      *
      * @param key a hostname
      */
-    private LookupResult resolveAllAddressesForHostname(Object key) {
+    private CompletableFuture<LookupResult> resolveAllAddressesForHostname(String key) {
 
-        try {
-            List<ADnsAnswer> ip4Answers = new ArrayList<>();
-            List<ADnsAnswer> ip6Answers = new ArrayList<>();
-
-            // UnknownHostException is a valid case when the DNS record does not exist. Silently ignore and do not log an error.
-            try {
-                ip4Answers = dnsClient.resolveIPv4AddressForHostname(key.toString(), true); // Include IP version
-            } catch (UnknownHostException e) {
-            }
-
-            try {
-                ip6Answers = dnsClient.resolveIPv6AddressForHostname(key.toString(), true); // Include IP version
-            } catch (UnknownHostException e) {
-            }
+        // UnknownHostException is a valid case when the DNS record does not exist. Silently ignore and do not log an error.
+        // Timeouts are reported as UnknownHostException as well, but must not be mistaken for a missing record.
+        final CompletableFuture<List<ADnsAnswer>> ip4Future = call(() -> dnsClient.resolveIPv4AddressForHostnameAsync(key, true)) // Include IP version
+                .exceptionallyCompose(e -> isUnknownHost(e) && !isTimeout(e) ? CompletableFuture.completedFuture(List.of()) : CompletableFuture.failedFuture(e));
+        final CompletableFuture<List<ADnsAnswer>> ip6Future = call(() -> dnsClient.resolveIPv6AddressForHostnameAsync(key, true)) // Include IP version
+                .exceptionallyCompose(e -> isUnknownHost(e) && !isTimeout(e) ? CompletableFuture.completedFuture(List.of()) : CompletableFuture.failedFuture(e));
 
+        return ip4Future.thenCombine(ip6Future, (ip4Answers, ip6Answers) -> {
             // Select answer for single value. Prefer use of IPv4 address. Only return IPv6 address if no IPv6 address found.
             final String singleValue;
             if (CollectionUtils.isNotEmpty(ip4Answers)) {
@@ -301,76 +426,83 @@ public class DnsLookupDataAdapter extends LookupDataAdapter {
             assignMinimumTTL(allAnswers, builder);
 
             return builder.build();
-        } catch (Exception e) {
+        }).exceptionally(e -> {
+            if (isTimeout(e)) {
+                return timedOut(key);
+            }
             LOG.error("Could not resolve [A/AAAA] records for hostname [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(e));
             errorCounter.inc();
             return getErrorResult();
-        }
+        });
     }
 
-    private LookupResult performReverseLookup(Object key) {
+    private CompletableFuture<LookupResult> performReverseLookup(String key) {
 
-        final PtrDnsAnswer dnsResponse;
-        try {
-            dnsResponse = dnsClient.reverseLookup(key.toString());
-        } catch (Exception e) {
-            LOG.error("Could not perform reverse DNS lookup for [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(e));
-            errorCounter.inc();
-            return getErrorResult();
-        }
+        return call(() -> dnsClient.reverseLookupAsync(key)).handle((dnsResponse, throwable) -> {
+            if (throwable != null) {
+                if (isTimeout(throwable)) {
+                    return timedOut(key);
+                }
+                LOG.error("Could not perform reverse DNS lookup for [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(throwable));
+                errorCounter.inc();
+                return getErrorResult();
+            }
 
-        if (dnsResponse != null) {
-            if (!Strings.isNullOrEmpty(dnsResponse.fullDomain())) {
+            if (dnsResponse != null) {
+                if (!Strings.isNullOrEmpty(dnsResponse.fullDomain())) {
 
-                // Include answer in both single and multiValue fields.
-                final Map<Object, Object> multiValueResults = new LinkedHashMap<>();
-                multiValueResults.put(PtrDnsAnswer.FIELD_DOMAIN, dnsResponse.domain());
-                multiValueResults.put(PtrDnsAnswer.FIELD_FULL_DOMAIN, dnsResponse.fullDomain());
-                multiValueResults.put(PtrDnsAnswer.FIELD_DNS_TTL, dnsResponse.dnsTTL());
+                    // Include answer in both single and multiValue fields.
+                    final Map<Object, Object> multiValueResults = new LinkedHashMap<>();
+                    multiValueResults.put(PtrDnsAnswer.FIELD_DOMAIN, dnsResponse.domain());
+                    multiValueResults.put(PtrDnsAnswer.FIELD_FULL_DOMAIN, dnsResponse.fullDomain());
+                    multiValueResults.put(PtrDnsAnswer.FIELD_DNS_TTL, dnsResponse.dnsTTL());
 
-                final LookupResult.Builder builder = LookupResult.builder()
-                        .single(dnsResponse.fullDomain())
-                        .multiValue(multiValueResults)
-                        .stringListValue(ImmutableList.of(dnsResponse.fullDomain()));
+                    final LookupResult.Builder builder = LookupResult.builder()
+                            .single(dnsResponse.fullDomain())
+                            .multiValue(multiValueResults)
+                            .stringListValue(ImmutableList.of(dnsResponse.fullDomain()));
 
-                if (config.hasOverrideTTL()) {
-                    builder.cacheTTL(config.getCacheTTLOverrideMillis());
-                } else {
-                    builder.cacheTTL(dnsResponse.dnsTTL() * 1000);
-                }
+                    if (config.hasOverrideTTL()) {
+                        builder.cacheTTL(config.getCacheTTLOverrideMillis());
+                    } else {
+                        builder.cacheTTL(dnsResponse.dnsTTL() * 1000);
+                    }
 
-                return builder.build();
+                    return builder.build();
+                }
             }
-        }
 
-        LOG.debug("Could not perform reverse lookup on IP address [{}]. No PTR record was found.", key);
-        return getEmptyResult();
+            LOG.debug("Could not perform reverse lookup on IP address [{}]. No PTR record was found.", key);
+            return getEmptyResult();
+        });
     }
 
-    private LookupResult performTextLookup(Object key) {
+    private CompletableFuture<LookupResult> performTextLookup(String key) {
 
         /* Query all TXT records for hostname and provide them in the multiValue field as an array.
          * Do not attempt to attempt to choose a single value for the user (all are valid). */
-        final List<TxtDnsAnswer> txtDnsAnswers;
-        try {
-            txtDnsAnswers = dnsClient.txtLookup(key.toString());
-        } catch (Exception e) {
-            LOG.error("Could not perform TXT DNS lookup for [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(e));
-            errorCounter.inc();
-            return getErrorResult();
-        }
+        return call(() -> dnsClient.txtLookupAsync(key)).handle((txtDnsAnswers, throwable) -> {
+            if (throwable != null) {
+                if (isTimeout(throwable)) {
+                    return timedOut(key);
+                }
+                LOG.error("Could not perform TXT DNS lookup for [{}]. Cause [{}]", key, ExceptionUtils.getRootCauseOrMessage(throwable));
+                errorCounter.inc();
+                return getErrorResult();
+            }
 
-        if (CollectionUtils.isNotEmpty(txtDnsAnswers)) {
-            final LookupResult.Builder builder = LookupResult.builder();
-            builder.multiValue(Collections.singletonMap(RAW_RESULTS_FIELD, txtDnsAnswers))
-                    .stringListValue(TxtDnsAnswer.convertToStringListValue(txtDnsAnswers));
-            assignMinimumTTL(txtDnsAnswers, builder);
+            if (CollectionUtils.isNotEmpty(txtDnsAnswers)) {
+                final LookupResult.Builder builder = LookupResult.builder();
+                builder.multiValue(Collections.singletonMap(RAW_RESULTS_FIELD, txtDnsAnswers))
+                        .stringListValue(TxtDnsAnswer.convertToStringListValue(txtDnsAnswers));
+                assignMinimumTTL(txtDnsAnswers, builder);
 
-            return builder.build();
-        }
+                return builder.build();
+            }
 
-        LOG.debug("Could not perform Text lookup on IP address [{}]. No TXT records were found.", key);
-        return getEmptyResult();
+            LOG.debug("Could not perform Text lookup on IP address [{}]. No TXT records were found.", key);
+            return getEmptyResult();
+        });
     }
 
     /**
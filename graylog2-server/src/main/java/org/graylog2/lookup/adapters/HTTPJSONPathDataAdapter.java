@@ -36,6 +36,8 @@ import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
@@ -63,10 +65,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -150,6 +155,65 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
 
     @Override
     protected LookupResult doGet(Object key) {
+        final Request request = buildRequest(key);
+        if (request == null) {
+            return getErrorResult();
+        }
+
+        final Timer.Context time = httpRequestTimer.time();
+        try (final Response response = httpClient.newCall(request).execute()) {
+            return handleResponse(key, response);
+        } catch (IOException e) {
+            return handleFailure(key, e);
+        } finally {
+            time.stop();
+        }
+    }
+
+    /**
+     * Runs the HTTP requests for all keys concurrently.
+     */
+    @Override
+    protected Map<Object, LookupResult> doGetAll(Collection<Object> keys) {
+        final Map<Object, CompletableFuture<LookupResult>> futures = new LinkedHashMap<>(keys.size());
+        for (Object key : keys) {
+            futures.computeIfAbsent(key, this::doGetAsync);
+        }
+        return allOf(futures).join();
+    }
+
+    @Override
+    protected CompletableFuture<LookupResult> doGetAsync(Object key) {
+        final Request request = buildRequest(key);
+        if (request == null) {
+            return CompletableFuture.completedFuture(getErrorResult());
+        }
+
+        final CompletableFuture<LookupResult> future = new CompletableFuture<>();
+        final Timer.Context time = httpRequestTimer.time();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(handleResponse(key, response));
+                } catch (Exception e) {
+                    future.complete(handleFailure(key, e));
+                } finally {
+                    time.stop();
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                time.stop();
+                future.complete(handleFailure(key, e));
+            }
+        });
+        return future;
+    }
+
+    @Nullable
+    private Request buildRequest(Object key) {
         String encodedKey;
         try {
             encodedKey = URLEncoder.encode(String.valueOf(key), "UTF-8").replaceAll("\\+", "%20");
@@ -163,7 +227,7 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
             LOG.error("URL <{}> is not whitelisted. Aborting lookup request.", urlString);
             publishSystemNotificationForWhitelistFailure();
             setError(UrlNotWhitelistedException.forUrl(urlString));
-            return getErrorResult();
+            return null;
         } else {
             // we use this kind of error reporting mechanism only for whitelist errors, so we can safely clear the
             // error here
@@ -175,35 +239,34 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
         if (url == null) {
             LOG.error("Couldn't parse URL <{}> - returning empty result", urlString);
             httpURLErrors.mark();
-            return getErrorResult();
+            return null;
         }
 
-        final Request request = new Request.Builder()
+        return new Request.Builder()
                 .get()
                 .url(url)
                 .headers(headers)
                 .build();
+    }
 
-        final Timer.Context time = httpRequestTimer.time();
-        try (final Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                LOG.warn("HTTP request for key <{}> failed: {}", key, response);
-                httpRequestErrors.mark();
-                return getErrorResult();
-            }
-
-            final LookupResult result = parseBody(singleJsonPath, multiJsonPath, response.body().byteStream());
-            if (result == null) {
-                return getErrorResult();
-            }
-            return result;
-        } catch (IOException e) {
-            LOG.error("HTTP request error for key <{}>", key, e);
+    private LookupResult handleResponse(Object key, Response response) {
+        if (!response.isSuccessful()) {
+            LOG.warn("HTTP request for key <{}> failed: {}", key, response);
             httpRequestErrors.mark();
             return getErrorResult();
-        } finally {
-            time.stop();
         }
+
+        final LookupResult result = parseBody(singleJsonPath, multiJsonPath, response.body().byteStream());
+        if (result == null) {
+            return getErrorResult();
+        }
+        return result;
+    }
+
+    private LookupResult handleFailure(Object key, Exception e) {
+        LOG.error("HTTP request error for key <{}>", key, e);
+        httpRequestErrors.mark();
+        return getErrorResult();
     }
 
     @VisibleForTesting
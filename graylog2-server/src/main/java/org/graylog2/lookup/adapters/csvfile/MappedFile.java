@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.csvfile;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file region which is memory-mapped in chunks, so it can be larger than the 2 GB limit of a single
+ * {@link MappedByteBuffer}. Values which cross a chunk boundary are assembled byte by byte.
+ */
+final class MappedFile {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final MappedByteBuffer[] chunks;
+
+    private MappedFile(MappedByteBuffer[] chunks) {
+        this.chunks = chunks;
+    }
+
+    static MappedFile map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException {
+        final int chunkCount = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        final MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            final long offset = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(mode, position + offset, Math.min(CHUNK_SIZE, size - offset));
+        }
+        return new MappedFile(chunks);
+    }
+
+    byte get(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+    }
+
+    int getInt(long position) {
+        final int offset = (int) (position & CHUNK_MASK);
+        if (offset <= CHUNK_SIZE - Integer.BYTES) {
+            return chunks[(int) (position >>> CHUNK_SHIFT)].getInt(offset);
+        }
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    long getLong(long position) {
+        final int offset = (int) (position & CHUNK_MASK);
+        if (offset <= CHUNK_SIZE - Long.BYTES) {
+            return chunks[(int) (position >>> CHUNK_SHIFT)].getLong(offset);
+        }
+        return ((long) getInt(position) << 32) | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+    }
+
+    void get(long position, byte[] dst) {
+        int copied = 0;
+        while (copied < dst.length) {
+            final long current = position + copied;
+            final int offset = (int) (current & CHUNK_MASK);
+            final int length = (int) Math.min(dst.length - copied, CHUNK_SIZE - offset);
+            chunks[(int) (current >>> CHUNK_SHIFT)].get(offset, dst, copied, length);
+            copied += length;
+        }
+    }
+
+    void putInt(long position, int value) {
+        final int offset = (int) (position & CHUNK_MASK);
+        if (offset <= CHUNK_SIZE - Integer.BYTES) {
+            chunks[(int) (position >>> CHUNK_SHIFT)].putInt(offset, value);
+            return;
+        }
+        for (int i = 0; i < Integer.BYTES; i++) {
+            put(position + i, (byte) (value >>> (24 - 8 * i)));
+        }
+    }
+
+    void putLong(long position, long value) {
+        final int offset = (int) (position & CHUNK_MASK);
+        if (offset <= CHUNK_SIZE - Long.BYTES) {
+            chunks[(int) (position >>> CHUNK_SHIFT)].putLong(offset, value);
+            return;
+        }
+        putInt(position, (int) (value >>> 32));
+        putInt(position + Integer.BYTES, (int) value);
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    private void put(long position, byte value) {
+        chunks[(int) (position >>> CHUNK_SHIFT)].put((int) (position & CHUNK_MASK), value);
+    }
+}
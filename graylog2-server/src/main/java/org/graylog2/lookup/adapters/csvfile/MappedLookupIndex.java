@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.csvfile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only string map which is stored in a memory-mapped file instead of on the heap.
+ * <p>
+ * The file consists of a header, an open-addressing hash table and the data section:
+ * <pre>
+ * header: magic (int), version (int), slot count (int), unused (int), entry count (long), data offset (long)
+ * slot:   key hash (int), record offset + 1 (long), 0 if the slot is empty
+ * record: key length (int), key bytes (UTF-8), value length (int), value bytes (UTF-8)
+ * </pre>
+ * Lookups hash the key, probe the table and compare the key bytes in place, so only the returned value is copied
+ * onto the heap. Index files are immutable, a changed source file is compiled into a new index with a {@link Writer}.
+ */
+public class MappedLookupIndex extends AbstractMap<String, String> {
+    private static final int MAGIC = 0x474C4B49;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+    private final MappedFile file;
+    private final int slotMask;
+    private final long entryCount;
+    private final long dataOffset;
+
+    private Set<Entry<String, String>> entrySet;
+
+    private MappedLookupIndex(Path path, MappedFile file, int slotCount, long entryCount, long dataOffset) {
+        this.path = path;
+        this.file = file;
+        this.slotMask = slotCount - 1;
+        this.entryCount = entryCount;
+        this.dataOffset = dataOffset;
+    }
+
+    public static MappedLookupIndex open(Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel has been closed
+            final MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_SIZE || file.getInt(0) != MAGIC || file.getInt(4) != VERSION) {
+                throw new IOException("Invalid lookup index file " + path);
+            }
+            return new MappedLookupIndex(path, file, file.getInt(8), file.getLong(16), file.getLong(24));
+        }
+    }
+
+    public static Writer writer(Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, entryCount);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        final byte[] keyBytes = key.toString().getBytes(StandardCharsets.UTF_8);
+        final long record = findRecord(keyBytes, hash(keyBytes));
+        if (record < 0) {
+            return null;
+        }
+        return readString(file, record + Integer.BYTES + keyBytes.length);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return MappedLookupIndex.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Returns the position of the record for the given key in the data file, or -1 if there is none.
+     */
+    private long findRecord(byte[] key, int hash) {
+        int slot = hash & slotMask;
+        while (true) {
+            final long slotPosition = HEADER_SIZE + (long) slot * SLOT_SIZE;
+            final long recordOffset = file.getLong(slotPosition + Integer.BYTES);
+            if (recordOffset == 0) {
+                return -1;
+            }
+            final long record = dataOffset + recordOffset - 1;
+            if (file.getInt(slotPosition) == hash && keyEquals(file, record, key)) {
+                return record;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private static boolean keyEquals(MappedFile data, long record, byte[] key) {
+        if (data.getInt(record) != key.length) {
+            return false;
+        }
+        final long keyStart = record + Integer.BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(keyStart + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(MappedFile data, long position) {
+        final byte[] bytes = new byte[data.getInt(position)];
+        data.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // FNV-1a with a murmur3 finalizer to spread the bits for the power-of-two table
+    private static int hash(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int slotCountFor(long entryCount) {
+        // Keep the load factor below 0.7 so probe sequences stay short
+        final long minSlots = Math.max(16, entryCount * 10 / 7 + 1);
+        if (minSlots > (1 << 30)) {
+            throw new IllegalStateException("Too many entries for a lookup index: " + entryCount);
+        }
+        return Integer.highestOneBit((int) minSlots - 1) << 1;
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, String>> {
+        private long position = dataOffset;
+        private long remaining = entryCount;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            final String key = readString(file, position);
+            position += Integer.BYTES + file.getInt(position);
+            final String value = readString(file, position);
+            position += Integer.BYTES + file.getInt(position);
+            remaining--;
+            return new SimpleImmutableEntry<>(key, value);
+        }
+    }
+
+    /**
+     * Compiles entries into a new index file. Entries are streamed to temporary files next to the target, so the
+     * heap usage does not depend on the number of entries. The index file only appears at the target path once it
+     * is complete.
+     */
+    public static class Writer implements Closeable {
+        private final Path target;
+        private final Path dataFile;
+        private final Path hashFile;
+        private final DataOutputStream data;
+        private final DataOutputStream hashes;
+        private long dataSize = 0;
+        private long entryCount = 0;
+
+        private Writer(Path target) throws IOException {
+            this.target = target;
+            this.dataFile = target.resolveSibling(target.getFileName() + ".data.tmp");
+            this.hashFile = target.resolveSibling(target.getFileName() + ".hashes.tmp");
+            this.data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile)));
+            this.hashes = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(hashFile)));
+        }
+
+        public void add(String key, String value) throws IOException {
+            final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+
+            hashes.writeInt(hash(keyBytes));
+            hashes.writeLong(dataSize);
+
+            data.writeInt(keyBytes.length);
+            data.write(keyBytes);
+            data.writeInt(valueBytes.length);
+            data.write(valueBytes);
+            dataSize += 2L * Integer.BYTES + keyBytes.length + valueBytes.length;
+            entryCount++;
+        }
+
+        /**
+         * Builds the hash table and writes the index file.
+         *
+         * @return the opened index
+         * @throws IllegalArgumentException if the same key has been added more than once
+         */
+        public MappedLookupIndex finish() throws IOException {
+            data.close();
+            hashes.close();
+
+            final int slotCount = slotCountFor(entryCount);
+            final long dataOffset = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+            final Path tmpIndex = target.resolveSibling(target.getFileName() + ".tmp");
+
+            try (final FileChannel index = FileChannel.open(tmpIndex, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 final FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                // The file is extended with zeros, which marks all slots as empty.
+                final MappedFile slots = MappedFile.map(index, FileChannel.MapMode.READ_WRITE, 0, dataOffset);
+                slots.putInt(0, MAGIC);
+                slots.putInt(4, VERSION);
+                slots.putInt(8, slotCount);
+                slots.putLong(16, entryCount);
+                slots.putLong(24, dataOffset);
+                final MappedFile records = dataSize > 0 ? MappedFile.map(dataChannel, FileChannel.MapMode.READ_ONLY, 0, dataSize) : null;
+                try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(hashFile)))) {
+                    for (long i = 0; i < entryCount; i++) {
+                        insert(slots, slotCount - 1, records, in.readInt(), in.readLong());
+                    }
+                }
+                slots.force();
+
+                long transferred = 0;
+                while (transferred < dataSize) {
+                    transferred += dataChannel.transferTo(transferred, dataSize - transferred, index.position(dataOffset + transferred));
+                }
+                index.force(true);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmpIndex);
+                throw e;
+            } finally {
+                deleteTemporaryFiles();
+            }
+
+            Files.move(tmpIndex, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(target);
+        }
+
+        private static void insert(MappedFile slots, int slotMask, MappedFile records, int hash, long recordOffset) {
+            int slot = hash & slotMask;
+            while (true) {
+                final long slotPosition = HEADER_SIZE + (long) slot * SLOT_SIZE;
+                final long existing = slots.getLong(slotPosition + Integer.BYTES);
+                if (existing == 0) {
+                    slots.putInt(slotPosition, hash);
+                    slots.putLong(slotPosition + Integer.BYTES, recordOffset + 1);
+                    return;
+                }
+                if (slots.getInt(slotPosition) == hash && sameKey(records, existing - 1, recordOffset)) {
+                    final byte[] key = new byte[records.getInt(recordOffset)];
+                    records.get(recordOffset + Integer.BYTES, key);
+                    throw new IllegalArgumentException("Multiple entries with same key: " + new String(key, StandardCharsets.UTF_8));
+                }
+                slot = (slot + 1) & slotMask;
+            }
+        }
+
+        private static boolean sameKey(MappedFile records, long first, long second) {
+            final int length = records.getInt(first);
+            if (records.getInt(second) != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (records.get(first + Integer.BYTES + i) != records.get(second + Integer.BYTES + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void deleteTemporaryFiles() throws IOException {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(hashFile);
+        }
+
+        @Override
+        public void close() throws IOException {
+            data.close();
+            hashes.close();
+            deleteTemporaryFiles();
+        }
+    }
+}
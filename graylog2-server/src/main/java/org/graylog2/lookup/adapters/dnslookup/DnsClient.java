@@ -33,6 +33,7 @@ import io.netty.handler.codec.dns.DnsRecordType;
 import io.netty.handler.codec.dns.DnsResponse;
 import io.netty.handler.codec.dns.DnsSection;
 import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.util.concurrent.Future;
 import org.apache.commons.lang3.StringUtils;
 import org.graylog2.lookup.adapters.dnslookup.DnsResolverPool.ResolverLease;
 import org.graylog2.shared.utilities.ExceptionUtils;
@@ -47,9 +48,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -116,6 +120,13 @@ public class DnsClient {
         this.resolverPoolRefreshSeconds = resolverPoolRefreshSeconds;
     }
 
+    /**
+     * @return the maximum time in milliseconds until a request completes, either with its result or a timeout
+     */
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
     public void start(String dnsServerIps) {
         LOG.debug("Attempting to start DNS client");
         this.resolverPool = new DnsResolverPool(dnsServerIps, queryTimeout, resolverPoolSize, resolverPoolRefreshSeconds);
@@ -146,6 +157,29 @@ public class DnsClient {
     private List<ADnsAnswer> resolveIpAddresses(String hostName, DnsRecordType dnsRecordType, boolean includeIpVersion)
             throws InterruptedException, ExecutionException {
 
+        return resolveIpAddressesAsync(hostName, dnsRecordType, includeIpVersion).get();
+    }
+
+    /**
+     * Resolves the IPv4 addresses for the given host name without blocking the calling thread.
+     * The returned future fails with an {@link UnknownHostException} if the host name doesn't exist and with a
+     * {@link TimeoutException} if there was no result within the request timeout.
+     */
+    public CompletableFuture<List<ADnsAnswer>> resolveIPv4AddressForHostnameAsync(String hostName, boolean includeIpVersion) {
+        return resolveIpAddressesAsync(hostName, DnsRecordType.A, includeIpVersion);
+    }
+
+    /**
+     * Resolves the IPv6 addresses for the given host name without blocking the calling thread.
+     *
+     * @see #resolveIPv4AddressForHostnameAsync(String, boolean)
+     */
+    public CompletableFuture<List<ADnsAnswer>> resolveIPv6AddressForHostnameAsync(String hostName, boolean includeIpVersion) {
+        return resolveIpAddressesAsync(hostName, DnsRecordType.AAAA, includeIpVersion);
+    }
+
+    private CompletableFuture<List<ADnsAnswer>> resolveIpAddressesAsync(String hostName, DnsRecordType dnsRecordType, boolean includeIpVersion) {
+
         LOG.debug("Attempting to resolve [{}] records for [{}]", dnsRecordType, hostName);
 
         if (resolverPool.isStopped()) {
@@ -156,20 +190,51 @@ public class DnsClient {
 
         final DefaultDnsQuestion aRecordDnsQuestion = new DefaultDnsQuestion(hostName, dnsRecordType);
 
-        final ResolverLease resolverLease = resolverPool.takeLease();
         /* The DnsNameResolver.resolveAll(DnsQuestion) method handles all redirects through CNAME records to
          * ultimately resolve a list of IP addresses with TTL values. */
+        return query(resolver -> resolver.resolveAll(aRecordDnsQuestion),
+                dnsRecords -> dnsRecords.stream()
+                        .map(dnsRecord -> decodeDnsRecord(dnsRecord, includeIpVersion))
+                        .filter(Objects::nonNull) // Removes any entries which the IP address could not be extracted for.
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs a query on a leased resolver and converts the result on the resolver's event loop. The lease is returned
+     * as soon as the query completes or the request timeout has passed, whatever happens first.
+     */
+    private <T, R> CompletableFuture<R> query(Function<DnsNameResolver, Future<T>> query, Function<T, R> decoder) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final AtomicBoolean leaseReturned = new AtomicBoolean(false);
+        final ResolverLease resolverLease = resolverPool.takeLease();
+        final Runnable returnLease = () -> {
+            if (leaseReturned.compareAndSet(false, true)) {
+                resolverPool.returnLease(resolverLease);
+            }
+        };
+
         try {
-            return resolverLease.getResolver().resolveAll(aRecordDnsQuestion).get(requestTimeout, TimeUnit.MILLISECONDS).stream()
-                           .map(dnsRecord -> decodeDnsRecord(dnsRecord, includeIpVersion))
-                           .filter(Objects::nonNull) // Removes any entries which the IP address could not be extracted for.
-                           .collect(Collectors.toList());
-        } catch (TimeoutException e) {
-            throw new ExecutionException("Resolver future didn't return a result in " + requestTimeout + " ms", e);
-        }
-        finally {
-            resolverPool.returnLease(resolverLease);
+            query.apply(resolverLease.getResolver()).addListener(future -> {
+                returnLease.run();
+                if (!future.isSuccess()) {
+                    result.completeExceptionally(future.cause());
+                    return;
+                }
+                @SuppressWarnings("unchecked") final T response = (T) future.getNow();
+                try {
+                    result.complete(decoder.apply(response));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            returnLease.run();
+            result.completeExceptionally(e);
         }
+
+        // Avoid waiting forever when the resolver has been closed while a request was still running.
+        return result.orTimeout(requestTimeout, TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, throwable) -> returnLease.run());
     }
 
     /**
@@ -224,6 +289,14 @@ public class DnsClient {
     }
 
     public PtrDnsAnswer reverseLookup(String ipAddress) throws InterruptedException, ExecutionException {
+        return reverseLookupAsync(ipAddress).get();
+    }
+
+    /**
+     * Performs a reverse lookup for the given IP address without blocking the calling thread. The future returns
+     * {@code null} if there is no PTR record for the address.
+     */
+    public CompletableFuture<PtrDnsAnswer> reverseLookupAsync(String ipAddress) {
 
         LOG.debug("Attempting to perform reverse lookup for IP address [{}]", ipAddress);
 
@@ -235,44 +308,44 @@ public class DnsClient {
 
         final String inverseAddressFormat = getInverseAddressFormat(ipAddress);
 
-        DnsResponse content = null;
-        final ResolverLease resolverLease = resolverPool.takeLease();
-        try {
-            content = resolverLease.getResolver().query(new DefaultDnsQuestion(inverseAddressFormat, DnsRecordType.PTR)).get(requestTimeout, TimeUnit.MILLISECONDS).content();
-            for (int i = 0; i < content.count(DnsSection.ANSWER); i++) {
+        return query(resolver -> resolver.query(new DefaultDnsQuestion(inverseAddressFormat, DnsRecordType.PTR)),
+                response -> {
+                    final DnsResponse content = response.content();
+                    try {
+                        return decodePtrResponse(ipAddress, content);
+                    } finally {
+                        // Must manually release references on content object since the DnsResponse class extends ReferenceCounted
+                        content.release();
+                    }
+                });
+    }
 
-                // Return the first PTR record, because there should be only one as per
-                // http://tools.ietf.org/html/rfc1035#section-3.5
-                final DnsRecord dnsRecord = content.recordAt(DnsSection.ANSWER, i);
-                if (dnsRecord instanceof DefaultDnsPtrRecord) {
+    private static PtrDnsAnswer decodePtrResponse(String ipAddress, DnsResponse content) {
+        for (int i = 0; i < content.count(DnsSection.ANSWER); i++) {
 
-                    final DefaultDnsPtrRecord ptrRecord = (DefaultDnsPtrRecord) dnsRecord;
-                    final PtrDnsAnswer.Builder dnsAnswerBuilder = PtrDnsAnswer.builder();
+            // Return the first PTR record, because there should be only one as per
+            // http://tools.ietf.org/html/rfc1035#section-3.5
+            final DnsRecord dnsRecord = content.recordAt(DnsSection.ANSWER, i);
+            if (dnsRecord instanceof DefaultDnsPtrRecord) {
 
-                    final String hostname = ptrRecord.hostname();
-                    LOG.trace("PTR record retrieved with hostname [{}]", hostname);
+                final DefaultDnsPtrRecord ptrRecord = (DefaultDnsPtrRecord) dnsRecord;
+                final PtrDnsAnswer.Builder dnsAnswerBuilder = PtrDnsAnswer.builder();
 
-                    try {
-                        parseReverseLookupDomain(dnsAnswerBuilder, hostname);
-                    } catch (IllegalArgumentException e) {
-                        LOG.debug("Reverse lookup of [{}] was partially successful. The DNS server returned [{}], " +
-                                  "which is an invalid host name. The \"domain\" field will be left blank.",
-                                  ipAddress, hostname);
-                        dnsAnswerBuilder.domain("");
-                    }
+                final String hostname = ptrRecord.hostname();
+                LOG.trace("PTR record retrieved with hostname [{}]", hostname);
 
-                    return dnsAnswerBuilder.dnsTTL(ptrRecord.timeToLive())
-                                           .build();
+                try {
+                    parseReverseLookupDomain(dnsAnswerBuilder, hostname);
+                } catch (IllegalArgumentException e) {
+                    LOG.debug("Reverse lookup of [{}] was partially successful. The DNS server returned [{}], " +
+                              "which is an invalid host name. The \"domain\" field will be left blank.",
+                              ipAddress, hostname);
+                    dnsAnswerBuilder.domain("");
                 }
+
+                return dnsAnswerBuilder.dnsTTL(ptrRecord.timeToLive())
+                                       .build();
             }
-        } catch (TimeoutException e) {
-            throw new ExecutionException("Resolver future didn't return a result in " + requestTimeout + " ms", e);
-        } finally {
-            if (content != null) {
-                // Must manually release references on content object since the DnsResponse class extends ReferenceCounted
-                content.release();
-            }
-            resolverPool.returnLease(resolverLease);
         }
 
         return null;
@@ -314,6 +387,13 @@ public class DnsClient {
     }
 
     public List<TxtDnsAnswer> txtLookup(String hostName) throws InterruptedException, ExecutionException {
+        return txtLookupAsync(hostName).get();
+    }
+
+    /**
+     * Looks up all TXT records for the given host name without blocking the calling thread.
+     */
+    public CompletableFuture<List<TxtDnsAnswer>> txtLookupAsync(String hostName) {
 
         if (resolverPool.isStopped()) {
             throw new DnsClientNotRunningException();
@@ -323,42 +403,42 @@ public class DnsClient {
 
         validateHostName(hostName);
 
-        DnsResponse content = null;
-        final ResolverLease resolverLease = resolverPool.takeLease();
-        try {
-            content = resolverLease.getResolver().query(new DefaultDnsQuestion(hostName, DnsRecordType.TXT)).get(requestTimeout, TimeUnit.MILLISECONDS).content();
-            int count = content.count(DnsSection.ANSWER);
-            final ArrayList<TxtDnsAnswer> txtRecords = new ArrayList<>(count);
-            for (int i = 0; i < count; i++) {
+        return query(resolver -> resolver.query(new DefaultDnsQuestion(hostName, DnsRecordType.TXT)),
+                response -> {
+                    final DnsResponse content = response.content();
+                    try {
+                        return decodeTxtResponse(content);
+                    } finally {
+                        // Must manually release references on content object since the DnsResponse class extends ReferenceCounted
+                        content.release();
+                    }
+                });
+    }
 
-                final DnsRecord dnsRecord = content.recordAt(DnsSection.ANSWER, i);
-                LOG.trace("TXT record [{}] retrieved with content [{}].", i, dnsRecord);
+    private static List<TxtDnsAnswer> decodeTxtResponse(DnsResponse content) {
+        int count = content.count(DnsSection.ANSWER);
+        final ArrayList<TxtDnsAnswer> txtRecords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
 
-                if (dnsRecord instanceof DefaultDnsRawRecord) {
-                    final DefaultDnsRawRecord txtRecord = (DefaultDnsRawRecord) dnsRecord;
+            final DnsRecord dnsRecord = content.recordAt(DnsSection.ANSWER, i);
+            LOG.trace("TXT record [{}] retrieved with content [{}].", i, dnsRecord);
 
-                    final TxtDnsAnswer.Builder dnsAnswerBuilder = TxtDnsAnswer.builder();
-                    final String decodeTxtRecord = decodeTxtRecord(txtRecord);
-                    LOG.trace("The decoded TXT record is [{}]", decodeTxtRecord);
+            if (dnsRecord instanceof DefaultDnsRawRecord) {
+                final DefaultDnsRawRecord txtRecord = (DefaultDnsRawRecord) dnsRecord;
 
-                    dnsAnswerBuilder.value(decodeTxtRecord)
-                                    .dnsTTL(txtRecord.timeToLive())
-                                    .build();
+                final TxtDnsAnswer.Builder dnsAnswerBuilder = TxtDnsAnswer.builder();
+                final String decodeTxtRecord = decodeTxtRecord(txtRecord);
+                LOG.trace("The decoded TXT record is [{}]", decodeTxtRecord);
 
-                    txtRecords.add(dnsAnswerBuilder.build());
-                }
-            }
+                dnsAnswerBuilder.value(decodeTxtRecord)
+                                .dnsTTL(txtRecord.timeToLive())
+                                .build();
 
-            return txtRecords;
-        } catch (TimeoutException e) {
-            throw new ExecutionException("Resolver future didn't return a result in " + requestTimeout + " ms", e);
-        } finally {
-            if (content != null) {
-                // Must manually release references on content object since the DnsResponse class extends ReferenceCounted
-                content.release();
+                txtRecords.add(dnsAnswerBuilder.build());
             }
-            resolverPool.returnLease(resolverLease);
         }
+
+        return txtRecords;
     }
 
     private static String decodeTxtRecord(DefaultDnsRawRecord record) {
@@ -16,9 +16,11 @@
  */
 package org.graylog2.lookup.caches;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -29,6 +31,7 @@ import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 import com.google.auto.value.AutoValue;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.assistedinject.Assisted;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -44,10 +47,28 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class CaffeineLookupCache extends LookupCache {
@@ -55,17 +76,38 @@ public class CaffeineLookupCache extends LookupCache {
 
     // Use the old GuavaLookupCache name, so we don't have to deal with migrations
     public static final String NAME = "guava_cache";
-    private final Cache<LookupCacheKey, LookupResult> cache;
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_MINUTES = 5;
+
+    private final Cache<LookupCacheKey, CachedResult> cache;
     private final Config config;
+    private final long refreshAfterWriteNanos;
+    private final ConcurrentMap<LookupCacheKey, CompletableFuture<LookupResult>> inFlightLoads = new ConcurrentHashMap<>();
+    // incremented by every purge, values loaded before a purge must not be cached
+    private final AtomicLong purgeGeneration = new AtomicLong();
+    @Nullable
+    private final ThreadPoolExecutor refreshExecutor;
+    private final LookupCacheSnapshotStore snapshotStore;
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private ScheduledFuture<?> snapshotTask;
+
+    private final Meter coalescedCount;
+    private final Meter staleHitCount;
+    private final Meter refreshCount;
+    private final Meter refreshFailureCount;
 
     @Inject
     public CaffeineLookupCache(@Assisted("id") String id,
                                @Assisted("name") String name,
                                @Assisted LookupCacheConfiguration c,
                                @Named("processbuffer_processors") int processorCount,
-                               MetricRegistry metricRegistry) {
+                               MetricRegistry metricRegistry,
+                               LookupCacheSnapshotStore snapshotStore,
+                               @Named("daemonScheduler") ScheduledExecutorService scheduler) {
         super(id, name, c, metricRegistry);
         config = (Config) c;
+        this.snapshotStore = snapshotStore;
+        this.scheduler = scheduler;
         Caffeine<Object, Object> builder = Caffeine.newBuilder();
 
         builder.recordStats(() -> new MetricStatsCounter(this));
@@ -74,12 +116,33 @@ public class CaffeineLookupCache extends LookupCache {
         builder.expireAfter(buildExpiry(config));
 
         cache = builder.build();
+
+        this.coalescedCount = metricRegistry.meter(MetricRegistry.name("org.graylog2.lookup.caches", id, "coalesced"));
+        this.staleHitCount = metricRegistry.meter(MetricRegistry.name("org.graylog2.lookup.caches", id, "staleHits"));
+        this.refreshCount = metricRegistry.meter(MetricRegistry.name("org.graylog2.lookup.caches", id, "refreshes"));
+        this.refreshFailureCount = metricRegistry.meter(MetricRegistry.name("org.graylog2.lookup.caches", id, "refreshFailures"));
+
+        final Long refreshAfterWrite = config.refreshAfterWrite();
+        final TimeUnit refreshAfterWriteUnit = config.refreshAfterWriteUnit();
+        if (refreshAfterWrite != null && refreshAfterWrite > 0 && refreshAfterWriteUnit != null) {
+            this.refreshAfterWriteNanos = refreshAfterWriteUnit.toNanos(refreshAfterWrite);
+            // Refreshes replace loads which would otherwise block the process buffer processors, so there is no
+            // point in running more of them concurrently than there are processors.
+            this.refreshExecutor = new ThreadPoolExecutor(processorCount, processorCount, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("lookup-cache-refresh-" + name + "-%d").build());
+            this.refreshExecutor.allowCoreThreadTimeOut(true);
+        } else {
+            this.refreshAfterWriteNanos = 0L;
+            this.refreshExecutor = null;
+        }
     }
 
-    private Expiry<LookupCacheKey, LookupResult> buildExpiry(Config config) {
+    private Expiry<LookupCacheKey, CachedResult> buildExpiry(Config config) {
        return new Expiry<>() {
            @Override
-           public long expireAfterCreate(@NonNull LookupCacheKey lookupCacheKey, @NonNull LookupResult lookupResult, long currentTime) {
+           public long expireAfterCreate(@NonNull LookupCacheKey lookupCacheKey, @NonNull CachedResult cachedResult, long currentTime) {
+               final LookupResult lookupResult = cachedResult.result();
                if (lookupResult.hasTTL()) {
                    return TimeUnit.MILLISECONDS.toNanos(lookupResult.cacheTTL());
                } else {
@@ -92,12 +155,13 @@ public class CaffeineLookupCache extends LookupCache {
            }
 
            @Override
-           public long expireAfterUpdate(@NonNull LookupCacheKey lookupCacheKey, @NonNull LookupResult lookupResult, long currentTime, long currentDuration) {
-               return currentDuration;
+           public long expireAfterUpdate(@NonNull LookupCacheKey lookupCacheKey, @NonNull CachedResult cachedResult, long currentTime, long currentDuration) {
+               // A refreshed entry starts a new lifetime
+               return expireAfterCreate(lookupCacheKey, cachedResult, currentTime);
            }
 
            @Override
-           public long expireAfterRead(@NonNull LookupCacheKey lookupCacheKey, @NonNull LookupResult lookupResult, long currentTime, long currentDuration) {
+           public long expireAfterRead(@NonNull LookupCacheKey lookupCacheKey, @NonNull CachedResult cachedResult, long currentTime, long currentDuration) {
                if (config.expireAfterAccess() > 0 && config.expireAfterAccessUnit() != null) {
                    //noinspection ConstantConditions
                    return config.expireAfterAccessUnit().toNanos(config.expireAfterAccess());
@@ -118,35 +182,293 @@ public class CaffeineLookupCache extends LookupCache {
 
     @Override
     protected void doStart() throws Exception {
-        // no action required
+        // An updated cache is started before the old instance is stopped, which must not write its snapshot anymore
+        snapshotStore.claim(id(), this);
+        if (config.snapshotsEnabled()) {
+            try {
+                restoreSnapshot();
+            } catch (Exception e) {
+                // The cache works fine without its old entries, it only takes longer to warm up
+                LOG.warn("Couldn't restore snapshot of lookup cache <{}/{}>", name(), id(), e);
+            }
+            final long intervalMillis = config.snapshotIntervalMillis();
+            snapshotTask = scheduler.scheduleWithFixedDelay(this::writeSnapshotSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            // Snapshots might have been turned off by an update, the outdated entries must not be restored when
+            // they are turned on again
+            deleteSnapshot();
+        }
     }
 
     @Override
     protected void doStop() throws Exception {
-        // no action required
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+        }
+        if (config.snapshotsEnabled()) {
+            // Write a final snapshot, so a restarted node continues with the entries it had before the shutdown
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Loads the entries of the last snapshot with their remaining lifetime. Expired entries are skipped.
+     */
+    private void restoreSnapshot() throws IOException {
+        final long now = System.currentTimeMillis();
+        final long nanoTime = System.nanoTime();
+        final var expiration = cache.policy().expireVariably().orElseThrow();
+        int restored = 0;
+        for (LookupCacheSnapshotStore.Entry entry : snapshotStore.read(id())) {
+            if (restored >= config.maxSize()) {
+                break;
+            }
+            final long remainingMillis = entry.expiresAt() - now;
+            if (remainingMillis <= 0) {
+                continue;
+            }
+            final CachedResult cached = new CachedResult(entry.result(), nanoTime - TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - entry.loadedAt())));
+            // Values which have been loaded in the meantime are newer than the snapshot
+            final CachedResult existing = entry.expiresAt() == Long.MAX_VALUE
+                    ? cache.asMap().putIfAbsent(entry.key(), cached)
+                    : expiration.putIfAbsent(entry.key(), cached, remainingMillis, TimeUnit.MILLISECONDS);
+            if (existing == null) {
+                restored++;
+            }
+        }
+        LOG.debug("Restored {} entries of lookup cache <{}/{}> from snapshot", restored, name(), id());
+    }
+
+    private void writeSnapshotSafely() {
+        try {
+            writeSnapshot();
+        } catch (Exception e) {
+            LOG.warn("Couldn't write snapshot of lookup cache <{}/{}>", name(), id(), e);
+        }
+    }
+
+    /**
+     * Writes the cache entries, hottest first, to the snapshot store. Only entries with string keys are included,
+     * because other key types might not be equal to the original key after reading the snapshot. Failed lookups
+     * are skipped as well, they should be retried after a restart.
+     */
+    private void writeSnapshot() throws IOException {
+        final long now = System.currentTimeMillis();
+        final long nanoTime = System.nanoTime();
+        final var expiration = cache.policy().expireVariably().orElseThrow();
+        final List<LookupCacheSnapshotStore.Entry> entries = new ArrayList<>();
+        cache.policy().eviction().orElseThrow().hottest(config.maxSize()).forEach((key, cached) -> {
+            if (!(key.key() instanceof String) || cached.result().hasError()) {
+                return;
+            }
+            final OptionalLong remainingMillis = expiration.getExpiresAfter(key, TimeUnit.MILLISECONDS);
+            if (remainingMillis.isEmpty() || remainingMillis.getAsLong() <= 0) {
+                return;
+            }
+            final long expiresAt = remainingMillis.getAsLong() >= TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE) / 2
+                    ? Long.MAX_VALUE : now + remainingMillis.getAsLong();
+            final long loadedAt = now - TimeUnit.NANOSECONDS.toMillis(nanoTime - cached.loadedAt());
+            entries.add(new LookupCacheSnapshotStore.Entry(key, cached.result(), loadedAt, expiresAt));
+        });
+        if (snapshotStore.write(id(), this, entries)) {
+            LOG.debug("Wrote snapshot with {} entries of lookup cache <{}/{}>", entries.size(), name(), id());
+        }
+    }
+
+    private void deleteSnapshot() {
+        try {
+            snapshotStore.delete(id(), this);
+        } catch (IOException e) {
+            LOG.warn("Couldn't delete snapshot of lookup cache <{}/{}>", name(), id(), e);
+        }
+    }
+
+    private void purgeSnapshot() {
+        // Purged entries must not come back after a restart
+        if (config.snapshotsEnabled()) {
+            deleteSnapshot();
+        }
     }
 
     @Override
     public LookupResult get(LookupCacheKey key, Callable<LookupResult> loader) {
-        final Function<LookupCacheKey, LookupResult> mapFunction = unused -> {
-            try {
-                final LookupResult result = loader.call();
-                if (ignoreResult(result, config.ignoreNull())) {
-                    LOG.debug("Ignoring failed lookup for key {}", key);
-                        return LookupResult.builder()
-                                .cacheTTL(0L)
-                                .build();
-                }
-                return result;
-            } catch (Exception e) {
-                LOG.warn("Loading value from data adapter failed for key {}, returning empty result", key, e);
-                return LookupResult.withError(
-                        String.format(Locale.ENGLISH, "Loading value from data adapter failed for key <%s>: %s", key.toString(), e.getMessage()));
+        try (final Timer.Context ignored = lookupTimer()) {
+            final CachedResult cached = cache.getIfPresent(key);
+            if (cached != null) {
+                refreshIfStale(key, cached, () -> CompletableFuture.supplyAsync(() -> call(loader), refreshExecutor));
+                return cached.result();
             }
-        };
+            // The loader runs on the calling thread, concurrent callers for the same key wait for its result.
+            return load(key, () -> CompletableFuture.completedFuture(call(loader)), false).join();
+        }
+    }
+
+    /**
+     * Loads the missing keys with a single call to the loader. Keys which are already being loaded, e.g. by a
+     * concurrent {@link #get(LookupCacheKey, Callable)}, are not loaded again but wait for the running load.
+     */
+    @Override
+    public Map<LookupCacheKey, LookupResult> getAll(Collection<LookupCacheKey> keys,
+                                                    Function<Collection<LookupCacheKey>, Map<LookupCacheKey, LookupResult>> loader) {
         try (final Timer.Context ignored = lookupTimer()) {
-            return cache.get(key, mapFunction);
+            final long generation = purgeGeneration.get();
+            final Map<LookupCacheKey, CompletableFuture<LookupResult>> pending = new LinkedHashMap<>();
+            final Map<LookupCacheKey, CompletableFuture<LookupResult>> ownLoads = new LinkedHashMap<>();
+            for (LookupCacheKey key : keys) {
+                if (pending.containsKey(key)) {
+                    continue;
+                }
+                final CachedResult cached = cache.getIfPresent(key);
+                if (cached != null) {
+                    pending.put(key, CompletableFuture.completedFuture(cached.result()));
+                    continue;
+                }
+                final CompletableFuture<LookupResult> future = new CompletableFuture<>();
+                final CompletableFuture<LookupResult> inFlight = inFlightLoads.putIfAbsent(key, future);
+                if (inFlight != null) {
+                    coalescedCount.mark();
+                    pending.put(key, inFlight);
+                } else {
+                    ownLoads.put(key, future);
+                    pending.put(key, future);
+                }
+            }
+
+            if (!ownLoads.isEmpty()) {
+                Map<LookupCacheKey, LookupResult> loaded;
+                Exception failure = null;
+                try {
+                    loaded = loader.apply(List.copyOf(ownLoads.keySet()));
+                } catch (Exception e) {
+                    loaded = Map.of();
+                    failure = e;
+                }
+                for (Map.Entry<LookupCacheKey, CompletableFuture<LookupResult>> load : ownLoads.entrySet()) {
+                    final LookupCacheKey key = load.getKey();
+                    final LookupResult result = loaded.get(key);
+                    final LookupResult value = result == null ? loadFailure(key, failure) : toCacheValue(key, result);
+                    putUnlessPurged(key, CachedResult.of(value), generation);
+                    inFlightLoads.remove(key, load.getValue());
+                    load.getValue().complete(value);
+                }
+            }
+
+            final Map<LookupCacheKey, LookupResult> results = new LinkedHashMap<>(pending.size());
+            pending.forEach((key, future) -> {
+                final LookupResult result = future.join();
+                results.put(key, result == null ? loadFailure(key, null) : result);
+            });
+            return results;
+        }
+    }
+
+    @Override
+    public CompletableFuture<LookupResult> getAsync(LookupCacheKey key, Supplier<CompletableFuture<LookupResult>> loader) {
+        final CachedResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            refreshIfStale(key, cached, loader);
+            return CompletableFuture.completedFuture(cached.result());
+        }
+        return load(key, loader, false);
+    }
+
+    /**
+     * Loads the value for the given key, unless a load for it is already in progress. In that case the caller
+     * gets the result of the running load.
+     * <p>
+     * A failed refresh keeps the existing entry, so the stale value is still served until it expires.
+     */
+    private CompletableFuture<LookupResult> load(LookupCacheKey key, Supplier<CompletableFuture<LookupResult>> loader, boolean refresh) {
+        final long generation = purgeGeneration.get();
+        final CompletableFuture<LookupResult> future = new CompletableFuture<>();
+        final CompletableFuture<LookupResult> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            coalescedCount.mark();
+            return inFlight.copy();
+        }
+
+        CompletableFuture<LookupResult> loading;
+        try {
+            loading = loader.get();
+        } catch (Exception e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+        loading.whenComplete((result, throwable) -> {
+            final LookupResult value = throwable == null ? toCacheValue(key, result) : loadFailure(key, unwrap(throwable));
+            final boolean failed = value == null || value.hasError();
+            if (refresh && failed) {
+                refreshFailureCount.mark();
+            }
+            if (value != null && !(refresh && failed)) {
+                putUnlessPurged(key, CachedResult.of(value), generation);
+            }
+            // The value is cached before the in-flight entry is removed, so there is no window for another load
+            inFlightLoads.remove(key, future);
+            future.complete(value);
+        });
+        return future;
+    }
+
+    /**
+     * Caches the loaded value, unless the cache has been purged since the load started.
+     */
+    private void putUnlessPurged(LookupCacheKey key, CachedResult cached, long generation) {
+        if (purgeGeneration.get() != generation) {
+            return;
+        }
+        cache.put(key, cached);
+        // A purge running concurrently might have missed the value, which must not survive it
+        if (purgeGeneration.get() != generation) {
+            cache.asMap().remove(key, cached);
+        }
+    }
+
+    private void refreshIfStale(LookupCacheKey key, CachedResult cached, Supplier<CompletableFuture<LookupResult>> loader) {
+        if (refreshAfterWriteNanos <= 0 || System.nanoTime() - cached.loadedAt() < refreshAfterWriteNanos) {
+            return;
+        }
+        staleHitCount.mark();
+        if (inFlightLoads.containsKey(key)) {
+            return;
+        }
+        load(key, () -> {
+            refreshCount.mark();
+            return loader.get();
+        }, true);
+    }
+
+    @Nullable
+    private static LookupResult call(Callable<LookupResult> loader) {
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    @Nullable
+    private LookupResult toCacheValue(LookupCacheKey key, @Nullable LookupResult result) {
+        if (ignoreResult(result, config.ignoreNull())) {
+            LOG.debug("Ignoring failed lookup for key {}", key);
+            return LookupResult.builder()
+                    .cacheTTL(0L)
+                    .build();
         }
+        return result;
+    }
+
+    private LookupResult loadFailure(LookupCacheKey key, @Nullable Throwable cause) {
+        LOG.warn("Loading value from data adapter failed for key {}, returning empty result", key, cause);
+        return LookupResult.withError(
+                String.format(Locale.ENGLISH, "Loading value from data adapter failed for key <%s>: %s", key.toString(),
+                        cause == null ? "no result" : cause.getMessage()));
     }
 
     private boolean ignoreResult(LookupResult result, Boolean ignoreNull) {
@@ -159,30 +481,46 @@ public class CaffeineLookupCache extends LookupCache {
 
     @Override
     public LookupResult getIfPresent(LookupCacheKey key) {
-        final LookupResult cacheEntry = cache.getIfPresent(key);
+        final CachedResult cacheEntry = cache.getIfPresent(key);
         if (cacheEntry == null) {
             return LookupResult.empty();
         }
-        return cacheEntry;
+        return cacheEntry.result();
     }
 
     @Override
     public void purge() {
+        purgeGeneration.incrementAndGet();
+        inFlightLoads.clear();
         cache.invalidateAll();
+        purgeSnapshot();
     }
 
     @Override
     public void purge(LookupCacheKey purgeKey) {
+        purgeGeneration.incrementAndGet();
         if (purgeKey.isPrefixOnly()) {
             // If the key to purge only contains a prefix, invalidate all keys with that prefix
+            inFlightLoads.keySet().removeIf(lookupCacheKey -> purgeKey.prefix().equals(lookupCacheKey.prefix()));
             cache.invalidateAll(
                     cache.asMap().keySet().stream()
                             .filter(lookupCacheKey -> purgeKey.prefix().equals(lookupCacheKey.prefix()))
                             .collect(Collectors.toSet())
             );
         } else {
+            inFlightLoads.remove(purgeKey);
             cache.invalidate(purgeKey);
         }
+        purgeSnapshot();
+    }
+
+    /**
+     * A cached lookup result together with the time it has been loaded, to find out when it needs a refresh.
+     */
+    private record CachedResult(LookupResult result, long loadedAt) {
+        static CachedResult of(LookupResult result) {
+            return new CachedResult(result, System.nanoTime());
+        }
     }
 
     public interface Factory extends LookupCache.Factory {
@@ -242,6 +580,42 @@ public class CaffeineLookupCache extends LookupCache {
         @JsonProperty("ignore_null")
         public abstract Boolean ignoreNull();
 
+        @Nullable
+        @Min(0)
+        @JsonProperty("refresh_after_write")
+        public abstract Long refreshAfterWrite();
+
+        @Nullable
+        @JsonProperty("refresh_after_write_unit")
+        public abstract TimeUnit refreshAfterWriteUnit();
+
+        @Nullable
+        @JsonProperty("snapshot_enabled")
+        public abstract Boolean snapshotEnabled();
+
+        @Nullable
+        @Min(1)
+        @JsonProperty("snapshot_interval")
+        public abstract Long snapshotInterval();
+
+        @Nullable
+        @JsonProperty("snapshot_interval_unit")
+        public abstract TimeUnit snapshotIntervalUnit();
+
+        @JsonIgnore
+        public boolean snapshotsEnabled() {
+            return snapshotEnabled() != null && snapshotEnabled();
+        }
+
+        @JsonIgnore
+        public long snapshotIntervalMillis() {
+            if (snapshotInterval() == null || snapshotInterval() < 1 || snapshotIntervalUnit() == null) {
+                return TimeUnit.MINUTES.toMillis(DEFAULT_SNAPSHOT_INTERVAL_MINUTES);
+            }
+            //noinspection ConstantConditions
+            return Math.max(1, snapshotIntervalUnit().toMillis(snapshotInterval()));
+        }
+
         public static Builder builder() {
             return new AutoValue_CaffeineLookupCache_Config.Builder();
         }
@@ -269,6 +643,21 @@ public class CaffeineLookupCache extends LookupCache {
             @JsonProperty("ignore_null")
             public abstract Builder ignoreNull(@Nullable Boolean ignoreNull);
 
+            @JsonProperty("refresh_after_write")
+            public abstract Builder refreshAfterWrite(@Nullable Long refreshAfterWrite);
+
+            @JsonProperty("refresh_after_write_unit")
+            public abstract Builder refreshAfterWriteUnit(@Nullable TimeUnit refreshAfterWriteUnit);
+
+            @JsonProperty("snapshot_enabled")
+            public abstract Builder snapshotEnabled(@Nullable Boolean snapshotEnabled);
+
+            @JsonProperty("snapshot_interval")
+            public abstract Builder snapshotInterval(@Nullable Long snapshotInterval);
+
+            @JsonProperty("snapshot_interval_unit")
+            public abstract Builder snapshotIntervalUnit(@Nullable TimeUnit snapshotIntervalUnit);
+
             public abstract Config build();
         }
     }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.caches;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.graylog2.lookup.events.CachesDeleted;
+import org.graylog2.plugin.lookup.LookupCacheKey;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores snapshots of lookup cache entries in the data directory, so caches can be warmed up after a restart.
+ * Every cache has a single snapshot file which is replaced atomically.
+ * <p>
+ * When a cache is updated, the new instance is started before the old one is stopped. Only the instance which
+ * {@link #claim(String, Object) claimed} the snapshot last may write or delete it, so the old instance cannot
+ * overwrite the snapshot of the new one. The snapshot of a deleted cache is removed.
+ */
+@Singleton
+public class LookupCacheSnapshotStore {
+    private static final Logger LOG = LoggerFactory.getLogger(LookupCacheSnapshotStore.class);
+    private static final TypeReference<List<Entry>> ENTRIES_TYPE = new TypeReference<>() {};
+
+    private final Path snapshotDirectory;
+    private final ObjectMapper objectMapper;
+    // guarded by this
+    private final Map<String, Object> owners = new HashMap<>();
+
+    @Inject
+    public LookupCacheSnapshotStore(@Named("data_dir") Path dataDir, ObjectMapper objectMapper, EventBus eventBus) {
+        this.snapshotDirectory = dataDir.resolve("lookup-caches");
+        this.objectMapper = objectMapper;
+        eventBus.register(this);
+    }
+
+    /**
+     * Makes the given owner the only one which may write or delete the snapshot of the cache.
+     */
+    public synchronized void claim(String cacheId, Object owner) {
+        owners.put(cacheId, owner);
+    }
+
+    /**
+     * Replaces the snapshot of the cache with the given entries, unless the owner has been replaced or the cache
+     * has been deleted in the meantime.
+     *
+     * @return {@code true} if the snapshot has been written
+     */
+    public boolean write(String cacheId, Object owner, List<Entry> entries) throws IOException {
+        if (!isOwner(cacheId, owner)) {
+            return false;
+        }
+        Files.createDirectories(snapshotDirectory);
+        // Concurrent writes, e.g. a scheduled one and the final one on shutdown, must not share a temporary file
+        final Path tmpSnapshot = Files.createTempFile(snapshotDirectory, cacheId + ".", ".tmp");
+        try {
+            try (final OutputStream outputStream = Files.newOutputStream(tmpSnapshot)) {
+                objectMapper.writeValue(outputStream, entries);
+            }
+            synchronized (this) {
+                if (owners.get(cacheId) != owner) {
+                    return false;
+                }
+                Files.move(tmpSnapshot, snapshotFile(cacheId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            }
+        } finally {
+            Files.deleteIfExists(tmpSnapshot);
+        }
+    }
+
+    /**
+     * Returns the entries of the last snapshot of the given cache, or an empty list if there is none.
+     */
+    public List<Entry> read(String cacheId) throws IOException {
+        final Path snapshot = snapshotFile(cacheId);
+        if (!Files.exists(snapshot)) {
+            return List.of();
+        }
+        try (final InputStream inputStream = Files.newInputStream(snapshot)) {
+            return objectMapper.readValue(inputStream, ENTRIES_TYPE);
+        }
+    }
+
+    /**
+     * Deletes the snapshot of the cache, unless the owner has been replaced in the meantime.
+     */
+    public synchronized void delete(String cacheId, Object owner) throws IOException {
+        if (owners.get(cacheId) == owner) {
+            Files.deleteIfExists(snapshotFile(cacheId));
+        }
+    }
+
+    /**
+     * Deletes the snapshot of a deleted cache. Instances of the cache which are still running cannot write it again.
+     */
+    public synchronized void delete(String cacheId) throws IOException {
+        owners.remove(cacheId);
+        Files.deleteIfExists(snapshotFile(cacheId));
+    }
+
+    @Subscribe
+    public void handleCachesDeleted(CachesDeleted deleted) {
+        for (String cacheId : deleted.ids()) {
+            try {
+                delete(cacheId);
+            } catch (IOException e) {
+                LOG.warn("Couldn't delete snapshot of deleted lookup cache <{}>", cacheId, e);
+            }
+        }
+    }
+
+    private synchronized boolean isOwner(String cacheId, Object owner) {
+        return owners.get(cacheId) == owner;
+    }
+
+    private Path snapshotFile(String cacheId) {
+        return snapshotDirectory.resolve(cacheId + ".json");
+    }
+
+    /**
+     * A cached lookup result. The timestamps are wall clock times in milliseconds, {@code expiresAt} is
+     * {@link Long#MAX_VALUE} for entries which don't expire.
+     */
+    public record Entry(@JsonProperty("key") LookupCacheKey key,
+                        @JsonProperty("result") LookupResult result,
+                        @JsonProperty("loaded_at") long loadedAt,
+                        @JsonProperty("expires_at") long expiresAt) {
+    }
+}
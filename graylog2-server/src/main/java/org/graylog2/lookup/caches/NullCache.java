@@ -32,7 +32,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * The cache that doesn't. Used in place when no cache is wanted, having a null implementation saves us ugly null checks.
@@ -70,6 +75,17 @@ public class NullCache extends LookupCache {
         }
     }
 
+    @Override
+    public Map<LookupCacheKey, LookupResult> getAll(Collection<LookupCacheKey> keys,
+                                                    Function<Collection<LookupCacheKey>, Map<LookupCacheKey, LookupResult>> loader) {
+        return loader.apply(keys);
+    }
+
+    @Override
+    public CompletableFuture<LookupResult> getAsync(LookupCacheKey key, Supplier<CompletableFuture<LookupResult>> loader) {
+        return loader.get();
+    }
+
     @Override
     public LookupResult getIfPresent(LookupCacheKey key) {
         return LookupResult.empty();
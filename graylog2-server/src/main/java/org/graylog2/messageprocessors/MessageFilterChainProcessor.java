@@ -128,6 +128,12 @@ public class MessageFilterChainProcessor implements MessageProcessor {
         return messages;
     }
 
+    @Override
+    public boolean isolatesMessageFailures() {
+        // failing filters are recorded as processing errors of the single message
+        return true;
+    }
+
     @VisibleForTesting
     protected List<MessageFilter> getFilterRegistry() {
         return filterRegistry;
@@ -18,17 +18,20 @@ package org.graylog2.messageprocessors;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import org.graylog.failure.ProcessingFailureCause;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.messageprocessors.MessageProcessor;
 import org.graylog2.plugin.streams.Stream;
+import org.graylog2.shared.utilities.ExceptionUtils;
 import org.graylog2.streams.StreamRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.List;
+import java.util.Locale;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -77,11 +80,24 @@ public class StreamMatcherFilterProcessor implements MessageProcessor  {
             final Timer timer = metricRegistry.timer(timerName);
             final Timer.Context timerContext = timer.time();
 
-            route(msg);
-
-            final long elapsedNanos = timerContext.stop();
-            msg.recordTiming(serverStatus, timerName, elapsedNanos);
+            try {
+                route(msg);
+            } catch (Exception e) {
+                final String shortError = String.format(Locale.US, "Could not route message <%s> to streams", msg.getId());
+                LOG.error("{}:\n{}", shortError, ExceptionUtils.getShortenedStackTrace(e));
+                msg.addProcessingError(new Message.ProcessingError(ProcessingFailureCause.UNKNOWN,
+                        shortError, ExceptionUtils.getRootCauseMessage(e)));
+            } finally {
+                final long elapsedNanos = timerContext.stop();
+                msg.recordTiming(serverStatus, timerName, elapsedNanos);
+            }
         }
         return messages;
     }
+
+    @Override
+    public boolean isolatesMessageFailures() {
+        // failing stream routing is recorded as processing error of the single message
+        return true;
+    }
 }
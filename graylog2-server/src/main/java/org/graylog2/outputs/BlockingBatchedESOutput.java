@@ -16,6 +16,7 @@
  */
 package org.graylog2.outputs;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
@@ -36,11 +37,15 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -49,13 +54,17 @@ import java.util.stream.Collectors;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.graylog2.shared.metrics.MetricUtils.safelyRegister;
 
 // Singleton class
 public class BlockingBatchedESOutput extends ElasticSearchOutput {
     private static final Logger log = LoggerFactory.getLogger(BlockingBatchedESOutput.class);
     private final int maxBufferSize;
+    // Zero if batches are only limited by the number of messages
+    private final long maxBufferBytes;
     private final Timer processTime;
     private final Histogram batchSize;
+    private final Histogram batchBytes;
     private final Meter bufferFlushes;
     private final Meter bufferFlushFailures;
     private final Meter bufferFlushesRequested;
@@ -64,6 +73,14 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
     private final ScheduledExecutorService daemonScheduler;
 
     private volatile List<MessageWithIndex> buffer;
+    private long bufferBytes = 0;
+
+    // Only used if the buffer is striped, see OutputBatchStriping
+    private final OutputBatchStriping striping;
+    private final ConcurrentMap<Object, Stripe> stripes = new ConcurrentHashMap<>();
+    private final Semaphore inflightBulkRequests;
+    private final int maxInflightBulkRequests;
+    private final ExecutorService flushExecutor;
 
     private static final AtomicInteger activeFlushThreads = new AtomicInteger(0);
     private final AtomicLong lastFlushTime = new AtomicLong();
@@ -80,9 +97,11 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
                                    @Named("daemonScheduler") ScheduledExecutorService daemonScheduler) {
         super(metricRegistry, messages, journal, acknowledger);
         this.maxBufferSize = serverConfiguration.getOutputBatchSize();
+        this.maxBufferBytes = serverConfiguration.getOutputBatchMaxBytes().toBytes();
         outputFlushInterval = serverConfiguration.getOutputFlushInterval();
         this.processTime = metricRegistry.timer(name(this.getClass(), "processTime"));
         this.batchSize = metricRegistry.histogram(name(this.getClass(), "batchSize"));
+        this.batchBytes = metricRegistry.histogram(name(this.getClass(), "batchBytes"));
         this.bufferFlushes = metricRegistry.meter(name(this.getClass(), "bufferFlushes"));
         this.bufferFlushFailures = metricRegistry.meter(name(this.getClass(), "bufferFlushFailures"));
         this.bufferFlushesRequested = metricRegistry.meter(name(this.getClass(), "bufferFlushesRequested"));
@@ -91,6 +110,18 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
         this.daemonScheduler = daemonScheduler;
 
         buffer = new ArrayList<>(maxBufferSize);
+
+        this.striping = serverConfiguration.getOutputBatchStriping();
+        this.maxInflightBulkRequests = serverConfiguration.getOutputMaxInflightBulkRequests();
+        this.inflightBulkRequests = new Semaphore(maxInflightBulkRequests);
+        if (striping != OutputBatchStriping.NONE) {
+            this.flushExecutor = Executors.newFixedThreadPool(maxInflightBulkRequests,
+                    new ThreadFactoryBuilder().setNameFormat("es-output-flush-%d").setDaemon(true).build());
+        } else {
+            this.flushExecutor = null;
+        }
+        safelyRegister(metricRegistry, name(this.getClass(), "inflightBulkRequests"),
+                (Gauge<Integer>) () -> maxInflightBulkRequests - inflightBulkRequests.availablePermits());
     }
 
     @Override
@@ -101,13 +132,21 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
     }
 
     public void writeMessageEntry(MessageWithIndex entry) throws Exception {
+        if (striping != OutputBatchStriping.NONE) {
+            writeStripedMessageEntry(entry);
+            return;
+        }
+
+        final long entryBytes = maxBufferBytes > 0 ? entry.estimatedBulkSize() : 0;
         List<MessageWithIndex> flushBatch = null;
         synchronized (this) {
             buffer.add(entry);
+            bufferBytes += entryBytes;
 
-            if (buffer.size() >= maxBufferSize) {
+            if (isFull(buffer.size(), bufferBytes)) {
                 flushBatch = buffer;
                 buffer = new ArrayList<>(maxBufferSize);
+                bufferBytes = 0;
             }
         }
         // if the current thread found it had to flush any messages, it does so but blocks.
@@ -118,6 +157,45 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
         }
     }
 
+    private boolean isFull(int bufferedMessages, long bufferedBytes) {
+        return bufferedMessages >= maxBufferSize || (maxBufferBytes > 0 && bufferedBytes >= maxBufferBytes);
+    }
+
+    private void writeStripedMessageEntry(MessageWithIndex entry) throws InterruptedException {
+        final Stripe stripe = stripes.computeIfAbsent(stripeKey(entry), key -> new Stripe());
+        final List<MessageWithIndex> flushBatch = stripe.add(entry, maxBufferBytes > 0 ? entry.estimatedBulkSize() : 0);
+        if (flushBatch != null) {
+            submitFlush(flushBatch);
+        }
+    }
+
+    private Object stripeKey(MessageWithIndex entry) {
+        if (striping == OutputBatchStriping.INDEX_SET) {
+            return entry.indexSet().getConfig().id();
+        }
+        return Thread.currentThread().getId();
+    }
+
+    /**
+     * Hands the batch off to the flush executor. Blocks while the maximum number of bulk requests is in flight.
+     */
+    private void submitFlush(List<MessageWithIndex> flushBatch) throws InterruptedException {
+        inflightBulkRequests.acquire();
+        try {
+            flushExecutor.execute(() -> {
+                try {
+                    flush(flushBatch);
+                } finally {
+                    inflightBulkRequests.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inflightBulkRequests.release();
+            log.warn("Unable to flush {} messages, the output is shutting down.", flushBatch.size());
+            bufferFlushFailures.mark();
+        }
+    }
+
     private void flush(List<MessageWithIndex> messages) {
         // never try to flush an empty buffer
         if (messages.isEmpty()) {
@@ -148,12 +226,20 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
             lastFlushTime.set(System.nanoTime());
             final IndexingResults indexingResults = writeMessageEntries(messages);
             batchSize.update(messages.size());
+            if (maxBufferBytes > 0) {
+                batchBytes.update(messages.stream().mapToLong(MessageWithIndex::estimatedBulkSize).sum());
+            }
             bufferFlushes.mark();
             return indexingResults;
         }
     }
 
     public void forceFlushIfTimedout() {
+        if (striping != OutputBatchStriping.NONE) {
+            forceFlushStripes(false);
+            return;
+        }
+
         // if we shouldn't flush at all based on the last flush time, no need to synchronize on this.
         if (lastFlushTime.get() != 0 &&
                 outputFlushInterval > NANOSECONDS.toSeconds(System.nanoTime() - lastFlushTime.get())) {
@@ -163,12 +249,37 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
         forceFlush();
     }
 
+    private void forceFlushStripes(boolean force) {
+        final long now = System.nanoTime();
+        for (Stripe stripe : stripes.values()) {
+            if (!force && outputFlushInterval > NANOSECONDS.toSeconds(now - stripe.lastFlushTime)) {
+                continue;
+            }
+            final List<MessageWithIndex> flushBatch = stripe.drain();
+            if (!flushBatch.isEmpty()) {
+                bufferFlushesRequested.mark();
+                try {
+                    submitFlush(flushBatch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
     private void forceFlush() {
+        if (striping != OutputBatchStriping.NONE) {
+            forceFlushStripes(true);
+            return;
+        }
+
         // flip buffer quickly and initiate flush
         final List<MessageWithIndex> flushBatch;
         synchronized (this) {
             flushBatch = buffer;
             buffer = new ArrayList<>(maxBufferSize);
+            bufferBytes = 0;
         }
         if (flushBatch != null) {
             bufferFlushesRequested.mark();
@@ -188,6 +299,12 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
                     new ThreadFactoryBuilder().setNameFormat("es-output-shutdown-flush").build());
             try {
                 executorService.submit(this::forceFlush).get(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+                if (flushExecutor != null) {
+                    flushExecutor.shutdown();
+                    if (!flushExecutor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        log.warn("Timed out waiting for in-flight batches to be written to indexer while stopping.");
+                    }
+                }
             } catch (InterruptedException e) {
                 // OK, we are shutting down anyway
             } catch (ExecutionException e) {
@@ -198,6 +315,9 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
                 executorService.shutdownNow();
             }
         }
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
         super.stop();
     }
 
@@ -213,6 +333,37 @@ public class BlockingBatchedESOutput extends ElasticSearchOutput {
                 outputFlushInterval, outputFlushInterval, TimeUnit.SECONDS);
     }
 
+    /**
+     * A batch of a striped buffer. Stripes are only contended by the periodic flush, so the lock is usually
+     * uncontended.
+     */
+    private class Stripe {
+        private List<MessageWithIndex> entries = new ArrayList<>(maxBufferSize);
+        private long bytes = 0;
+        // A new stripe is due for the next periodic flush, like the unstriped buffer.
+        private volatile long lastFlushTime = System.nanoTime() - TimeUnit.SECONDS.toNanos(outputFlushInterval);
+
+        /**
+         * Adds the entry and returns the full batch if it has to be flushed, otherwise {@code null}.
+         */
+        private synchronized List<MessageWithIndex> add(MessageWithIndex entry, long entryBytes) {
+            entries.add(entry);
+            bytes += entryBytes;
+            if (isFull(entries.size(), bytes)) {
+                return drain();
+            }
+            return null;
+        }
+
+        private synchronized List<MessageWithIndex> drain() {
+            final List<MessageWithIndex> flushBatch = entries;
+            entries = new ArrayList<>(maxBufferSize);
+            bytes = 0;
+            lastFlushTime = System.nanoTime();
+            return flushBatch;
+        }
+    }
+
     public interface Factory extends ElasticSearchOutput.Factory {
     }
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.outputs;
+
+import com.github.joschi.jadconfig.ParameterException;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Selects how the {@link BlockingBatchedESOutput} buffers messages before they are sent to the indexer.
+ */
+public enum OutputBatchStriping {
+    /**
+     * One buffer for all messages. Buffers are flushed by the thread which fills them up.
+     */
+    NONE,
+    /**
+     * One buffer per index set. Full buffers are flushed by a dedicated pool of bulk flush threads.
+     */
+    INDEX_SET,
+    /**
+     * One buffer per writing thread. Full buffers are flushed by a dedicated pool of bulk flush threads.
+     */
+    THREAD;
+
+    @Override
+    public String toString() {
+        return super.toString().toLowerCase(Locale.ROOT);
+    }
+
+    public static class Converter implements com.github.joschi.jadconfig.Converter<OutputBatchStriping> {
+        @Override
+        public OutputBatchStriping convertFrom(String value) {
+            try {
+                return OutputBatchStriping.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException("Unable to parse output batch striping <" + value + ">. Valid values are: " +
+                        Arrays.stream(OutputBatchStriping.values()).map(OutputBatchStriping::toString)
+                                .collect(Collectors.toList()) + ".");
+            }
+        }
+
+        @Override
+        public String convertTo(OutputBatchStriping value) {
+            return value.toString();
+        }
+    }
+}
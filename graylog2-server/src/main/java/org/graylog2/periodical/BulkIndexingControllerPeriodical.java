@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.periodical;
+
+import org.graylog2.indexer.cluster.Cluster;
+import org.graylog2.indexer.messages.BulkIndexingController;
+import org.graylog2.plugin.periodical.Periodical;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+
+/**
+ * Feeds the write thread pool statistics of the indexer cluster into the {@link BulkIndexingController}.
+ */
+public class BulkIndexingControllerPeriodical extends Periodical {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIndexingControllerPeriodical.class);
+
+    private final Cluster cluster;
+    private final BulkIndexingController bulkIndexingController;
+
+    @Inject
+    public BulkIndexingControllerPeriodical(Cluster cluster, BulkIndexingController bulkIndexingController) {
+        this.cluster = cluster;
+        this.bulkIndexingController = bulkIndexingController;
+    }
+
+    @Override
+    public void doRun() {
+        try {
+            bulkIndexingController.updateWriteThreadPoolStats(cluster.writeThreadPoolStats());
+        } catch (Exception e) {
+            LOG.debug("Couldn't read write thread pool stats of the indexer cluster", e);
+        }
+    }
+
+    @Override
+    public boolean runsForever() {
+        return false;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return true;
+    }
+
+    @Override
+    public boolean leaderOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        return bulkIndexingController.isEnabled();
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 5;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return 5;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+}
@@ -51,6 +51,12 @@ public abstract class BaseConfiguration extends PathConfiguration {
     @Parameter(value = "processbuffer_processors", required = true, validator = PositiveIntegerValidator.class)
     private int processBufferProcessors = 5;
 
+    @Parameter(value = "processbuffer_batch_size", validator = PositiveIntegerValidator.class)
+    private int processBufferBatchSize = 1;
+
+    @Parameter(value = "processbuffer_decode_journal")
+    private boolean processBufferDecodeJournal = false;
+
     @Parameter(value = "processor_wait_strategy", required = true)
     private String processorWaitStrategy = "blocking";
 
@@ -112,6 +118,14 @@ public abstract class BaseConfiguration extends PathConfiguration {
         return processBufferProcessors;
     }
 
+    public int getProcessBufferBatchSize() {
+        return processBufferBatchSize;
+    }
+
+    public boolean isProcessBufferDecodeJournal() {
+        return processBufferDecodeJournal;
+    }
+
     private WaitStrategy getWaitStrategy(String waitStrategyName, String configOptionName) {
         switch (waitStrategyName) {
             case "sleeping":
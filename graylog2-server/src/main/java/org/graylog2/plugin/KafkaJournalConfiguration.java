@@ -18,12 +18,18 @@ package org.graylog2.plugin;
 
 import com.github.joschi.jadconfig.Parameter;
 import com.github.joschi.jadconfig.util.Size;
+import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 import org.graylog2.configuration.PathConfiguration;
+import org.graylog2.configuration.validators.JournalCompressionValidator;
+import org.graylog2.configuration.validators.JournalPartitioningValidator;
 import org.joda.time.Duration;
 
 import java.nio.file.Path;
 
 public class KafkaJournalConfiguration extends PathConfiguration {
+    public static final String PARTITIONING_INPUT = "input";
+    public static final String PARTITIONING_ROUND_ROBIN = "round_robin";
+    public static final String COMPRESSION_NONE = "none";
 
     public KafkaJournalConfiguration() { }
 
@@ -48,6 +54,18 @@ public class KafkaJournalConfiguration extends PathConfiguration {
     @Parameter("message_journal_flush_age")
     private Duration messageJournalFlushAge = Duration.standardMinutes(1L);
 
+    @Parameter("message_journal_codec_config_references")
+    private boolean messageJournalCodecConfigReferences = false;
+
+    @Parameter(value = "message_journal_partitions", validator = PositiveIntegerValidator.class)
+    private int messageJournalPartitions = 1;
+
+    @Parameter(value = "message_journal_partitioning", validator = JournalPartitioningValidator.class)
+    private String messageJournalPartitioning = PARTITIONING_INPUT;
+
+    @Parameter(value = "message_journal_compression", validator = JournalCompressionValidator.class)
+    private String messageJournalCompression = COMPRESSION_NONE;
+
     public Path getMessageJournalDir() {
         return messageJournalDir;
     }
@@ -75,4 +93,20 @@ public class KafkaJournalConfiguration extends PathConfiguration {
     public Duration getMessageJournalFlushAge() {
         return messageJournalFlushAge;
     }
+
+    public int getMessageJournalPartitions() {
+        return messageJournalPartitions;
+    }
+
+    public String getMessageJournalPartitioning() {
+        return messageJournalPartitioning;
+    }
+
+    public String getMessageJournalCompression() {
+        return messageJournalCompression;
+    }
+
+    public boolean isMessageJournalCodecConfigReferences() {
+        return messageJournalCodecConfigReferences;
+    }
 }
@@ -18,6 +18,7 @@ package org.graylog2.plugin;
 
 import com.codahale.metrics.Meter;
 import com.eaio.uuid.UUID;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -49,6 +50,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.time.Duration;
 import java.time.ZonedDateTime;
@@ -206,7 +208,7 @@ public class Message implements Messages, Indexable {
     public static final String FIELD_GL2_SOURCE_RADIO_INPUT = "gl2_source_radio_input";
 
     // Matches whole field names containing a-z, A-Z, 0-9, period char, -, or @.
-    private static final Pattern VALID_KEY_CHARS = Pattern.compile("^[\\w\\.\\-@]*$");
+    static final Pattern VALID_KEY_CHARS = Pattern.compile("^[\\w\\.\\-@]*$");
     // Same as above, but matches only the invalid (non-indicated) characters.
     // [^ ... ] around the pattern inverts the match.
     private static final Pattern INVALID_KEY_CHARS = Pattern.compile("[^\\w\\.\\-@]");
@@ -287,7 +289,7 @@ public class Message implements Messages, Indexable {
     @Deprecated
     public static final Function<Message, String> ID_FUNCTION = new MessageIdFunction();
 
-    private final Map<String, Object> fields = Maps.newHashMap();
+    private final MessageFields fields = new MessageFields();
     private Set<Stream> streams = Sets.newHashSet();
     private Set<IndexSet> indexSets = Sets.newHashSet();
     private String sourceInputId;
@@ -313,7 +315,8 @@ public class Message implements Messages, Indexable {
      */
     private Map<String, Object> metadata;
 
-    private com.codahale.metrics.Counter sizeCounter = new com.codahale.metrics.Counter();
+    // Only ever updated by the thread which currently owns the message, so a plain field is sufficient.
+    private long sizeCounter = 0;
 
     private List<ProcessingError> processingErrors;
 
@@ -459,6 +462,101 @@ public class Message implements Messages, Indexable {
         return obj;
     }
 
+    /**
+     * Writes the same document as {@link #toElasticSearchObject(ObjectMapper, Meter)} to the given generator, but
+     * serializes the fields directly instead of copying them into an intermediate map first.
+     */
+    @Override
+    public void writeElasticSearchObject(JsonGenerator generator, ObjectMapper objectMapper, @Nonnull final Meter invalidTimestampMeter) throws IOException {
+        final ElasticsearchConfiguration elasticsearchConfiguration =
+            GuiceInjectorHolder.getInjector().getInstance(ElasticsearchConfiguration.class);
+        final boolean replaceDots = elasticsearchConfiguration.getReplaceDotsInFieldNames();
+
+        // Converting the timestamp might add a processing error, so it has to happen before checking for them.
+        final Object timestampValue = getField(FIELD_TIMESTAMP);
+        final DateTime dateTime = timestampValue == null ? fallbackForNullTimestamp() : convertToDateTime(timestampValue);
+        final boolean hasProcessingErrors = processingErrors != null && !processingErrors.isEmpty();
+
+        generator.writeStartObject();
+
+        Set<String> replacedKeys = null;
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            final String key = entry.getKey();
+            if (key.equals(FIELD_ID) || isComputedDocumentField(key, hasProcessingErrors)) {
+                continue;
+            }
+            final Object value = entry.getValue();
+            if (replaceDots && key.indexOf('.') >= 0) {
+                final String newKey = key.replace('.', KEY_REPLACEMENT_CHAR);
+                if (isComputedDocumentField(newKey, hasProcessingErrors)) {
+                    continue;
+                }
+                if (replacedKeys == null) {
+                    replacedKeys = new HashSet<>();
+                }
+                // Same conflict resolution as in toElasticSearchObject(): a field which already uses the transformed
+                // key always wins, otherwise the first transformed field is kept.
+                if ((!newKey.equals(FIELD_ID) && fields.containsKey(newKey)) || !replacedKeys.add(newKey)) {
+                    LOG.warn("Keys must not contain a \".\" character! Ignoring field \"{}\"=\"{}\" in message [{}] - Unable to replace \".\" with a \"{}\" because of key conflict with \"{}\"",
+                        key, value, getId(), KEY_REPLACEMENT_CHAR, newKey);
+                    LOG.debug("Full message with \".\" in message key: {}", this);
+                    continue;
+                }
+                generator.writeFieldName(newKey);
+            } else {
+                generator.writeFieldName(key);
+            }
+            writeFieldValue(generator, value);
+        }
+
+        generator.writeStringField(FIELD_MESSAGE, getMessage());
+        generator.writeStringField(FIELD_SOURCE, getSource());
+        generator.writeArrayFieldStart(FIELD_STREAMS);
+        for (String streamId : getStreamIds()) {
+            generator.writeString(streamId);
+        }
+        generator.writeEndArray();
+        generator.writeNumberField(FIELD_GL2_ACCOUNTED_MESSAGE_SIZE, getSize());
+        generator.writeStringField(FIELD_TIMESTAMP, buildElasticSearchTimeFormat(dateTime.withZone(UTC)));
+
+        if (hasProcessingErrors) {
+            if (processingErrors.stream().anyMatch(processingError -> processingError.getCause().equals(ProcessingFailureCause.InvalidTimestampException))) {
+                invalidTimestampMeter.mark();
+            }
+            generator.writeStringField(FIELD_GL2_PROCESSING_ERROR,
+                    processingErrors.stream()
+                            .map(pe -> pe.getMessage() + " - " + pe.getDetails())
+                            .collect(Collectors.joining(", ")));
+        }
+
+        generator.writeEndObject();
+    }
+
+    private static boolean isComputedDocumentField(String key, boolean hasProcessingErrors) {
+        return switch (key) {
+            case FIELD_MESSAGE, FIELD_SOURCE, FIELD_STREAMS, FIELD_GL2_ACCOUNTED_MESSAGE_SIZE, FIELD_TIMESTAMP -> true;
+            case FIELD_GL2_PROCESSING_ERROR -> hasProcessingErrors;
+            default -> false;
+        };
+    }
+
+    private static void writeFieldValue(JsonGenerator generator, Object value) throws IOException {
+        // Fast path for the common value types, everything else goes through the generator's codec.
+        if (value instanceof String stringValue) {
+            generator.writeString(stringValue);
+        } else if (value instanceof Long longValue) {
+            generator.writeNumber(longValue);
+        } else if (value instanceof Integer intValue) {
+            generator.writeNumber(intValue);
+        } else if (value instanceof Double doubleValue) {
+            generator.writeNumber(doubleValue);
+        } else if (value instanceof Boolean booleanValue) {
+            generator.writeBoolean(booleanValue);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
     public void ensureValidTimestamp() {
         final Object timestampValue = getField(FIELD_TIMESTAMP);
         if (timestampValue instanceof DateTime) {
@@ -540,8 +638,8 @@ public class Message implements Messages, Indexable {
     }
 
     public void setSource(final String source) {
-        final Object previousSource = fields.put(FIELD_SOURCE, source);
-        updateSize(FIELD_SOURCE, source, previousSource);
+        final Object previousSource = source == null ? fields.remove(FIELD_SOURCE) : fields.put(FIELD_SOURCE, source);
+        updateSize(MessageFieldNames.lookup(FIELD_SOURCE), source, previousSource);
     }
 
     public void addField(final String key, final Object value) {
@@ -553,10 +651,11 @@ public class Message implements Messages, Indexable {
     }
 
     private void addField(final String key, final Object value, final boolean isRequiredField) {
-        final String trimmedKey = key.trim();
+        final MessageFieldNames.FieldName fieldName = MessageFieldNames.lookup(key.trim());
+        final String trimmedKey = fieldName.name();
 
         // Don't accept protected keys. (some are allowed though lol)
-        if ((RESERVED_FIELDS.contains(trimmedKey) && !RESERVED_SETTABLE_FIELDS.contains(trimmedKey)) || !validKey(trimmedKey)) {
+        if (!fieldName.settable()) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Ignoring invalid or reserved key {} for message {}", trimmedKey, getId());
             } else {
@@ -571,48 +670,47 @@ public class Message implements Messages, Indexable {
 
             if (isRequiredField || !str.isEmpty()) {
                 final Object previousValue = fields.put(trimmedKey, str);
-                updateSize(trimmedKey, str, previousValue);
+                updateSize(fieldName, str, previousValue);
             }
         } else if (isTimestamp && value != null) {
             try {
                 final DateTime timeStamp = DateTimeConverter.convertToDateTime(value);
                 final Object previousValue = fields.put(FIELD_TIMESTAMP, timeStamp);
-                updateSize(trimmedKey, timeStamp, previousValue);
+                updateSize(fieldName, timeStamp, previousValue);
             } catch (IllegalArgumentException ignored) {
             }
         } else if (value != null) {
             final Object previousValue = fields.put(trimmedKey, value);
-            updateSize(trimmedKey, value, previousValue);
+            updateSize(fieldName, value, previousValue);
         }
     }
 
-    private void updateSize(String fieldName, Object newValue, Object previousValue) {
+    private void updateSize(MessageFieldNames.FieldName fieldName, Object newValue, Object previousValue) {
         // don't count internal fields
-        if (GRAYLOG_FIELDS.contains(fieldName) || ILLUMINATE_FIELDS.contains(fieldName)) {
+        if (!fieldName.accounted()) {
             return;
         }
         long newValueSize = 0;
         long oldValueSize = 0;
-        final long oldSize = sizeCounter.getCount();
-        final int keyLength = fieldName.length();
+        final long oldSize = sizeCounter;
+        final int keyLength = fieldName.name().length();
         // if the field is being removed, also subtract the name's length
         if (newValue == null) {
-            sizeCounter.dec(keyLength);
+            sizeCounter -= keyLength;
         } else {
             newValueSize = sizeForValue(newValue);
-            sizeCounter.inc(newValueSize);
+            sizeCounter += newValueSize;
         }
         // if the field is new, also count its name's length
         if (previousValue == null) {
-            sizeCounter.inc(keyLength);
+            sizeCounter += keyLength;
         } else {
             oldValueSize = sizeForValue(previousValue);
-            sizeCounter.dec(oldValueSize);
+            sizeCounter -= oldValueSize;
         }
         if (LOG.isTraceEnabled()) {
-            final long newSize = sizeCounter.getCount();
             LOG.trace("[Message size update][{}] key {}/{}, new/old/change: {}/{}/{} total: {}",
-                    getId(), fieldName, keyLength, newValueSize, oldValueSize, newSize - oldSize, newSize);
+                    getId(), fieldName.name(), keyLength, newValueSize, oldValueSize, sizeCounter - oldSize, sizeCounter);
         }
     }
 
@@ -629,11 +727,15 @@ public class Message implements Messages, Indexable {
 
     @Override
     public long getSize() {
-        return sizeCounter.getCount();
+        return sizeCounter;
     }
 
     public static boolean validKey(final String key) {
-        return VALID_KEY_CHARS.matcher(key).matches();
+        return MessageFieldNames.lookup(key).valid();
+    }
+
+    static boolean isInternalField(final String key) {
+        return GRAYLOG_FIELDS.contains(key) || ILLUMINATE_FIELDS.contains(key);
     }
 
     public static String cleanKey(final String key) {
@@ -653,7 +755,7 @@ public class Message implements Messages, Indexable {
     public void removeField(final String key) {
         if (!RESERVED_FIELDS.contains(key)) {
             final Object removedValue = fields.remove(key);
-            updateSize(key, null, removedValue);
+            updateSize(MessageFieldNames.lookup(key), null, removedValue);
         }
     }
 
@@ -698,6 +800,14 @@ public class Message implements Messages, Indexable {
         return ImmutableSet.copyOf(this.streams);
     }
 
+    /**
+     * Get the streams this message is currently routed to without copying them.
+     * @return an unmodifiable view of the assigned streams, which reflects later changes of the stream assignment
+     */
+    public Set<Stream> getStreamsView() {
+        return Collections.unmodifiableSet(this.streams);
+    }
+
     /**
      * Assign the given stream to this message.
      *
@@ -706,9 +816,9 @@ public class Message implements Messages, Indexable {
     public void addStream(Stream stream) {
         indexSets.add(stream.getIndexSet());
         if (streams.add(stream)) {
-            sizeCounter.inc(8);
+            sizeCounter += 8;
             if (LOG.isTraceEnabled()) {
-                LOG.trace("[Message size update][{}] stream added: {}", getId(), sizeCounter.getCount());
+                LOG.trace("[Message size update][{}] stream added: {}", getId(), sizeCounter);
             }
         }
     }
@@ -736,9 +846,9 @@ public class Message implements Messages, Indexable {
             for (Stream s : streams) {
                 indexSets.add(s.getIndexSet());
             }
-            sizeCounter.dec(8);
+            sizeCounter -= 8;
             if (LOG.isTraceEnabled()) {
-                LOG.trace("[Message size update][{}] stream removed: {}", getId(), sizeCounter.getCount());
+                LOG.trace("[Message size update][{}] stream removed: {}", getId(), sizeCounter);
             }
         }
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Global dictionary of message field names.
+ * <p>
+ * Every field name which is added to a {@link Message} is resolved to a canonical instance, together with the result
+ * of the key validation and the size accounting rules for that name. The checks only run once per distinct field
+ * name instead of once per {@link Message#addField(String, Object)} call, and all messages share the same key
+ * instances, so field lookups in {@link MessageFields} mostly succeed with an identity comparison.
+ * <p>
+ * The number of cached names is bounded, because field names can be derived from untrusted input. Names which do not
+ * fit into the dictionary anymore are still resolved correctly, they are just not cached.
+ */
+final class MessageFieldNames {
+    static final int MAX_NAMES = 32768;
+
+    private static final MessageFieldNames INSTANCE = new MessageFieldNames(MAX_NAMES);
+
+    private final ConcurrentMap<String, FieldName> names = new ConcurrentHashMap<>(1024);
+    // the number of names which can still be cached, reserved before a name is added so the cap is never exceeded
+    private final AtomicInteger remainingCapacity;
+
+    MessageFieldNames(int maxNames) {
+        this.remainingCapacity = new AtomicInteger(maxNames);
+    }
+
+    static FieldName lookup(String name) {
+        return INSTANCE.resolve(name);
+    }
+
+    FieldName resolve(String name) {
+        final FieldName fieldName = names.get(name);
+        if (fieldName != null) {
+            return fieldName;
+        }
+        final FieldName newFieldName = create(name);
+        if (!reserve()) {
+            return newFieldName;
+        }
+        final FieldName existing = names.putIfAbsent(name, newFieldName);
+        if (existing != null) {
+            remainingCapacity.incrementAndGet();
+            return existing;
+        }
+        return newFieldName;
+    }
+
+    int cachedNames() {
+        return names.size();
+    }
+
+    private boolean reserve() {
+        int remaining;
+        do {
+            remaining = remainingCapacity.get();
+            if (remaining <= 0) {
+                return false;
+            }
+        } while (!remainingCapacity.compareAndSet(remaining, remaining - 1));
+        return true;
+    }
+
+    private static FieldName create(String name) {
+        final boolean valid = Message.VALID_KEY_CHARS.matcher(name).matches();
+        final boolean settable = valid && !(Message.RESERVED_FIELDS.contains(name) && !Message.RESERVED_SETTABLE_FIELDS.contains(name));
+        return new FieldName(name, valid, settable, !Message.isInternalField(name));
+    }
+
+    /**
+     * A canonical field name.
+     *
+     * @param name      the canonical name instance
+     * @param valid     whether the name only contains valid characters
+     * @param settable  whether the field can be set via {@link Message#addField(String, Object)}
+     * @param accounted whether the field counts towards the {@link Message#getSize() message size}
+     */
+    record FieldName(String name, boolean valid, boolean settable, boolean accounted) {
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compact map for the fields of a single {@link Message}.
+ * <p>
+ * Keys and values are kept in two dense arrays, and an open-addressing table with linear probing maps key hashes to
+ * positions in those arrays. Compared to a {@link java.util.HashMap} this avoids one node object per field and the
+ * table is sized for the number of fields a typical message has.
+ * <p>
+ * Keys are expected to be canonical instances from {@link MessageFieldNames}, so most lookups match on identity.
+ * Neither {@code null} keys nor {@code null} values are supported. Iteration order is insertion order, as long as no
+ * fields have been removed.
+ */
+final class MessageFields extends AbstractMap<String, Object> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int EMPTY = -1;
+
+    private String[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    // Positions in the dense arrays, EMPTY for free slots. The table has at least twice as many slots as there are
+    // entries, so probe sequences stay short.
+    private int[] table;
+    private int mask;
+
+    private Set<Entry<String, Object>> entrySet;
+
+    MessageFields() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    MessageFields(int expectedSize) {
+        final int capacity = Math.max(4, expectedSize);
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.table = newTable(capacity);
+        this.mask = table.length - 1;
+    }
+
+    private static int[] newTable(int capacity) {
+        final int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        final int[] table = new int[slots];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int slotOf(Object key) {
+        int slot = hash(key) & mask;
+        while (true) {
+            final int index = table[slot];
+            if (index == EMPTY) {
+                return -1 - slot;
+            }
+            final String candidate = keys[index];
+            if (candidate == key || candidate.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && slotOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        final int slot = slotOf(key);
+        return slot >= 0 ? values[table[slot]] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        requireNonNull(key, "key");
+        requireNonNull(value, "value");
+        final int slot = slotOf(key);
+        if (slot >= 0) {
+            final int index = table[slot];
+            final Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (size == keys.length) {
+            grow();
+            table[-1 - slotOf(key)] = size;
+        } else {
+            table[-1 - slot] = size;
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        final int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        final int index = table[slot];
+        final Object previous = values[index];
+        deleteSlot(slot);
+        removeDense(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private void grow() {
+        final int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        table = newTable(capacity);
+        mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i;
+        }
+    }
+
+    // Backward shift deletion, so the table never needs tombstones.
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != EMPTY) {
+            final int home = hash(keys[table[next]]) & mask;
+            // Move the entry into the hole unless its home slot lies cyclically in (hole, next].
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = EMPTY;
+    }
+
+    // Moves the last entry into the freed position to keep the dense arrays gap-free.
+    private void removeDense(int index) {
+        final int last = size - 1;
+        if (index != last) {
+            keys[index] = keys[last];
+            values[index] = values[last];
+            table[slotOf(keys[index])] = index;
+        }
+        keys[last] = null;
+        values[last] = null;
+        size = last;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null) {
+                return false;
+            }
+            final Object value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            MessageFields.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int next = 0;
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return new SimpleImmutableEntry<>(keys[current], values[current]);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            MessageFields.this.remove(keys[current]);
+            // The last entry has been moved into the current position, so it has to be visited next.
+            next = current;
+            current = -1;
+        }
+    }
+}
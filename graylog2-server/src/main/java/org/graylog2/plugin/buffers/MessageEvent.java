@@ -39,6 +39,9 @@ public class MessageEvent {
     };
 
     private RawMessage raw;
+    // a journal entry which still has to be decoded into the raw message, see #setEncodedRaw(byte[], long)
+    private byte[] encodedRaw;
+    private long journalOffset;
     private Message msg;
     private Collection<Message> messages;
 
@@ -79,11 +82,37 @@ public class MessageEvent {
      */
     public void setRaw(@Nonnull RawMessage raw) {
         this.raw = raw;
+        this.encodedRaw = null;
         clearMessages();
     }
 
+    /**
+     * Sets a raw message as it has been read from the journal, so that it can be decoded by the process buffer
+     * processor handling the event instead of by the journal reader. Like {@link #setRaw(RawMessage)} this clears out
+     * the references to the previous messages.
+     *
+     * @param encodedRaw    the encoded raw message
+     * @param journalOffset the offset of the raw message in the journal
+     */
+    public void setEncodedRaw(@Nonnull byte[] encodedRaw, long journalOffset) {
+        this.raw = null;
+        this.encodedRaw = encodedRaw;
+        this.journalOffset = journalOffset;
+        clearMessages();
+    }
+
+    @Nullable
+    public byte[] getEncodedRaw() {
+        return encodedRaw;
+    }
+
+    public long getJournalOffset() {
+        return journalOffset;
+    }
+
     public void clearRaw() {
         this.raw = null;
+        this.encodedRaw = null;
     }
 
     @Nonnull
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin.journal;
+
+import org.graylog2.plugin.configuration.Configuration;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores codec configurations once per input and configuration version, so that journal entries can reference the
+ * configuration instead of embedding its JSON serialization in every single entry.
+ */
+public interface CodecConfigTable {
+    /**
+     * Returns the version under which the given codec configuration of the input is stored, adding a new version if
+     * the configuration changed.
+     *
+     * @return the configuration version or {@code -1} if the configuration cannot be referenced and has to be
+     * embedded into the journal entry
+     */
+    long version(String inputId, Configuration codecConfig);
+
+    /**
+     * Returns the codec configuration of the input with the given version or {@code null} if it is unknown.
+     */
+    @Nullable
+    Configuration get(String inputId, long version);
+}
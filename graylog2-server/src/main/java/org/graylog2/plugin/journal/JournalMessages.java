@@ -2640,6 +2640,46 @@ public final class JournalMessages {
      */
     com.google.protobuf.ByteString
         getConfigBytes();
+
+    // optional string config_input_id = 3;
+    /**
+     * <code>optional string config_input_id = 3;</code>
+     *
+     * <pre>
+     * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+     * codec configuration table of the journal, identified by the input ID and the configuration version
+     * </pre>
+     */
+    boolean hasConfigInputId();
+    /**
+     * <code>optional string config_input_id = 3;</code>
+     *
+     * <pre>
+     * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+     * codec configuration table of the journal, identified by the input ID and the configuration version
+     * </pre>
+     */
+    java.lang.String getConfigInputId();
+    /**
+     * <code>optional string config_input_id = 3;</code>
+     *
+     * <pre>
+     * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+     * codec configuration table of the journal, identified by the input ID and the configuration version
+     * </pre>
+     */
+    com.google.protobuf.ByteString
+        getConfigInputIdBytes();
+
+    // optional uint64 config_version = 4;
+    /**
+     * <code>optional uint64 config_version = 4;</code>
+     */
+    boolean hasConfigVersion();
+    /**
+     * <code>optional uint64 config_version = 4;</code>
+     */
+    long getConfigVersion();
   }
   /**
    * Protobuf type {@code org.graylog2.plugin.journal.CodecInfo}
@@ -2702,6 +2742,16 @@ public final class JournalMessages {
               config_ = input.readBytes();
               break;
             }
+            case 26: {
+              bitField0_ |= 0x00000004;
+              configInputId_ = input.readBytes();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              configVersion_ = input.readUInt64();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -2843,9 +2893,85 @@ public final class JournalMessages {
       }
     }
 
+    // optional string config_input_id = 3;
+    public static final int CONFIG_INPUT_ID_FIELD_NUMBER = 3;
+    private java.lang.Object configInputId_;
+    /**
+     * <code>optional string config_input_id = 3;</code>
+     *
+     * <pre>
+     * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+     * codec configuration table of the journal, identified by the input ID and the configuration version
+     * </pre>
+     */
+    public boolean hasConfigInputId() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional string config_input_id = 3;</code>
+     *
+     * <pre>
+     * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+     * codec configuration table of the journal, identified by the input ID and the configuration version
+     * </pre>
+     */
+    public java.lang.String getConfigInputId() {
+      java.lang.Object ref = configInputId_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs =
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          configInputId_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string config_input_id = 3;</code>
+     *
+     * <pre>
+     * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+     * codec configuration table of the journal, identified by the input ID and the configuration version
+     * </pre>
+     */
+    public com.google.protobuf.ByteString
+        getConfigInputIdBytes() {
+      java.lang.Object ref = configInputId_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b =
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        configInputId_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional uint64 config_version = 4;
+    public static final int CONFIG_VERSION_FIELD_NUMBER = 4;
+    private long configVersion_;
+    /**
+     * <code>optional uint64 config_version = 4;</code>
+     */
+    public boolean hasConfigVersion() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional uint64 config_version = 4;</code>
+     */
+    public long getConfigVersion() {
+      return configVersion_;
+    }
+
     private void initFields() {
       name_ = "";
       config_ = "";
+      configInputId_ = "";
+      configVersion_ = 0L;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -2865,6 +2991,12 @@ public final class JournalMessages {
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
         output.writeBytes(2, getConfigBytes());
       }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeBytes(3, getConfigInputIdBytes());
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(4, configVersion_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -2882,6 +3014,14 @@ public final class JournalMessages {
         size += com.google.protobuf.CodedOutputStream
           .computeBytesSize(2, getConfigBytes());
       }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, getConfigInputIdBytes());
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, configVersion_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -3002,6 +3142,10 @@ public final class JournalMessages {
         bitField0_ = (bitField0_ & ~0x00000001);
         config_ = "";
         bitField0_ = (bitField0_ & ~0x00000002);
+        configInputId_ = "";
+        bitField0_ = (bitField0_ & ~0x00000004);
+        configVersion_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
         return this;
       }
 
@@ -3038,6 +3182,14 @@ public final class JournalMessages {
           to_bitField0_ |= 0x00000002;
         }
         result.config_ = config_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.configInputId_ = configInputId_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.configVersion_ = configVersion_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -3064,6 +3216,14 @@ public final class JournalMessages {
           config_ = other.config_;
           onChanged();
         }
+        if (other.hasConfigInputId()) {
+          bitField0_ |= 0x00000004;
+          configInputId_ = other.configInputId_;
+          onChanged();
+        }
+        if (other.hasConfigVersion()) {
+          setConfigVersion(other.getConfigVersion());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -3269,6 +3429,143 @@ public final class JournalMessages {
         return this;
       }
 
+      // optional string config_input_id = 3;
+      private java.lang.Object configInputId_ = "";
+      /**
+       * <code>optional string config_input_id = 3;</code>
+       *
+       * <pre>
+       * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+       * codec configuration table of the journal, identified by the input ID and the configuration version
+       * </pre>
+       */
+      public boolean hasConfigInputId() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional string config_input_id = 3;</code>
+       *
+       * <pre>
+       * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+       * codec configuration table of the journal, identified by the input ID and the configuration version
+       * </pre>
+       */
+      public java.lang.String getConfigInputId() {
+        java.lang.Object ref = configInputId_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          configInputId_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string config_input_id = 3;</code>
+       *
+       * <pre>
+       * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+       * codec configuration table of the journal, identified by the input ID and the configuration version
+       * </pre>
+       */
+      public com.google.protobuf.ByteString
+          getConfigInputIdBytes() {
+        java.lang.Object ref = configInputId_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b =
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          configInputId_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string config_input_id = 3;</code>
+       *
+       * <pre>
+       * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+       * codec configuration table of the journal, identified by the input ID and the configuration version
+       * </pre>
+       */
+      public Builder setConfigInputId(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        configInputId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string config_input_id = 3;</code>
+       *
+       * <pre>
+       * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+       * codec configuration table of the journal, identified by the input ID and the configuration version
+       * </pre>
+       */
+      public Builder clearConfigInputId() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        configInputId_ = getDefaultInstance().getConfigInputId();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string config_input_id = 3;</code>
+       *
+       * <pre>
+       * instead of the JSON configuration, the entry can reference a configuration which is stored once in the
+       * codec configuration table of the journal, identified by the input ID and the configuration version
+       * </pre>
+       */
+      public Builder setConfigInputIdBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        configInputId_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 config_version = 4;
+      private long configVersion_ ;
+      /**
+       * <code>optional uint64 config_version = 4;</code>
+       */
+      public boolean hasConfigVersion() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional uint64 config_version = 4;</code>
+       */
+      public long getConfigVersion() {
+        return configVersion_;
+      }
+      /**
+       * <code>optional uint64 config_version = 4;</code>
+       */
+      public Builder setConfigVersion(long value) {
+        bitField0_ |= 0x00000008;
+        configVersion_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 config_version = 4;</code>
+       */
+      public Builder clearConfigVersion() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        configVersion_ = 0L;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:org.graylog2.plugin.journal.CodecInfo)
     }
 
@@ -4119,13 +4416,14 @@ public final class JournalMessages {
       "org.graylog2.plugin.journal.RemoteAddres" +
       "s\022\017\n\007payload\030\010 \001(\014\022\023\n\013sequence_nr\030\t \001(\r\"",
       "@\n\rRemoteAddress\022\017\n\007address\030\001 \001(\014\022\014\n\004por" +
-      "t\030\002 \001(\r\022\020\n\010resolved\030\003 \001(\t\")\n\tCodecInfo\022\014" +
-      "\n\004name\030\001 \001(\t\022\016\n\006config\030\002 \001(\t\"\215\001\n\nSourceN" +
-      "ode\022\n\n\002id\030\001 \001(\t\022B\n\004type\030\002 \001(\0162,.org.gray" +
-      "log2.plugin.journal.SourceNode.Type:\006SER" +
-      "VER\022\020\n\010input_id\030\003 \001(\t\"\035\n\004Type\022\n\n\006SERVER\020" +
-      "\000\022\t\n\005RADIO\020\001B.\n\033org.graylog2.plugin.jour" +
-      "nalB\017JournalMessages"
+      "t\030\002 \001(\r\022\020\n\010resolved\030\003 \001(\t\"Z\n\tCodecInfo\022\014" +
+      "\n\004name\030\001 \001(\t\022\016\n\006config\030\002 \001(\t\022\027\n\017config_i" +
+      "nput_id\030\003 \001(\t\022\026\n\016config_version\030\004 \001(\004\"\215\001" +
+      "\n\nSourceNode\022\n\n\002id\030\001 \001(\t\022B\n\004type\030\002 \001(\0162," +
+      ".org.graylog2.plugin.journal.SourceNode." +
+      "Type:\006SERVER\022\020\n\010input_id\030\003 \001(\t\"\035\n\004Type\022\n" +
+      "\n\006SERVER\020\000\022\t\n\005RADIO\020\001B.\n\033org.graylog2.pl" +
+      "ugin.journalB\017JournalMessages"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -4149,7 +4447,7 @@ public final class JournalMessages {
           internal_static_org_graylog2_plugin_journal_CodecInfo_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_org_graylog2_plugin_journal_CodecInfo_descriptor,
-              new java.lang.String[] { "Name", "Config", });
+              new java.lang.String[] { "Name", "Config", "ConfigInputId", "ConfigVersion", });
           internal_static_org_graylog2_plugin_journal_SourceNode_descriptor =
             getDescriptor().getMessageTypes().get(3);
           internal_static_org_graylog2_plugin_journal_SourceNode_fieldAccessorTable = new
@@ -122,11 +122,15 @@ public class RawMessage implements Serializable {
     }
 
     public RawMessage(JournalMessage journalMessage, Object messageQueueId) {
+        this(journalMessage, messageQueueId, Configuration.deserializeFromJson(journalMessage.getCodec().getConfig()));
+    }
+
+    private RawMessage(JournalMessage journalMessage, Object messageQueueId, Configuration codecConfig) {
         this.messageQueueId = messageQueueId;
         sequenceNr = journalMessage.getSequenceNr();
         id = new UUID(journalMessage.getUuidTime(), journalMessage.getUuidClockseq());
         msgBuilder = JournalMessage.newBuilder(journalMessage);
-        codecConfig = Configuration.deserializeFromJson(journalMessage.getCodec().getConfig());
+        this.codecConfig = codecConfig;
     }
 
     @Nullable
@@ -149,11 +153,31 @@ public class RawMessage implements Serializable {
 
     @Nullable
     public static RawMessage decode(final byte[] buffer, final long journalOffset) {
+        return decode(buffer, journalOffset, null);
+    }
+
+    /**
+     * Decodes a journal entry. Codec configurations which are referenced by input ID and version instead of being
+     * embedded into the entry are resolved through the given codec configuration table.
+     */
+    @Nullable
+    public static RawMessage decode(final byte[] buffer, final long journalOffset, @Nullable final CodecConfigTable codecConfigTable) {
         try {
             final JournalMessage journalMessage = JournalMessage.parseFrom(buffer);
 
             // TODO validate message based on field contents and version number
 
+            final JournalMessages.CodecInfo codec = journalMessage.getCodec();
+            if (codec.hasConfigVersion()) {
+                final Configuration codecConfig = codecConfigTable == null ? null : codecConfigTable.get(codec.getConfigInputId(), codec.getConfigVersion());
+                if (codecConfig == null) {
+                    log.error("Cannot find codec configuration version {} of input {} for raw message in journal, ignoring this message.",
+                            codec.getConfigVersion(), codec.getConfigInputId());
+                    return null;
+                }
+                return new RawMessage(journalMessage, journalOffset, codecConfig);
+            }
+
             return new RawMessage(journalMessage, journalOffset);
         } catch (IOException e) {
             log.error("Cannot read raw message from journal, ignoring this message.", e);
@@ -162,13 +186,29 @@ public class RawMessage implements Serializable {
     }
 
     public byte[] encode() {
+        return encode(null);
+    }
+
+    /**
+     * Encodes the message for the journal. If a codec configuration table is given, the codec configuration is
+     * stored in the table and only referenced by input ID and version instead of being embedded into the entry.
+     */
+    public byte[] encode(@Nullable CodecConfigTable codecConfigTable) {
         try {
             final JournalMessages.CodecInfo codec = msgBuilder.getCodec();
             final JournalMessages.CodecInfo.Builder builder = JournalMessages.CodecInfo.newBuilder(codec);
 
-            final String codecConfigJson = codecConfig.serializeToJson();
-            if (codecConfigJson != null) {
-                builder.setConfig(codecConfigJson);
+            final String inputId = codecConfigTable == null ? null : getLastSourceInputId();
+            final long configVersion = inputId == null ? -1 : codecConfigTable.version(inputId, codecConfig);
+            if (configVersion >= 0) {
+                builder.clearConfig()
+                        .setConfigInputId(inputId)
+                        .setConfigVersion(configVersion);
+            } else {
+                final String codecConfigJson = codecConfig.serializeToJson();
+                if (codecConfigJson != null) {
+                    builder.setConfig(codecConfigJson);
+                }
             }
             msgBuilder.setCodec(builder.build());
 
@@ -266,6 +306,19 @@ public class RawMessage implements Serializable {
         return list;
     }
 
+    /**
+     * @return the id of the input the message has been received on last, or {@code null} if there is none
+     */
+    @Nullable
+    public String getLastSourceInputId() {
+        final int sourceNodes = msgBuilder.getSourceNodesCount();
+        if (sourceNodes == 0) {
+            return null;
+        }
+        final JournalMessages.SourceNode sourceNode = msgBuilder.getSourceNodes(sourceNodes - 1);
+        return sourceNode.hasInputId() && !sourceNode.getInputId().isEmpty() ? sourceNode.getInputId() : null;
+    }
+
     public void setSequenceNr(int sequenceNr) {
         this.sequenceNr = sequenceNr;
         msgBuilder.setSequenceNr(sequenceNr);
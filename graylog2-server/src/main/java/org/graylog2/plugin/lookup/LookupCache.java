@@ -28,9 +28,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.graylog2.utilities.ObjectUtils.objectId;
 
@@ -150,6 +157,39 @@ public abstract class LookupCache extends AbstractIdleService {
 
     public abstract LookupResult getIfPresent(LookupCacheKey key);
 
+    /**
+     * Returns the cached results for all given keys and loads the missing ones with the given bulk loader.
+     * <p>
+     * Caches should override this to pass all missing keys to the loader at once. The default implementation loads
+     * every key on its own via {@link #get(LookupCacheKey, Callable)}.
+     *
+     * @param keys   the keys to look up
+     * @param loader loads the results for the given missing keys
+     * @return the lookup results, keyed by the given keys
+     */
+    public Map<LookupCacheKey, LookupResult> getAll(Collection<LookupCacheKey> keys,
+                                                    Function<Collection<LookupCacheKey>, Map<LookupCacheKey, LookupResult>> loader) {
+        final Map<LookupCacheKey, LookupResult> results = new LinkedHashMap<>(keys.size());
+        for (LookupCacheKey key : keys) {
+            results.put(key, get(key, () -> loader.apply(Collections.singleton(key)).get(key)));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the cached result for the given key, or loads it with the given asynchronous loader.
+     * <p>
+     * The default implementation waits for the loader on the calling thread. Caches should override this if they
+     * can store results once the loader completes.
+     *
+     * @param key    the key to look up
+     * @param loader loads the result for the key if it isn't cached
+     * @return a future for the lookup result
+     */
+    public CompletableFuture<LookupResult> getAsync(LookupCacheKey key, Supplier<CompletableFuture<LookupResult>> loader) {
+        return CompletableFuture.completedFuture(get(key, () -> loader.get().join()));
+    }
+
     public abstract void purge();
 
     public abstract void purge(LookupCacheKey purgeKey);
@@ -26,8 +26,12 @@ import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -145,6 +149,105 @@ public abstract class LookupDataAdapter extends AbstractIdleService {
     }
     protected abstract LookupResult doGet(Object key);
 
+    /**
+     * Looks up all given keys.
+     *
+     * @param keys the keys to look up
+     * @return the lookup results, keyed by the given keys
+     */
+    public Map<Object, LookupResult> getAll(Collection<Object> keys) {
+        if (state() == State.FAILED) {
+            final Map<Object, LookupResult> results = new LinkedHashMap<>(keys.size());
+            keys.forEach(key -> results.put(key, getErrorResult()));
+            return results;
+        }
+        checkState(isRunning(), "Data adapter needs to be started before it can be used");
+        try (final Timer.Context ignored = requestTimer.time()) {
+            return doGetAll(keys);
+        }
+    }
+
+    /**
+     * Looks up all given keys. Data adapters which can fetch multiple keys with a single request, or which can run
+     * requests concurrently, should override this. The default implementation calls {@link #doGet(Object)} for
+     * every key.
+     *
+     * @param keys the keys to look up
+     * @return the lookup results, keyed by the given keys
+     */
+    protected Map<Object, LookupResult> doGetAll(Collection<Object> keys) {
+        final Map<Object, LookupResult> results = new LinkedHashMap<>(keys.size());
+        for (Object key : keys) {
+            results.put(key, doGet(key));
+        }
+        return results;
+    }
+
+    /**
+     * Looks up the given key without blocking the calling thread, if the data adapter supports it.
+     *
+     * @param key the key to look up
+     * @return a future for the lookup result, it never completes exceptionally
+     */
+    public CompletableFuture<LookupResult> getAsync(Object key) {
+        if (state() == State.FAILED) {
+            return CompletableFuture.completedFuture(getErrorResult());
+        }
+        checkState(isRunning(), "Data adapter needs to be started before it can be used");
+        final Timer.Context time = requestTimer.time();
+        CompletableFuture<LookupResult> future;
+        try {
+            future = doGetAsync(key);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, throwable) -> {
+            time.stop();
+            if (throwable != null) {
+                LOG.warn("Asynchronous lookup for key <{}> in data adapter <{}/{}/@{}> failed", key, name(), id(), objectId(this), throwable);
+                return getErrorResult();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Looks up the given key asynchronously. Data adapters which use a non-blocking client should override this.
+     * The default implementation runs {@link #doGet(Object)} on the calling thread.
+     *
+     * @param key the key to look up
+     * @return a future for the lookup result
+     */
+    protected CompletableFuture<LookupResult> doGetAsync(Object key) {
+        return CompletableFuture.completedFuture(doGet(key));
+    }
+
+    /**
+     * Looks up all given keys asynchronously by running {@link #getAsync(Object)} for every key.
+     *
+     * @param keys the keys to look up
+     * @return a future for the lookup results, keyed by the given keys
+     */
+    public CompletableFuture<Map<Object, LookupResult>> getAllAsync(Collection<Object> keys) {
+        final Map<Object, CompletableFuture<LookupResult>> futures = new LinkedHashMap<>(keys.size());
+        for (Object key : keys) {
+            futures.computeIfAbsent(key, this::getAsync);
+        }
+        return allOf(futures);
+    }
+
+    /**
+     * Combines the given per-key futures into a single future for all results.
+     */
+    protected static <K> CompletableFuture<Map<K, LookupResult>> allOf(Map<K, CompletableFuture<LookupResult>> futures) {
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    final Map<K, LookupResult> results = new LinkedHashMap<>(futures.size());
+                    futures.forEach((key, future) -> results.put(key, future.join()));
+                    return results;
+                });
+    }
+
     @Deprecated
     public abstract void set(Object key, Object value);
 
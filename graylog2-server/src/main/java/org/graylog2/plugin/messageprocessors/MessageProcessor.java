@@ -25,4 +25,15 @@ public interface MessageProcessor {
     }
 
     Messages process(Messages messages);
+
+    /**
+     * Whether the processor handles failures of single messages itself, e.g. by recording them as processing errors
+     * on the message, and only throws if the whole collection could not be processed.
+     * <p>
+     * The process buffer only passes several messages at once to processors which isolate failures like this, all
+     * other processors get one message at a time.
+     */
+    default boolean isolatesMessageFailures() {
+        return false;
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.rest.models.system.indexer.responses;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+import org.graylog2.indexer.messages.BulkIndexingController;
+
+import javax.annotation.Nullable;
+
+@JsonAutoDetect
+@AutoValue
+@WithBeanGetter
+public abstract class BulkControlSummary {
+    @JsonProperty("enabled")
+    public abstract boolean enabled();
+
+    @JsonProperty("concurrency_limit")
+    public abstract int concurrencyLimit();
+
+    @JsonProperty("max_concurrency")
+    public abstract int maxConcurrency();
+
+    @JsonProperty("inflight_requests")
+    public abstract int inflightRequests();
+
+    @JsonProperty("waiting_requests")
+    public abstract int waitingRequests();
+
+    /**
+     * The maximum number of documents per bulk request or {@code null} if the chunk size isn't limited.
+     */
+    @JsonProperty("chunk_size_limit")
+    @Nullable
+    public abstract Integer chunkSizeLimit();
+
+    @JsonProperty("target_latency_ms")
+    public abstract long targetLatencyMs();
+
+    @JsonProperty("last_latency_ms")
+    public abstract long lastLatencyMs();
+
+    @JsonProperty("write_queue")
+    public abstract long writeQueue();
+
+    @JsonCreator
+    public static BulkControlSummary create(@JsonProperty("enabled") boolean enabled,
+                                            @JsonProperty("concurrency_limit") int concurrencyLimit,
+                                            @JsonProperty("max_concurrency") int maxConcurrency,
+                                            @JsonProperty("inflight_requests") int inflightRequests,
+                                            @JsonProperty("waiting_requests") int waitingRequests,
+                                            @JsonProperty("chunk_size_limit") @Nullable Integer chunkSizeLimit,
+                                            @JsonProperty("target_latency_ms") long targetLatencyMs,
+                                            @JsonProperty("last_latency_ms") long lastLatencyMs,
+                                            @JsonProperty("write_queue") long writeQueue) {
+        return new AutoValue_BulkControlSummary(enabled, concurrencyLimit, maxConcurrency, inflightRequests,
+                waitingRequests, chunkSizeLimit, targetLatencyMs, lastLatencyMs, writeQueue);
+    }
+
+    public static BulkControlSummary of(BulkIndexingController controller) {
+        final int chunkSizeLimit = controller.getChunkSizeLimit();
+        return create(
+                controller.isEnabled(),
+                controller.getConcurrencyLimit(),
+                controller.getMaxConcurrency(),
+                controller.getInflightRequests(),
+                controller.getWaitingRequests(),
+                chunkSizeLimit == Integer.MAX_VALUE ? null : chunkSizeLimit,
+                controller.getTargetLatencyMillis(),
+                controller.getLastLatencyMillis(),
+                controller.getWriteQueue()
+        );
+    }
+}
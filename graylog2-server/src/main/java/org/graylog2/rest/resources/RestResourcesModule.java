@@ -80,6 +80,7 @@ import org.graylog2.rest.resources.system.indexer.IndexSetDefaultsResource;
 import org.graylog2.rest.resources.system.indexer.IndexSetsMappingResource;
 import org.graylog2.rest.resources.system.indexer.IndexSetsResource;
 import org.graylog2.rest.resources.system.indexer.IndexTemplatesResource;
+import org.graylog2.rest.resources.system.indexer.IndexerBulkControlResource;
 import org.graylog2.rest.resources.system.indexer.IndexerClusterResource;
 import org.graylog2.rest.resources.system.indexer.IndexerOverviewResource;
 import org.graylog2.rest.resources.system.indexer.IndicesResource;
@@ -195,6 +196,7 @@ public class RestResourcesModule extends Graylog2Module {
     private void addIndexingResources() {
         addSystemRestResource(DeflectorResource.class);
         addSystemRestResource(FailuresResource.class);
+        addSystemRestResource(IndexerBulkControlResource.class);
         addSystemRestResource(IndexerClusterResource.class);
         addSystemRestResource(IndexerOverviewResource.class);
         addSystemRestResource(IndexFieldTypeProfileResource.class);
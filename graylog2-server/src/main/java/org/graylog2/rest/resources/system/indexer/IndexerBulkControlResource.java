@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.rest.resources.system.indexer;
+
+import com.codahale.metrics.annotation.Timed;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.apache.shiro.authz.annotation.RequiresAuthentication;
+import org.apache.shiro.authz.annotation.RequiresPermissions;
+import org.graylog2.indexer.messages.BulkIndexingController;
+import org.graylog2.rest.models.system.indexer.responses.BulkControlSummary;
+import org.graylog2.shared.rest.resources.RestResource;
+import org.graylog2.shared.security.RestPermissions;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@RequiresAuthentication
+@Api(value = "Indexer/BulkControl", description = "Adaptive bulk indexing control of this node")
+@Path("/system/indexer/bulk_control")
+@Produces(MediaType.APPLICATION_JSON)
+public class IndexerBulkControlResource extends RestResource {
+    private final BulkIndexingController bulkIndexingController;
+
+    @Inject
+    public IndexerBulkControlResource(BulkIndexingController bulkIndexingController) {
+        this.bulkIndexingController = bulkIndexingController;
+    }
+
+    @GET
+    @Timed
+    @ApiOperation(value = "Get the current bulk concurrency and chunk size limits of this node")
+    @RequiresPermissions(RestPermissions.INDEXERCLUSTER_READ)
+    public BulkControlSummary status() {
+        return BulkControlSummary.of(bulkIndexingController);
+    }
+}
@@ -47,6 +47,7 @@ import org.graylog2.shared.bindings.providers.OkHttpClientProvider;
 import org.graylog2.shared.bindings.providers.ProxiedRequestsExecutorService;
 import org.graylog2.shared.bindings.providers.ServiceManagerProvider;
 import org.graylog2.shared.buffers.InputBufferImpl;
+import org.graylog2.shared.buffers.JournallingMessageHandler;
 import org.graylog2.shared.buffers.NoopInputBuffer;
 import org.graylog2.shared.buffers.ProcessBuffer;
 import org.graylog2.shared.buffers.processors.DecodingProcessor;
@@ -69,6 +70,7 @@ public class GenericBindings extends Graylog2Module {
         bind(LocalMetricRegistry.class).in(Scopes.NO_SCOPE); // must not be a singleton!
 
         install(new FactoryModuleBuilder().build(DecodingProcessor.Factory.class));
+        install(new FactoryModuleBuilder().build(JournallingMessageHandler.Factory.class));
 
         bind(ProcessBuffer.class).asEagerSingleton();
         if (isMigrationCommand) {
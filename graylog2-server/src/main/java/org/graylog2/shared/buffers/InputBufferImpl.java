@@ -28,6 +28,7 @@ import org.graylog2.plugin.BaseConfiguration;
 import org.graylog2.plugin.GlobalMetricNames;
 import org.graylog2.plugin.buffers.InputBuffer;
 import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.messageq.MessageQueueWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,7 +53,8 @@ public class InputBufferImpl implements InputBuffer {
                            BaseConfiguration configuration,
                            Provider<DirectMessageHandler> directMessageHandlerProvider,
                            Provider<RawMessageEncoderHandler> rawMessageEncoderHandlerProvider,
-                           Provider<JournallingMessageHandler> spoolingMessageHandlerProvider) {
+                           JournallingMessageHandler.Factory journallingMessageHandlerFactory,
+                           MessageQueueWriter messageQueueWriter) {
         final Disruptor<RawMessageEvent> disruptor = new Disruptor<>(
                 RawMessageEvent.FACTORY,
                 configuration.getInputBufferRingSize(),
@@ -69,7 +71,12 @@ public class InputBufferImpl implements InputBuffer {
             for (int i = 0; i < numberOfHandlers; i++) {
                 handlers[i] = rawMessageEncoderHandlerProvider.get();
             }
-            disruptor.handleEventsWithWorkerPool(handlers).then(spoolingMessageHandlerProvider.get());
+            // every journal partition is written by its own handler thread
+            final JournallingMessageHandler[] journallingHandlers = new JournallingMessageHandler[messageQueueWriter.writablePartitions()];
+            for (int i = 0; i < journallingHandlers.length; i++) {
+                journallingHandlers[i] = journallingMessageHandlerFactory.create(i);
+            }
+            disruptor.handleEventsWithWorkerPool(handlers).then(journallingHandlers);
         } else {
             LOG.info("Message journal is disabled.");
             final DirectMessageHandler[] handlers = new DirectMessageHandler[numberOfHandlers];
@@ -20,6 +20,8 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
 import com.lmax.disruptor.EventHandler;
 import org.graylog2.shared.messageq.MessageQueueWriter;
 import org.graylog2.system.processing.ProcessingStatusRecorder;
@@ -29,11 +31,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import javax.inject.Inject;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
+/**
+ * Writes the messages of a single journal partition. Every partition has its own handler, so the partitions are
+ * written in parallel while the messages of a partition stay in order.
+ */
 public class JournallingMessageHandler implements EventHandler<RawMessageEvent> {
     private static final Logger log = LoggerFactory.getLogger(JournallingMessageHandler.class);
 
@@ -41,21 +46,27 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
     private final Counter byteCounter;
     private final MessageQueueWriter messageQueueWriter;
     private final ProcessingStatusRecorder processingStatusRecorder;
+    private final int partition;
 
-    @Inject
+    @AssistedInject
     public JournallingMessageHandler(MetricRegistry metrics,
                                      MessageQueueWriter messageQueueWriter,
-                                     ProcessingStatusRecorder processingStatusRecorder) {
+                                     ProcessingStatusRecorder processingStatusRecorder,
+                                     @Assisted int partition) {
         this.messageQueueWriter = messageQueueWriter;
         this.processingStatusRecorder = processingStatusRecorder;
+        this.partition = partition;
         byteCounter = metrics.counter(MetricRegistry.name(JournallingMessageHandler.class, "written_bytes"));
     }
 
     @Override
     public void onEvent(RawMessageEvent event, long sequence, boolean endOfBatch) throws Exception {
-        batch.add(event);
+        // the handlers of the other partitions write the remaining messages
+        if (messageQueueWriter.partitionFor(event, sequence) == partition) {
+            batch.add(event);
+        }
 
-        if (endOfBatch) {
+        if (endOfBatch && !batch.isEmpty()) {
             log.debug("End of batch, journaling {} messages", batch.size());
             // write batch to journal
 
@@ -67,7 +78,7 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
             // call the update on the recorder service for every message. (less contention)
             processingStatusRecorder.updateIngestReceiveTime(metricsFilter.getLatestReceiveTime());
 
-            messageQueueWriter.write(entries);
+            messageQueueWriter.write(partition, entries);
 
             // Release objects for GC
             batch.stream()
@@ -114,4 +125,8 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
             return input;
         }
     }
+
+    public interface Factory {
+        JournallingMessageHandler create(int partition);
+    }
 }
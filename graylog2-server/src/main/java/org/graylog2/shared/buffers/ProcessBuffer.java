@@ -32,7 +32,9 @@ import org.graylog2.plugin.buffers.Buffer;
 import org.graylog2.plugin.buffers.MessageEvent;
 import org.graylog2.plugin.journal.RawMessage;
 import org.graylog2.shared.buffers.processors.DecodingProcessor;
+import org.graylog2.shared.buffers.processors.ProcessBufferBatchHandler;
 import org.graylog2.shared.buffers.processors.ProcessBufferProcessor;
+import org.graylog2.shared.journal.Journal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +42,7 @@ import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -59,7 +62,8 @@ public class ProcessBuffer extends Buffer {
                          ProcessBufferProcessor.Factory bufferProcessorFactory,
                          @Named("processbuffer_processors") int processorCount,
                          @Named("ring_size") int ringSize,
-                         @Named("processor_wait_strategy") String waitStrategyName) {
+                         @Named("processor_wait_strategy") String waitStrategyName,
+                         @Named("processbuffer_batch_size") int batchSize) {
         this.ringBufferSize = ringSize;
         this.incomingMessages = metricRegistry.meter(name(ProcessBuffer.class, "incomingMessages"));
 
@@ -83,14 +87,22 @@ public class ProcessBuffer extends Buffer {
         );
         disruptor.setDefaultExceptionHandler(new LoggingExceptionHandler(LOG));
 
-        LOG.info("Initialized ProcessBuffer with ring size <{}> and wait strategy <{}>.",
-                ringBufferSize, waitStrategy.getClass().getSimpleName());
+        LOG.info("Initialized ProcessBuffer with ring size <{}>, wait strategy <{}> and batch size <{}>.",
+                ringBufferSize, waitStrategy.getClass().getSimpleName(), batchSize);
 
         processors = new ProcessBufferProcessor[processorCount];
         for (int i = 0; i < processorCount; i++) {
             processors[i] = bufferProcessorFactory.create(decodingProcessorFactory.create(decodeTime, parseTime));
         }
-        disruptor.handleEventsWithWorkerPool(processors);
+        if (batchSize > 1) {
+            final ProcessBufferBatchHandler[] handlers = new ProcessBufferBatchHandler[processorCount];
+            for (int i = 0; i < processorCount; i++) {
+                handlers[i] = new ProcessBufferBatchHandler(processors[i], i, processorCount, Math.min(batchSize, ringBufferSize));
+            }
+            disruptor.handleEventsWith(handlers);
+        } else {
+            disruptor.handleEventsWithWorkerPool(processors);
+        }
 
         ringBuffer = disruptor.start();
     }
@@ -111,6 +123,28 @@ public class ProcessBuffer extends Buffer {
         afterInsert(1);
     }
 
+    /**
+     * Publishes entries read from the journal without decoding them. The {@link DecodingProcessor decoding} happens in
+     * the process buffer processors, in parallel. The slots of the ring buffer are claimed in batches of at most the
+     * size of the ring buffer.
+     *
+     * @param journalEntries the entries to publish, in journal order
+     */
+    public void insertEncodedBlocking(@Nonnull List<Journal.JournalReadEntry> journalEntries) {
+        final int size = journalEntries.size();
+        for (int from = 0; from < size; from += ringBufferSize) {
+            final int length = Math.min(ringBufferSize, size - from);
+            final long hi = ringBuffer.next(length);
+            final long lo = hi - (length - 1);
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                final Journal.JournalReadEntry entry = journalEntries.get(from + (int) (sequence - lo));
+                ringBuffer.get(sequence).setEncodedRaw(entry.getPayload(), entry.getOffset());
+            }
+            ringBuffer.publish(lo, hi);
+            afterInsert(length);
+        }
+    }
+
     @Override
     protected void afterInsert(int n) {
         incomingMessages.mark(n);
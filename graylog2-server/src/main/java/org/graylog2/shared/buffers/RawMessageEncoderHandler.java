@@ -19,26 +19,35 @@ package org.graylog2.shared.buffers;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.lmax.disruptor.WorkHandler;
+import org.graylog2.plugin.journal.CodecConfigTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Optional;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
 public class RawMessageEncoderHandler implements WorkHandler<RawMessageEvent> {
     private static final Logger log = LoggerFactory.getLogger(RawMessageEncoderHandler.class);
     private final Meter incomingMessages;
+    @Nullable
+    private final CodecConfigTable codecConfigTable;
 
     @Inject
-    public RawMessageEncoderHandler(MetricRegistry metricRegistry) {
+    public RawMessageEncoderHandler(MetricRegistry metricRegistry,
+                                    Optional<CodecConfigTable> codecConfigTable,
+                                    @Named("message_journal_codec_config_references") boolean codecConfigReferences) {
         incomingMessages = metricRegistry.meter(name(RawMessageEncoderHandler.class, "incomingMessages"));
+        this.codecConfigTable = codecConfigReferences ? codecConfigTable.orElse(null) : null;
     }
 
     @Override
     public void onEvent(RawMessageEvent event) throws Exception {
         incomingMessages.mark();
-        event.setEncodedRawMessage(event.getRawMessage().encode());
+        event.setEncodedRawMessage(event.getRawMessage().encode(codecConfigTable));
         event.setMessageIdBytes(event.getRawMessage().getIdBytes());
         
         if (log.isTraceEnabled()) {
@@ -46,8 +55,9 @@ public class RawMessageEncoderHandler implements WorkHandler<RawMessageEvent> {
                       event.getRawMessage().getId(), event.getEncodedRawMessage().length);
         }
 
-        // Set timestamp in event to retain access to it after we clear the raw message object below
+        // Set timestamp and input in event to retain access to them after we clear the raw message object below
         event.setMessageTimestamp(event.getRawMessage().getTimestamp());
+        event.setInputId(event.getRawMessage().getLastSourceInputId());
 
         // clear for gc and to avoid promotion to tenured space
         event.setRawMessage(null);
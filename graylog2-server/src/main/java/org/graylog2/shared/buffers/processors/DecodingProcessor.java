@@ -33,6 +33,7 @@ import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.buffers.MessageEvent;
 import org.graylog2.plugin.inputs.codecs.Codec;
 import org.graylog2.plugin.inputs.codecs.MultiMessageCodec;
+import org.graylog2.plugin.journal.CodecConfigTable;
 import org.graylog2.plugin.journal.RawMessage;
 import org.graylog2.shared.journal.Journal;
 import org.graylog2.shared.messageq.MessageQueueAcknowledger;
@@ -45,6 +46,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -66,6 +68,8 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
     private final Journal journal;
     private final MessageQueueAcknowledger acknowledger;
     private final Timer parseTime;
+    @Nullable
+    private final CodecConfigTable codecConfigTable;
 
     @AssistedInject
     public DecodingProcessor(Map<String, Codec.Factory<? extends Codec>> codecFactory,
@@ -73,6 +77,7 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
                              final MetricRegistry metricRegistry,
                              final Journal journal,
                              MessageQueueAcknowledger acknowledger,
+                             Optional<CodecConfigTable> codecConfigTable,
                              @Assisted("decodeTime") Timer decodeTime,
                              @Assisted("parseTime") Timer parseTime) {
         this.codecFactory = codecFactory;
@@ -80,6 +85,7 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
         this.metricRegistry = metricRegistry;
         this.journal = journal;
         this.acknowledger = acknowledger;
+        this.codecConfigTable = codecConfigTable.orElse(null);
 
         // these metrics are global to all processors, thus they are passed in directly to avoid relying on the class name
         this.parseTime = parseTime;
@@ -89,6 +95,9 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
 
     @Override
     public void onEvent(MessageEvent event, long sequence, boolean endOfBatch) throws Exception {
+        if (event.getEncodedRaw() != null && !decodeJournalEntry(event)) {
+            return;
+        }
         final Timer.Context context = decodeTime.time();
         try {
             processMessage(event);
@@ -118,6 +127,26 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
         }
     }
 
+    /**
+     * Decodes the journal entry of an event which has been published by the journal reader without decoding it.
+     *
+     * @return {@code false} if the entry could not be decoded, it has been committed in the journal and the event is
+     * cleared
+     */
+    private boolean decodeJournalEntry(MessageEvent event) {
+        final long journalOffset = event.getJournalOffset();
+        final RawMessage rawMessage = RawMessage.decode(event.getEncodedRaw(), journalOffset, codecConfigTable);
+        if (rawMessage == null) {
+            // never hand null objects to the codecs, as that is useless
+            LOG.error("Found null raw message!");
+            journal.markJournalOffsetCommitted(journalOffset);
+            event.clearRaw();
+            return false;
+        }
+        event.setRaw(rawMessage);
+        return true;
+    }
+
     private void processMessage(final MessageEvent event) throws ExecutionException {
         final RawMessage raw = event.getRaw();
 
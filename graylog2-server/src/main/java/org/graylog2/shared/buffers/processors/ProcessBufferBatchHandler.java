@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import com.lmax.disruptor.EventHandler;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.buffers.MessageEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects decoded messages of consecutive ring buffer events and hands them to a {@link ProcessBufferProcessor} as
+ * one batch once the batch is full or the Disruptor signals the end of the currently available events.
+ * <p>
+ * Every handler sees all events of the ring buffer, so the events are sharded by sequence number across the
+ * handlers of the process buffer.
+ */
+public class ProcessBufferBatchHandler implements EventHandler<MessageEvent> {
+    private final ProcessBufferProcessor processor;
+    private final int ordinal;
+    private final int numberOfHandlers;
+    private final int batchSize;
+    private final List<Message> batch;
+
+    public ProcessBufferBatchHandler(ProcessBufferProcessor processor, int ordinal, int numberOfHandlers, int batchSize) {
+        this.processor = processor;
+        this.ordinal = ordinal;
+        this.numberOfHandlers = numberOfHandlers;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void onEvent(MessageEvent event, long sequence, boolean endOfBatch) throws Exception {
+        try {
+            if (sequence % numberOfHandlers == ordinal) {
+                try {
+                    processor.decode(event, batch);
+                } finally {
+                    event.clearMessages();
+                }
+            }
+        } finally {
+            // The end of batch event might belong to another handler, so pending messages are flushed regardless
+            if (batch.size() >= batchSize || (endOfBatch && !batch.isEmpty())) {
+                try {
+                    processor.processBatch(batch);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+}
@@ -24,15 +24,18 @@ import com.google.inject.assistedinject.AssistedInject;
 import com.lmax.disruptor.WorkHandler;
 import de.huxhorn.sulky.ulid.ULID;
 import org.graylog.failure.FailureSubmissionService;
+import org.graylog.failure.ProcessingFailureCause;
 import org.graylog2.buffers.OutputBuffer;
 import org.graylog2.messageprocessors.OrderedMessageProcessors;
 import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageCollection;
 import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.Tools;
 import org.graylog2.plugin.buffers.MessageEvent;
 import org.graylog2.plugin.messageprocessors.MessageProcessor;
 import org.graylog2.plugin.streams.DefaultStream;
 import org.graylog2.plugin.streams.Stream;
+import org.graylog2.shared.utilities.ExceptionUtils;
 import org.graylog2.streams.StreamMetrics;
 import org.graylog2.system.processing.ProcessingStatusRecorder;
 import org.slf4j.Logger;
@@ -40,7 +43,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.inject.Provider;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
@@ -119,6 +124,95 @@ public class ProcessBufferProcessor implements WorkHandler<MessageEvent> {
         }
     }
 
+    /**
+     * Decodes the raw message of the given event and adds the resulting messages to the given batch.
+     */
+    void decode(MessageEvent event, List<Message> batch) throws Exception {
+        decodingProcessor.onEvent(event, 0L, false);
+
+        if (event.isSingleMessage()) {
+            final Message message = event.getMessage();
+            if (message != null) {
+                batch.add(message);
+            }
+        } else {
+            final Collection<Message> messageList = event.getMessages();
+            // skip message events which could not be decoded properly
+            if (messageList != null) {
+                batch.addAll(messageList);
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of decoded messages through the message processors and writes the results to the output buffer
+     * at once.
+     * <p>
+     * Processors which {@link MessageProcessor#isolatesMessageFailures() isolate failures} of single messages get the
+     * whole batch as a single {@link Messages} collection, all other processors get one message at a time. A message
+     * which fails in such a processor is reported as failed and dropped, without affecting the rest of the batch.
+     * If a processor fails for the whole collection, the failure is recorded as processing error on every message,
+     * so the failure handling decides about each message on its own. Messages are never processed twice.
+     */
+    void processBatch(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            dispatchMessage(batch.get(0));
+            return;
+        }
+        currentMessage = batch.get(0);
+        incomingMessages.mark(batch.size());
+
+        try (final Timer.Context ignored = processTime.time()) {
+            final Stream defaultStream = defaultStreamProvider.get();
+            for (Message msg : batch) {
+                msg.addStream(defaultStream);
+            }
+            Messages messages = new MessageCollection(batch);
+
+            for (MessageProcessor messageProcessor : orderedMessageProcessors) {
+                if (messageProcessor.isolatesMessageFailures()) {
+                    messages = processCollection(messageProcessor, messages);
+                } else {
+                    messages = processEach(messageProcessor, messages);
+                }
+            }
+
+            writeToOutput(messages, batch.size());
+        } finally {
+            currentMessage = null;
+            outgoingMessages.mark(batch.size());
+        }
+    }
+
+    private Messages processCollection(MessageProcessor messageProcessor, Messages messages) {
+        try {
+            return messageProcessor.process(messages);
+        } catch (Exception e) {
+            LOG.warn("Message processor <{}> failed to process a batch of messages: {}", messageProcessor.getClass().getCanonicalName(), e);
+            for (Message msg : messages) {
+                msg.addProcessingError(new Message.ProcessingError(ProcessingFailureCause.UNKNOWN,
+                        String.format(Locale.ENGLISH, "Unable to process message <%s>", msg.getId()),
+                        ExceptionUtils.getRootCauseMessage(e)));
+            }
+            return messages;
+        }
+    }
+
+    private Messages processEach(MessageProcessor messageProcessor, Messages messages) {
+        final List<Message> processed = new ArrayList<>();
+        for (Message msg : messages) {
+            try {
+                messageProcessor.process(msg).forEach(processed::add);
+            } catch (Exception e) {
+                handleProcessingException(msg, e);
+            }
+        }
+        return new MessageCollection(processed);
+    }
+
     public Optional<Message> getCurrentMessage() {
         return Optional.ofNullable(currentMessage);
     }
@@ -132,59 +226,84 @@ public class ProcessBufferProcessor implements WorkHandler<MessageEvent> {
         }
 
         try (final Timer.Context ignored = processTime.time()) {
-            handleMessage(msg);
+            handleMessages(msg, List.of(msg));
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Finished processing message <{}>. Writing to output buffer.", msg.getId());
             }
         } catch (Exception e) {
-            if (LOG.isDebugEnabled()) {
-                // Log warning including the stacktrace
-                LOG.warn("Unable to process message <{}>:", msg.getId(), e);
-                // Log full message content to aid debugging
-                LOG.debug("Failed message <{}>: {}", msg.getId(), msg.toDumpString());
-            } else {
-                // Only logs a single line warning without stacktrace
-                LOG.warn("Unable to process message <{}>: {}", msg.getId(), e);
-            }
-
-            failureSubmissionService.submitUnknownProcessingError(msg, String.format(Locale.ENGLISH,
-                    "Unable to process message <%s>: %s",
-                    msg.getId(), e));
-
+            handleProcessingException(msg, e);
         } finally {
             currentMessage = null;
             outgoingMessages.mark();
         }
     }
 
-    private void handleMessage(@Nonnull Message msg) {
-        msg.addStream(defaultStreamProvider.get());
-        Messages messages = msg;
+    private void handleProcessingException(Message msg, Exception e) {
+        if (LOG.isDebugEnabled()) {
+            // Log warning including the stacktrace
+            LOG.warn("Unable to process message <{}>:", msg.getId(), e);
+            // Log full message content to aid debugging
+            LOG.debug("Failed message <{}>: {}", msg.getId(), msg.toDumpString());
+        } else {
+            // Only logs a single line warning without stacktrace
+            LOG.warn("Unable to process message <{}>: {}", msg.getId(), e);
+        }
+
+        failureSubmissionService.submitUnknownProcessingError(msg, String.format(Locale.ENGLISH,
+                "Unable to process message <%s>: %s",
+                msg.getId(), e));
+    }
+
+    private void handleMessages(@Nonnull Messages input, List<Message> inputMessages) {
+        final Stream defaultStream = defaultStreamProvider.get();
+        for (Message msg : inputMessages) {
+            msg.addStream(defaultStream);
+        }
+        Messages messages = input;
 
         for (MessageProcessor messageProcessor : orderedMessageProcessors) {
             messages = messageProcessor.process(messages);
         }
 
-        for (Message message : messages) {
-
-            message.getStreams().forEach(s -> streamMetrics.markIncomingMeter(s.getId()));
-            message.ensureValidTimestamp();
+        writeToOutput(messages, inputMessages.size());
+    }
 
-            // If a message is received via the Cluster-to-Cluster Forwarder, it already has this field set
-            if (!message.hasField(Message.FIELD_GL2_MESSAGE_ID) || isNullOrEmpty(message.getFieldAs(String.class, Message.FIELD_GL2_MESSAGE_ID))) {
-                // Set the message ID once all message processors have finished
-                // See documentation of Message.FIELD_GL2_MESSAGE_ID for details
-                message.addField(Message.FIELD_GL2_MESSAGE_ID, messageULIDGenerator.createULID(message));
+    private void writeToOutput(Messages messages, int expectedSize) {
+        final List<Message> outputMessages = new ArrayList<>(expectedSize);
+        for (Message message : messages) {
+            // a failing message must not keep the other messages from being written
+            try {
+                if (prepareForOutput(message)) {
+                    outputMessages.add(message);
+                }
+            } catch (Exception e) {
+                handleProcessingException(message, e);
             }
+        }
 
-            // The processing time should only be set once all message processors have finished
-            message.setProcessingTime(Tools.nowUTC());
-            processingStatusRecorder.updatePostProcessingReceiveTime(message.getReceiveTime());
+        if (outputMessages.size() == 1) {
+            outputBuffer.insertBlocking(outputMessages.get(0));
+        } else if (!outputMessages.isEmpty()) {
+            outputBuffer.insertBlocking(outputMessages);
+        }
+    }
 
-            if(failureSubmissionService.submitProcessingErrors(message)) {
-                outputBuffer.insertBlocking(message);
-            }
+    private boolean prepareForOutput(Message message) {
+        message.getStreams().forEach(s -> streamMetrics.markIncomingMeter(s.getId()));
+        message.ensureValidTimestamp();
+
+        // If a message is received via the Cluster-to-Cluster Forwarder, it already has this field set
+        if (!message.hasField(Message.FIELD_GL2_MESSAGE_ID) || isNullOrEmpty(message.getFieldAs(String.class, Message.FIELD_GL2_MESSAGE_ID))) {
+            // Set the message ID once all message processors have finished
+            // See documentation of Message.FIELD_GL2_MESSAGE_ID for details
+            message.addField(Message.FIELD_GL2_MESSAGE_ID, messageULIDGenerator.createULID(message));
         }
+
+        // The processing time should only be set once all message processors have finished
+        message.setProcessingTime(Tools.nowUTC());
+        processingStatusRecorder.updatePostProcessingReceiveTime(message.getReceiveTime());
+
+        return failureSubmissionService.submitProcessingErrors(message);
     }
 
     public interface Factory {
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.journal;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.CodecConfigTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link CodecConfigTable} which is persisted next to the message journal, so that journal entries referencing a
+ * codec configuration can still be decoded after a restart.
+ * <p>
+ * Every distinct configuration of an input gets a new version. Versions are never removed, because journal entries
+ * might still reference them.
+ */
+@Singleton
+public class LocalCodecConfigTable implements CodecConfigTable {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalCodecConfigTable.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Map<Long, String>>> TABLE_TYPE = new TypeReference<>() {};
+
+    public static final String FILE_NAME = "codec-configs.json";
+
+    private final Path file;
+    // input ID -> configuration version -> serialized configuration
+    private final Map<String, NavigableMap<Long, String>> table = new HashMap<>();
+    // Inputs pass the same configuration instance with every message, so the lookup is cached per instance
+    private final Cache<Configuration, Reference> references = CacheBuilder.newBuilder().weakKeys().build();
+    private final ConcurrentMap<Reference, Configuration> configurations = new ConcurrentHashMap<>();
+
+    @Inject
+    public LocalCodecConfigTable(@Named("message_journal_dir") Path journalDir) {
+        this.file = journalDir.resolve(FILE_NAME);
+        load();
+    }
+
+    @Override
+    public long version(String inputId, Configuration codecConfig) {
+        final Reference reference = references.getIfPresent(codecConfig);
+        if (reference != null && reference.inputId().equals(inputId)) {
+            return reference.version();
+        }
+        final long version = register(inputId, codecConfig.serializeToJson());
+        if (version >= 0) {
+            references.put(codecConfig, new Reference(inputId, version));
+        }
+        return version;
+    }
+
+    @Override
+    @Nullable
+    public Configuration get(String inputId, long version) {
+        final Reference reference = new Reference(inputId, version);
+        final Configuration configuration = configurations.get(reference);
+        if (configuration != null) {
+            return configuration;
+        }
+
+        final String json;
+        synchronized (this) {
+            final NavigableMap<Long, String> versions = table.get(inputId);
+            json = versions == null ? null : versions.get(version);
+        }
+        if (json == null) {
+            return null;
+        }
+        return configurations.computeIfAbsent(reference, r -> Configuration.deserializeFromJson(json));
+    }
+
+    private synchronized long register(String inputId, @Nullable String json) {
+        if (json == null) {
+            return -1;
+        }
+        final NavigableMap<Long, String> versions = table.computeIfAbsent(inputId, id -> new TreeMap<>());
+        final Map.Entry<Long, String> latest = versions.lastEntry();
+        if (latest != null && latest.getValue().equals(json)) {
+            return latest.getKey();
+        }
+
+        final long version = latest == null ? 0 : latest.getKey() + 1;
+        versions.put(version, json);
+        try {
+            persist();
+        } catch (IOException e) {
+            LOG.warn("Unable to store codec configuration of input <{}> in <{}>, embedding it in journal entries instead.", inputId, file, e);
+            versions.remove(version);
+            return -1;
+        }
+        return version;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            final Map<String, Map<Long, String>> stored = OBJECT_MAPPER.readValue(file.toFile(), TABLE_TYPE);
+            stored.forEach((inputId, versions) -> table.put(inputId, new TreeMap<>(versions)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read codec configurations of journal from " + file, e);
+        }
+    }
+
+    private void persist() throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path tmpFile = file.resolveSibling(FILE_NAME + ".tmp");
+        OBJECT_MAPPER.writeValue(tmpFile.toFile(), table);
+        Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private record Reference(String inputId, long version) {}
+}
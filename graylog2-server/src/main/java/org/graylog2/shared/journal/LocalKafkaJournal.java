@@ -22,6 +22,7 @@ import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.github.joschi.jadconfig.util.Size;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
@@ -40,12 +41,16 @@ import org.graylog.shaded.kafka09.log.LogConfig;
 import org.graylog.shaded.kafka09.log.LogManager;
 import org.graylog.shaded.kafka09.log.LogSegment;
 import org.graylog.shaded.kafka09.message.ByteBufferMessageSet;
+import org.graylog.shaded.kafka09.message.CompressionCodec;
+import org.graylog.shaded.kafka09.message.CompressionCodec$;
 import org.graylog.shaded.kafka09.message.Message;
 import org.graylog.shaded.kafka09.message.MessageAndOffset;
 import org.graylog.shaded.kafka09.message.MessageSet;
+import org.graylog.shaded.kafka09.message.NoCompressionCodec$;
 import org.graylog.shaded.kafka09.scala.Option;
 import org.graylog.shaded.kafka09.scala.collection.Iterator;
 import org.graylog.shaded.kafka09.scala.collection.JavaConversions;
+import org.graylog.shaded.kafka09.scala.collection.AbstractIterator;
 import org.graylog.shaded.kafka09.scala.collection.Map$;
 import org.graylog.shaded.kafka09.scala.runtime.AbstractFunction1;
 import org.graylog.shaded.kafka09.server.BrokerState;
@@ -53,6 +58,7 @@ import org.graylog.shaded.kafka09.server.RunningAsBroker;
 import org.graylog.shaded.kafka09.utils.KafkaScheduler;
 import org.graylog.shaded.kafka09.utils.Time;
 import org.graylog2.plugin.GlobalMetricNames;
+import org.graylog2.plugin.KafkaJournalConfiguration;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.ThrottleState;
 import org.graylog2.plugin.lifecycles.LoadBalancerStatus;
@@ -90,6 +96,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.concurrent.TimeUnit.DAYS;
@@ -106,19 +113,27 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     private static final String LEGACY_CLASS_NAME = "org.graylog2.shared.journal.KafkaJournal";
 
     private static final int NUM_IO_THREADS = 1;
+    private static final String TOPIC = "messagejournal";
 
     public static final long DEFAULT_COMMITTED_OFFSET = Long.MIN_VALUE;
     public static final int NOTIFY_ON_UTILIZATION_PERCENTAGE = 95;
     public static final int THRESHOLD_THROTTLING_DISABLED = -1;
 
+    // Compressed message sets have to be decompressed as a whole to read any message in them, and must not be larger
+    // than a single read from the log.
+    private static final long MAX_COMPRESSED_MESSAGE_SET_SIZE = Size.megabytes(1L).toBytes();
+
     // Metric names, which should be used twice (once in metric startup and once in metric teardown).
     public static final String METER_WRITTEN_MESSAGES = "writtenMessages";
     public static final String METER_READ_MESSAGES = "readMessages";
     private static final String METER_WRITE_DISCARDED_MESSAGES = "writeDiscardedMessages";
+    private static final String METER_WRITTEN_BYTES = "writtenBytes";
+    private static final String METER_WRITTEN_BYTES_UNCOMPRESSED = "writtenBytesUncompressed";
     public static final String GAUGE_UNCOMMITTED_MESSAGES = "uncommittedMessages";
     private static final String TIMER_WRITE_TIME = "writeTime";
     private static final String TIMER_READ_TIME = "readTime";
     private static final String METRIC_NAME_SIZE = "size";
+    private static final String METRIC_NAME_SIZE_UNCOMPRESSED = "sizeUncompressed";
     private static final String METRIC_NAME_LOG_END_OFFSET = "logEndOffset";
     private static final String METRIC_NAME_NUMBER_OF_SEGMENTS = "numberOfSegments";
     private static final String METRIC_NAME_UNFLUSHED_MESSAGES = "unflushedMessages";
@@ -145,9 +160,9 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     };
 
     private final LogManager logManager;
-    private final Log kafkaLog;
-    private final File committedReadOffsetFile;
-    private final AtomicLong committedOffset = new AtomicLong(DEFAULT_COMMITTED_OFFSET);
+    private final Partition[] partitions;
+    // partitions beyond this number are left over from a higher partition count, they are only read until drained
+    private final int writablePartitions;
     private final MetricRegistry metricRegistry;
     private final ScheduledExecutorService scheduler;
     private final ServerStatus serverStatus;
@@ -158,6 +173,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     private final Meter writtenMessages;
     private final Meter readMessages;
     private final Meter writeDiscardedMessages;
+    private final Meter writtenBytes;
+    private final Meter writtenBytesUncompressed;
 
     private final OffsetFileFlusher offsetFlusher;
     private final DirtyLogFlusher dirtyLogFlusher;
@@ -165,9 +182,11 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     private final LogRetentionCleaner logRetentionCleaner;
     private final long maxSegmentSize;
     private final int maxMessageSize;
+    private final CompressionCodec compressionCodec;
     private final String metricPrefix;
 
-    private long nextReadOffset = 0L;
+    private final AtomicInteger nextWritePartition = new AtomicInteger();
+    private final AtomicInteger nextReadPartition = new AtomicInteger();
     private ScheduledFuture<?> checkpointFlusherFuture;
     private ScheduledFuture<?> dirtyLogFlushFuture;
     private ScheduledFuture<?> logRetentionFuture;
@@ -188,16 +207,66 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                              @Named("message_journal_flush_interval") long flushInterval,
                              @Named("message_journal_flush_age") Duration flushAge,
                              @Named("lb_throttle_threshold_percentage") int throttleThresholdPercentage,
+                             @Named("message_journal_partitions") int partitions,
+                             @Named("message_journal_compression") String compression,
                              MetricRegistry metricRegistry,
                              ServerStatus serverStatus) {
 
         this(journalDirectory, scheduler, segmentSize, segmentAge, retentionSize, retentionAge, flushInterval, flushAge,
-             throttleThresholdPercentage, metricRegistry, serverStatus, LocalKafkaJournal.class.getName());
+             throttleThresholdPercentage, partitions, compression, metricRegistry, serverStatus, LocalKafkaJournal.class.getName());
+    }
+
+    /**
+     * Creates a journal with a single partition.
+     */
+    public LocalKafkaJournal(Path journalDirectory,
+                             ScheduledExecutorService scheduler,
+                             Size segmentSize,
+                             Duration segmentAge,
+                             Size retentionSize,
+                             Duration retentionAge,
+                             long flushInterval,
+                             Duration flushAge,
+                             int throttleThresholdPercentage,
+                             MetricRegistry metricRegistry,
+                             ServerStatus serverStatus) {
+
+        this(journalDirectory, scheduler, segmentSize, segmentAge, retentionSize, retentionAge, flushInterval, flushAge,
+             throttleThresholdPercentage, 1, KafkaJournalConfiguration.COMPRESSION_NONE, metricRegistry, serverStatus,
+             LocalKafkaJournal.class.getName());
+    }
+
+    /**
+     * Creates a journal with a single partition.
+     *
+     * @param throttleThresholdPercentage The journal utilization percent at which throttling will be triggered.
+     *                                    Expressed as an integer between 1 and 100. The value -1 disables throttling.
+     */
+    public LocalKafkaJournal(Path journalDirectory,
+                             ScheduledExecutorService scheduler,
+                             Size segmentSize,
+                             Duration segmentAge,
+                             Size retentionSize,
+                             Duration retentionAge,
+                             long flushInterval,
+                             Duration flushAge,
+                             int throttleThresholdPercentage,
+                             MetricRegistry metricRegistry,
+                             ServerStatus serverStatus,
+                             String metricPrefix) {
+
+        this(journalDirectory, scheduler, segmentSize, segmentAge, retentionSize, retentionAge, flushInterval, flushAge,
+             throttleThresholdPercentage, 1, KafkaJournalConfiguration.COMPRESSION_NONE, metricRegistry, serverStatus,
+             metricPrefix);
     }
 
     /**
      * @param throttleThresholdPercentage The journal utilization percent at which throttling will be triggered.
      *                                    Expressed as an integer between 1 and 100. The value -1 disables throttling.
+     * @param partitionCount              The number of independent logs the journal consists of. The retention size
+     *                                    is split evenly across them.
+     * @param compression                 The name of the codec message sets are compressed with before they are
+     *                                    written, {@code none} to store them uncompressed.
      */
     public LocalKafkaJournal(Path journalDirectory,
                              ScheduledExecutorService scheduler,
@@ -208,6 +277,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                              long flushInterval,
                              Duration flushAge,
                              int throttleThresholdPercentage,
+                             int partitionCount,
+                             String compression,
                              MetricRegistry metricRegistry,
                              ServerStatus serverStatus,
                              String metricPrefix) {
@@ -224,6 +295,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         this.maxSegmentSize = segmentSize.toBytes();
         // Max message size should not be bigger than max segment size.
         this.maxMessageSize = Ints.saturatedCast(maxSegmentSize);
+        this.compressionCodec = CompressionCodec$.MODULE$.getCompressionCodec(compression);
         this.metricPrefix = metricPrefix;
         this.metricRegistry = metricRegistry;
 
@@ -231,6 +303,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         this.writtenMessages = metricRegistry.meter(name(this.metricPrefix, METER_WRITTEN_MESSAGES));
         this.readMessages = metricRegistry.meter(name(this.metricPrefix, METER_READ_MESSAGES));
         this.writeDiscardedMessages = metricRegistry.meter(name(this.metricPrefix, METER_WRITE_DISCARDED_MESSAGES));
+        this.writtenBytes = metricRegistry.meter(name(this.metricPrefix, METER_WRITTEN_BYTES));
+        this.writtenBytesUncompressed = metricRegistry.meter(name(this.metricPrefix, METER_WRITTEN_BYTES_UNCOMPRESSED));
         registerUncommittedGauge(metricRegistry, name(this.metricPrefix, GAUGE_UNCOMMITTED_MESSAGES));
         this.writeTime = registerHdrTimer(metricRegistry, name(this.metricPrefix, TIMER_WRITE_TIME)); // the registerHdrTimer helper doesn't throw on existing metrics
         this.readTime = registerHdrTimer(metricRegistry, name(this.metricPrefix, TIMER_READ_TIME)); // the registerHdrTimer helper doesn't throw on existing metrics
@@ -246,8 +320,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                 .put(LogConfig.FlushMessagesProp(), flushInterval)
                 // flushMs: The amount of time the log can have dirty data before a flush is forced
                 .put(LogConfig.FlushMsProp(), flushAge.getMillis())
-                // retentionSize: The approximate total number of bytes this log can use
-                .put(LogConfig.RetentionBytesProp(), retentionSize.toBytes())
+                // retentionSize: The approximate total number of bytes this log can use, every partition gets its share
+                .put(LogConfig.RetentionBytesProp(), retentionSize.toBytes() / partitionCount)
                 // retentionMs: The age approximate maximum age of the last segment that is retained
                 .put(LogConfig.RetentionMsProp(), retentionAge.getMillis())
                 // maxMessageSize: The maximum size of a message in the log (ensure that it's not larger than the max segment size)
@@ -297,22 +371,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         }
 
         // TODO add check for directory, etc
-        committedReadOffsetFile = new File(journalDirectory.toFile(), "graylog2-committed-read-offset");
-        try {
-            if (!committedReadOffsetFile.createNewFile()) {
-                final String line = Files.asCharSource(committedReadOffsetFile, StandardCharsets.UTF_8).readFirstLine();
-                // the file contains the last offset graylog2 has successfully processed.
-                // thus the nextReadOffset is one beyond that number
-                if (line != null) {
-                    committedOffset.set(Long.parseLong(line.trim()));
-                    nextReadOffset = committedOffset.get() + 1;
-                }
-            }
-        } catch (IOException e) {
-            LOG.error("Cannot access offset file: {}", e.getMessage());
-            final AccessDeniedException accessDeniedException = new AccessDeniedException(committedReadOffsetFile.getAbsolutePath(), null, e.getMessage());
-            throw new RuntimeException(accessDeniedException);
-        }
+        this.writablePartitions = partitionCount;
         try {
             final BrokerState brokerState = new BrokerState();
             brokerState.newState(RunningAsBroker.state());
@@ -331,21 +390,58 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                     brokerState,
                     JODA_TIME);
 
-            final TopicAndPartition topicAndPartition = new TopicAndPartition("messagejournal", 0);
-            final Option<Log> messageLog = logManager.getLog(topicAndPartition);
-            if (messageLog.isEmpty()) {
-                kafkaLog = logManager.createLog(topicAndPartition, logManager.defaultConfig());
-            } else {
-                kafkaLog = messageLog.get();
+            final List<Partition> openedPartitions = new ArrayList<>();
+            for (int i = 0; i < Math.max(partitionCount, partitionsOnDisk()); i++) {
+                final TopicAndPartition topicAndPartition = new TopicAndPartition(TOPIC, i);
+                final Option<Log> messageLog = logManager.getLog(topicAndPartition);
+                final Log kafkaLog;
+                if (messageLog.isEmpty()) {
+                    kafkaLog = logManager.createLog(topicAndPartition, logManager.defaultConfig());
+                } else {
+                    kafkaLog = messageLog.get();
+                }
+                // the first partition uses the file name of the journal before it could be partitioned
+                final File committedReadOffsetFile = new File(journalDirectory.toFile(),
+                        i == 0 ? "graylog2-committed-read-offset" : "graylog2-committed-read-offset-" + i);
+                final File writtenBytesFile = new File(journalDirectory.toFile(),
+                        i == 0 ? "graylog2-written-bytes" : "graylog2-written-bytes-" + i);
+                final Partition partition = new Partition(i, kafkaLog, committedReadOffsetFile, readCommittedOffset(committedReadOffsetFile), writtenBytesFile);
+                // an empty log starts over, so the compression ratio only reflects messages which are still around
+                if (kafkaLog.size() > 0) {
+                    partition.readWrittenBytes();
+                }
+                openedPartitions.add(partition);
+            }
+            // Partitions left over from a higher partition count are removed once all of their messages have been
+            // processed. Until then they are read, cleaned and counted like the others, but not written to anymore.
+            while (openedPartitions.size() > partitionCount && Iterables.getLast(openedPartitions).uncommitted() == 0) {
+                final Partition drained = openedPartitions.remove(openedPartitions.size() - 1);
+                LOG.info("Removing drained partition {} of the journal at {}", drained.id, journalDirectory);
+                logManager.deleteLog(new TopicAndPartition(TOPIC, drained.id));
+                java.nio.file.Files.deleteIfExists(drained.committedReadOffsetFile.toPath());
+                java.nio.file.Files.deleteIfExists(drained.writtenBytesFile.toPath());
             }
+            if (openedPartitions.size() > partitionCount) {
+                LOG.warn("The journal at {} contains {} partitions, but only {} are configured. The other partitions " +
+                        "are read until all of their messages have been processed and removed on the next start.",
+                        journalDirectory, openedPartitions.size(), partitionCount);
+            }
+            partitions = openedPartitions.toArray(new Partition[0]);
 
             // Set up more metrics
-            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_SIZE), (Gauge<Long>) kafkaLog::size);
-            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_LOG_END_OFFSET), (Gauge<Long>) kafkaLog::logEndOffset);
-            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_NUMBER_OF_SEGMENTS), (Gauge<Integer>) kafkaLog::numberOfSegments);
-            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_UNFLUSHED_MESSAGES), (Gauge<Long>) kafkaLog::unflushedMessages);
-            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_RECOVERY_POINT), (Gauge<Long>) kafkaLog::recoveryPoint);
-            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_LAST_FLUSH_TIME), (Gauge<Long>) kafkaLog::lastFlushTime);
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_SIZE), (Gauge<Long>) this::size);
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_SIZE_UNCOMPRESSED), (Gauge<Long>) this::uncompressedSize);
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_LOG_END_OFFSET), (Gauge<Long>) this::getLogEndOffset);
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_NUMBER_OF_SEGMENTS), (Gauge<Integer>) this::numberOfSegments);
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_UNFLUSHED_MESSAGES), (Gauge<Long>) () -> sum(partition -> partition.log.unflushedMessages()));
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_RECOVERY_POINT), (Gauge<Long>) () -> sum(partition -> partition.log.recoveryPoint()));
+            this.metricRegistry.register(name(metricPrefix, METRIC_NAME_LAST_FLUSH_TIME), (Gauge<Long>) () -> {
+                long lastFlushTime = Long.MAX_VALUE;
+                for (final Partition partition : partitions) {
+                    lastFlushTime = Math.min(lastFlushTime, partition.log.lastFlushTime());
+                }
+                return lastFlushTime;
+            });
 
             // must not be a lambda, because the serialization cannot determine the proper Metric type :(
             this.metricRegistry.register(getOldestSegmentMetricName(), (Gauge<Date>) new Gauge<Date>() {
@@ -370,6 +466,9 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             // most likely failed to grab lock
             LOG.error("Unable to start logmanager.", e);
             throw new RuntimeException(e);
+        } catch (IOException e) {
+            LOG.error("Unable to remove drained partitions of the journal at {}", journalDirectory, e);
+            throw new UncheckedIOException(e);
         }
 
         if (LocalKafkaJournal.class.getName().equals(metricPrefix)) {
@@ -427,15 +526,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     private void registerUncommittedGauge(MetricRegistry metricRegistry, String name) {
         try {
             metricRegistry.register(name,
-                    (Gauge<Long>) () -> {
-                        if (size() == 0) {
-                            return 0L;
-                        }
-                        if (committedOffset.get() == DEFAULT_COMMITTED_OFFSET) {
-                            return getLogEndOffset() - getLogStartOffset();
-                        }
-                        return Math.max(0, getLogEndOffset() - 1 - committedOffset.get());
-                    });
+                    (Gauge<Long>) () -> sum(Partition::uncommitted));
         } catch (IllegalArgumentException ignored) {
             // already registered, we'll ignore that.
         }
@@ -455,10 +546,13 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         this.metricRegistry.remove(name(metricPrefix, METER_WRITTEN_MESSAGES));
         this.metricRegistry.remove(name(metricPrefix, METER_READ_MESSAGES));
         this.metricRegistry.remove(name(metricPrefix, METER_WRITE_DISCARDED_MESSAGES));
+        this.metricRegistry.remove(name(metricPrefix, METER_WRITTEN_BYTES));
+        this.metricRegistry.remove(name(metricPrefix, METER_WRITTEN_BYTES_UNCOMPRESSED));
         this.metricRegistry.remove(name(metricPrefix, GAUGE_UNCOMMITTED_MESSAGES));
         this.metricRegistry.remove(name(metricPrefix, TIMER_WRITE_TIME));
         this.metricRegistry.remove(name(metricPrefix, TIMER_READ_TIME));
         this.metricRegistry.remove(name(metricPrefix, METRIC_NAME_SIZE));
+        this.metricRegistry.remove(name(metricPrefix, METRIC_NAME_SIZE_UNCOMPRESSED));
         this.metricRegistry.remove(name(metricPrefix, METRIC_NAME_LOG_END_OFFSET));
         this.metricRegistry.remove(name(metricPrefix, METRIC_NAME_NUMBER_OF_SEGMENTS));
         this.metricRegistry.remove(name(metricPrefix, METRIC_NAME_UNFLUSHED_MESSAGES));
@@ -498,13 +592,28 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
     }
 
     /**
-     * Writes the list of entries to the journal.
+     * Writes the list of entries to the journal. With more than one partition, the partitions are used in turn.
      *
      * @param entries journal entries to be written
      * @return the last position written to in the journal
      */
     @Override
     public long write(List<Entry> entries) {
+        return write(Math.floorMod(nextWritePartition.getAndIncrement(), writablePartitions), entries);
+    }
+
+    /**
+     * Writes the list of entries to the given partition of the journal. Entries written to the same partition are
+     * read in the order they have been written.
+     *
+     * @param partition the partition to write to, between 0 and {@link #getWritablePartitions()} - 1
+     * @param entries   journal entries to be written
+     * @return the last position written to in the journal
+     */
+    public long write(int partition, List<Entry> entries) {
+        final Partition journalPartition = partitions[partition];
+        final long maxMessageSetSize = compressionCodec == NoCompressionCodec$.MODULE$ ? maxSegmentSize
+                : Math.min(maxSegmentSize, MAX_COMPRESSED_MESSAGE_SET_SIZE);
         try (Timer.Context ignored = writeTime.time()) {
             long payloadSize = 0L;
             long messageSetSize = 0L;
@@ -531,12 +640,12 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
 
                 // If adding the new message to the message set would overflow the max segment size, flush the current
                 // list of message to avoid a MessageSetSizeTooLargeException.
-                if ((messageSetSize + newMessageSize) > maxSegmentSize) {
+                if ((messageSetSize + newMessageSize) > maxMessageSetSize) {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Flushing {} bytes message set with {} messages to avoid overflowing segment with max size of {} bytes",
-                                messageSetSize, messages.size(), maxSegmentSize);
+                                messageSetSize, messages.size(), maxMessageSetSize);
                     }
-                    lastWriteOffset = flushMessages(messages, payloadSize);
+                    lastWriteOffset = flushMessages(journalPartition, messages, messageSetSize, payloadSize);
                     // Reset the messages list and size counters to start a new batch.
                     messages.clear();
                     messageSetSize = 0;
@@ -552,35 +661,57 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
 
             // Flush the rest of the messages.
             if (messages.size() > 0) {
-                lastWriteOffset = flushMessages(messages, payloadSize);
+                lastWriteOffset = flushMessages(journalPartition, messages, messageSetSize, payloadSize);
             }
 
             return lastWriteOffset;
         }
     }
 
-    private long flushMessages(List<Message> messages, long payloadSize) {
+    private long flushMessages(Partition partition, List<Message> messages, long messageSetSize, long payloadSize) {
         if (messages.isEmpty()) {
             LOG.debug("No messages to flush, not trying to write an empty message set.");
             return -1L;
         }
 
-        final ByteBufferMessageSet messageSet = new ByteBufferMessageSet(JavaConversions.asScalaBuffer(messages).toSeq());
-
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Trying to write ByteBufferMessageSet with size of {} bytes to journal", messageSet.sizeInBytes());
+        final ByteBufferMessageSet messageSet;
+        final LogAppendInfo appendInfo;
+        if (compressionCodec == NoCompressionCodec$.MODULE$) {
+            messageSet = new ByteBufferMessageSet(JavaConversions.asScalaBuffer(messages).toSeq());
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Trying to write ByteBufferMessageSet with size of {} bytes to journal", messageSet.sizeInBytes());
+            }
+            appendInfo = partition.log.append(messageSet, true);
+        } else {
+            // A single message larger than a compressed message set is written uncompressed, so it can't grow
+            // beyond the maximum message size.
+            final CompressionCodec codec = messageSetSize > MAX_COMPRESSED_MESSAGE_SET_SIZE ? NoCompressionCodec$.MODULE$ : compressionCodec;
+            // The log would decompress and compress the message set again to assign the offsets of the messages, so
+            // they are assigned here while no other message set can be appended to the partition.
+            synchronized (partition) {
+                messageSet = new ByteBufferMessageSet(codec,
+                        new AtomicLong(partition.log.logEndOffset()),
+                        JavaConversions.asScalaBuffer(messages).toSeq());
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Trying to write {} compressed ByteBufferMessageSet with size of {} bytes ({} bytes uncompressed) to journal",
+                            codec.name(), messageSet.sizeInBytes(), messageSetSize);
+                }
+                appendInfo = partition.log.append(messageSet, false);
+            }
         }
-
-        final LogAppendInfo appendInfo = kafkaLog.append(messageSet, true);
         long lastWriteOffset = appendInfo.lastOffset();
+        writtenBytes.mark(messageSet.sizeInBytes());
+        writtenBytesUncompressed.mark(messageSetSize);
+        partition.writtenBytes.addAndGet(messageSet.sizeInBytes());
+        partition.writtenBytesUncompressed.addAndGet(messageSetSize);
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("Wrote {} messages to journal: {} bytes (payload {} bytes), log position {} to {}",
-                    messages.size(), messageSet.sizeInBytes(), payloadSize, appendInfo.firstOffset(), lastWriteOffset);
+            LOG.debug("Wrote {} messages to journal partition {}: {} bytes (payload {} bytes), log position {} to {}",
+                    messages.size(), partition.id, messageSet.sizeInBytes(), payloadSize, appendInfo.firstOffset(), lastWriteOffset);
         }
         writtenMessages.mark(messages.size());
 
-        return lastWriteOffset;
+        return journalOffset(partition, lastWriteOffset);
     }
 
     /**
@@ -596,9 +727,33 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         return write(Collections.singletonList(journalEntry));
     }
 
+    /**
+     * Reads the next messages from the journal. With more than one partition, the partitions are read in turn and the
+     * entries of the first partition that has any are returned.
+     */
     @Override
     public List<JournalReadEntry> read(long requestedMaximumCount) {
-        return readNext(nextReadOffset, requestedMaximumCount);
+        final int first = Math.floorMod(nextReadPartition.getAndIncrement(), partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            final List<JournalReadEntry> entries = readPartition((first + i) % partitions.length, requestedMaximumCount);
+            if (!entries.isEmpty() || partitions.length == 1) {
+                return entries;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Reads the next messages from the given partition of the journal. Every partition should only be read by a
+     * single thread at a time.
+     *
+     * @param partition             the partition to read from, between 0 and {@link #getPartitions()} - 1
+     * @param requestedMaximumCount Maximum number of entries to return.
+     * @return A list of entries
+     */
+    public List<JournalReadEntry> readPartition(int partition, long requestedMaximumCount) {
+        final Partition journalPartition = partitions[partition];
+        return readNext(journalPartition, journalPartition.nextReadOffset, requestedMaximumCount);
     }
 
     /**
@@ -611,12 +766,16 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return A list of entries
      */
     public List<JournalReadEntry> readNext(long startOffset, long requestedMaximumCount) {
+        return readNext(partition(startOffset), partitionOffset(startOffset), requestedMaximumCount);
+    }
+
+    private List<JournalReadEntry> readNext(Partition partition, long startOffset, long requestedMaximumCount) {
         // Capture the log end offset early for the failure handling below. The end offset will change during the
         // runtime of the retry loop because new messages are written to the journal. If we would use the changing
         // end offset in the error handling while loop, we would skip valid messages.
-        final long logEndOffset = getLogEndOffset();
+        final long logEndOffset = partition.log.logEndOffset();
 
-        List<JournalReadEntry> messages = read(startOffset, requestedMaximumCount);
+        List<JournalReadEntry> messages = read(partition, startOffset, requestedMaximumCount);
 
         if (messages.isEmpty()) {
             // If we got an empty result BUT we know that there are more messages in the log, we bump the readOffset
@@ -633,7 +792,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                         failedReadOffset, retryReadOffset);
 
                 // Retry the read with an increased offset to skip corrupt segments
-                messages = read(retryReadOffset, requestedMaximumCount);
+                messages = read(partition, retryReadOffset, requestedMaximumCount);
 
                 // Bump offsets in case we still read an empty result
                 failedReadOffset++;
@@ -653,6 +812,10 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return A list of entries
      */
     public List<JournalReadEntry> read(long readOffset, long requestedMaximumCount) {
+        return read(partition(readOffset), partitionOffset(readOffset), requestedMaximumCount);
+    }
+
+    private List<JournalReadEntry> read(Partition partition, long readOffset, long requestedMaximumCount) {
         // Always read at least one!
         final long maximumCount = Math.max(1, requestedMaximumCount);
         long maxOffset = readOffset + maximumCount;
@@ -662,7 +825,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         }
         final List<JournalReadEntry> messages = new ArrayList<>(Ints.saturatedCast(maximumCount));
         try (Timer.Context ignored = readTime.time()) {
-            final long logStartOffset = getLogStartOffset();
+            final long logStartOffset = partition.logStartOffset();
 
             if (readOffset < logStartOffset) {
                 LOG.info(
@@ -676,16 +839,25 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                     maximumCount, readOffset, maxOffset);
 
             // TODO benchmark and make read-ahead strategy configurable for performance tuning
-            final MessageSet messageSet = kafkaLog.read(readOffset,
+            // A compressed message set is stored under the offset of its last message, so the read can't be limited
+            // by the maximum offset. The messages are only read from disk while iterating, and we stop at maxOffset.
+            final MessageSet messageSet = partition.log.read(readOffset,
                     5 * 1024 * 1024,
-                    Option.<Object>apply(maxOffset)).messageSet();
+                    Option.empty()).messageSet();
 
-            final Iterator<MessageAndOffset> iterator = messageSet.iterator();
+            final Iterator<MessageAndOffset> iterator = new DecompressingIterator(messageSet.iterator());
             long firstOffset = Long.MIN_VALUE;
             long lastOffset = Long.MIN_VALUE;
             long totalBytes = 0;
             while (iterator.hasNext()) {
                 final MessageAndOffset messageAndOffset = iterator.next();
+                // a compressed message set can start before the read offset or end after the maximum offset
+                if (messageAndOffset.offset() < readOffset) {
+                    continue;
+                }
+                if (messageAndOffset.offset() >= maxOffset) {
+                    break;
+                }
 
                 if (firstOffset == Long.MIN_VALUE) {
                     firstOffset = messageAndOffset.offset();
@@ -699,9 +871,9 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                     LOG.trace("Read message {} contains {}", bytesToHex(keyBytes), bytesToHex(payloadBytes));
                 }
                 totalBytes += payloadBytes.length;
-                messages.add(new JournalReadEntry(payloadBytes, messageAndOffset.offset()));
+                messages.add(new JournalReadEntry(payloadBytes, journalOffset(partition, messageAndOffset.offset())));
                 // remember where to read from
-                nextReadOffset = messageAndOffset.nextOffset();
+                partition.nextReadOffset = messageAndOffset.nextOffset();
             }
             if (messages.isEmpty()) {
                 LOG.debug("No messages available to read for offset interval [{}, {}).", readOffset, maxOffset);
@@ -745,6 +917,8 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      */
     @Override
     public void markJournalOffsetCommitted(long offset) {
+        final AtomicLong committedOffset = partition(offset).committedOffset;
+        offset = partitionOffset(offset);
         long prev;
         // the caller will not care about offsets going backwards, so we need to make sure we don't backtrack
         int i = 0;
@@ -786,12 +960,61 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         }
     }
 
+    /**
+     * With more than one partition this is not an offset of any message, but the number of committed messages in
+     * all partitions minus one. It is only meant to be compared against the other aggregated offsets like
+     * {@link #getLogEndOffset()}.
+     */
     public long getCommittedOffset() {
-        return committedOffset.get();
+        long committed = 0;
+        boolean anyCommitted = false;
+        for (final Partition partition : partitions) {
+            final long committedOffset = partition.committedOffset.get();
+            if (committedOffset == DEFAULT_COMMITTED_OFFSET) {
+                committed += partition.logStartOffset();
+            } else {
+                committed += committedOffset + 1;
+                anyCommitted = true;
+            }
+        }
+        return anyCommitted ? committed - 1 : DEFAULT_COMMITTED_OFFSET;
     }
 
     public long getNextReadOffset() {
-        return nextReadOffset;
+        return sum(partition -> partition.nextReadOffset);
+    }
+
+    /**
+     * @return the number of independent partitions the journal consists of, including partitions left over from a
+     * higher partition count which are only read until they have been drained
+     */
+    public int getPartitions() {
+        return partitions.length;
+    }
+
+    /**
+     * @return the number of partitions messages are written to, as configured
+     */
+    public int getWritablePartitions() {
+        return writablePartitions;
+    }
+
+    private int partitionsOnDisk() {
+        int partitionsOnDisk = 0;
+        for (final TopicAndPartition topicAndPartition : JavaConversions.setAsJavaSet(logManager.logsByTopicPartition().keySet())) {
+            if (TOPIC.equals(topicAndPartition.topic())) {
+                partitionsOnDisk = Math.max(partitionsOnDisk, topicAndPartition.partition() + 1);
+            }
+        }
+        return partitionsOnDisk;
+    }
+
+    /**
+     * @param offset an offset as returned by {@link #write(List)} or in a {@link JournalReadEntry}
+     * @return the partition the message at the given offset is stored in
+     */
+    public int partitionOf(long offset) {
+        return partition(offset).id;
     }
 
     @Override
@@ -854,7 +1077,11 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
 
     // default visibility for tests
     public Iterable<LogSegment> getSegments() {
-        return JavaConversions.asJavaIterable(kafkaLog.logSegments());
+        final List<Iterable<LogSegment>> segments = new ArrayList<>(partitions.length);
+        for (final Partition partition : partitions) {
+            segments.add(JavaConversions.asJavaIterable(partition.log.logSegments()));
+        }
+        return Iterables.concat(segments);
     }
 
     /**
@@ -863,7 +1090,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return journal size in bytes
      */
     public long size() {
-        return kafkaLog.size();
+        return sum(partition -> partition.log.size());
     }
 
     /**
@@ -872,7 +1099,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return number of segments
      */
     public int numberOfSegments() {
-        return kafkaLog.numberOfSegments();
+        return Ints.saturatedCast(sum(partition -> partition.log.numberOfSegments()));
     }
 
     /**
@@ -886,7 +1113,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return the offset of the last message which has been successfully processed.
      */
     public long getCommittedReadOffset() {
-        return committedOffset.get();
+        return getCommittedOffset();
     }
 
     /**
@@ -895,7 +1122,10 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @param offset offset to truncate to, so that no offset in the journal is larger than this.
      */
     public void truncateTo(long offset) {
-        kafkaLog.truncateTo(offset);
+        for (final Partition partition : partitions) {
+            // the first offset of the partition which maps to a journal offset of at least the given one
+            partition.log.truncateTo(Math.floorDiv(offset - partition.id + partitions.length - 1, partitions.length));
+        }
     }
 
     /**
@@ -904,12 +1134,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return first offset
      */
     public long getLogStartOffset() {
-        final Iterable<LogSegment> logSegments = JavaConversions.asJavaIterable(kafkaLog.logSegments());
-        final LogSegment segment = Iterables.getFirst(logSegments, null);
-        if (segment == null) {
-            return 0;
-        }
-        return segment.baseOffset();
+        return sum(Partition::logStartOffset);
     }
 
     /**
@@ -918,7 +1143,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
      * @return the next offset value (last valid offset is this number - 1)
      */
     public long getLogEndOffset() {
-        return kafkaLog.logEndOffset();
+        return sum(partition -> partition.log.logEndOffset());
     }
 
     /**
@@ -934,25 +1159,202 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         throttleState.set(state);
     }
 
+    private long sum(ToLongFunction<Partition> function) {
+        long sum = 0;
+        for (final Partition partition : partitions) {
+            sum += function.applyAsLong(partition);
+        }
+        return sum;
+    }
+
+    // Offsets handed out by the journal interleave the offsets of the partitions, so a single partition behaves
+    // exactly like the journal did before it could be partitioned.
+    private long journalOffset(Partition partition, long partitionOffset) {
+        return partitionOffset * partitions.length + partition.id;
+    }
+
+    private Partition partition(long journalOffset) {
+        return partitions[(int) Math.floorMod(journalOffset, (long) partitions.length)];
+    }
+
+    private long partitionOffset(long journalOffset) {
+        return Math.floorDiv(journalOffset, partitions.length);
+    }
+
+    private static long readCommittedOffset(File committedReadOffsetFile) {
+        try {
+            if (!committedReadOffsetFile.createNewFile()) {
+                final String line = Files.asCharSource(committedReadOffsetFile, StandardCharsets.UTF_8).readFirstLine();
+                if (line != null) {
+                    return Long.parseLong(line.trim());
+                }
+            }
+            return DEFAULT_COMMITTED_OFFSET;
+        } catch (IOException e) {
+            LOG.error("Cannot access offset file: {}", e.getMessage());
+            final AccessDeniedException accessDeniedException = new AccessDeniedException(committedReadOffsetFile.getAbsolutePath(), null, e.getMessage());
+            throw new RuntimeException(accessDeniedException);
+        }
+    }
+
+    /**
+     * Returns the estimated size of the journal if its messages were not compressed. Without compression this is
+     * the same as {@link #size()}.
+     * <p>
+     * The size of every partition is scaled by the compression ratio of all messages written to the partition since
+     * it was last empty. The written bytes are stored in the journal directory, so the estimate survives restarts.
+     *
+     * @return estimated uncompressed journal size in bytes
+     */
+    public long uncompressedSize() {
+        return sum(Partition::uncompressedSize);
+    }
+
+    /**
+     * Iterates over the messages of a message set, replacing every compressed message with the messages it contains.
+     */
+    private static class DecompressingIterator extends AbstractIterator<MessageAndOffset> {
+        private final Iterator<MessageAndOffset> messages;
+        private Iterator<MessageAndOffset> decompressed = null;
+
+        DecompressingIterator(Iterator<MessageAndOffset> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (decompressed != null && decompressed.hasNext()) || messages.hasNext();
+        }
+
+        @Override
+        public MessageAndOffset next() {
+            if (decompressed != null && decompressed.hasNext()) {
+                return decompressed.next();
+            }
+            final MessageAndOffset messageAndOffset = messages.next();
+            if (messageAndOffset.message().compressionCodec() == NoCompressionCodec$.MODULE$) {
+                return messageAndOffset;
+            }
+            decompressed = ByteBufferMessageSet.deepIterator(messageAndOffset.message());
+            return next();
+        }
+    }
+
+    /**
+     * One of the logs the journal consists of, together with its read and commit state.
+     */
+    private static class Partition {
+        private final int id;
+        private final Log log;
+        private final File committedReadOffsetFile;
+        private final AtomicLong committedOffset;
+        private final File writtenBytesFile;
+        // the physical and the uncompressed bytes written to the log since it was last empty
+        private final AtomicLong writtenBytes = new AtomicLong();
+        private final AtomicLong writtenBytesUncompressed = new AtomicLong();
+        private long flushedWrittenBytes = 0L;
+        private long nextReadOffset = 0L;
+
+        Partition(int id, Log log, File committedReadOffsetFile, long committedOffset, File writtenBytesFile) {
+            this.id = id;
+            this.log = log;
+            this.committedReadOffsetFile = committedReadOffsetFile;
+            this.writtenBytesFile = writtenBytesFile;
+            this.committedOffset = new AtomicLong(committedOffset);
+            // the file contains the last offset graylog2 has successfully processed.
+            // thus the nextReadOffset is one beyond that number
+            if (committedOffset != DEFAULT_COMMITTED_OFFSET) {
+                this.nextReadOffset = committedOffset + 1;
+            }
+        }
+
+        long logStartOffset() {
+            final Iterable<LogSegment> logSegments = JavaConversions.asJavaIterable(log.logSegments());
+            final LogSegment segment = Iterables.getFirst(logSegments, null);
+            if (segment == null) {
+                return 0;
+            }
+            return segment.baseOffset();
+        }
+
+        long uncompressedSize() {
+            final long size = log.size();
+            final long written = writtenBytes.get();
+            if (written == 0) {
+                return size;
+            }
+            return (long) (size * ((double) writtenBytesUncompressed.get() / written));
+        }
+
+        void readWrittenBytes() {
+            try {
+                if (!writtenBytesFile.exists()) {
+                    return;
+                }
+                final String line = Files.asCharSource(writtenBytesFile, StandardCharsets.UTF_8).readFirstLine();
+                if (line == null) {
+                    return;
+                }
+                final List<String> values = Splitter.on(' ').trimResults().omitEmptyStrings().splitToList(line);
+                writtenBytes.set(Long.parseLong(values.get(0)));
+                writtenBytesUncompressed.set(Long.parseLong(values.get(1)));
+                flushedWrittenBytes = writtenBytes.get();
+            } catch (IOException | RuntimeException e) {
+                // only used for the estimated uncompressed size, so the journal still works without it
+                LOG.warn("Cannot read written bytes of journal partition {} from {}: {}", id, writtenBytesFile, e.getMessage());
+            }
+        }
+
+        long uncommitted() {
+            if (log.size() == 0) {
+                return 0L;
+            }
+            if (committedOffset.get() == DEFAULT_COMMITTED_OFFSET) {
+                return log.logEndOffset() - logStartOffset();
+            }
+            return Math.max(0, log.logEndOffset() - 1 - committedOffset.get());
+        }
+    }
+
 
     public class OffsetFileFlusher implements Runnable {
         @Override
         public void run() {
+            for (final Partition partition : partitions) {
+                flush(partition.committedReadOffsetFile, partition.committedOffset.get());
+                flushWrittenBytes(partition);
+            }
+        }
+
+        private void flushWrittenBytes(Partition partition) {
+            final long written = partition.writtenBytes.get();
+            if (written == partition.flushedWrittenBytes) {
+                return;
+            }
+            write(partition.writtenBytesFile, written + " " + partition.writtenBytesUncompressed.get());
+            partition.flushedWrittenBytes = written;
+        }
+
+        private void flush(File committedReadOffsetFile, long committedOffset) {
             // Do not write the file if committedOffset has never been updated.
-            if (committedOffset.get() == DEFAULT_COMMITTED_OFFSET) {
+            if (committedOffset == DEFAULT_COMMITTED_OFFSET) {
                 return;
             }
-            try (final FileOutputStream fos = new FileOutputStream(committedReadOffsetFile)) {
-                fos.write(String.valueOf(committedOffset.get()).getBytes(StandardCharsets.UTF_8));
+            write(committedReadOffsetFile, String.valueOf(committedOffset));
+        }
+
+        private void write(File file, String content) {
+            try (final FileOutputStream fos = new FileOutputStream(file)) {
+                fos.write(content.getBytes(StandardCharsets.UTF_8));
                 // flush stream
                 fos.flush();
                 // actually sync to disk
                 fos.getFD().sync();
             } catch (SyncFailedException e) {
-                LOG.error("Cannot sync " + committedReadOffsetFile.getAbsolutePath() + " to disk. Continuing anyway," +
+                LOG.error("Cannot sync " + file.getAbsolutePath() + " to disk. Continuing anyway," +
                         " but there is no guarantee that the file has been written.", e);
             } catch (IOException e) {
-                LOG.error("Cannot write " + committedReadOffsetFile.getAbsolutePath() + " to disk.", e);
+                LOG.error("Cannot write " + file.getAbsolutePath() + " to disk.", e);
             }
         }
     }
@@ -978,15 +1380,19 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             loggerForCleaner.debug("Beginning log cleanup");
             int total = 0;
             final Timer.Context ctx = new Timer().time();
-            for (final Log kafkaLog : JavaConversions.asJavaIterable(logManager.allLogs())) {
-                if (kafkaLog.config().compact()) {
-                    continue;
-                }
-                loggerForCleaner.debug("Garbage collecting {}", kafkaLog.name());
-                total += cleanupExpiredSegments(kafkaLog) +
-                        cleanupSegmentsToMaintainSize(kafkaLog) +
-                        cleanupSegmentsToRemoveCommitted(kafkaLog);
+            for (final Partition partition : partitions) {
+                loggerForCleaner.debug("Garbage collecting {}", partition.log.name());
+                total += cleanupExpiredSegments(partition.log);
+            }
+            // the utilization is checked for the whole journal, every partition only gets its share of the retention size
+            checkUtilization();
+            int purgedSegments = 0;
+            for (final Partition partition : partitions) {
+                final int deletedSegments = cleanupSegmentsToMaintainSize(partition.log);
+                purgedSegments += deletedSegments;
+                total += deletedSegments + cleanupSegmentsToRemoveCommitted(partition);
             }
+            LocalKafkaJournal.this.purgedSegmentsInLastRetention.set(purgedSegments);
 
             loggerForCleaner.debug("Log cleanup completed. {} files deleted in {} seconds",
                     total,
@@ -997,7 +1403,6 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         private int cleanupExpiredSegments(final Log kafkaLog) {
             // don't run if nothing will be done
             if (kafkaLog.size() == 0 && kafkaLog.numberOfSegments() < 1) {
-                LocalKafkaJournal.this.purgedSegmentsInLastRetention.set(0);
                 return 0;
             }
             int deletedSegments = kafkaLog.deleteOldSegments(new AbstractFunction1<>() {
@@ -1014,7 +1419,6 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                     return shouldDelete;
                 }
             });
-            LocalKafkaJournal.this.purgedSegmentsInLastRetention.set(deletedSegments);
             return deletedSegments;
         }
 
@@ -1041,9 +1445,10 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             }
         }
 
-        private int cleanupSegmentsToMaintainSize(Log kafkaLog) {
-            final long retentionSize = kafkaLog.config().retentionSize();
-            final long currentSize = kafkaLog.size();
+        private void checkUtilization() {
+            // partitions which are being drained don't add to the configured retention size
+            final long retentionSize = partitions[0].log.config().retentionSize() * writablePartitions;
+            final long currentSize = size();
             final double utilizationPercentage = retentionSize > 0 ? (currentSize * 100) / retentionSize : 0.0;
             if (utilizationPercentage > LocalKafkaJournal.NOTIFY_ON_UTILIZATION_PERCENTAGE) {
                 LOG.warn("Journal utilization ({}%) has gone over {}%.", utilizationPercentage,
@@ -1054,9 +1459,12 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             if (throttleThresholdPercentage != THRESHOLD_THROTTLING_DISABLED) {
                 updateLoadBalancerStatus(utilizationPercentage);
             }
+        }
 
+        private int cleanupSegmentsToMaintainSize(Log kafkaLog) {
+            final long retentionSize = kafkaLog.config().retentionSize();
+            final long currentSize = kafkaLog.size();
             if (retentionSize < 0 || currentSize < retentionSize) {
-                LocalKafkaJournal.this.purgedSegmentsInLastRetention.set(0);
                 return 0;
             }
             final long[] diff = {currentSize - retentionSize};
@@ -1077,11 +1485,11 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
                     }
                 }
             });
-            LocalKafkaJournal.this.purgedSegmentsInLastRetention.set(deletedSegments);
             return deletedSegments;
         }
 
-        private int cleanupSegmentsToRemoveCommitted(Log kafkaLog) {
+        private int cleanupSegmentsToRemoveCommitted(Partition partition) {
+            final Log kafkaLog = partition.log;
             if (kafkaLog.numberOfSegments() <= 1) {
                 loggerForCleaner.debug(
                         "[cleanup-committed] The journal is already minimal at {} segment(s), not trying to remove more segments.",
@@ -1091,7 +1499,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             // we need to iterate through all segments to the find the cutoff point for the committed offset.
             // unfortunately finding the largest offset contained in a segment is expensive (it involves reading the entire file)
             // so we have to get a global view.
-            final long committedOffset = LocalKafkaJournal.this.committedOffset.get();
+            final long committedOffset = partition.committedOffset.get();
             final HashSet<LogSegment> logSegments = Sets.newHashSet(
                     JavaConversions.asJavaIterable(kafkaLog.logSegments(committedOffset, Long.MAX_VALUE))
             );
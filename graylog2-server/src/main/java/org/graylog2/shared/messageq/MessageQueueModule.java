@@ -17,8 +17,10 @@
 package org.graylog2.shared.messageq;
 
 import com.google.inject.Scopes;
+import com.google.inject.multibindings.OptionalBinder;
 import org.graylog2.Configuration;
 import org.graylog2.plugin.PluginModule;
+import org.graylog2.plugin.journal.CodecConfigTable;
 import org.graylog2.shared.journal.Journal;
 import org.graylog2.shared.journal.LocalKafkaJournal;
 import org.graylog2.shared.journal.LocalKafkaJournalModule;
@@ -42,6 +44,9 @@ public class MessageQueueModule extends PluginModule {
 
     @Override
     protected void configure() {
+        // Only the disk journal stores codec configurations separately from the journal entries
+        OptionalBinder.newOptionalBinder(binder(), CodecConfigTable.class);
+
         switch (configuration.getMessageJournalMode()) {
             case NOOP_JOURNAL_MODE:
                 bindMessageQueueImplementation(NoopMessageQueueReader.class, NoopMessageQueueWriter.class,
@@ -30,6 +30,30 @@ public interface MessageQueueWriter {
 
     void write(List<RawMessageEvent> entries) throws MessageQueueException;
 
+    /**
+     * Writes the given entries to a single partition. Different partitions can be written concurrently, but every
+     * partition must only be written by one thread at a time.
+     */
+    default void write(int partition, List<RawMessageEvent> entries) throws MessageQueueException {
+        write(entries);
+    }
+
+    /**
+     * Returns the number of partitions which can be written concurrently.
+     */
+    default int writablePartitions() {
+        return 1;
+    }
+
+    /**
+     * Returns the partition the given entry is written to.
+     *
+     * @param sequence the increasing sequence number of the entry, to distribute entries across the partitions
+     */
+    default int partitionFor(RawMessageEvent entry, long sequence) {
+        return 0;
+    }
+
     @AutoValue
     abstract class Metrics {
         public static class Provider implements javax.inject.Provider<MessageQueueWriter.Metrics> {
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.messageq.localkafka;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Signals the readers of the partitions of the local journal that messages have been written to their partition.
+ * The first partition uses the {@code JournalSignal} semaphore, which has been the only signal before the journal
+ * could be partitioned.
+ */
+@Singleton
+public class JournalPartitionSignals {
+    private final Semaphore[] signals;
+
+    @Inject
+    public JournalPartitionSignals(@Named("JournalSignal") Semaphore journalFilled,
+                                   @Named("message_journal_partitions") int partitions) {
+        this.signals = new Semaphore[partitions];
+        this.signals[0] = journalFilled;
+        for (int i = 1; i < partitions; i++) {
+            this.signals[i] = new Semaphore(0);
+        }
+    }
+
+    public Semaphore forPartition(int partition) {
+        return signals[partition];
+    }
+}
@@ -24,7 +24,8 @@ import org.graylog2.shared.messageq.MessageQueueAcknowledger;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Singleton
 public class LocalKafkaMessageQueueAcknowledger extends AbstractMessageQueueAcknowledger<Long> {
@@ -39,14 +40,14 @@ public class LocalKafkaMessageQueueAcknowledger extends AbstractMessageQueueAckn
 
     @Override
     public void acknowledge(List<Message> messages) {
-        @SuppressWarnings("ConstantConditions")
-        final Optional<Long> max =
-                messages.stream()
-                        .map(Message::getMessageQueueId)
-                        .filter(this::isValidMessageQueueId)
-                        .map(Long.class::cast)
-                        .max(Long::compare);
-        max.ifPresent(this::doAcknowledge);
+        // the offsets of the journal partitions are committed independently, so every partition needs its own maximum
+        messages.stream()
+                .map(Message::getMessageQueueId)
+                .filter(this::isValidMessageQueueId)
+                .map(Long.class::cast)
+                .collect(Collectors.toMap(kafkaJournal::partitionOf, Function.identity(), Math::max))
+                .values()
+                .forEach(this::doAcknowledge);
         metrics.acknowledgedMessages().mark(messages.size());
     }
 
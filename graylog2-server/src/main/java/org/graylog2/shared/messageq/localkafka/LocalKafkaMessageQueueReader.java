@@ -22,9 +22,11 @@ import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.Uninterruptibles;
+import org.graylog2.plugin.journal.CodecConfigTable;
 import org.graylog2.plugin.journal.RawMessage;
 import org.graylog2.shared.buffers.ProcessBuffer;
 import org.graylog2.shared.journal.Journal;
+import org.graylog2.shared.journal.LocalKafkaJournal;
 import org.graylog2.shared.messageq.AbstractMessageQueueReader;
 import org.graylog2.shared.messageq.MessageQueueReader;
 import org.graylog2.shared.metrics.HdrHistogram;
@@ -35,6 +37,8 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -43,23 +47,28 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 @Singleton
 public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
     private static final Logger log = LoggerFactory.getLogger(LocalKafkaMessageQueueReader.class);
-    private final Journal journal;
+    private final LocalKafkaJournal journal;
     private final ProcessBuffer processBuffer;
-    private final Semaphore journalFilled;
+    private final JournalPartitionSignals journalFilled;
     private final MetricRegistry metricRegistry;
     private final Meter readMessages;
     private final Metrics readerMetrics;
     private Histogram requestedReadCount;
     private final Counter readBlocked;
     private Thread executionThread;
+    private final List<Thread> partitionThreads = new CopyOnWriteArrayList<>();
+    private final CodecConfigTable codecConfigTable;
+    private final boolean decodeInProcessBuffer;
 
     @Inject
-    public LocalKafkaMessageQueueReader(Journal journal,
+    public LocalKafkaMessageQueueReader(LocalKafkaJournal journal,
                                         ProcessBuffer processBuffer,
-                                        @Named("JournalSignal") Semaphore journalFilled,
+                                        JournalPartitionSignals journalFilled,
                                         MetricRegistry metricRegistry,
                                         EventBus eventBus,
-                                        MessageQueueReader.Metrics readerMetrics) {
+                                        MessageQueueReader.Metrics readerMetrics,
+                                        Optional<CodecConfigTable> codecConfigTable,
+                                        @Named("processbuffer_decode_journal") boolean decodeInProcessBuffer) {
 
         super(eventBus);
 
@@ -70,6 +79,8 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
         readBlocked = metricRegistry.counter(name(this.getClass(), "readBlocked"));
         readMessages = metricRegistry.meter(name(this.getClass(), "readMessages"));
         this.readerMetrics = readerMetrics;
+        this.codecConfigTable = codecConfigTable.orElse(null);
+        this.decodeInProcessBuffer = decodeInProcessBuffer;
     }
 
     @Override
@@ -86,6 +97,7 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
     @Override
     protected void triggerShutdown() {
         executionThread.interrupt();
+        partitionThreads.forEach(Thread::interrupt);
     }
 
     @Override
@@ -97,6 +109,26 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
             throw e;
         }
 
+        // every partition of the journal gets its own reader thread, the first one is read by this thread
+        final int partitions = journal.getPartitions();
+        for (int i = 1; i < partitions; i++) {
+            final int partition = i;
+            final Thread thread = new Thread(() -> readPartition(partition, partitions),
+                    "LocalKafkaMessageQueueReader-partition-" + partition);
+            partitionThreads.add(thread);
+            thread.start();
+        }
+        readPartition(0, partitions);
+        for (final Thread thread : partitionThreads) {
+            Uninterruptibles.joinUninterruptibly(thread);
+        }
+        log.info("Stopping.");
+    }
+
+    private void readPartition(int partition, int partitions) {
+        // partitions left over from a higher partition count are not written to anymore
+        final boolean draining = partition >= journal.getWritablePartitions();
+        final Semaphore journalFilled = draining ? null : this.journalFilled.forPartition(partition);
         while (isRunning()) {
             // TODO interfere with reading if we are not 100% certain we should be reading, see #listenForLifecycleChanges
             if (!shouldBeReading()) {
@@ -104,11 +136,15 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
                 // don't read immediately, but check if we should be shutting down.
                 continue;
             }
-            // approximate count to read from the journal to backfill the processing chain
-            final long remainingCapacity = processBuffer.getRemainingCapacity();
+            // approximate count to read from the journal to backfill the processing chain, shared by all partitions
+            final long remainingCapacity = Math.max(1, processBuffer.getRemainingCapacity() / partitions);
             requestedReadCount.update(remainingCapacity);
-            final List<Journal.JournalReadEntry> encodedRawMessages = journal.read(remainingCapacity);
+            final List<Journal.JournalReadEntry> encodedRawMessages = journal.readPartition(partition, remainingCapacity);
             if (encodedRawMessages.isEmpty()) {
+                if (draining) {
+                    log.info("Read all messages of partition {} of the journal, it is removed on the next start.", partition);
+                    return;
+                }
                 log.debug("No messages to read from Journal, waiting until the writer adds more messages.");
                 // block until something is written to the journal again
                 try {
@@ -125,9 +161,17 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
                 readMessages.mark(encodedRawMessages.size());
                 readerMetrics.readMessages().mark(encodedRawMessages.size());
                 log.debug("Processing {} messages from journal.", encodedRawMessages.size());
+                if (decodeInProcessBuffer) {
+                    for (final Journal.JournalReadEntry encodedRawMessage : encodedRawMessages) {
+                        readerMetrics.readBytes().mark(encodedRawMessage.getPayload().length);
+                    }
+                    processBuffer.insertEncodedBlocking(encodedRawMessages);
+                    continue;
+                }
                 for (final Journal.JournalReadEntry encodedRawMessage : encodedRawMessages) {
                     final RawMessage rawMessage = RawMessage.decode(encodedRawMessage.getPayload(),
-                                                                    encodedRawMessage.getOffset());
+                                                                    encodedRawMessage.getOffset(),
+                                                                    codecConfigTable);
                     readerMetrics.readBytes().mark(encodedRawMessage.getPayload().length);
                     if (rawMessage == null) {
                         // never insert null objects into the ringbuffer, as that is useless
@@ -139,7 +183,6 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
                 }
             }
         }
-        log.info("Stopping.");
     }
 
 
@@ -22,6 +22,7 @@ import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
 import com.github.rholder.retry.WaitStrategies;
 import com.google.common.util.concurrent.AbstractIdleService;
+import org.graylog2.plugin.KafkaJournalConfiguration;
 import org.graylog2.shared.buffers.RawMessageEvent;
 import org.graylog2.shared.journal.Journal;
 import org.graylog2.shared.journal.LocalKafkaJournal;
@@ -34,11 +35,11 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -46,16 +47,20 @@ public class LocalKafkaMessageQueueWriter extends AbstractIdleService implements
     private static final Logger LOG = LoggerFactory.getLogger(LocalKafkaMessageQueueWriter.class);
 
     private LocalKafkaJournal kafkaJournal;
-    private Semaphore journalFilled;
+    private final JournalPartitionSignals journalFilled;
+    private final boolean partitionByInput;
+    private final AtomicInteger nextPartition = new AtomicInteger();
     private final Metrics metrics;
     private final Retryer<Void> writeRetryer;
 
     @Inject
     public LocalKafkaMessageQueueWriter(LocalKafkaJournal kafkaJournal,
-                                        @Named("JournalSignal") Semaphore journalFilled,
+                                        JournalPartitionSignals journalFilled,
+                                        @Named("message_journal_partitioning") String partitioning,
                                         MessageQueueWriter.Metrics metrics) {
         this.kafkaJournal = kafkaJournal;
         this.journalFilled = journalFilled;
+        this.partitionByInput = KafkaJournalConfiguration.PARTITIONING_INPUT.equals(partitioning);
         this.metrics = metrics;
 
         writeRetryer = RetryerBuilder.<Void>newBuilder()
@@ -71,24 +76,36 @@ public class LocalKafkaMessageQueueWriter extends AbstractIdleService implements
 
     @Override
     public void write(List<RawMessageEvent> entries) throws MessageQueueException {
+        // messages without a partition of their own are written to the same partition for the whole batch
+        final int batchPartition = Math.floorMod(nextPartition.getAndIncrement(), kafkaJournal.getWritablePartitions());
+        final Map<Integer, List<RawMessageEvent>> partitionEntries = entries.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(e -> inputPartition(e, batchPartition)));
 
-        final AtomicLong msgBytes = new AtomicLong(0);
+        for (final Map.Entry<Integer, List<RawMessageEvent>> entry : partitionEntries.entrySet()) {
+            write(entry.getKey(), entry.getValue());
+        }
+    }
 
+    @Override
+    public void write(int partition, List<RawMessageEvent> entries) throws MessageQueueException {
         final List<Journal.Entry> journalEntries = entries.stream()
                 .filter(Objects::nonNull)
                 .map(e -> new Journal.Entry(e.getMessageIdBytes(), e.getEncodedRawMessage()))
-                .peek(e -> msgBytes.addAndGet(e.getMessageBytes().length))
                 .collect(Collectors.toList());
+        if (journalEntries.isEmpty()) {
+            return;
+        }
 
         try {
-            writeToJournal(journalEntries);
+            writeToJournal(partition, journalEntries);
         } catch (Exception e) {
             LOG.error("Unable to write to journal - retrying", e);
 
             // Use retryer with exponential back-off to avoid spamming the logs.
             try {
                 writeRetryer.call(() -> {
-                    writeToJournal(journalEntries);
+                    writeToJournal(partition, journalEntries);
                     return null;
                 });
             } catch (ExecutionException | RetryException ex) {
@@ -96,16 +113,39 @@ public class LocalKafkaMessageQueueWriter extends AbstractIdleService implements
             }
         }
 
+        long msgBytes = 0;
+        for (final Journal.Entry entry : journalEntries) {
+            msgBytes += entry.getMessageBytes().length;
+        }
         metrics.writtenMessages().mark(journalEntries.size());
-        metrics.writtenBytes().mark(msgBytes.get());
+        metrics.writtenBytes().mark(msgBytes);
+    }
+
+    @Override
+    public int writablePartitions() {
+        return kafkaJournal.getWritablePartitions();
+    }
+
+    @Override
+    public int partitionFor(RawMessageEvent entry, long sequence) {
+        return inputPartition(entry, Math.floorMod(sequence, kafkaJournal.getWritablePartitions()));
+    }
+
+    private int inputPartition(RawMessageEvent event, int fallbackPartition) {
+        final int partitions = kafkaJournal.getWritablePartitions();
+        if (partitions > 1 && partitionByInput && event.getInputId() != null) {
+            // keep the messages of an input in order by always writing them to the same partition
+            return Math.floorMod(event.getInputId().hashCode(), partitions);
+        }
+        return fallbackPartition;
     }
 
-    private void writeToJournal(List<Journal.Entry> entries) {
-        final long lastOffset = kafkaJournal.write(entries);
+    private void writeToJournal(int partition, List<Journal.Entry> entries) {
+        final long lastOffset = kafkaJournal.write(partition, entries);
 
-        LOG.debug("Processed batch, last journal offset: {}, signalling reader.",
-                lastOffset);
-        journalFilled.release();
+        LOG.debug("Processed batch, last journal offset: {}, signalling reader of partition {}.",
+                lastOffset, partition);
+        journalFilled.forPartition(partition).release();
     }
 
     @Override
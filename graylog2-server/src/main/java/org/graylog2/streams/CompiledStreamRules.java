@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.streams;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.plugin.streams.StreamRuleType;
+import org.graylog2.utilities.AhoCorasickAutomaton;
+import org.graylog2.utilities.TimeLimitedCharSequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled form of the stream rules of a {@link StreamRouterEngine}.
+ *
+ * <ul>
+ *     <li>{@link StreamRuleType#EXACT} and {@link StreamRuleType#MATCH_INPUT} rules are grouped into one hash lookup
+ *     per field.</li>
+ *     <li>{@link StreamRuleType#CONTAINS} rules are grouped into one {@link AhoCorasickAutomaton} per field.</li>
+ *     <li>{@link StreamRuleType#REGEX} rules on the same field share a combined pattern which is used as a pre-filter.
+ *     The individual patterns are only evaluated if the combined pattern finds a match.</li>
+ *     <li>All other rules are evaluated one by one, but only for streams which are not already decided.</li>
+ * </ul>
+ *
+ * The AND/OR state of the streams is tracked in bitsets which are reused per thread. The routing result is the same
+ * as the one of the sequential evaluation in {@link StreamRouterEngine}.
+ */
+class CompiledStreamRules {
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledStreamRules.class);
+
+    // Patterns using these constructs cannot safely be wrapped into a non-capturing group of an alternation.
+    private static final Pattern NOT_COMBINABLE_REGEX = Pattern.compile("\\\\[1-9]|\\\\k<|\\\\Q|\\(\\?[a-zA-Z-]*x");
+
+    private final List<Stream> streams;
+    private final StreamRouterEngine.Rule[] rules;
+    private final int[] ruleStream;
+    private final long streamProcessingTimeout;
+
+    private final List<FieldIndex> exactIndexes = new ArrayList<>();
+    private final List<FieldAutomaton> containsAutomatons = new ArrayList<>();
+    private final List<RegexGroup> regexGroups = new ArrayList<>();
+    private final int[] evaluatedRules;
+
+    // Rules resolved through the indexes, split by matching type and inversion.
+    private final BitSet andRules = new BitSet();
+    private final BitSet andInvertedRules = new BitSet();
+    private final BitSet orRules = new BitSet();
+    private final BitSet orInvertedRules = new BitSet();
+
+    // AND streams with at least one rule. Streams without any rules never match.
+    private final BitSet andStreams = new BitSet();
+    private final BitSet orStreams = new BitSet();
+
+    private final ThreadLocal<MatchState> matchState;
+
+    CompiledStreamRules(List<Stream> streams,
+                        List<StreamRouterEngine.Rule> rulesList,
+                        long streamProcessingTimeout) {
+        this.streams = ImmutableList.copyOf(streams);
+        this.rules = rulesList.toArray(new StreamRouterEngine.Rule[0]);
+        this.ruleStream = new int[rules.length];
+        this.streamProcessingTimeout = streamProcessingTimeout;
+
+        final Map<Stream, Integer> streamIndex = new IdentityHashMap<>();
+        for (int i = 0; i < streams.size(); i++) {
+            streamIndex.put(streams.get(i), i);
+        }
+
+        final Map<String, Map<String, List<Integer>>> exactRulesByField = new LinkedHashMap<>();
+        final Map<String, List<Integer>> inputRulesByValue = new HashMap<>();
+        final Map<String, AhoCorasickAutomaton.Builder> containsRulesByField = new LinkedHashMap<>();
+        final Map<String, List<Integer>> regexRulesByField = new LinkedHashMap<>();
+        final List<Integer> evaluated = new ArrayList<>();
+
+        for (int i = 0; i < rules.length; i++) {
+            final StreamRouterEngine.Rule rule = rules[i];
+            final int stream = streamIndex.get(rule.getStream());
+            final StreamRule streamRule = rule.getStreamRule();
+            final boolean isAnd = rule.getMatchingType() == Stream.MatchingType.AND;
+            ruleStream[i] = stream;
+            (isAnd ? andStreams : orStreams).set(stream);
+
+            // Rules without a field, value or inversion flag are left to the matchers to keep their error handling.
+            final Boolean inverted = streamRule.getInverted();
+            final boolean indexable = inverted != null && streamRule.getValue() != null && streamRule.getField() != null;
+
+            switch (streamRule.getType()) {
+                case EXACT:
+                    if (indexable) {
+                        exactRulesByField.computeIfAbsent(streamRule.getField(), k -> new HashMap<>())
+                                .computeIfAbsent(streamRule.getValue(), k -> new ArrayList<>())
+                                .add(i);
+                        markIndexed(i, isAnd, inverted);
+                        continue;
+                    }
+                    break;
+                case MATCH_INPUT:
+                    if (inverted != null && streamRule.getValue() != null) {
+                        inputRulesByValue.computeIfAbsent(inputKey(streamRule.getValue()), k -> new ArrayList<>()).add(i);
+                        markIndexed(i, isAnd, inverted);
+                        continue;
+                    }
+                    break;
+                case CONTAINS:
+                    if (indexable) {
+                        containsRulesByField.computeIfAbsent(streamRule.getField(), k -> AhoCorasickAutomaton.builder())
+                                .add(streamRule.getValue(), i);
+                        markIndexed(i, isAnd, inverted);
+                        continue;
+                    }
+                    break;
+                case REGEX:
+                    if (indexable) {
+                        regexRulesByField.computeIfAbsent(streamRule.getField(), k -> new ArrayList<>()).add(i);
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            evaluated.add(i);
+        }
+
+        exactRulesByField.forEach((field, rulesByValue) -> exactIndexes.add(new FieldIndex(field, toIndex(rulesByValue), false)));
+        if (!inputRulesByValue.isEmpty()) {
+            exactIndexes.add(new FieldIndex(Message.FIELD_GL2_SOURCE_INPUT, toIndex(inputRulesByValue), true));
+        }
+        containsRulesByField.forEach((field, builder) -> containsAutomatons.add(new FieldAutomaton(field, builder.build())));
+        regexRulesByField.forEach((field, ruleIds) -> regexGroups.add(buildRegexGroup(field, ruleIds)));
+        this.evaluatedRules = Ints.toArray(evaluated);
+
+        final int ruleCount = rules.length;
+        final int streamCount = streams.size();
+        this.matchState = ThreadLocal.withInitial(() -> new MatchState(ruleCount, streamCount));
+    }
+
+    private static Map<String, int[]> toIndex(Map<String, List<Integer>> rulesByValue) {
+        final Map<String, int[]> index = new HashMap<>(rulesByValue.size() * 2);
+        rulesByValue.forEach((value, ruleIds) -> index.put(value, Ints.toArray(ruleIds)));
+        return index;
+    }
+
+    private void markIndexed(int rule, boolean isAnd, boolean inverted) {
+        if (isAnd) {
+            (inverted ? andInvertedRules : andRules).set(rule);
+        } else {
+            (inverted ? orInvertedRules : orRules).set(rule);
+        }
+    }
+
+    /*
+     * Canonical form for case-insensitive comparison. Two strings are equal in this form iff
+     * String#equalsIgnoreCase() returns true for them, which is what the InputMatcher uses.
+     */
+    private static String inputKey(String value) {
+        final char[] chars = new char[value.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        }
+        return new String(chars);
+    }
+
+    private RegexGroup buildRegexGroup(String field, List<Integer> ruleIds) {
+        final List<Integer> combinable = new ArrayList<>();
+        final List<Integer> individual = new ArrayList<>();
+        final StringBuilder combined = new StringBuilder();
+
+        for (int ruleId : ruleIds) {
+            final String regex = rules[ruleId].getStreamRule().getValue();
+            if (isCombinable(regex)) {
+                if (!combinable.isEmpty()) {
+                    combined.append('|');
+                }
+                combined.append("(?:").append(regex).append(')');
+                combinable.add(ruleId);
+            } else {
+                individual.add(ruleId);
+            }
+        }
+
+        Pattern prefilter = null;
+        if (!combinable.isEmpty()) {
+            try {
+                prefilter = Pattern.compile(combined.toString(), Pattern.DOTALL);
+            } catch (PatternSyntaxException e) {
+                LOG.debug("Unable to combine regular expressions for field <{}>, evaluating them one by one.", field, e);
+            }
+        }
+
+        if (prefilter == null) {
+            individual.addAll(combinable);
+            combinable.clear();
+        }
+
+        return new RegexGroup(field, prefilter, Ints.toArray(combinable), Ints.toArray(individual));
+    }
+
+    private static boolean isCombinable(String regex) {
+        if (NOT_COMBINABLE_REGEX.matcher(regex).find()) {
+            return false;
+        }
+        try {
+            Pattern.compile(regex, Pattern.DOTALL);
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the list of matching streams for the given message.
+     *
+     * @param message the message
+     * @return the list of matching streams
+     */
+    List<Stream> match(Message message) {
+        final MatchState state = matchState.get();
+        state.clear();
+
+        // Indexed rules: collect the rules whose condition holds, then resolve the (inverted) AND/OR outcomes.
+        for (FieldIndex index : exactIndexes) {
+            index.collect(message, state.hits);
+        }
+        for (FieldAutomaton automaton : containsAutomatons) {
+            automaton.collect(message, state.hits);
+        }
+        resolveIndexedRules(state);
+
+        // Remaining rules, only evaluated for streams which are not decided yet.
+        for (int ruleId : evaluatedRules) {
+            if (!state.isDecided(ruleStream[ruleId])) {
+                applyOutcome(state, ruleId, evaluate(rules[ruleId], message));
+            }
+        }
+        for (RegexGroup group : regexGroups) {
+            group.evaluate(message, state);
+        }
+
+        final BitSet matched = state.scratch;
+        matched.clear();
+        matched.or(andStreams);
+        matched.andNot(state.andFailed);
+        matched.or(state.orMatched);
+
+        if (matched.isEmpty()) {
+            return ImmutableList.of();
+        }
+        final ImmutableList.Builder<Stream> result = ImmutableList.builderWithExpectedSize(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(streams.get(i));
+        }
+        return result.build();
+    }
+
+    private void resolveIndexedRules(MatchState state) {
+        final BitSet scratch = state.scratch;
+
+        // AND rules fail if their condition doesn't hold (or holds, if inverted).
+        scratch.clear();
+        scratch.or(andRules);
+        scratch.andNot(state.hits);
+        markStreams(scratch, state.andFailed);
+        scratch.clear();
+        scratch.or(andInvertedRules);
+        scratch.and(state.hits);
+        markStreams(scratch, state.andFailed);
+
+        // OR rules match if their condition holds (or doesn't hold, if inverted).
+        scratch.clear();
+        scratch.or(orRules);
+        scratch.and(state.hits);
+        markStreams(scratch, state.orMatched);
+        scratch.clear();
+        scratch.or(orInvertedRules);
+        scratch.andNot(state.hits);
+        markStreams(scratch, state.orMatched);
+    }
+
+    private void markStreams(BitSet ruleIds, BitSet streamIds) {
+        for (int i = ruleIds.nextSetBit(0); i >= 0; i = ruleIds.nextSetBit(i + 1)) {
+            streamIds.set(ruleStream[i]);
+        }
+    }
+
+    private void applyOutcome(MatchState state, int ruleId, boolean matched) {
+        final int stream = ruleStream[ruleId];
+        if (matched) {
+            if (orStreams.get(stream)) {
+                state.orMatched.set(stream);
+            }
+        } else if (andStreams.get(stream)) {
+            state.andFailed.set(stream);
+        }
+    }
+
+    private boolean evaluate(StreamRouterEngine.Rule rule, Message message) {
+        final StreamRule streamRule = rule.getStreamRule();
+        switch (streamRule.getType()) {
+            case GREATER:
+            case SMALLER:
+                return message.hasField(streamRule.getField()) && rule.match(message) != null;
+            case REGEX:
+                return rule.matchWithTimeOut(message) != null;
+            default:
+                return rule.match(message) != null;
+        }
+    }
+
+    private static class MatchState {
+        private final BitSet hits;
+        private final BitSet andFailed;
+        private final BitSet orMatched;
+        private final BitSet scratch;
+
+        private MatchState(int ruleCount, int streamCount) {
+            this.hits = new BitSet(ruleCount);
+            this.andFailed = new BitSet(streamCount);
+            this.orMatched = new BitSet(streamCount);
+            this.scratch = new BitSet(Math.max(ruleCount, streamCount));
+        }
+
+        private void clear() {
+            hits.clear();
+            andFailed.clear();
+            orMatched.clear();
+        }
+
+        private boolean isDecided(int stream) {
+            return andFailed.get(stream) || orMatched.get(stream);
+        }
+    }
+
+    private static class FieldIndex {
+        private final String field;
+        private final Map<String, int[]> rulesByValue;
+        private final boolean caseInsensitive;
+
+        private FieldIndex(String field, Map<String, int[]> rulesByValue, boolean caseInsensitive) {
+            this.field = field;
+            this.rulesByValue = rulesByValue;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        private void collect(Message message, BitSet hits) {
+            final Object value = message.getField(field);
+            if (value == null) {
+                return;
+            }
+            final String trimmed = value.toString().trim();
+            final int[] ruleIds = rulesByValue.get(caseInsensitive ? inputKey(trimmed) : trimmed);
+            if (ruleIds != null) {
+                for (int ruleId : ruleIds) {
+                    hits.set(ruleId);
+                }
+            }
+        }
+    }
+
+    private static class FieldAutomaton {
+        private final String field;
+        private final AhoCorasickAutomaton automaton;
+
+        private FieldAutomaton(String field, AhoCorasickAutomaton automaton) {
+            this.field = field;
+            this.automaton = automaton;
+        }
+
+        private void collect(Message message, BitSet hits) {
+            final Object value = message.getField(field);
+            if (value != null) {
+                automaton.matchAll(value.toString(), hits);
+            }
+        }
+    }
+
+    private class RegexGroup {
+        private final String field;
+        @Nullable
+        private final Pattern prefilter;
+        private final int[] combinedRules;
+        private final int[] individualRules;
+
+        private RegexGroup(String field, @Nullable Pattern prefilter, int[] combinedRules, int[] individualRules) {
+            this.field = field;
+            this.prefilter = prefilter;
+            this.combinedRules = combinedRules;
+            this.individualRules = individualRules;
+        }
+
+        private void evaluate(Message message, MatchState state) {
+            final Object value = message.getField(field);
+            if (value == null) {
+                // Same as the RegexMatcher: a missing field only matches inverted rules.
+                applyMissingField(combinedRules, state);
+                applyMissingField(individualRules, state);
+                return;
+            }
+
+            if (hasUndecided(combinedRules, state)) {
+                if (prefilterMatches(value.toString())) {
+                    evaluateIndividually(combinedRules, message, state);
+                } else {
+                    for (int ruleId : combinedRules) {
+                        applyOutcome(state, ruleId, rules[ruleId].getStreamRule().getInverted());
+                    }
+                }
+            }
+            evaluateIndividually(individualRules, message, state);
+        }
+
+        private boolean prefilterMatches(String value) {
+            try {
+                final CharSequence input = TimeLimitedCharSequence.withTimeout(value, streamProcessingTimeout, TimeUnit.MILLISECONDS);
+                return prefilter.matcher(input).find();
+            } catch (UncheckedTimeoutException e) {
+                // Let the individual evaluation attribute the timeout to the affected streams.
+                return true;
+            } catch (Exception e) {
+                LOG.debug("Unable to evaluate combined regular expression for field <{}>", field, e);
+                return true;
+            }
+        }
+
+        private void applyMissingField(int[] ruleIds, MatchState state) {
+            for (int ruleId : ruleIds) {
+                applyOutcome(state, ruleId, rules[ruleId].getStreamRule().getInverted());
+            }
+        }
+
+        private boolean hasUndecided(int[] ruleIds, MatchState state) {
+            for (int ruleId : ruleIds) {
+                if (!state.isDecided(ruleStream[ruleId])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void evaluateIndividually(int[] ruleIds, Message message, MatchState state) {
+            for (int ruleId : ruleIds) {
+                if (!state.isDecided(ruleStream[ruleId])) {
+                    applyOutcome(state, ruleId, CompiledStreamRules.this.evaluate(rules[ruleId], message));
+                }
+            }
+        }
+    }
+}
@@ -23,8 +23,6 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.util.concurrent.SimpleTimeLimiter;
-import com.google.common.util.concurrent.TimeLimiter;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
 import com.google.inject.assistedinject.Assisted;
 import org.graylog2.plugin.Message;
@@ -38,14 +36,12 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -62,29 +58,29 @@ public class StreamRouterEngine {
     private final List<Stream> streams;
     private final StreamFaultManager streamFaultManager;
     private final StreamMetrics streamMetrics;
-    private final TimeLimiter timeLimiter;
     private final long streamProcessingTimeout;
     private final String fingerprint;
     private final Provider<Stream> defaultStreamProvider;
 
     private final List<Rule> rulesList;
+    @Nullable
+    private final CompiledStreamRules compiledRules;
     private final Counter cannotRemoveDefaultMeter;
 
     public interface Factory {
-        StreamRouterEngine create(List<Stream> streams, ExecutorService executorService);
+        StreamRouterEngine create(List<Stream> streams);
     }
 
     @Inject
     public StreamRouterEngine(@Assisted List<Stream> streams,
-                              @Assisted ExecutorService executorService,
                               StreamFaultManager streamFaultManager,
                               StreamMetrics streamMetrics,
                               @DefaultStream Provider<Stream> defaultStreamProvider,
-                              MetricRegistry metricRegistry) {
+                              MetricRegistry metricRegistry,
+                              @Named("stream_router_engine") StreamRouterEngineType engineType) {
         this.streams = streams;
         this.streamFaultManager = streamFaultManager;
         this.streamMetrics = streamMetrics;
-        this.timeLimiter = SimpleTimeLimiter.create(executorService);
         this.streamProcessingTimeout = streamFaultManager.getStreamProcessingTimeout();
         this.fingerprint = new StreamListFingerprint(streams).getFingerprint();
         this.defaultStreamProvider = defaultStreamProvider;
@@ -147,6 +143,12 @@ public class StreamRouterEngine {
         this.rulesList.addAll(smallerRules);
         this.rulesList.addAll(containsRules);
         this.rulesList.addAll(regexRules);
+
+        if (engineType == StreamRouterEngineType.COMPILED) {
+            this.compiledRules = new CompiledStreamRules(streams, rulesList, streamProcessingTimeout);
+        } else {
+            this.compiledRules = null;
+        }
     }
 
     /**
@@ -174,6 +176,14 @@ public class StreamRouterEngine {
      * @return the list of matching streams
      */
     public List<Stream> match(Message message) {
+        final List<Stream> result = compiledRules != null ? compiledRules.match(message) : matchSequentially(message);
+
+        removeDefaultStreamIfNeeded(message, result);
+
+        return result;
+    }
+
+    private List<Stream> matchSequentially(Message message) {
         final Set<Stream> result = Sets.newHashSet();
         final Set<String> blackList = Sets.newHashSet();
 
@@ -200,7 +210,7 @@ public class StreamRouterEngine {
             if (streamRuleType != StreamRuleType.REGEX) {
                 stream = rule.match(message);
             } else {
-                stream = rule.matchWithTimeOut(message, streamProcessingTimeout, TimeUnit.MILLISECONDS);
+                stream = rule.matchWithTimeOut(message);
             }
 
             if (stream == null) {
@@ -218,6 +228,10 @@ public class StreamRouterEngine {
             }
         }
 
+        return ImmutableList.copyOf(result);
+    }
+
+    private void removeDefaultStreamIfNeeded(Message message, List<Stream> result) {
         final Stream defaultStream = defaultStreamProvider.get();
         boolean alreadyRemovedDefaultStream = false;
         for (Stream stream : result) {
@@ -239,8 +253,6 @@ public class StreamRouterEngine {
                 }
             }
         }
-
-        return ImmutableList.copyOf(result);
     }
 
     /**
@@ -272,7 +284,7 @@ public class StreamRouterEngine {
         return matches;
     }
 
-    private class Rule {
+    class Rule {
         private final Stream stream;
         private final StreamRule rule;
         private final String streamId;
@@ -286,7 +298,7 @@ public class StreamRouterEngine {
             this.streamId = stream.getId();
             this.streamRuleId = rule.getId();
             this.matchingType = matchingType;
-            this.matcher = StreamRuleMatcherFactory.build(rule.getType());
+            this.matcher = StreamRuleMatcherFactory.build(rule.getType(), streamProcessingTimeout);
         }
 
         public Stream.MatchingType getMatchingType() {
@@ -311,25 +323,26 @@ public class StreamRouterEngine {
             }
         }
 
+        /**
+         * Like {@link #match(Message)}, but registers a stream fault if the matcher exceeds the stream processing
+         * timeout. The time limit is enforced by the matcher in the calling thread.
+         */
         @Nullable
-        private Stream matchWithTimeOut(final Message message, long timeout, TimeUnit unit) {
-            Stream matchedStream = null;
+        Stream matchWithTimeOut(final Message message) {
             try (final Timer.Context ignored = streamMetrics.getExecutionTimer(streamId, streamRuleId).time()) {
-                matchedStream = timeLimiter.callWithTimeout(new Callable<Stream>() {
-                    @Override
-                    @Nullable
-                    public Stream call() throws Exception {
-                        return match(message);
-                    }
-                }, timeout, unit);
+                if (matcher.match(message, rule)) {
+                    return stream;
+                }
             } catch (UncheckedTimeoutException e) {
                 streamFaultManager.registerFailure(stream);
             } catch (Exception e) {
-                LOG.warn("Unexpected error during stream matching", e);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Error matching stream rule <" + rule.getType() + "/" + rule.getValue() + ">: " + e.getMessage(), e);
+                }
                 streamMetrics.markExceptionMeter(streamId);
             }
 
-            return matchedStream;
+            return null;
         }
 
         public StreamRule getStreamRule() {
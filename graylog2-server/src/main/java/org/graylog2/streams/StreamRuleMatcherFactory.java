@@ -27,13 +27,24 @@ import org.graylog2.streams.matchers.RegexMatcher;
 import org.graylog2.streams.matchers.SmallerMatcher;
 import org.graylog2.streams.matchers.StreamRuleMatcher;
 
+import java.util.concurrent.TimeUnit;
+
 public class StreamRuleMatcherFactory {
     public static StreamRuleMatcher build(StreamRuleType ruleType) throws InvalidStreamRuleTypeException {
+        return build(ruleType, 0L);
+    }
+
+    /**
+     * Builds a matcher for the given rule type. Regular expression matchers abort with an
+     * {@link com.google.common.util.concurrent.UncheckedTimeoutException UncheckedTimeoutException} if a single match
+     * takes longer than {@code regexTimeoutMs} milliseconds. A timeout of {@code 0} disables the limit.
+     */
+    public static StreamRuleMatcher build(StreamRuleType ruleType, long regexTimeoutMs) throws InvalidStreamRuleTypeException {
         switch (ruleType) {
             case EXACT:
                 return new ExactMatcher();
             case REGEX:
-                return new RegexMatcher();
+                return new RegexMatcher(regexTimeoutMs, TimeUnit.MILLISECONDS);
             case GREATER:
                 return new GreaterMatcher();
             case SMALLER:
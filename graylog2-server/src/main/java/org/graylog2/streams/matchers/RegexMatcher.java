@@ -22,10 +22,12 @@ import com.google.common.cache.LoadingCache;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.StreamRule;
 import org.graylog2.utilities.InterruptibleCharSequence;
+import org.graylog2.utilities.TimeLimitedCharSequence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -42,6 +44,24 @@ public class RegexMatcher implements StreamRuleMatcher {
         }
     });
 
+    private final long timeoutNanos;
+
+    public RegexMatcher() {
+        this(0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a matcher which aborts matching with an
+     * {@link com.google.common.util.concurrent.UncheckedTimeoutException UncheckedTimeoutException} if it takes
+     * longer than the given timeout. The time limit is enforced in the calling thread.
+     *
+     * @param timeout the maximum time a single match may take, {@code 0} disables the limit
+     * @param unit    the time unit of the timeout
+     */
+    public RegexMatcher(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
     @Override
     public boolean match(Message msg, StreamRule rule) {
         if (msg.getField(rule.getField()) == null)
@@ -49,7 +69,10 @@ public class RegexMatcher implements StreamRuleMatcher {
 
         try {
             final Pattern pattern = patternCache.get(rule.getValue());
-            final CharSequence charSequence = new InterruptibleCharSequence(msg.getField(rule.getField()).toString());
+            final String value = msg.getField(rule.getField()).toString();
+            final CharSequence charSequence = timeoutNanos > 0
+                    ? TimeLimitedCharSequence.withTimeout(value, timeoutNanos, TimeUnit.NANOSECONDS)
+                    : new InterruptibleCharSequence(value);
             return rule.getInverted() ^ pattern.matcher(charSequence).find();
         } catch (ExecutionException e) {
             LOG.error("Unable to get pattern from regex cache: ", e);
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.utilities;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Aho-Corasick automaton to find all occurrences of a set of literal patterns in a single pass over a text.
+ *
+ * Every pattern is registered with an integer ID. Several patterns can share the same ID and the same pattern can be
+ * registered with several IDs. Instances are immutable and safe to use from multiple threads.
+ */
+public final class AhoCorasickAutomaton {
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final char[][] transitionKeys;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    private final int[][] outputs;
+
+    private AhoCorasickAutomaton(char[][] transitionKeys, int[][] transitionTargets, int[] failure, int[][] outputs) {
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.failure = failure;
+        this.outputs = outputs;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Sets the IDs of all patterns which are contained in the given text in {@code matches}.
+     *
+     * @param text    the text to search
+     * @param matches the bitset to set the IDs of matching patterns in, existing bits are not cleared
+     */
+    public void matchAll(CharSequence text, BitSet matches) {
+        int state = 0;
+        emit(state, matches);
+
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            while (true) {
+                final int next = transition(state, c);
+                if (next >= 0) {
+                    state = next;
+                    break;
+                }
+                if (state == 0) {
+                    break;
+                }
+                state = failure[state];
+            }
+            emit(state, matches);
+        }
+    }
+
+    private int transition(int state, char c) {
+        final char[] keys = transitionKeys[state];
+        if (keys.length == 0) {
+            return -1;
+        }
+        final int idx = Arrays.binarySearch(keys, c);
+        return idx < 0 ? -1 : transitionTargets[state][idx];
+    }
+
+    private void emit(int state, BitSet matches) {
+        for (int id : outputs[state]) {
+            matches.set(id);
+        }
+    }
+
+    public static class Builder {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<List<Integer>> outputs = new ArrayList<>();
+
+        private Builder() {
+            newNode();
+        }
+
+        private int newNode() {
+            children.add(new TreeMap<>());
+            outputs.add(new ArrayList<>());
+            return children.size() - 1;
+        }
+
+        public Builder add(String pattern, int id) {
+            requireNonNull(pattern, "pattern cannot be null");
+
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                final char c = pattern.charAt(i);
+                final Integer next = children.get(node).get(c);
+                if (next == null) {
+                    final int created = newNode();
+                    children.get(node).put(c, created);
+                    node = created;
+                } else {
+                    node = next;
+                }
+            }
+            outputs.get(node).add(id);
+            return this;
+        }
+
+        public AhoCorasickAutomaton build() {
+            final int size = children.size();
+            final int[] failure = new int[size];
+            final int[][] mergedOutputs = new int[size][];
+            final char[][] keys = new char[size][];
+            final int[][] targets = new int[size][];
+
+            mergedOutputs[0] = toArray(outputs.get(0));
+
+            // Breadth-first traversal guarantees that the failure node of a node has been completed before the node.
+            final Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : children.get(0).values()) {
+                failure[child] = 0;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                final int node = queue.poll();
+                final List<Integer> nodeOutputs = new ArrayList<>(outputs.get(node));
+                for (int id : mergedOutputs[failure[node]]) {
+                    nodeOutputs.add(id);
+                }
+                mergedOutputs[node] = toArray(nodeOutputs);
+
+                for (Map.Entry<Character, Integer> entry : children.get(node).entrySet()) {
+                    final char c = entry.getKey();
+                    final int child = entry.getValue();
+                    int fallback = failure[node];
+                    while (fallback != 0 && !children.get(fallback).containsKey(c)) {
+                        fallback = failure[fallback];
+                    }
+                    final Integer target = children.get(fallback).get(c);
+                    failure[child] = target == null ? 0 : target;
+                    queue.add(child);
+                }
+            }
+
+            for (int node = 0; node < size; node++) {
+                final TreeMap<Character, Integer> nodeChildren = children.get(node);
+                keys[node] = new char[nodeChildren.size()];
+                targets[node] = new int[nodeChildren.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> entry : nodeChildren.entrySet()) {
+                    keys[node][i] = entry.getKey();
+                    targets[node][i] = entry.getValue();
+                    i++;
+                }
+            }
+
+            return new AhoCorasickAutomaton(keys, targets, failure, mergedOutputs);
+        }
+
+        private static int[] toArray(List<Integer> ids) {
+            return ids.isEmpty() ? NO_OUTPUT : ids.stream().mapToInt(Integer::intValue).distinct().toArray();
+        }
+    }
+}
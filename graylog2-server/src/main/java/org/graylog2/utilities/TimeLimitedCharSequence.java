@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.utilities;
+
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link CharSequence} which throws an {@link UncheckedTimeoutException} once a deadline has passed while it is
+ * being read.
+ *
+ * This allows limiting the execution time of regular expressions in the calling thread, because the regex engine
+ * reads the input through {@link #charAt(int)} while it is backtracking. The clock is only checked every
+ * {@value #CHECK_INTERVAL} reads to keep the overhead low.
+ *
+ * Instances are NOT thread-safe.
+ */
+public class TimeLimitedCharSequence implements CharSequence {
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final CharSequence inner;
+    private final long deadlineNanos;
+    private int reads = 0;
+
+    public TimeLimitedCharSequence(CharSequence inner, long deadlineNanos) {
+        this.inner = requireNonNull(inner, "inner cannot be null");
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static TimeLimitedCharSequence withTimeout(CharSequence inner, long timeout, TimeUnit unit) {
+        return new TimeLimitedCharSequence(inner, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    @Override
+    public char charAt(int index) {
+        if ((++reads & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - deadlineNanos > 0) {
+            throw new UncheckedTimeoutException("Deadline exceeded while reading character sequence");
+        }
+        return inner.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return inner.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new TimeLimitedCharSequence(inner.subSequence(start, end), deadlineNanos);
+    }
+
+    @Override
+    public String toString() {
+        return inner.toString();
+    }
+}
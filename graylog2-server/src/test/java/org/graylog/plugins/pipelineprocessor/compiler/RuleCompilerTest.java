@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.pipelineprocessor.compiler;
+
+import com.google.common.collect.ImmutableList;
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.graylog.plugins.pipelineprocessor.ast.exceptions.FunctionEvaluationException;
+import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
+import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
+import org.graylog.plugins.pipelineprocessor.ast.statements.Statement;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.LongConversion;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
+import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
+import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog2.plugin.Message;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RuleCompilerTest {
+    private static final DateTime TIMESTAMP = new DateTime(2024, 1, 1, 12, 0, DateTimeZone.UTC);
+
+    private PipelineRuleParser parser;
+    private RuleCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        final Function<Boolean> fail = new AbstractFunction<>() {
+            @Override
+            public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
+                throw new IllegalStateException("failed on purpose");
+            }
+
+            @Override
+            public FunctionDescriptor<Boolean> descriptor() {
+                return FunctionDescriptor.<Boolean>builder()
+                        .name("fail")
+                        .returnType(Boolean.class)
+                        .params(ImmutableList.of())
+                        .build();
+            }
+        };
+        final Map<String, Function<?>> functions = Map.of(
+                HasField.NAME, new HasField(),
+                SetField.NAME, new SetField(),
+                LongConversion.NAME, new LongConversion(),
+                StringConversion.NAME, new StringConversion(),
+                "fail", fail);
+        parser = new PipelineRuleParser(new FunctionRegistry(functions));
+        compiler = new RuleCompiler();
+    }
+
+    @Test
+    void matchesLikeTheInterpreter() throws Exception {
+        final List<Rule> rules = List.of(
+                parser.parseRule("""
+                        rule "levels"
+                        when
+                            to_long($message.level) > 3 AND NOT has_field("ignore")
+                        then
+                            set_field("alert", true);
+                        end""", false),
+                parser.parseRule("""
+                        rule "sources"
+                        when
+                            to_long($message.count, 0) >= 10 OR $message.source == "web-01" OR $message.source != "db-01"
+                        then
+                            let source = to_string($message.source);
+                            set_field("copied_source", source);
+                        end""", false),
+                parser.parseRule("""
+                        rule "timestamps"
+                        when
+                            $message.timestamp == $message.created_at
+                        then
+                            set_field("same_time", true);
+                        end""", false));
+
+        final List<Consumer<Message>> messages = List.of(
+                message -> message.addField("level", 5),
+                message -> {
+                    message.addField("level", 5);
+                    message.addField("ignore", true);
+                },
+                message -> message.addField("count", 12L),
+                message -> message.addField("source", "db-01"),
+                message -> message.addField("created_at", TIMESTAMP.withZone(DateTimeZone.forOffsetHours(2))));
+
+        for (Rule rule : rules) {
+            final CompiledRule compiledRule = compiler.compile(rule);
+            for (Consumer<Message> fields : messages) {
+                final Message interpreted = message(fields);
+                final Message compiled = message(fields);
+
+                final boolean interpretedMatch = run(rule.when()::evaluateBool, rule.then(), interpreted);
+                final boolean compiledMatch = run(compiledRule::evaluateCondition, compiledRule.actions(), compiled);
+
+                assertThat(compiledMatch).as("%s", rule).isEqualTo(interpretedMatch);
+                assertThat(fieldsWithoutId(compiled)).as("%s", rule).isEqualTo(fieldsWithoutId(interpreted));
+            }
+        }
+    }
+
+    @Test
+    void foldsConstantExpressions() throws Exception {
+        final Rule rule = parser.parseRule("""
+                rule "constants"
+                when
+                    "a" == "a" AND to_long($message.level) > 1 + 2
+                then
+                    set_field("matched", true);
+                end""", false);
+
+        final CompiledRule compiledRule = compiler.compile(rule);
+
+        assertThat(compiledRule.foldedConstants()).isGreaterThanOrEqualTo(2);
+        assertThat(compiledRule.evaluateCondition(new EvaluationContext(message(m -> m.addField("level", 4))))).isTrue();
+        assertThat(compiledRule.evaluateCondition(new EvaluationContext(message(m -> m.addField("level", 3))))).isFalse();
+    }
+
+    @Test
+    void indexesStageConditionsOnConstants() throws Exception {
+        final List<Rule> rules = List.of(
+                parser.parseRule("""
+                        rule "nginx"
+                        when
+                            has_field("app") AND to_string($message.app) == "nginx"
+                        then
+                        end""", false),
+                parser.parseRule("""
+                        rule "apache"
+                        when
+                            has_field("app") AND to_string($message.app) == "apache"
+                        then
+                        end""", false),
+                parser.parseRule("""
+                        rule "nginx errors"
+                        when
+                            to_string($message.app) == "nginx" AND to_long($message.status) >= 500
+                        then
+                        end""", false),
+                parser.parseRule("""
+                        rule "numeric status"
+                        when
+                            $message.status == 200
+                        then
+                        end""", false),
+                parser.parseRule("""
+                        rule "errors"
+                        when
+                            to_long($message.status) >= 500 OR to_string($message.app) == "nginx"
+                        then
+                        end""", false));
+
+        final List<CompiledRule> compiledRules = compiler.compileStage(rules);
+
+        assertThat(compiledRules).extracting(CompiledRule::indexed).containsExactly(true, true, true, false, false);
+
+        final List<Consumer<Message>> messages = List.of(
+                message -> message.addField("app", "nginx"),
+                message -> {
+                    message.addField("app", "nginx");
+                    message.addField("status", 502L);
+                },
+                message -> message.addField("app", "apache"),
+                message -> message.addField("app", 42L),
+                message -> message.addField("status", 200L),
+                message -> {});
+
+        for (Consumer<Message> fields : messages) {
+            final EvaluationContext interpreted = new EvaluationContext(message(fields));
+            final EvaluationContext compiled = new EvaluationContext(message(fields));
+            for (int i = 0; i < rules.size(); i++) {
+                assertThat(compiledRules.get(i).evaluateCondition(compiled))
+                        .as("%s", rules.get(i))
+                        .isEqualTo(rules.get(i).when().evaluateBool(interpreted));
+            }
+        }
+    }
+
+    @Test
+    void reportsErrorsLikeTheInterpreter() throws Exception {
+        final Rule failingCondition = parser.parseRule("""
+                rule "failing condition"
+                when
+                    has_field("source") AND fail()
+                then
+                end""", false);
+        final CompiledRule compiledCondition = compiler.compile(failingCondition);
+
+        assertThatThrownBy(() -> compiledCondition.evaluateCondition(new EvaluationContext(message(m -> {}))))
+                .isInstanceOf(FunctionEvaluationException.class)
+                .hasRootCauseMessage("failed on purpose");
+
+        final Rule failingAction = parser.parseRule("""
+                rule "failing action"
+                when
+                    true
+                then
+                    fail();
+                    set_field("unreachable", true);
+                end""", false);
+        final CompiledRule compiledAction = compiler.compile(failingAction);
+
+        final EvaluationContext interpreted = new EvaluationContext(message(m -> {}));
+        final EvaluationContext compiled = new EvaluationContext(message(m -> {}));
+        failingAction.then().iterator().next().evaluate(interpreted);
+        compiledAction.actions().get(0).evaluate(compiled);
+
+        assertThat(compiled.hasEvaluationErrors()).isTrue();
+        assertThat(compiled.evaluationErrors().toString()).isEqualTo(interpreted.evaluationErrors().toString());
+    }
+
+    private static Message message(Consumer<Message> fields) {
+        final Message message = new Message("hello compiler", "web-01", TIMESTAMP);
+        fields.accept(message);
+        return message;
+    }
+
+    private static Map<String, Object> fieldsWithoutId(Message message) {
+        final Map<String, Object> fields = new HashMap<>(message.getFields());
+        fields.remove(Message.FIELD_ID);
+        return fields;
+    }
+
+    private static boolean run(Predicate<EvaluationContext> condition,
+                               Collection<Statement> actions,
+                               Message message) {
+        final EvaluationContext context = new EvaluationContext(message);
+        if (!condition.test(context)) {
+            return false;
+        }
+        for (Statement statement : actions) {
+            statement.evaluate(context);
+            if (context.hasEvaluationErrors()) {
+                break;
+            }
+        }
+        return true;
+    }
+}
@@ -385,7 +385,8 @@ public class FunctionsSnippetsTest extends BaseParserTest {
         final EventBus clusterBus = new EventBus();
         final GrokPatternRegistry grokPatternRegistry = new GrokPatternRegistry(clusterBus,
                 grokPatternService,
-                Executors.newScheduledThreadPool(1));
+                Executors.newScheduledThreadPool(1),
+                new MetricRegistry());
         functions.put(GrokMatch.NAME, new GrokMatch(grokPatternRegistry));
         functions.put(GrokExists.NAME, new GrokExists(grokPatternRegistry));
 
@@ -1399,16 +1400,15 @@ public class FunctionsSnippetsTest extends BaseParserTest {
 
     @Test
     public void lookupAll() {
-        doReturn(LookupResult.single("val1")).when(lookupTable).lookup("key1");
-        doReturn(LookupResult.single("val2")).when(lookupTable).lookup("key2");
-        doReturn(LookupResult.single("val3")).when(lookupTable).lookup("key3");
+        doReturn(Map.of(
+                "key1", LookupResult.single("val1"),
+                "key2", LookupResult.single("val2"),
+                "key3", LookupResult.single("val3"))).when(lookupTable).lookupAll(any());
 
         final Rule rule = parser.parseRule(ruleForTest(), false);
         final Message message = evaluateRule(rule);
 
-        verify(lookupTable).lookup("key1");
-        verify(lookupTable).lookup("key2");
-        verify(lookupTable).lookup("key3");
+        verify(lookupTable).lookupAll(List.of("key1", "key2", "key3"));
         verifyNoMoreInteractions(lookupTable);
 
         assertThat(message.getField("results")).isEqualTo(Arrays.asList("val1", "val2", "val3"));
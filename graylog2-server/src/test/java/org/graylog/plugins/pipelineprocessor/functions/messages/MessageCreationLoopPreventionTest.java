@@ -135,7 +135,8 @@ public class MessageCreationLoopPreventionTest extends BaseParserTest {
                 new MetricRegistry(),
                 Executors.newScheduledThreadPool(1),
                 eventBus,
-                (currentPipelines, streamPipelineConnections, ruleMetricsConfig) -> new PipelineInterpreter.State(currentPipelines, streamPipelineConnections, ruleMetricsConfig, new MetricRegistry(), 1, true)
+                (currentPipelines, streamPipelineConnections, ruleMetricsConfig) -> new PipelineInterpreter.State(currentPipelines, streamPipelineConnections, ruleMetricsConfig, new MetricRegistry(), 1, true),
+                false
         );
         this.pipelineInterpreter = new PipelineInterpreter(
                 messageQueueAcknowledger,
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.strings;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.EventBus;
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.StringExpression;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
+import org.graylog2.grok.GrokPattern;
+import org.graylog2.grok.GrokPatternRegistry;
+import org.graylog2.grok.GrokPatternService;
+import org.graylog2.grok.GrokPatternsUpdatedEvent;
+import org.graylog2.shared.SuppressForbidden;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GrokMatchTest {
+    private final EventBus eventBus = new EventBus();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final GrokPatternService grokPatternService = mock(GrokPatternService.class);
+    private GrokMatch grokMatch;
+
+    @BeforeEach
+    @SuppressForbidden("Using Executors.newSingleThreadExecutor() is okay in tests")
+    void setUp() {
+        when(grokPatternService.loadAll()).thenReturn(Collections.singleton(GrokPattern.create("NUM", "[0-9]+")));
+        final GrokPatternRegistry grokPatternRegistry = new GrokPatternRegistry(eventBus,
+                grokPatternService,
+                Executors.newSingleThreadScheduledExecutor(),
+                metricRegistry);
+        grokMatch = new GrokMatch(grokPatternRegistry);
+    }
+
+    @Test
+    void constantPatternIsCompiledAtParseTime() {
+        final FunctionArgs args = args("%{NUM:n}", "42");
+        grokMatch.preprocessArgs(args);
+        final long requests = cacheRequests();
+
+        assertThat(grokMatch.evaluate(args, EvaluationContext.emptyContext())).containsEntry("n", "42");
+        assertThat(grokMatch.evaluate(args, EvaluationContext.emptyContext())).containsEntry("n", "42");
+        assertThat(cacheRequests()).isEqualTo(requests);
+    }
+
+    @Test
+    void reloadedPatternsReplacePrecompiledPattern() {
+        final FunctionArgs args = args("%{NUM:n}", "abc");
+        grokMatch.preprocessArgs(args);
+        assertThat(grokMatch.evaluate(args, EvaluationContext.emptyContext()).isMatches()).isFalse();
+
+        when(grokPatternService.loadAll()).thenReturn(Collections.singleton(GrokPattern.create("NUM", "[a-z]+")));
+        eventBus.post(GrokPatternsUpdatedEvent.create(Collections.singleton("NUM")));
+
+        assertThat(grokMatch.evaluate(args, EvaluationContext.emptyContext())).containsEntry("n", "abc");
+    }
+
+    @Test
+    void invalidConstantPatternFailsAtEvaluation() {
+        final FunctionArgs args = args("%{MISSING}", "42");
+        grokMatch.preprocessArgs(args);
+
+        assertThatThrownBy(() -> grokMatch.evaluate(args, EvaluationContext.emptyContext()))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("MISSING");
+    }
+
+    private FunctionArgs args(String pattern, String value) {
+        return new FunctionArgs(grokMatch, ImmutableMap.of(
+                "pattern", new StringExpression(null, pattern),
+                "value", new StringExpression(null, value)));
+    }
+
+    private long cacheRequests() {
+        return (long) metricRegistry.getGauges().get(MetricRegistry.name(GrokPatternRegistry.class, "grok-cache", "requests")).getValue();
+    }
+}
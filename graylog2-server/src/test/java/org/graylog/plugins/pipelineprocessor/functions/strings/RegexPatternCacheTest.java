@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.strings;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.PatternSyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RegexPatternCacheTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final RegexPatternCache cache = new RegexPatternCache(metricRegistry);
+
+    @Test
+    void returnsSharedPattern() {
+        assertThat(cache.get("^a+$")).isSameAs(cache.get("^a+$"));
+        assertThat(cache.get("^a+$").matcher("aaa").matches()).isTrue();
+        assertThat(metricRegistry.getGauges().get(MetricRegistry.name(RegexPatternCache.class, "cache", "hits")).getValue())
+                .isEqualTo(2L);
+    }
+
+    @Test
+    void isBounded() {
+        for (int i = 0; i < 2 * RegexPatternCache.MAXIMUM_SIZE; i++) {
+            cache.get("^" + i + "$");
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(RegexPatternCache.MAXIMUM_SIZE);
+    }
+
+    @Test
+    void propagatesSyntaxErrors() {
+        assertThatThrownBy(() -> cache.get("(unclosed"))
+                .isInstanceOf(PatternSyntaxException.class);
+    }
+}
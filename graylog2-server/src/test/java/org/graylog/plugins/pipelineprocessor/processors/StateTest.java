@@ -16,18 +16,46 @@
  */
 package org.graylog.plugins.pipelineprocessor.processors;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 
 public class StateTest {
 
     @Test
     public void testMetricName() {
-        final PipelineInterpreter.State state = new PipelineInterpreter.State(null, null, null,
+        final PipelineInterpreter.State state = new PipelineInterpreter.State(null, ImmutableSetMultimap.of(), null,
                 new LocalMetricRegistry(), 1, false);
         assertEquals("org.graylog.plugins.pipelineprocessor.processors.PipelineInterpreter.stage-cache",
                 state.getStageCacheMetricName());
     }
+
+    @Test
+    public void testStreamIndex() {
+        final Pipeline pipeline1 = Pipeline.empty("p1");
+        final Pipeline pipeline2 = Pipeline.empty("p2");
+        final ImmutableSetMultimap<String, Pipeline> connections = ImmutableSetMultimap.of(
+                "s1", pipeline1,
+                "s1", pipeline2,
+                "s2", pipeline2);
+        final PipelineInterpreter.State state = new PipelineInterpreter.State(
+                ImmutableMap.of("p1", pipeline1, "p2", pipeline2), connections, null,
+                new LocalMetricRegistry(), 1, false);
+
+        assertThat(state.getStreamCount()).isEqualTo(2);
+        assertThat(state.streamIndex("unconnected")).isEqualTo(-1);
+
+        final int s1 = state.streamIndex("s1");
+        final int s2 = state.streamIndex("s2");
+        assertThat(s1).isNotEqualTo(s2).isBetween(0, 1);
+        assertThat(s2).isBetween(0, 1);
+        assertThat(state.getStreamId(s1)).isEqualTo("s1");
+        assertThat(state.getStreamPipelines(s1)).containsExactlyInAnyOrder(pipeline1, pipeline2);
+        assertThat(state.getStreamPipelines(s2)).containsExactly(pipeline2);
+    }
 }
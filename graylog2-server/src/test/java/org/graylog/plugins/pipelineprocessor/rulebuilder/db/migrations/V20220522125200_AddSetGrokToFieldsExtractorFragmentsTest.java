@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.pipelineprocessor.rulebuilder.db.migrations;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import org.graylog.plugins.pipelineprocessor.ast.Rule;
@@ -59,7 +60,8 @@ public class V20220522125200_AddSetGrokToFieldsExtractorFragmentsTest extends Ba
         final EventBus clusterBus = new EventBus();
         final GrokPatternRegistry grokPatternRegistry = new GrokPatternRegistry(clusterBus,
                 grokPatternService,
-                Executors.newScheduledThreadPool(1));
+                Executors.newScheduledThreadPool(1),
+                new MetricRegistry());
         functions.put(GrokMatch.NAME, new GrokMatch(grokPatternRegistry));
         functions.put(SetFields.NAME, new SetFields());
         functions.put(StringConversion.NAME, new StringConversion());
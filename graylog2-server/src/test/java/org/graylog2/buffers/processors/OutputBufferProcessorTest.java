@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.buffers.processors;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.Configuration;
+import org.graylog2.outputs.OutputRouter;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.buffers.MessageEvent;
+import org.graylog2.plugin.outputs.MessageOutput;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutputBufferProcessorTest {
+    private Configuration configuration;
+    private ServerStatus serverStatus;
+    private OutputRouter outputRouter;
+    private MessageOutput defaultOutput;
+    private MessageOutput streamOutput;
+
+    @BeforeEach
+    void setUp() {
+        configuration = mock(Configuration.class);
+        when(configuration.getOutputBufferProcessorThreadsCorePoolSize()).thenReturn(2);
+        when(configuration.getOutputModuleTimeout()).thenReturn(100L);
+        serverStatus = mock(ServerStatus.class);
+        when(serverStatus.getDetailedMessageRecordingStrategy()).thenReturn(ServerStatus.MessageDetailRecordingStrategy.NEVER);
+        outputRouter = mock(OutputRouter.class);
+        defaultOutput = mock(MessageOutput.class);
+        when(defaultOutput.isRunning()).thenReturn(true);
+        streamOutput = mock(MessageOutput.class);
+        when(streamOutput.isRunning()).thenReturn(true);
+    }
+
+    @Test
+    void writesDefaultOutputInExecutor() throws Exception {
+        when(outputRouter.getStreamOutputsForMessage(any())).thenReturn(Set.of());
+        final AtomicReference<Thread> writer = recordWriterThread(defaultOutput);
+        final MessageEvent event = event();
+
+        processor().onEvent(event);
+
+        verify(defaultOutput).write(any(Message.class));
+        assertThat(writer.get()).isNotSameAs(Thread.currentThread());
+        assertThat(event.getMessage()).isNull();
+    }
+
+    @Test
+    void writesDefaultOutputInline() throws Exception {
+        when(configuration.isOutputBufferProcessorDefaultOutputInline()).thenReturn(true);
+        when(outputRouter.getStreamOutputsForMessage(any())).thenReturn(Set.of(streamOutput));
+        final AtomicReference<Thread> writer = recordWriterThread(defaultOutput);
+
+        processor().onEvent(event());
+
+        verify(defaultOutput).write(any(Message.class));
+        verify(streamOutput).write(any(Message.class));
+        assertThat(writer.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void doesNotWaitLongerThanOutputModuleTimeoutForStreamOutputs() throws Exception {
+        when(configuration.isOutputBufferProcessorDefaultOutputInline()).thenReturn(true);
+        when(outputRouter.getStreamOutputsForMessage(any())).thenReturn(Set.of(streamOutput));
+        final CountDownLatch blockStreamOutput = new CountDownLatch(1);
+        doAnswer(invocation -> blockStreamOutput.await(10, TimeUnit.SECONDS)).when(streamOutput).write(any(Message.class));
+
+        final long start = System.nanoTime();
+        processor().onEvent(event());
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        blockStreamOutput.countDown();
+
+        verify(defaultOutput).write(any(Message.class));
+        verify(streamOutput, timeout(1000)).write(any(Message.class));
+        assertThat(elapsedMillis).isLessThan(5000);
+    }
+
+    @Test
+    void countsInlineDefaultOutputAgainstOutputModuleTimeout() throws Exception {
+        when(configuration.getOutputModuleTimeout()).thenReturn(1000L);
+        when(configuration.isOutputBufferProcessorDefaultOutputInline()).thenReturn(true);
+        when(outputRouter.getStreamOutputsForMessage(any())).thenReturn(Set.of(streamOutput));
+        final CountDownLatch blockOutputs = new CountDownLatch(1);
+        doAnswer(invocation -> blockOutputs.await(1000, TimeUnit.MILLISECONDS)).when(defaultOutput).write(any(Message.class));
+        doAnswer(invocation -> blockOutputs.await(10, TimeUnit.SECONDS)).when(streamOutput).write(any(Message.class));
+
+        final long start = System.nanoTime();
+        processor().onEvent(event());
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        blockOutputs.countDown();
+
+        // the default output already used up the timeout, so there is no additional wait for the stream output
+        assertThat(elapsedMillis).isBetween(1000L, 1800L);
+    }
+
+    private OutputBufferProcessor processor() {
+        return new OutputBufferProcessor(configuration, new MetricRegistry(), serverStatus, outputRouter, defaultOutput);
+    }
+
+    private static AtomicReference<Thread> recordWriterThread(MessageOutput output) throws Exception {
+        final AtomicReference<Thread> writer = new AtomicReference<>();
+        doAnswer(invocation -> {
+            writer.set(Thread.currentThread());
+            return null;
+        }).when(output).write(any(Message.class));
+        return writer;
+    }
+
+    private static MessageEvent event() {
+        final MessageEvent event = new MessageEvent();
+        event.setMessage(new Message("message", "source", Tools.nowUTC()));
+        return event;
+    }
+}
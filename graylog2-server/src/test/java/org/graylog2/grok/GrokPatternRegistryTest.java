@@ -16,6 +16,7 @@
  */
 package org.graylog2.grok;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.krakens.grok.api.Grok;
@@ -48,6 +49,7 @@ public class GrokPatternRegistryTest {
 
     private GrokPatternRegistry grokPatternRegistry;
     private EventBus eventBus;
+    private MetricRegistry metricRegistry;
     @Mock
     private GrokPatternService grokPatternService;
 
@@ -56,7 +58,8 @@ public class GrokPatternRegistryTest {
         eventBus = new EventBus("Test");
         final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("updater-%d").build());
         when(grokPatternService.loadAll()).thenReturn(GROK_PATTERNS);
-        grokPatternRegistry = new GrokPatternRegistry(eventBus, grokPatternService, executor);
+        metricRegistry = new MetricRegistry();
+        grokPatternRegistry = new GrokPatternRegistry(eventBus, grokPatternService, executor, metricRegistry);
     }
 
     @Test
@@ -106,6 +109,27 @@ public class GrokPatternRegistryTest {
         grokPatternRegistry.cachedGrokForPattern("%{EMPTY}", true);
     }
 
+    @Test
+    public void generationChangesOnReload() {
+        final long generation = grokPatternRegistry.generation();
+
+        eventBus.post(GrokPatternsDeletedEvent.create(Collections.singleton("NEW_PATTERN")));
+
+        assertThat(grokPatternRegistry.generation()).isGreaterThan(generation);
+    }
+
+    @Test
+    public void cacheMetrics() {
+        grokPatternRegistry.cachedGrokForPattern("%{TESTNUM}");
+        grokPatternRegistry.cachedGrokForPattern("%{TESTNUM}");
+
+        assertThat(metricRegistry.getGauges())
+                .containsKey(MetricRegistry.name(GrokPatternRegistry.class, "grok-cache", "hits"))
+                .containsKey(MetricRegistry.name(GrokPatternRegistry.class, "grok-cache-named-only", "hits"));
+        assertThat(metricRegistry.getGauges().get(MetricRegistry.name(GrokPatternRegistry.class, "grok-cache", "hits")).getValue())
+                .isEqualTo(1L);
+    }
+
     @Test
     public void patterns() {
         assertThat(grokPatternRegistry.patterns()).isEqualTo(GROK_PATTERNS);
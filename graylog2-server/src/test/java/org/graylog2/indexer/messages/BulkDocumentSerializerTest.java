@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.messages;
+
+import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkDocumentSerializerTest {
+    private final ObjectMapper objectMapper = new ObjectMapperProvider().get();
+    private final BulkDocumentSerializer serializer = new BulkDocumentSerializer(objectMapper, new Meter());
+
+    @Test
+    void serializesDocument() throws Exception {
+        final Indexable indexable = indexable(ImmutableMap.of("message", "foo", "count", 23));
+
+        final byte[] document = serializer.serialize(indexable);
+
+        assertThat(objectMapper.readValue(document, Map.class)).isEqualTo(ImmutableMap.of("message", "foo", "count", 23));
+    }
+
+    @Test
+    void reusedBufferDoesNotLeakIntoPreviousDocuments() {
+        final byte[] first = serializer.serialize(indexable(ImmutableMap.of("message", "a".repeat(200_000))));
+        final byte[] second = serializer.serialize(indexable(ImmutableMap.of("message", "b")));
+
+        assertThat(new String(first, StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"" + "a".repeat(200_000) + "\"}");
+        assertThat(new String(second, StandardCharsets.UTF_8)).isEqualTo("{\"message\":\"b\"}");
+    }
+
+    @Test
+    void deduplicatingSerializerSerializesEveryIndexableOnce() throws Exception {
+        final Indexable first = indexable(ImmutableMap.of("message", "first"));
+        final Indexable second = indexable(ImmutableMap.of("message", "second"));
+        final Function<Indexable, byte[]> deduplicating = serializer.deduplicatingSerializer();
+
+        final byte[] firstDocument = deduplicating.apply(first);
+        assertThat(deduplicating.apply(second)).isNotSameAs(firstDocument);
+        assertThat(deduplicating.apply(first)).isSameAs(firstDocument);
+
+        verify(first, times(1)).writeElasticSearchObject(any(), any(), any());
+        verify(second, times(1)).writeElasticSearchObject(any(), any(), any());
+    }
+
+    private Indexable indexable(Map<String, Object> document) {
+        final Indexable indexable = mock(Indexable.class);
+        when(indexable.toElasticSearchObject(any(), any())).thenReturn(document);
+        try {
+            doCallRealMethod().when(indexable).writeElasticSearchObject(any(), any(), any());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return indexable;
+    }
+}
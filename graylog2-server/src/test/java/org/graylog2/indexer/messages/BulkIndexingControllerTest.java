@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.messages;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import org.graylog2.indexer.cluster.WriteThreadPoolStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+class BulkIndexingControllerTest {
+    private static final Duration TARGET_LATENCY = Duration.seconds(1);
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final BulkIndexingController controller = new BulkIndexingController(true, 4, TARGET_LATENCY, new MetricRegistry(), clock::get);
+
+    @Test
+    void disabledControllerDoesNotLimitAnything() throws Exception {
+        final BulkIndexingController disabled = BulkIndexingController.disabled();
+
+        disabled.onRejectedRequest(100);
+        assertThat(disabled.run(100, IndexingResults::empty)).isEqualTo(IndexingResults.empty());
+
+        assertThat(disabled.getChunkSizeLimit()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(disabled.getConcurrencyLimit()).isZero();
+    }
+
+    @Test
+    void increasesConcurrencyAdditivelyUpToMaximum() throws Exception {
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(1);
+
+        succeed(1);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(2);
+        succeed(3);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(3);
+        succeed(10);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void rejectedRequestHalvesConcurrencyAndChunkSizeOncePerTargetLatency() throws Exception {
+        succeed(10);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(4);
+
+        controller.onRejectedRequest(1000);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(2);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(500);
+
+        // Other requests which ran into the same overload don't reduce the limits any further
+        controller.onRejectedRequest(1000);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(2);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(500);
+
+        clock.addAndGet(TARGET_LATENCY.toNanoseconds());
+        controller.onRejectedRequest(500);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(1);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(250);
+    }
+
+    @Test
+    void chunkSizeRecoversAdditivelyUntilUnlimited() throws Exception {
+        controller.run(300, IndexingResults::empty);
+        controller.onRejectedRequest(300);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(150);
+
+        succeed(1);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(150 + BulkIndexingController.CHUNK_SIZE_INCREMENT);
+        succeed(2);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void chunkSizeIsNotReducedBelowMinimum() {
+        controller.onRejectedRequest(60);
+
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(BulkIndexingController.MIN_CHUNK_SIZE);
+    }
+
+    @Test
+    void slowRequestsReduceConcurrency() throws Exception {
+        succeed(10);
+
+        controller.run(10, () -> {
+            clock.addAndGet(TARGET_LATENCY.toNanoseconds() + 1);
+            return IndexingResults.empty();
+        });
+
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(3);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void rejectedBulkItemsCountAsRejection() throws Exception {
+        succeed(10);
+
+        controller.run(10, () -> IndexingResults.create(List.of(), List.of(
+                IndexingError.create(mock(Indexable.class), "graylog_0", IndexingError.Type.Unknown,
+                        "OpenSearch exception [type=es_rejected_execution_exception, reason=rejected execution of coordinating operation]"))));
+
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(2);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(BulkIndexingController.MIN_CHUNK_SIZE);
+    }
+
+    @Test
+    void writeThreadPoolStatsReduceConcurrency() throws Exception {
+        succeed(10);
+
+        controller.updateWriteThreadPoolStats(WriteThreadPoolStats.create(3, 2, 10, 5, 100));
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(4);
+
+        // New rejections in the write thread pool
+        controller.updateWriteThreadPoolStats(WriteThreadPoolStats.create(3, 2, 10, 5, 110));
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(2);
+        assertThat(controller.getChunkSizeLimit()).isEqualTo(Integer.MAX_VALUE);
+
+        // Congested write queue
+        clock.addAndGet(TARGET_LATENCY.toNanoseconds());
+        controller.updateWriteThreadPoolStats(WriteThreadPoolStats.create(3, 2, 3000, BulkIndexingController.WRITE_QUEUE_CONGESTION_THRESHOLD, 110));
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(1);
+        assertThat(controller.getWriteQueue()).isEqualTo(BulkIndexingController.WRITE_QUEUE_CONGESTION_THRESHOLD);
+
+        // Requests don't increase the concurrency as long as the write queue is congested
+        succeed(5);
+        assertThat(controller.getConcurrencyLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void requestsWaitForFreeSlot() throws Exception {
+        final CountDownLatch firstRunning = new CountDownLatch(1);
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        final CompletableFuture<IndexingResults> first = CompletableFuture.supplyAsync(() -> run(() -> {
+            firstRunning.countDown();
+            releaseFirst.await();
+            return IndexingResults.empty();
+        }));
+        assertThat(firstRunning.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final CompletableFuture<IndexingResults> second = CompletableFuture.supplyAsync(() -> run(IndexingResults::empty));
+        await().atMost(10, TimeUnit.SECONDS).until(() -> controller.getWaitingRequests() == 1);
+        assertThat(controller.getInflightRequests()).isEqualTo(1);
+        assertThat(second).isNotDone();
+
+        releaseFirst.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(IndexingResults.empty());
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo(IndexingResults.empty());
+        assertThat(controller.getInflightRequests()).isZero();
+        assertThat(controller.getWaitingRequests()).isZero();
+    }
+
+    private interface InterruptibleCall {
+        IndexingResults call() throws Exception;
+    }
+
+    private IndexingResults run(InterruptibleCall call) {
+        try {
+            return controller.run(1, () -> {
+                try {
+                    return call.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void succeed(int times) throws Exception {
+        for (int i = 0; i < times; i++) {
+            controller.run(10, IndexingResults::empty);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.messages;
+
+import org.graylog2.indexer.IndexSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkedBulkIndexerTest {
+    private final BulkIndexingController controller = mock(BulkIndexingController.class);
+    private final ChunkedBulkIndexer chunkedBulkIndexer = new ChunkedBulkIndexer(controller);
+
+    @Test
+    void usesChunkSizeLimitOfController() throws Exception {
+        when(controller.getChunkSizeLimit()).thenReturn(100);
+        final List<Integer> chunkSizes = new ArrayList<>();
+
+        chunkedBulkIndexer.index(requests(500), chunk -> {
+            chunkSizes.add(chunk.size);
+            return IndexingResults.empty();
+        });
+
+        assertThat(chunkSizes).containsExactly(100);
+    }
+
+    @Test
+    void reportsRejectedRequestsToController() throws Exception {
+        when(controller.getChunkSizeLimit()).thenReturn(Integer.MAX_VALUE);
+        final List<Integer> chunkSizes = new ArrayList<>();
+
+        chunkedBulkIndexer.index(requests(500), chunk -> {
+            chunkSizes.add(chunk.size);
+            if (chunkSizes.size() == 1) {
+                throw new ChunkedBulkIndexer.TooManyRequestsException(0, IndexingResults.empty());
+            }
+            return IndexingResults.empty();
+        });
+
+        assertThat(chunkSizes).containsExactly(500, 250);
+        verify(controller).onRejectedRequest(500);
+    }
+
+    private List<IndexingRequest> requests(int count) {
+        final IndexSet indexSet = mock(IndexSet.class);
+        return IntStream.range(0, count)
+                .mapToObj(i -> IndexingRequest.create(indexSet, mock(Indexable.class)))
+                .toList();
+    }
+}
@@ -55,7 +55,7 @@ class MessagesBulkIndexRetryingTest {
     void setUp() {
         when(conf.getFailureHandlingQueueCapacity()).thenReturn(1000);
         this.messages = new Messages(trafficAccounting, messagesAdapter, processingStatusRecorder,
-                mock(FailureSubmissionService.class));
+                mock(FailureSubmissionService.class), BulkIndexingController.disabled());
     }
 
     @Test
@@ -84,7 +84,7 @@ public abstract class MessagesIT extends ElasticsearchBaseTest {
         client().createIndex(INDEX_NAME);
         client().waitForGreenStatus(INDEX_NAME);
         messages = new Messages(mock(TrafficAccounting.class), createMessagesAdapter(), mock(ProcessingStatusRecorder.class),
-                failureSubmissionService);
+                failureSubmissionService, BulkIndexingController.disabled());
     }
 
     @After
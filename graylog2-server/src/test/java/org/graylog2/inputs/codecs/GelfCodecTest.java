@@ -414,4 +414,71 @@ public class GelfCodecTest {
         assertThat(message).isNotNull();
         assertThat(message.getTimestamp()).isEqualTo(DateTime.parse("2017-07-21T14:23:00.661Z"));
     }
+
+    @Test
+    public void decodeConvertsAdditionalFieldsOfCompressedMessages() throws Exception {
+        final String json = "{"
+                + "\"version\": \"1.1\","
+                + "\"host\": \"example.org\","
+                + "\"short_message\": \"A short message\","
+                + "\"_object\": {\"foo\": [1, 2.5, \"bar\"]},"
+                + "\"_array\": [true, null],"
+                + "\"_float\": 1.25,"
+                + "\"_long\": 12345678901,"
+                + "\"_big_integer\": 18446744073709551617,"
+                + "\"_null\": null,"
+                + "\"_boolean\": true,"
+                + "\"_string\": \"value\","
+                + "\"level\": \"not a number\""
+                + "}";
+
+        for (byte[] payload : new byte[][]{TestHelper.zlibCompress(json), TestHelper.gzipCompress(json)}) {
+            final Message message = codec.decode(new RawMessage(payload));
+
+            assertThat(message).isNotNull();
+            assertThat(message.getField("source")).isEqualTo("example.org");
+            assertThat(message.getField("message")).isEqualTo("A short message");
+            assertThat(message.getField("object")).isEqualTo("{\"foo\":[1,2.5,\"bar\"]}");
+            assertThat(message.getField("array")).isEqualTo("[true,null]");
+            assertThat(message.getField("float")).isEqualTo(1.25d);
+            assertThat(message.getField("long")).isEqualTo(12345678901L);
+            assertThat(message.getField("big_integer")).isEqualTo(1L);
+            assertThat(message.getField("string")).isEqualTo("value");
+            assertThat(message.getField("level")).isEqualTo("not a number");
+            assertThat(message.hasField("null")).isFalse();
+            assertThat(message.hasField("boolean")).isFalse();
+        }
+    }
+
+    @Test
+    public void decodeUsesLastValueOfDuplicateFields() throws Exception {
+        final String json = "{"
+                + "\"host\": \"example.org\","
+                + "\"_foo\": \"first\","
+                + "\"short_message\": \"first message\","
+                + "\"_foo\": \"second\","
+                + "\"short_message\": \"second message\""
+                + "}";
+
+        final Message message = codec.decode(new RawMessage(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(message).isNotNull();
+        assertThat(message.getField("foo")).isEqualTo("second");
+        assertThat(message.getField("message")).isEqualTo("second message");
+    }
+
+    @Test
+    public void decodeReplacesInvalidUtf8() throws Exception {
+        final byte[] prefix = "{\"host\": \"example.org\", \"short_message\": \"foo".getBytes(StandardCharsets.UTF_8);
+        final byte[] suffix = "bar\"}".getBytes(StandardCharsets.UTF_8);
+        final byte[] payload = new byte[prefix.length + 1 + suffix.length];
+        System.arraycopy(prefix, 0, payload, 0, prefix.length);
+        payload[prefix.length] = (byte) 0xC3;
+        System.arraycopy(suffix, 0, payload, prefix.length + 1, suffix.length);
+
+        final Message message = codec.decode(new RawMessage(payload));
+
+        assertThat(message).isNotNull();
+        assertThat(message.getField("message")).isEqualTo("foo\uFFFDbar");
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the {@link SyslogCodecTest} corpus with the single-pass parser and compares its results with syslog4j.
+ */
+public class SinglePassSyslogCodecTest extends SyslogCodecTest {
+    private static final List<String> MESSAGES = List.of(
+            "<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"] An application event log entry...",
+            "<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"][examplePriority@32473 class=\"high\"]",
+            "<165>1 2003-10-11T22:14:15.003Z host app 4711 ID47 [a@1 x=\"1\" y=\"a\\\"b\\]c\\\\d\"][b@2 x=\"2\"][a@1 z=\"3\"] message with [brackets]",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47[a@1 x=\"1\"] no space before the structured data",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47 [a@1 x=\"1\"]",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47 [a@1 x=\"1\"] ",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47 - BOM'su root' failed [not structured data]",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47 [a@1 x=1] invalid parameter",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47 [a@1 x=\"1\" unterminated",
+            "<165>1 2003-10-11T22:14:15.003Z host app - - [0@0] empty structured data",
+            "<165>1 2003-10-11T22:14:15.003Z host - - - - ",
+            "<128>1 2015-01-11T16:35:21.335797+01:00 s000000.example.com - - - - tralala",
+            "<190>1 2015-01-06T20:56:33.287Z app-1 app - - [mdc@18060 ip=\"::ffff:132.123.15.30\" logger=\"{c.corp.Handler}\"] User page 13 requested",
+            "<6>0 2017-02-15T16:01:07.000+01:00 hostname test - - -  test 4",
+            "<165>1 2003-08-24T05:14:15.000003-07:00 192.0.2.1 myproc 8710 - - %% It's time to make the do-nuts.",
+            "<165>1 2003-10-11T22:14:15+02:00 hóst äpp - - [ïd@1 ké=\"välue\"] ünïcödé message",
+            "<165>1 2003-10-11T22:14:15.003Z host app - ID47 [a@1 x=\"1\"]é",
+            "<165>1 2003-10-11T22:14:15.003 host app - - - timestamp without offset",
+            "<34>Oct 11 22:14:15 mymachine su: 'su root' failed for lonvick on /dev/pts/8",
+            "<13>Feb  5 17:32:18 10.0.0.99 Use the BFG!",
+            "<13>Feb 5 17:32:18 10.0.0.99 Use the BFG!",
+            "<45>Oct 21 12:09:37 c4dc57ba1ebb syslog-ng[7208]: syslog-ng starting up; version='3.5.3'",
+            "<45>Dec 31 23:59:59 hóst ünïcödé message",
+            "<45>Feb 30 12:09:37 host invalid day",
+            "<45>Oct 21 12:09:37 host",
+            "<6>2016-10-12T14:10:18Z hostname testmsg[20]: Test",
+            "<186>1541800: Feb 27 06:08:59.485: %HARDWARE-2-FAN_ERROR: Fan Failure",
+            "<45>date=2017-03-06 time=12:53:10 devname=DEVICENAME devid=DEVICEID logid=0000000013 level=notice"
+    );
+
+    @Before
+    public void enableSinglePassParser() {
+        when(configuration.getBoolean(SyslogCodec.CK_SINGLE_PASS_PARSER)).thenReturn(true);
+    }
+
+    @Test
+    public void decodeMatchesSyslog4j() {
+        assertSameFields(false);
+    }
+
+    @Test
+    public void decodeMatchesSyslog4jWithExpandedStructuredData() {
+        assertSameFields(true);
+    }
+
+    private void assertSameFields(boolean expandStructuredData) {
+        final Configuration syslog4jConfiguration = mock(Configuration.class);
+        when(syslog4jConfiguration.getBoolean(SyslogCodec.CK_STORE_FULL_MESSAGE)).thenReturn(true);
+        when(syslog4jConfiguration.getBoolean(SyslogCodec.CK_EXPAND_STRUCTURED_DATA)).thenReturn(expandStructuredData);
+        when(configuration.getBoolean(SyslogCodec.CK_STORE_FULL_MESSAGE)).thenReturn(true);
+        when(configuration.getBoolean(SyslogCodec.CK_EXPAND_STRUCTURED_DATA)).thenReturn(expandStructuredData);
+
+        final SyslogCodec syslog4jCodec = new SyslogCodec(syslog4jConfiguration, new MetricRegistry());
+        final SyslogCodec singlePassCodec = new SyslogCodec(configuration, new MetricRegistry());
+
+        for (String message : MESSAGES) {
+            final Map<String, Object> expected = fields(syslog4jCodec, message);
+            assertThat(fields(singlePassCodec, message)).as(message).isEqualTo(expected);
+        }
+    }
+
+    private static Map<String, Object> fields(SyslogCodec codec, String message) {
+        final RawMessage rawMessage = new RawMessage(message.getBytes(StandardCharsets.UTF_8), new InetSocketAddress("127.0.0.1", 5140));
+        final Message decoded = codec.decode(rawMessage);
+        assertThat(decoded).as(message).isNotNull();
+        final Map<String, Object> fields = new HashMap<>(decoded.getFields());
+        fields.remove(Message.FIELD_ID);
+        return fields;
+    }
+}
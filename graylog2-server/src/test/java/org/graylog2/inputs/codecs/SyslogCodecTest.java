@@ -60,9 +60,9 @@ public class SyslogCodecTest {
     public final MockitoRule mockitoRule = MockitoJUnit.rule();
 
     @Mock
-    private Configuration configuration;
+    Configuration configuration;
     @Mock
-    private MetricRegistry metricRegistry;
+    MetricRegistry metricRegistry;
     @Mock
     private Timer mockedTimer;
 
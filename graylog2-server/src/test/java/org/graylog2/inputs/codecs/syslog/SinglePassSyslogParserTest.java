@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs.syslog;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SinglePassSyslogParserTest {
+    @Test
+    void parsesStructuredMessage() {
+        final ParsedSyslogMessage parsed = parse("<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\"][examplePriority@32473 class=\"high\"] An application event log entry...");
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.isStructured()).isTrue();
+        assertThat(parsed.facility()).isEqualTo(20);
+        assertThat(parsed.level()).isEqualTo(5);
+        assertThat(parsed.date()).isEqualTo(new DateTime(2003, 10, 11, 22, 14, 15, 3, DateTimeZone.UTC).toDate());
+        assertThat(parsed.host()).isEqualTo("mymachine.example.com");
+        assertThat(parsed.applicationName()).isEqualTo("evntslog");
+        assertThat(parsed.processId()).isNull();
+        assertThat(parsed.message()).isEqualTo("An application event log entry...");
+        assertThat(parsed.structuredData()).isEqualTo(Map.of(
+                "exampleSDID@32473", Map.of("iut", "3", "eventSource", "Application"),
+                "examplePriority@32473", Map.of("class", "high")));
+    }
+
+    @Test
+    void parsesTimestampOffsetAndTruncatesFraction() {
+        final ParsedSyslogMessage parsed = parse("<165>1 2003-08-24T05:14:15.000003-07:00 192.0.2.1 myproc 8710 - - %% It's time to make the do-nuts.");
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.date()).isEqualTo(new DateTime(2003, 8, 24, 12, 14, 15, 0, DateTimeZone.UTC).toDate());
+        assertThat(parsed.processId()).isEqualTo("8710");
+        assertThat(parsed.message()).isEqualTo("%% It's time to make the do-nuts.");
+        assertThat(parsed.structuredData()).isEmpty();
+    }
+
+    @Test
+    void keepsWholeRestOfInvalidStructuredMessages() {
+        final ParsedSyslogMessage parsed = parse("<34>1 2003-10-11T22:14:15.003Z mymachine.example.com su - ID47 [a@1 x=1] 'su root' failed");
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.message()).isEqualTo("ID47 [a@1 x=1] 'su root' failed");
+        assertThat(parsed.structuredData()).isEmpty();
+    }
+
+    @Test
+    void parsesUnstructuredMessage() {
+        final ParsedSyslogMessage parsed = parse("<13>Feb  5 17:32:18 10.0.0.99 Use the BFG!", DateTimeZone.forID("Europe/Berlin"));
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.isStructured()).isFalse();
+        assertThat(parsed.facility()).isEqualTo(1);
+        assertThat(parsed.level()).isEqualTo(5);
+        assertThat(parsed.date()).isEqualTo(new DateTime(Year.now(ZoneId.systemDefault()).getValue(), 2, 5, 17, 32, 18, DateTimeZone.forID("Europe/Berlin")).toDate());
+        assertThat(parsed.host()).isEqualTo("10.0.0.99");
+        assertThat(parsed.message()).isEqualTo("10.0.0.99 Use the BFG!");
+    }
+
+    @Test
+    void rejectsUnsupportedMessages() {
+        assertThat(parse("no priority")).isNull();
+        assertThat(parse("<1234>1 2003-10-11T22:14:15.003Z host app - - - message")).isNull();
+        assertThat(parse("<165>1 - host app - - - NILVALUE timestamp")).isNull();
+        assertThat(parse("<165>1 2003-10-11T22:14:15.003 host app - - - timestamp without offset")).isNull();
+        assertThat(parse("<165>1 2003-10-11T22:14:15.003Z host")).isNull();
+        assertThat(parse("<6>2016-10-12T14:10:18Z hostname testmsg[20]: Test")).isNull();
+        assertThat(parse("<45>Feb 30 12:09:37 host invalid day")).isNull();
+        assertThat(parse("<45>Oct 21 12:09:37 host")).isNull();
+        assertThat(parse("<186>1541800: Feb 27 06:08:59.485: %HARDWARE-2-FAN_ERROR: Fan Failure")).isNull();
+        assertThat(parse("<45>date=2017-03-06 time=12:53:10 devname=DEVICENAME")).isNull();
+    }
+
+    private static ParsedSyslogMessage parse(String message) {
+        return parse(message, null);
+    }
+
+    private static ParsedSyslogMessage parse(String message, DateTimeZone defaultTimeZone) {
+        return SinglePassSyslogParser.parse(message.getBytes(StandardCharsets.UTF_8), defaultTimeZone);
+    }
+}
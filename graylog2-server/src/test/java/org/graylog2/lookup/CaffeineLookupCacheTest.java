@@ -19,22 +19,43 @@ package org.graylog2.lookup;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.eventbus.EventBus;
 import org.assertj.core.api.Assertions;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.awaitility.Awaitility;
 import org.graylog2.lookup.caches.CaffeineLookupCache;
+import org.graylog2.lookup.caches.LookupCacheSnapshotStore;
+import org.graylog2.lookup.events.CachesDeleted;
 import org.graylog2.plugin.lookup.LookupCache;
 import org.graylog2.plugin.lookup.LookupCacheConfiguration;
 import org.graylog2.plugin.lookup.LookupCacheKey;
 import org.graylog2.plugin.lookup.LookupResult;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CaffeineLookupCacheTest {
@@ -49,6 +70,11 @@ public class CaffeineLookupCacheTest {
     Meter meter;
     @Mock
     Callable<LookupResult> loader;
+    @Mock
+    ScheduledExecutorService scheduler;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @Test
     public void ignoreEmpty() throws Exception {
@@ -92,7 +118,331 @@ public class CaffeineLookupCacheTest {
         Assertions.assertThat(value1.singleValue()).isNull();
     }
 
+    @Test
+    public void getAllLoadsMissingKeysWithSingleCall() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey cachedKey = LookupCacheKey.createFromJSON("x", "cached");
+        final LookupCacheKey missingKey1 = LookupCacheKey.createFromJSON("x", "missing1");
+        final LookupCacheKey missingKey2 = LookupCacheKey.createFromJSON("x", "missing2");
+        when(loader.call()).thenReturn(LookupResult.single("cached"));
+        cache.get(cachedKey, loader);
+
+        final List<Collection<LookupCacheKey>> loadedKeys = new ArrayList<>();
+        final Map<LookupCacheKey, LookupResult> results = cache.getAll(List.of(cachedKey, missingKey1, missingKey2), keys -> {
+            loadedKeys.add(keys);
+            return keys.stream().collect(Collectors.toMap(Function.identity(), key -> LookupResult.single(String.valueOf(key.key()))));
+        });
+
+        Assertions.assertThat(loadedKeys).hasSize(1);
+        Assertions.assertThat(loadedKeys.get(0)).containsExactlyInAnyOrder(missingKey1, missingKey2);
+        Assertions.assertThat(results).hasSize(3);
+        Assertions.assertThat(results.get(cachedKey).singleValue()).isEqualTo("cached");
+        Assertions.assertThat(results.get(missingKey1).singleValue()).isEqualTo("missing1");
+        Assertions.assertThat(cache.getIfPresent(missingKey2).singleValue()).isEqualTo("missing2");
+    }
+
+    @Test
+    public void getAllReturnsErrorForKeysMissingFromLoaderResult() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+
+        final Map<LookupCacheKey, LookupResult> results = cache.getAll(List.of(key), keys -> Map.of());
+
+        Assertions.assertThat(results.get(key).hasError()).isTrue();
+    }
+
+    @Test
+    public void getAllWaitsForRunningLoads() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey loadingKey = LookupCacheKey.createFromJSON("x", "loading");
+        final LookupCacheKey missingKey = LookupCacheKey.createFromJSON("x", "missing");
+        final CompletableFuture<LookupResult> pending = new CompletableFuture<>();
+        cache.getAsync(loadingKey, () -> pending);
+
+        final List<Collection<LookupCacheKey>> loadedKeys = new ArrayList<>();
+        final CompletableFuture<Map<LookupCacheKey, LookupResult>> results = CompletableFuture.supplyAsync(() ->
+                cache.getAll(List.of(loadingKey, missingKey), keys -> {
+                    loadedKeys.add(keys);
+                    // a lookup of a key which is being loaded in bulk waits for that load
+                    Assertions.assertThat(cache.getAsync(missingKey, CompletableFuture::new)).isNotDone();
+                    return keys.stream().collect(Collectors.toMap(Function.identity(), key -> LookupResult.single(String.valueOf(key.key()))));
+                }));
+        Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> !loadedKeys.isEmpty());
+        pending.complete(LookupResult.single("loaded"));
+
+        Assertions.assertThat(results.get(10, TimeUnit.SECONDS).get(loadingKey).singleValue()).isEqualTo("loaded");
+        Assertions.assertThat(results.get().get(missingKey).singleValue()).isEqualTo("missing");
+        Assertions.assertThat(loadedKeys).containsExactly(List.of(missingKey));
+    }
+
+    @Test
+    public void getAsyncCachesLoadedResult() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        final CompletableFuture<LookupResult> pending = new CompletableFuture<>();
+
+        final CompletableFuture<LookupResult> future = cache.getAsync(key, () -> pending);
+        Assertions.assertThat(future).isNotDone();
+        pending.complete(LookupResult.single("x1"));
+
+        Assertions.assertThat(future.get().singleValue()).isEqualTo("x1");
+        Assertions.assertThat(cache.getAsync(key, () -> CompletableFuture.completedFuture(LookupResult.single("x2"))).get().singleValue())
+                .isEqualTo("x1");
+    }
+
+    @Test
+    public void getAsyncReturnsErrorForFailedLoader() throws Exception {
+        LookupCache cache = buildCache(false);
+
+        final LookupResult result = cache.getAsync(LookupCacheKey.createFromJSON("x", "y"),
+                () -> CompletableFuture.failedFuture(new IllegalStateException("boom"))).get();
+
+        Assertions.assertThat(result.hasError()).isTrue();
+    }
+
+    @Test
+    public void coalescesConcurrentLoadsForSameKey() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        final CompletableFuture<LookupResult> pending = new CompletableFuture<>();
+        final AtomicInteger loads = new AtomicInteger();
+
+        final CompletableFuture<LookupResult> first = cache.getAsync(key, () -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        final CompletableFuture<LookupResult> second = cache.getAsync(key, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(LookupResult.single("other"));
+        });
+        pending.complete(LookupResult.single("x1"));
+
+        Assertions.assertThat(first.get().singleValue()).isEqualTo("x1");
+        Assertions.assertThat(second.get().singleValue()).isEqualTo("x1");
+        Assertions.assertThat(loads).hasValue(1);
+        verify(meter, times(1)).mark();
+    }
+
+    @Test
+    public void doesNotCacheValueLoadedBeforePurge() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        final CompletableFuture<LookupResult> pending = new CompletableFuture<>();
+
+        final CompletableFuture<LookupResult> result = cache.getAsync(key, () -> pending);
+        cache.purge(key);
+        pending.complete(LookupResult.single("x1"));
+
+        Assertions.assertThat(result.get().singleValue()).isEqualTo("x1");
+        Assertions.assertThat(cache.getIfPresent(key).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void cachesValueBeforeCompletingLoad() throws Exception {
+        LookupCache cache = buildCache(false);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        final CompletableFuture<LookupResult> pending = new CompletableFuture<>();
+        final CompletableFuture<LookupResult> result = cache.getAsync(key, () -> pending);
+        final AtomicInteger loads = new AtomicInteger();
+        // callbacks of the load run after the value has been cached, a lookup from there must not load again
+        final CompletableFuture<LookupResult> fromCallback = result.thenCompose(ignored -> cache.getAsync(key, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(LookupResult.single("other"));
+        }));
+
+        pending.complete(LookupResult.single("x1"));
+
+        Assertions.assertThat(fromCallback.get().singleValue()).isEqualTo("x1");
+        Assertions.assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    public void servesStaleValueWhileRefreshing() throws Exception {
+        LookupCache cache = buildCache(false, 1L, TimeUnit.NANOSECONDS);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        final CompletableFuture<LookupResult> refresh = new CompletableFuture<>();
+        cache.getAsync(key, () -> CompletableFuture.completedFuture(LookupResult.single("x1"))).get();
+
+        final LookupResult stale = cache.getAsync(key, () -> refresh).get();
+        Assertions.assertThat(stale.singleValue()).isEqualTo("x1");
+
+        refresh.complete(LookupResult.single("x2"));
+        Assertions.assertThat(cache.getIfPresent(key).singleValue()).isEqualTo("x2");
+    }
+
+    @Test
+    public void keepsStaleValueWhenRefreshFails() throws Exception {
+        LookupCache cache = buildCache(false, 1L, TimeUnit.NANOSECONDS);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        cache.getAsync(key, () -> CompletableFuture.completedFuture(LookupResult.single("x1"))).get();
+
+        final LookupResult stale = cache.getAsync(key, () -> CompletableFuture.failedFuture(new IllegalStateException("boom"))).get();
+
+        Assertions.assertThat(stale.singleValue()).isEqualTo("x1");
+        Assertions.assertThat(cache.getIfPresent(key).singleValue()).isEqualTo("x1");
+    }
+
+    @Test
+    public void synchronousGetRefreshesInBackground() throws Exception {
+        LookupCache cache = buildCache(false, 1L, TimeUnit.NANOSECONDS);
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("x", "y");
+        final CountDownLatch refreshed = new CountDownLatch(1);
+        when(loader.call()).thenReturn(LookupResult.single("x1")).thenAnswer(invocation -> {
+            refreshed.countDown();
+            return LookupResult.single("x2");
+        });
+
+        Assertions.assertThat(cache.get(key, loader).singleValue()).isEqualTo("x1");
+        Assertions.assertThat(cache.get(key, loader).singleValue()).isEqualTo("x1");
+
+        Assertions.assertThat(refreshed.await(10, TimeUnit.SECONDS)).isTrue();
+        Awaitility.await().atMost(10, TimeUnit.SECONDS)
+                .until(() -> "x2".equals(cache.getIfPresent(key).singleValue()));
+    }
+
+    @Test
+    public void restoresSnapshotAfterRestart() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCache cache = buildCache(snapshotStore, true);
+        cache.startAsync().awaitRunning();
+        verify(scheduler).scheduleWithFixedDelay(any(Runnable.class), eq(TimeUnit.MINUTES.toMillis(1)), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("adapter-id", "foo");
+        final LookupCacheKey failedKey = LookupCacheKey.createFromJSON("adapter-id", "bar");
+        final LookupCacheKey numericKey = LookupCacheKey.createFromJSON("adapter-id", 42);
+        cache.get(key, () -> LookupResult.single("value"));
+        cache.get(failedKey, LookupResult::withError);
+        cache.get(numericKey, () -> LookupResult.single("numeric"));
+        cache.stopAsync().awaitTerminated();
+
+        final LookupCache restarted = buildCache(snapshotStore, true);
+        restarted.startAsync().awaitRunning();
+
+        Assertions.assertThat(restarted.getIfPresent(key).singleValue()).isEqualTo("value");
+        Assertions.assertThat(restarted.getIfPresent(failedKey).isEmpty()).isTrue();
+        Assertions.assertThat(restarted.getIfPresent(numericKey).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void skipsExpiredSnapshotEntries() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCacheKey expired = LookupCacheKey.createFromJSON("adapter-id", "expired");
+        final LookupCacheKey valid = LookupCacheKey.createFromJSON("adapter-id", "valid");
+        final long now = System.currentTimeMillis();
+        writeSnapshot(snapshotStore, List.of(
+                new LookupCacheSnapshotStore.Entry(expired, LookupResult.single("old"), now - 120_000, now - 60_000),
+                new LookupCacheSnapshotStore.Entry(valid, LookupResult.single("new"), now, now + 60_000)));
+
+        final LookupCache cache = buildCache(snapshotStore, true);
+        cache.startAsync().awaitRunning();
+
+        Assertions.assertThat(cache.getIfPresent(expired).isEmpty()).isTrue();
+        Assertions.assertThat(cache.getIfPresent(valid).singleValue()).isEqualTo("new");
+    }
+
+    @Test
+    public void purgeDeletesSnapshot() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("adapter-id", "foo");
+        writeSnapshot(snapshotStore, List.of(new LookupCacheSnapshotStore.Entry(key, LookupResult.single("value"), 0, Long.MAX_VALUE)));
+
+        final LookupCache cache = buildCache(snapshotStore, true);
+        cache.startAsync().awaitRunning();
+        Assertions.assertThat(cache.getIfPresent(key).singleValue()).isEqualTo("value");
+
+        cache.purge();
+
+        Assertions.assertThat(snapshotStore.read("id")).isEmpty();
+    }
+
+    @Test
+    public void doesNotWriteSnapshotsWhenDisabled() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCache cache = buildCache(snapshotStore, false);
+        cache.startAsync().awaitRunning();
+        cache.get(LookupCacheKey.createFromJSON("adapter-id", "foo"), () -> LookupResult.single("value"));
+        cache.stopAsync().awaitTerminated();
+
+        Assertions.assertThat(snapshotStore.read("id")).isEmpty();
+        verify(scheduler, times(0)).scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void replacedInstanceDoesNotWriteSnapshot() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("adapter-id", "foo");
+        final LookupCache cache = buildCache(snapshotStore, true);
+        cache.startAsync().awaitRunning();
+        cache.get(key, () -> LookupResult.single("value"));
+
+        // an update starts the new instance before the old one is stopped
+        final LookupCache updated = buildCache(snapshotStore, true);
+        updated.startAsync().awaitRunning();
+        updated.purge();
+        cache.stopAsync().awaitTerminated();
+
+        Assertions.assertThat(snapshotStore.read("id")).isEmpty();
+    }
+
+    @Test
+    public void deletingCacheDeletesSnapshot() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCache cache = buildCache(snapshotStore, true);
+        cache.startAsync().awaitRunning();
+        cache.get(LookupCacheKey.createFromJSON("adapter-id", "foo"), () -> LookupResult.single("value"));
+
+        snapshotStore.handleCachesDeleted(CachesDeleted.create("id"));
+        cache.stopAsync().awaitTerminated();
+
+        Assertions.assertThat(snapshotStore.read("id")).isEmpty();
+    }
+
+    @Test
+    public void disablingSnapshotsDeletesSnapshot() throws Exception {
+        final LookupCacheSnapshotStore snapshotStore = snapshotStore();
+        final LookupCacheKey key = LookupCacheKey.createFromJSON("adapter-id", "foo");
+        writeSnapshot(snapshotStore, List.of(new LookupCacheSnapshotStore.Entry(key, LookupResult.single("value"), 0, Long.MAX_VALUE)));
+
+        final LookupCache cache = buildCache(snapshotStore, false);
+        cache.startAsync().awaitRunning();
+
+        Assertions.assertThat(snapshotStore.read("id")).isEmpty();
+        Assertions.assertThat(cache.getIfPresent(key).isEmpty()).isTrue();
+    }
+
+    private LookupCacheSnapshotStore snapshotStore() {
+        return new LookupCacheSnapshotStore(temporaryFolder.getRoot().toPath(), new ObjectMapperProvider().get(), new EventBus());
+    }
+
+    private static void writeSnapshot(LookupCacheSnapshotStore snapshotStore, List<LookupCacheSnapshotStore.Entry> entries) throws Exception {
+        final Object owner = new Object();
+        snapshotStore.claim("id", owner);
+        snapshotStore.write("id", owner, entries);
+    }
+
+    private LookupCache buildCache(LookupCacheSnapshotStore snapshotStore, boolean snapshotEnabled) {
+        when(registry.timer(anyString())).thenReturn(lookupTimer);
+        when(registry.meter(anyString())).thenReturn(meter);
+
+        final LookupCacheConfiguration config = CaffeineLookupCache.Config.builder()
+                .type(CaffeineLookupCache.NAME)
+                .maxSize(1000)
+                .expireAfterAccess(60)
+                .expireAfterAccessUnit(TimeUnit.SECONDS)
+                .expireAfterWrite(60)
+                .ignoreNull(false)
+                .snapshotEnabled(snapshotEnabled)
+                .snapshotInterval(1L)
+                .snapshotIntervalUnit(TimeUnit.MINUTES)
+                .build();
+        return new CaffeineLookupCache("id", "name", config, 1, registry, snapshotStore, scheduler);
+    }
+
     private LookupCache buildCache(boolean ignoreNull) throws Exception {
+        return buildCache(ignoreNull, null, null);
+    }
+
+    private LookupCache buildCache(boolean ignoreNull, Long refreshAfterWrite, TimeUnit refreshAfterWriteUnit) throws Exception {
         when(registry.timer(anyString())).thenReturn(lookupTimer);
         when(registry.meter(anyString())).thenReturn(meter);
 
@@ -103,7 +453,9 @@ public class CaffeineLookupCacheTest {
                 .expireAfterAccessUnit(TimeUnit.SECONDS)
                 .expireAfterWrite(60)
                 .ignoreNull(ignoreNull)
+                .refreshAfterWrite(refreshAfterWrite)
+                .refreshAfterWriteUnit(refreshAfterWriteUnit)
                 .build();
-        return new CaffeineLookupCache("id", "name", config, 1, registry);
+        return new CaffeineLookupCache("id", "name", config, 1, registry, snapshotStore(), scheduler);
     }
 }
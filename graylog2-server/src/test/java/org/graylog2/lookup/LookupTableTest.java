@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.lookup.caches.CaffeineLookupCache;
+import org.graylog2.lookup.caches.LookupCacheSnapshotStore;
+import org.graylog2.plugin.lookup.LookupDataAdapter;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LookupTableTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private LookupDataAdapter dataAdapter;
+    @Mock
+    private LookupCacheSnapshotStore snapshotStore;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private LookupTable lookupTable;
+
+    @Before
+    public void setUp() throws Exception {
+        when(dataAdapter.id()).thenReturn("adapter-id");
+
+        final CaffeineLookupCache.Config config = CaffeineLookupCache.Config.builder()
+                .type(CaffeineLookupCache.NAME)
+                .maxSize(1000)
+                .expireAfterAccess(60)
+                .expireAfterAccessUnit(TimeUnit.SECONDS)
+                .expireAfterWrite(60)
+                .ignoreNull(false)
+                .build();
+
+        lookupTable = LookupTable.builder()
+                .id("table-id")
+                .title("Title")
+                .description("Description")
+                .name("table")
+                .cache(new CaffeineLookupCache("cache-id", "cache", config, 1, new MetricRegistry(), snapshotStore, scheduler))
+                .dataAdapter(dataAdapter)
+                .defaultSingleValue(LookupDefaultSingleValue.create("default", LookupDefaultValue.Type.STRING))
+                .defaultMultiValue(LookupDefaultMultiValue.create("", LookupDefaultValue.Type.NULL))
+                .build();
+    }
+
+    @Test
+    public void lookupAllLoadsMissingKeysWithSingleAdapterCall() {
+        when(dataAdapter.get("a")).thenReturn(LookupResult.single("value-a"));
+        when(dataAdapter.getAll(any())).thenReturn(Map.of("b", LookupResult.single("value-b"), "c", LookupResult.empty()));
+
+        assertThat(lookupTable.lookup("a").singleValue()).isEqualTo("value-a");
+        final Map<Object, LookupResult> results = lookupTable.lookupAll(List.of("a", "b", "c"));
+
+        assertThat(results).containsOnlyKeys("a", "b", "c");
+        assertThat(results.get("a").singleValue()).isEqualTo("value-a");
+        assertThat(results.get("b").singleValue()).isEqualTo("value-b");
+        assertThat(results.get("c").singleValue()).isEqualTo("default");
+        verify(dataAdapter, times(1)).getAll(argThat(keys -> keys.size() == 2 && keys.containsAll(List.of("b", "c"))));
+    }
+
+    @Test
+    public void lookupAsyncAppliesDefaults() throws Exception {
+        when(dataAdapter.getAsync("a")).thenReturn(CompletableFuture.completedFuture(LookupResult.single("value-a")));
+        when(dataAdapter.getAsync("b")).thenReturn(CompletableFuture.completedFuture(LookupResult.empty()));
+
+        final Map<Object, LookupResult> results = lookupTable.lookupAllAsync(List.of("a", "b", "a")).get();
+
+        assertThat(results).containsOnlyKeys("a", "b");
+        assertThat(results.get("a").singleValue()).isEqualTo("value-a");
+        assertThat(results.get("b").singleValue()).isEqualTo("default");
+        verify(dataAdapter, times(1)).getAsync("a");
+    }
+}
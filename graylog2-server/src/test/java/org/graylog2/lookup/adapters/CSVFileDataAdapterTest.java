@@ -24,11 +24,13 @@ import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupResult;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
@@ -49,6 +51,9 @@ public class CSVFileDataAdapterTest {
     @Rule
     public MockitoRule rule = MockitoJUnit.rule();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final Path csvFile;
     private final Path cidrLookupFile;
     private CSVFileDataAdapter csvFileDataAdapter;
@@ -75,7 +80,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void doGet_successfully_returns_values() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
         csvFileDataAdapter.doStart();
 
@@ -96,7 +101,7 @@ public class CSVFileDataAdapterTest {
                                     .checkInterval(60)
                                     .caseInsensitiveLookup(false)
                                     .build();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath((isA(Path.class)))).thenReturn(true);
         csvFileDataAdapter.doStart();
 
@@ -109,7 +114,7 @@ public class CSVFileDataAdapterTest {
     public void doGet_failure_filePathInvalid() throws Exception {
         final Config config = baseConfig();
         when(pathChecker.fileIsInAllowedPath((isA(Path.class)))).thenReturn(false);
-        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker);
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath());
         assertThatThrownBy(() -> csvFileDataAdapter.doStart())
                 .isExactlyInstanceOf(IllegalStateException.class)
                 .hasMessageStartingWith(CSVFileDataAdapter.ALLOWED_PATH_ERROR);
@@ -118,7 +123,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void refresh_success() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true).thenReturn(true);
         csvFileDataAdapter.doStart();
         csvFileDataAdapter.doRefresh(cachePurge);
@@ -128,7 +133,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void refresh_failure_disallowedFileLocation() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true).thenReturn(false);
         csvFileDataAdapter.doStart();
         csvFileDataAdapter.doRefresh(cachePurge);
@@ -141,7 +146,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void refresh_failure_success() throws Exception {
         final Config config = baseConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true).thenReturn(false);
         csvFileDataAdapter.doStart();
         csvFileDataAdapter.doRefresh(cachePurge);
@@ -211,7 +216,7 @@ public class CSVFileDataAdapterTest {
     @Test
     public void testCIDRLookups() throws Exception {
         final Config config = cidrLookupConfig();
-        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker));
+        csvFileDataAdapter = spy(new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath()));
         when(pathChecker.fileIsInAllowedPath((isA(Path.class)))).thenReturn(true);
         csvFileDataAdapter.doStart();
 
@@ -231,6 +236,98 @@ public class CSVFileDataAdapterTest {
         assertThat(csvFileDataAdapter.doGet("not.an.ip.address")).isEqualTo(LookupResult.withError());
     }
 
+    @Test
+    public void doGet_memoryMapped_returns_values() throws Exception {
+        final Config config = Config.builder()
+                .type(NAME)
+                .path(csvFile.toString())
+                .separator(",")
+                .quotechar("\"")
+                .keyColumn("key")
+                .valueColumn("value")
+                .checkInterval(60)
+                .caseInsensitiveLookup(false)
+                .memoryMapped(true)
+                .build();
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath());
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        csvFileDataAdapter.doStart();
+
+        assertThat(csvFileDataAdapter.doGet("foo")).isEqualTo(LookupResult.single("23"));
+        assertThat(csvFileDataAdapter.doGet("bar")).isEqualTo(LookupResult.single("42"));
+        assertThat(csvFileDataAdapter.doGet("quux")).isEqualTo(LookupResult.empty());
+
+        final Path indexDirectory = temporaryFolder.getRoot().toPath().resolve("lookup-tables").resolve(NAME).resolve("id");
+        assertThat(Files.list(indexDirectory)).hasSize(1);
+
+        csvFileDataAdapter.doStop();
+        assertThat(indexDirectory).doesNotExist();
+    }
+
+    @Test
+    public void memoryMapped_update_keeps_index_of_new_instance() throws Exception {
+        final Path file = temporaryFolder.newFile("update.csv").toPath();
+        Files.writeString(file, "\"key\",\"value\"\n\"foo\",\"23\"\n");
+        final Config config = Config.builder()
+                .type(NAME)
+                .path(file.toString())
+                .separator(",")
+                .quotechar("\"")
+                .keyColumn("key")
+                .valueColumn("value")
+                .checkInterval(60)
+                .caseInsensitiveLookup(false)
+                .memoryMapped(true)
+                .build();
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        final Path dataDir = temporaryFolder.getRoot().toPath();
+        final CSVFileDataAdapter oldAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, dataDir);
+        oldAdapter.doStart();
+
+        // Like LookupTableService on updates: the new instance is started before the old one is stopped
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, dataDir);
+        csvFileDataAdapter.doStart();
+        oldAdapter.doStop();
+
+        Files.writeString(file, "\"key\",\"value\"\n\"foo\",\"42\"\n\"bar\",\"1\"\n");
+        csvFileDataAdapter.doRefresh(cachePurge);
+
+        assertThat(csvFileDataAdapter.getError()).isEmpty();
+        assertThat(csvFileDataAdapter.doGet("foo")).isEqualTo(LookupResult.single("42"));
+        assertThat(csvFileDataAdapter.doGet("bar")).isEqualTo(LookupResult.single("1"));
+
+        // A restart starts from scratch and cleans up behind itself
+        csvFileDataAdapter.doStop();
+        final CSVFileDataAdapter restartedAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, dataDir);
+        restartedAdapter.doStart();
+        assertThat(restartedAdapter.doGet("foo")).isEqualTo(LookupResult.single("42"));
+        restartedAdapter.doStop();
+        assertThat(dataDir.resolve("lookup-tables").resolve(NAME).resolve("id")).doesNotExist();
+    }
+
+    @Test
+    public void testCIDRLookups_memoryMapped() throws Exception {
+        final Config config = Config.builder()
+                .type(NAME)
+                .path(cidrLookupFile.toString())
+                .separator(",")
+                .quotechar("\"")
+                .keyColumn("key")
+                .valueColumn("value")
+                .checkInterval(60)
+                .caseInsensitiveLookup(false)
+                .cidrLookup(true)
+                .memoryMapped(true)
+                .build();
+        csvFileDataAdapter = new CSVFileDataAdapter("id", "name", config, new MetricRegistry(), pathChecker, temporaryFolder.getRoot().toPath());
+        when(pathChecker.fileIsInAllowedPath(isA(Path.class))).thenReturn(true);
+        csvFileDataAdapter.doStart();
+
+        assertThat(csvFileDataAdapter.doGet("192.168.102.20")).isEqualTo(LookupResult.single("HR Subnet 2"));
+        assertThat(csvFileDataAdapter.doGet("2001:db7::")).isEqualTo(LookupResult.single("Single IPv6"));
+        assertThat(csvFileDataAdapter.doGet("192.168.103.16")).isEqualTo(LookupResult.empty());
+    }
+
     private Config baseConfig() {
         return Config.builder()
                 .type(NAME)
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.dns.DatagramDnsQuery;
+import io.netty.handler.codec.dns.DatagramDnsQueryDecoder;
+import io.netty.handler.codec.dns.DatagramDnsResponse;
+import io.netty.handler.codec.dns.DatagramDnsResponseEncoder;
+import io.netty.handler.codec.dns.DefaultDnsRawRecord;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.handler.codec.dns.DnsSection;
+import org.graylog2.lookup.adapters.dnslookup.DnsLookupAdapterConfiguration;
+import org.graylog2.lookup.adapters.dnslookup.DnsLookupType;
+import org.graylog2.lookup.dto.DataAdapterDto;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DnsLookupDataAdapterTest {
+    private static final int REQUEST_TIMEOUT_MILLIS = 500;
+    private static final long ERROR_TTL_SECONDS = 5;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Map<String, AtomicInteger> queryCounts = new ConcurrentHashMap<>();
+    private final List<DnsLookupDataAdapter> adapters = new ArrayList<>();
+    private NioEventLoopGroup eventLoopGroup;
+    private Channel dnsServer;
+    private DnsLookupDataAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        eventLoopGroup = new NioEventLoopGroup(1);
+        dnsServer = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioDatagramChannel.class)
+                .handler(new ChannelInitializer<DatagramChannel>() {
+                    @Override
+                    protected void initChannel(DatagramChannel ch) {
+                        ch.pipeline().addLast(new DatagramDnsQueryDecoder(), new DatagramDnsResponseEncoder(), new StubDnsHandler());
+                    }
+                })
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .sync()
+                .channel();
+
+        adapter = startAdapter("dns-adapter", DnsLookupType.A);
+    }
+
+    private DnsLookupDataAdapter startAdapter(String id, DnsLookupType lookupType) {
+        final int port = ((InetSocketAddress) dnsServer.localAddress()).getPort();
+        final DnsLookupDataAdapter.Config config = DnsLookupDataAdapter.Config.Builder.create()
+                .type(DnsLookupDataAdapter.NAME)
+                .lookupType(lookupType)
+                .serverIps("127.0.0.1:" + port)
+                .requestTimeout(REQUEST_TIMEOUT_MILLIS)
+                .build();
+        final DataAdapterDto dto = DataAdapterDto.builder()
+                .id(id)
+                .title("DNS")
+                .description("DNS")
+                .name("dns")
+                .customErrorTTLEnabled(true)
+                .customErrorTTL(ERROR_TTL_SECONDS)
+                .customErrorTTLUnit(TimeUnit.SECONDS)
+                .config(config)
+                .build();
+
+        final DnsLookupDataAdapter dnsAdapter = new DnsLookupDataAdapter(dto, metricRegistry, new DnsLookupAdapterConfiguration());
+        dnsAdapter.startAsync().awaitRunning();
+        adapters.add(dnsAdapter);
+        return dnsAdapter;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        adapters.forEach(dnsAdapter -> dnsAdapter.stopAsync().awaitTerminated());
+        dnsServer.close().sync();
+        eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Test
+    void resolvesAsynchronously() {
+        final LookupResult result = adapter.getAsync("known.example.com").join();
+
+        assertThat(result.singleValue()).isEqualTo("10.0.0.1");
+        assertThat(result.cacheTTL()).isEqualTo(60_000L);
+        assertThat(adapter.get("unknown.example.com").isEmpty()).isTrue();
+    }
+
+    @Test
+    void coalescesConcurrentLookupsForTheSameKey() {
+        final List<CompletableFuture<LookupResult>> futures = List.of(
+                adapter.getAsync("slow.example.com"),
+                adapter.getAsync("slow.example.com"),
+                adapter.getAsync(" slow.example.com "));
+
+        futures.forEach(future -> assertThat(future.join().singleValue()).isEqualTo("10.0.0.2"));
+        assertThat(queryCounts.get("slow.example.com.").get()).isEqualTo(1);
+        assertThat(metricRegistry.meter(MetricRegistry.name(DnsLookupDataAdapter.class, "dns-adapter", "coalesced")).getCount()).isEqualTo(2);
+        assertThat(metricRegistry.counter(MetricRegistry.name(DnsLookupDataAdapter.class, "dns-adapter", "inFlight")).getCount()).isZero();
+    }
+
+    @Test
+    void resolvesAllKeysConcurrently() {
+        final Map<Object, LookupResult> results = adapter.getAll(List.of("known.example.com", "slow.example.com", "unknown.example.com"));
+
+        assertThat(results.get("known.example.com").singleValue()).isEqualTo("10.0.0.1");
+        assertThat(results.get("slow.example.com").singleValue()).isEqualTo("10.0.0.2");
+        assertThat(results.get("unknown.example.com").isEmpty()).isTrue();
+    }
+
+    @Test
+    void fallsBackToErrorResultWhenTheServerDoesNotAnswer() {
+        final long start = System.nanoTime();
+        final LookupResult result = adapter.get("blackhole.example.com");
+
+        assertThat(result.isEmpty()).isTrue();
+        assertThat(result.hasError()).isTrue();
+        assertThat(result.cacheTTL()).isEqualTo(TimeUnit.SECONDS.toMillis(ERROR_TTL_SECONDS));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(REQUEST_TIMEOUT_MILLIS * 4L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(DnsLookupDataAdapter.class, "dns-adapter", "timeouts")).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter(MetricRegistry.name(DnsLookupDataAdapter.class, "dns-adapter", "errors")).getCount()).isZero();
+    }
+
+    @ParameterizedTest
+    @EnumSource(DnsLookupType.class)
+    void timedOutQueriesCompleteWithErrorResult(DnsLookupType lookupType) {
+        final DnsLookupDataAdapter dnsAdapter = startAdapter("dns-adapter-" + lookupType, lookupType);
+        final String key = lookupType == DnsLookupType.PTR ? "192.0.2.1" : "blackhole.example.com";
+
+        final LookupResult result = dnsAdapter.getAsync(key).join();
+
+        // the same result as a synchronous lookup which stops waiting, no matter which timeout fires first
+        assertThat(result.hasError()).isTrue();
+        assertThat(result.cacheTTL()).isEqualTo(TimeUnit.SECONDS.toMillis(ERROR_TTL_SECONDS));
+        assertThat(metricRegistry.meter(MetricRegistry.name(DnsLookupDataAdapter.class, "dns-adapter-" + lookupType, "timeouts")).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter(MetricRegistry.name(DnsLookupDataAdapter.class, "dns-adapter-" + lookupType, "errors")).getCount()).isZero();
+    }
+
+    /**
+     * Answers A queries for a few fixed names. "slow" answers are delayed, "blackhole" queries are never answered.
+     */
+    private class StubDnsHandler extends SimpleChannelInboundHandler<DatagramDnsQuery> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramDnsQuery query) {
+            final DnsQuestion question = query.recordAt(DnsSection.QUESTION);
+            queryCounts.computeIfAbsent(question.name(), name -> new AtomicInteger()).incrementAndGet();
+
+            final DatagramDnsResponse response = new DatagramDnsResponse(query.recipient(), query.sender(), query.id());
+            response.addRecord(DnsSection.QUESTION, question);
+            switch (question.name()) {
+                case "known.example.com." -> answer(response, question, new byte[]{10, 0, 0, 1});
+                case "slow.example.com." -> {
+                    answer(response, question, new byte[]{10, 0, 0, 2});
+                    ctx.executor().schedule(() -> ctx.writeAndFlush(response), 200, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                case "blackhole.example.com.", "1.2.0.192.in-addr.arpa." -> {
+                    response.release();
+                    return;
+                }
+                default -> response.setCode(DnsResponseCode.NXDOMAIN);
+            }
+            ctx.writeAndFlush(response);
+        }
+
+        private void answer(DatagramDnsResponse response, DnsQuestion question, byte[] address) {
+            if (question.type() == DnsRecordType.A) {
+                response.addRecord(DnsSection.ANSWER, new DefaultDnsRawRecord(question.name(), DnsRecordType.A, 60, Unpooled.wrappedBuffer(address)));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.adapters.csvfile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedLookupIndexTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void lookupsReturnWrittenValues() throws Exception {
+        final Map<String, String> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            expected.put("key-" + i, "value-" + i);
+        }
+        expected.put("", "empty key");
+        expected.put("ünïcödé", "wert");
+
+        final MappedLookupIndex index = write(expected);
+
+        assertThat(index).hasSize(expected.size());
+        expected.forEach((key, value) -> assertThat(index.get(key)).isEqualTo(value));
+        assertThat(index.get("key-10000")).isNull();
+        assertThat(index.get(null)).isNull();
+        assertThat(index.containsKey("key-42")).isTrue();
+    }
+
+    @Test
+    public void iterationFollowsInsertionOrder() throws Exception {
+        final Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("192.168.0.0/16", "a");
+        expected.put("10.0.0.0/8", "b");
+        expected.put("8.8.8.8/32", "");
+
+        assertThat(write(expected).entrySet()).containsExactlyElementsOf(expected.entrySet());
+    }
+
+    @Test
+    public void emptyIndex() throws Exception {
+        final MappedLookupIndex index = write(Map.of());
+
+        assertThat(index).isEmpty();
+        assertThat(index.get("foo")).isNull();
+    }
+
+    @Test
+    public void duplicateKeysAreRejected() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("index");
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path)) {
+            writer.add("foo", "1");
+            writer.add("bar", "2");
+            writer.add("foo", "3");
+
+            assertThatThrownBy(writer::finish)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("foo");
+        }
+
+        try (var files = Files.list(temporaryFolder.getRoot().toPath())) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private MappedLookupIndex write(Map<String, String> entries) throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("index");
+        try (final MappedLookupIndex.Writer writer = MappedLookupIndex.writer(path)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.add(entry.getKey(), entry.getValue());
+            }
+            return writer.finish();
+        }
+    }
+}
@@ -17,9 +17,12 @@
 package org.graylog2.outputs;
 
 import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Size;
 import com.google.common.collect.ImmutableList;
 import org.graylog2.Configuration;
 import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indexset.IndexSetConfig;
+import org.graylog2.indexer.messages.IndexingResults;
 import org.graylog2.indexer.cluster.Cluster;
 import org.graylog2.indexer.messages.MessageWithIndex;
 import org.graylog2.indexer.messages.Messages;
@@ -40,9 +43,11 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -85,6 +90,35 @@ public class BlockingBatchedESOutputTest {
         output.initialize();
     }
 
+    @SuppressForbidden("Using Executors.newSingleThreadExecutor() is okay in tests")
+    private BlockingBatchedESOutput stripedOutput(OutputBatchStriping striping, int maxInflightBulkRequests) throws Exception {
+        final Configuration stripedConfig = new Configuration() {
+            @Override
+            public int getOutputBatchSize() {
+                return 3;
+            }
+
+            @Override
+            public OutputBatchStriping getOutputBatchStriping() {
+                return striping;
+            }
+
+            @Override
+            public int getOutputMaxInflightBulkRequests() {
+                return maxInflightBulkRequests;
+            }
+
+            @Override
+            public int getShutdownTimeout() {
+                return "true".equals(System.getenv("CI")) ? 500 : 100;
+            }
+        };
+        final BlockingBatchedESOutput stripedOutput = new BlockingBatchedESOutput(new MetricRegistry(), messages,
+                stripedConfig, new NoopJournal(), acknowledger, cluster, Executors.newSingleThreadScheduledExecutor());
+        stripedOutput.initialize();
+        return stripedOutput;
+    }
+
     @AfterEach
     public void tearDown() {
         output.stop();
@@ -162,6 +196,132 @@ public class BlockingBatchedESOutputTest {
         verify(messages, times(1)).bulkIndex(eq(messageList));
     }
 
+    @Test
+    public void writeStripedByIndexSet() throws Exception {
+        final BlockingBatchedESOutput stripedOutput = stripedOutput(OutputBatchStriping.INDEX_SET, 2);
+        try {
+            final IndexSet indexSet1 = indexSet("index-set-1");
+            final IndexSet indexSet2 = indexSet("index-set-2");
+
+            final List<MessageWithIndex> batch1 = buildMessages(3, indexSet1);
+            final List<MessageWithIndex> batch2 = buildMessages(3, indexSet2);
+            for (int i = 0; i < 3; i++) {
+                stripedOutput.writeMessageEntry(batch1.get(i));
+                stripedOutput.writeMessageEntry(batch2.get(i));
+            }
+
+            verify(messages, timeout(1000).times(1)).bulkIndex(eq(batch1));
+            verify(messages, timeout(1000).times(1)).bulkIndex(eq(batch2));
+        } finally {
+            stripedOutput.stop();
+        }
+    }
+
+    @Test
+    public void forceFlushIfTimedOutStriped() throws Exception {
+        final BlockingBatchedESOutput stripedOutput = stripedOutput(OutputBatchStriping.THREAD, 1);
+        try {
+            final List<MessageWithIndex> messageList = sendMessages(stripedOutput, config.getOutputBatchSize() - 1);
+
+            Thread.sleep(config.getOutputFlushInterval() * 1000L + 100); // let the flushservice run
+
+            verify(messages, timeout(1000).times(1)).bulkIndex(eq(messageList));
+        } finally {
+            stripedOutput.stop();
+        }
+    }
+
+    @Test
+    @Timeout(5)
+    public void writeStripedBlocksOnlyWhenInflightLimitIsReached() throws Exception {
+        final CountDownLatch indexingStarted = new CountDownLatch(1);
+        final CountDownLatch releaseIndexing = new CountDownLatch(1);
+        when(messages.bulkIndex(any())).thenAnswer(invocation -> {
+            indexingStarted.countDown();
+            releaseIndexing.await();
+            return IndexingResults.empty();
+        });
+
+        final BlockingBatchedESOutput stripedOutput = stripedOutput(OutputBatchStriping.THREAD, 1);
+        try {
+            // The first batch occupies the only in-flight slot, but the writer doesn't wait for it.
+            sendMessages(stripedOutput, config.getOutputBatchSize());
+            indexingStarted.await();
+
+            final Thread writer = new Thread(() -> {
+                try {
+                    sendMessages(stripedOutput, config.getOutputBatchSize());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+
+            // The second full batch has to wait for the in-flight slot.
+            writer.join(200);
+            assertThat(writer.isAlive()).isTrue();
+
+            releaseIndexing.countDown();
+            writer.join();
+            verify(messages, timeout(1000).times(2)).bulkIndex(any());
+        } finally {
+            releaseIndexing.countDown();
+            stripedOutput.stop();
+        }
+    }
+
+    @Test
+    @SuppressForbidden("Using Executors.newSingleThreadExecutor() is okay in tests")
+    public void writeWithByteLimit() throws Exception {
+        final Configuration byteConfig = new Configuration() {
+            @Override
+            public int getOutputBatchSize() {
+                return 1000;
+            }
+
+            @Override
+            public Size getOutputBatchMaxBytes() {
+                return Size.kilobytes(10);
+            }
+        };
+        final BlockingBatchedESOutput byteOutput = new BlockingBatchedESOutput(new MetricRegistry(), messages,
+                byteConfig, new NoopJournal(), acknowledger, cluster, Executors.newSingleThreadScheduledExecutor());
+
+        final IndexSet indexSet = mock(IndexSet.class);
+        final List<MessageWithIndex> smallMessages = buildMessages(3);
+        final MessageWithIndex largeMessage = new MessageWithIndex(
+                new Message("x".repeat(10 * 1024), "test", Tools.nowUTC()), indexSet);
+
+        for (MessageWithIndex entry : smallMessages) {
+            byteOutput.writeMessageEntry(entry);
+        }
+        verifyNoInteractions(messages);
+
+        byteOutput.writeMessageEntry(largeMessage);
+
+        verify(messages, times(1)).bulkIndex(eq(ImmutableList.<MessageWithIndex>builder()
+                .addAll(smallMessages)
+                .add(largeMessage)
+                .build()));
+    }
+
+    private IndexSet indexSet(String id) {
+        final IndexSet indexSet = mock(IndexSet.class);
+        final IndexSetConfig indexSetConfig = mock(IndexSetConfig.class);
+        when(indexSetConfig.id()).thenReturn(id);
+        when(indexSet.getConfig()).thenReturn(indexSetConfig);
+        return indexSet;
+    }
+
+    private List<MessageWithIndex> buildMessages(final int count, IndexSet indexSet) {
+        final ImmutableList.Builder<MessageWithIndex> builder = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            builder.add(new MessageWithIndex(new Message("message" + i, "test", Tools.nowUTC()), indexSet));
+        }
+
+        return builder.build();
+    }
+
     private List<MessageWithIndex> buildMessages(final int count) {
         final ImmutableList.Builder<MessageWithIndex> builder = ImmutableList.builder();
         for (int i = 0; i < count; i++) {
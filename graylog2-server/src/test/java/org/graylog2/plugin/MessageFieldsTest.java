@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MessageFieldsTest {
+    @Test
+    public void putGetAndRemove() {
+        final MessageFields fields = new MessageFields();
+
+        assertThat(fields.put("foo", "bar")).isNull();
+        assertThat(fields.put("baz", 1)).isNull();
+        assertThat(fields.put("foo", "qux")).isEqualTo("bar");
+
+        assertThat(fields).hasSize(2);
+        assertThat(fields.get("foo")).isEqualTo("qux");
+        assertThat(fields.get(new String("baz"))).isEqualTo(1);
+        assertThat(fields.containsKey("nope")).isFalse();
+        assertThat(fields.get(null)).isNull();
+
+        assertThat(fields.remove("foo")).isEqualTo("qux");
+        assertThat(fields.remove("foo")).isNull();
+        assertThat(fields).containsExactly(Map.entry("baz", 1));
+    }
+
+    @Test
+    public void keepsInsertionOrder() {
+        final MessageFields fields = new MessageFields(2);
+        for (int i = 0; i < 100; i++) {
+            fields.put("field_" + i, i);
+        }
+
+        final Iterator<Map.Entry<String, Object>> iterator = fields.entrySet().iterator();
+        for (int i = 0; i < 100; i++) {
+            assertThat(iterator.next()).isEqualTo(Map.entry("field_" + i, i));
+        }
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    public void behavesLikeHashMap() {
+        final Random random = new Random(42);
+        final MessageFields fields = new MessageFields();
+        final Map<String, Object> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            // A small key space produces lots of collisions, overwrites and removals.
+            final String key = "k" + random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                assertThat(fields.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(fields.put(key, i)).isEqualTo(expected.put(key, i));
+            }
+            assertThat(fields.size()).isEqualTo(expected.size());
+        }
+
+        assertThat(fields).isEqualTo(expected);
+        assertThat(expected).isEqualTo(fields);
+        for (String key : expected.keySet()) {
+            assertThat(fields.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+
+    @Test
+    public void iteratorRemoveVisitsAllEntries() {
+        final MessageFields fields = new MessageFields();
+        for (int i = 0; i < 20; i++) {
+            fields.put("field_" + i, i);
+        }
+
+        int visited = 0;
+        final Iterator<Map.Entry<String, Object>> iterator = fields.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Object> entry = iterator.next();
+            visited++;
+            if ((Integer) entry.getValue() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertThat(visited).isEqualTo(20);
+        assertThat(fields).hasSize(10);
+        assertThat(fields.values()).allMatch(value -> (Integer) value % 2 == 1);
+    }
+
+    @Test
+    public void rejectsNullValues() {
+        final MessageFields fields = new MessageFields();
+
+        assertThatThrownBy(() -> fields.put("foo", null)).isInstanceOf(NullPointerException.class);
+        assertThat(fields).isEmpty();
+    }
+
+    @Test
+    public void fieldNamesAreCanonical() {
+        final MessageFieldNames.FieldName first = MessageFieldNames.lookup(new String("canonical_field"));
+        final MessageFieldNames.FieldName second = MessageFieldNames.lookup(new String("canonical_field"));
+
+        assertThat(second.name()).isSameAs(first.name());
+        assertThat(first.valid()).isTrue();
+        assertThat(first.settable()).isTrue();
+        assertThat(first.accounted()).isTrue();
+
+        assertThat(MessageFieldNames.lookup("invalid field").valid()).isFalse();
+        assertThat(MessageFieldNames.lookup(Message.FIELD_ID).settable()).isFalse();
+        assertThat(MessageFieldNames.lookup(Message.FIELD_GL2_SOURCE_INPUT).accounted()).isFalse();
+    }
+
+    @Test
+    public void fieldNamesAreNotCachedBeyondCapacity() {
+        final MessageFieldNames fieldNames = new MessageFieldNames(2);
+        fieldNames.resolve("first");
+        fieldNames.resolve("second");
+
+        final MessageFieldNames.FieldName third = fieldNames.resolve(new String("third"));
+        final MessageFieldNames.FieldName thirdAgain = fieldNames.resolve(new String("third"));
+
+        assertThat(fieldNames.cachedNames()).isEqualTo(2);
+        assertThat(thirdAgain.name()).isNotSameAs(third.name()).isEqualTo("third");
+        assertThat(thirdAgain.valid()).isTrue();
+        assertThat(fieldNames.resolve(new String("first")).name()).isSameAs(fieldNames.resolve("first").name());
+    }
+
+    @Test
+    public void concurrentLookupsDoNotExceedCapacity() throws Exception {
+        final MessageFieldNames fieldNames = new MessageFieldNames(100);
+        final List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    fieldNames.resolve("field_" + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(fieldNames.cachedNames()).isEqualTo(100);
+    }
+}
@@ -19,7 +19,10 @@ package org.graylog2.plugin;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.eaio.uuid.UUID;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -44,6 +47,8 @@ import org.junit.Test;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -258,6 +263,23 @@ public class MessageTest {
         assertThat(message.getStreams()).containsOnly(stream1, stream3);
     }
 
+    @Test
+    public void testStreamsView() {
+        final Stream stream1 = mock(Stream.class);
+        final Stream stream2 = mock(Stream.class);
+
+        message.addStream(stream1);
+        final Set<Stream> streams = message.getStreamsView();
+        assertThat(streams).containsOnly(stream1);
+
+        // the view reflects later changes
+        message.addStream(stream2);
+        message.removeStream(stream1);
+        assertThat(streams).containsOnly(stream2);
+
+        assertThatCode(() -> streams.add(stream1)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
     @Test
     public void testStreamMutatorsWithIndexSets() {
         final Stream stream1 = mock(Stream.class);
@@ -753,6 +775,70 @@ public class MessageTest {
                 .isEqualTo("Failure Message #1 - Failure Details #1, Failure Message #2 - Failure Details #2");
     }
 
+    @Test
+    public void writeElasticSearchObjectWritesSameDocumentAsToElasticSearchObject() throws Exception {
+        final Stream stream = mock(Stream.class);
+        when(stream.getId()).thenReturn("stream-id");
+        when(stream.getIndexSet()).thenReturn(mock(IndexSet.class));
+        message.addStream(stream);
+        message.addField("string", "wat");
+        message.addField("long", 23L);
+        message.addField("int", 42);
+        message.addField("double", 1.5d);
+        message.addField("boolean", true);
+        message.addField("date", new DateTime(2015, 9, 8, 0, 0, DateTimeZone.UTC));
+        message.addField("list", ImmutableList.of("a", "b"));
+        message.addField("field.1", "dot");
+        message.addField("field.2", "conflict");
+        message.addField("field_2", "no conflict");
+
+        assertThat(writtenElasticSearchObject(message)).isEqualTo(convertedElasticSearchObject(message));
+        assertThat(writtenElasticSearchObject(message))
+                .containsEntry("field_1", "dot")
+                .containsEntry("field_2", "no conflict")
+                .doesNotContainKey("field.1")
+                .doesNotContainKey("_id");
+    }
+
+    @Test
+    public void writeElasticSearchObjectWithDotReplacementDisabled() throws Exception {
+        when(elasticsearchConfiguration.getReplaceDotsInFieldNames()).thenReturn(false);
+        message.addField("field.3", "dot");
+
+        assertThat(writtenElasticSearchObject(message))
+                .isEqualTo(convertedElasticSearchObject(message))
+                .containsEntry("field.3", "dot");
+    }
+
+    @Test
+    public void writeElasticSearchObjectWithInvalidTimestamp() throws Exception {
+        message.addField("timestamp", "time!");
+
+        final Meter errorMeter = metricRegistry.meter("test-meter");
+        final Map<String, Object> object = writtenElasticSearchObject(message, errorMeter);
+
+        assertThat(object.get("timestamp")).isNotEqualTo("time!");
+        assertThat(object.get(Message.FIELD_GL2_PROCESSING_ERROR)).asString().startsWith("Replaced invalid timestamp value");
+        assertEquals(1, errorMeter.getCount());
+    }
+
+    private Map<String, Object> writtenElasticSearchObject(Message message) throws IOException {
+        return writtenElasticSearchObject(message, invalidTimestampMeter);
+    }
+
+    private Map<String, Object> writtenElasticSearchObject(Message message, Meter meter) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            message.writeElasticSearchObject(generator, objectMapper, meter);
+        }
+        return objectMapper.readValue(out.toByteArray(), new TypeReference<>() {});
+    }
+
+    private Map<String, Object> convertedElasticSearchObject(Message message) throws IOException {
+        final byte[] bytes = objectMapper.writeValueAsBytes(message.toElasticSearchObject(objectMapper, invalidTimestampMeter));
+        return objectMapper.readValue(bytes, new TypeReference<>() {});
+    }
+
     @Test
     public void testTimestampConversionWithWrongDate() {
         // Do not use fixed time from setUp() in this test
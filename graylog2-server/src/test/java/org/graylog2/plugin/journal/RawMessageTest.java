@@ -16,18 +16,28 @@
  */
 package org.graylog2.plugin.journal;
 
+import com.google.common.collect.ImmutableMap;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.system.SimpleNodeId;
+import org.graylog2.shared.journal.LocalCodecConfigTable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class RawMessageTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void minimalEncodeDecode() throws IOException {
         final RawMessage rawMessage = new RawMessage("testmessage".getBytes(StandardCharsets.UTF_8));
@@ -45,4 +55,44 @@ public class RawMessageTest {
         assertEquals("inputid", decodedMsg.getSourceNodes().get(0).inputId);
         assertEquals("5ca1ab1e-0000-4000-a000-000000000000", decodedMsg.getSourceNodes().get(0).nodeId);
     }
+
+    @Test
+    public void encodeDecodeWithCodecConfigTable() throws IOException {
+        final CodecConfigTable codecConfigTable = new LocalCodecConfigTable(temporaryFolder.newFolder().toPath());
+        final Configuration codecConfig = new Configuration(ImmutableMap.of("foo", "bar"));
+        final RawMessage rawMessage = new RawMessage("testmessage".getBytes(StandardCharsets.UTF_8));
+        rawMessage.addSourceNode("inputid", new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"));
+        rawMessage.setCodecName("raw");
+        rawMessage.setCodecConfig(codecConfig);
+
+        final byte[] encoded = rawMessage.encode(codecConfigTable);
+        final JournalMessages.CodecInfo codecInfo = JournalMessages.JournalMessage.parseFrom(encoded).getCodec();
+        assertFalse(codecInfo.hasConfig());
+        assertEquals("inputid", codecInfo.getConfigInputId());
+        assertTrue(codecInfo.hasConfigVersion());
+
+        final RawMessage decodedMsg = RawMessage.decode(encoded, 1, codecConfigTable);
+
+        assertNotNull(decodedMsg);
+        assertArrayEquals("testmessage".getBytes(StandardCharsets.UTF_8), decodedMsg.getPayload());
+        assertEquals("bar", decodedMsg.getCodecConfig().getString("foo"));
+
+        // Entries referencing a configuration can't be decoded without the table
+        assertNull(RawMessage.decode(encoded, 1));
+    }
+
+    @Test
+    public void encodeWithCodecConfigTableEmbedsConfigWithoutInputId() throws IOException {
+        final CodecConfigTable codecConfigTable = new LocalCodecConfigTable(temporaryFolder.newFolder().toPath());
+        final RawMessage rawMessage = new RawMessage("testmessage".getBytes(StandardCharsets.UTF_8));
+        rawMessage.setCodecName("raw");
+        rawMessage.setCodecConfig(new Configuration(ImmutableMap.of("foo", "bar")));
+
+        final byte[] encoded = rawMessage.encode(codecConfigTable);
+        assertTrue(JournalMessages.JournalMessage.parseFrom(encoded).getCodec().hasConfig());
+
+        final RawMessage decodedMsg = RawMessage.decode(encoded, 1);
+        assertNotNull(decodedMsg);
+        assertEquals("bar", decodedMsg.getCodecConfig().getString("foo"));
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.shared.messageq.MessageQueueWriter;
+import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournallingMessageHandlerTest {
+    private final MessageQueueWriter messageQueueWriter = mock(MessageQueueWriter.class);
+    private final List<List<String>> writtenToFirstPartition = new ArrayList<>();
+    private final List<List<String>> writtenToSecondPartition = new ArrayList<>();
+
+    @Test
+    void writesOnlyTheMessagesOfItsPartition() throws Exception {
+        when(messageQueueWriter.partitionFor(any(), anyLong())).thenAnswer(invocation -> (int) (invocation.<Long>getArgument(1) % 2));
+        recordWrites();
+        final JournallingMessageHandler first = handler(0);
+        final JournallingMessageHandler second = handler(1);
+
+        // like the input buffer, every handler sees all messages
+        for (int sequence = 0; sequence < 4; sequence++) {
+            final RawMessageEvent event = event("message-" + sequence);
+            first.onEvent(event, sequence, sequence == 3);
+            second.onEvent(event, sequence, sequence == 3);
+        }
+
+        assertThat(writtenToFirstPartition).containsExactly(List.of("message-0", "message-2"));
+        assertThat(writtenToSecondPartition).containsExactly(List.of("message-1", "message-3"));
+    }
+
+    @Test
+    void doesNotWriteEmptyBatches() throws Exception {
+        when(messageQueueWriter.partitionFor(any(), anyLong())).thenReturn(1);
+        final JournallingMessageHandler handler = handler(0);
+
+        handler.onEvent(event("message"), 0, true);
+
+        verify(messageQueueWriter, never()).write(anyInt(), anyList());
+    }
+
+    private void recordWrites() throws Exception {
+        for (int partition = 0; partition < 2; partition++) {
+            final List<List<String>> written = partition == 0 ? writtenToFirstPartition : writtenToSecondPartition;
+            doAnswer(invocation -> {
+                final List<String> messages = new ArrayList<>();
+                for (RawMessageEvent event : invocation.<List<RawMessageEvent>>getArgument(1)) {
+                    messages.add(new String(event.getEncodedRawMessage(), StandardCharsets.UTF_8));
+                }
+                written.add(messages);
+                return null;
+            }).when(messageQueueWriter).write(eq(partition), anyList());
+        }
+    }
+
+    private JournallingMessageHandler handler(int partition) {
+        return new JournallingMessageHandler(new MetricRegistry(), messageQueueWriter, mock(ProcessingStatusRecorder.class), partition);
+    }
+
+    private static RawMessageEvent event(String message) {
+        final RawMessageEvent event = new RawMessageEvent();
+        event.setEncodedRawMessage(message.getBytes(StandardCharsets.UTF_8));
+        event.setMessageIdBytes(message.getBytes(StandardCharsets.UTF_8));
+        return event;
+    }
+}
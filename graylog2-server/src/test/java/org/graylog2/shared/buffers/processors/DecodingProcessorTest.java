@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.buffers.MessageEvent;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.codecs.Codec;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.plugin.system.SimpleNodeId;
+import org.graylog2.shared.journal.Journal;
+import org.graylog2.shared.messageq.MessageQueueAcknowledger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DecodingProcessorTest {
+    private Journal journal;
+    private MessageQueueAcknowledger acknowledger;
+    private DecodingProcessor decodingProcessor;
+
+    @BeforeEach
+    void setUp() {
+        final Codec codec = mock(Codec.class);
+        when(codec.decode(any(RawMessage.class))).thenAnswer(invocation -> {
+            final RawMessage raw = invocation.getArgument(0);
+            return new Message(new String(raw.getPayload(), StandardCharsets.UTF_8), "source", Tools.nowUTC());
+        });
+        final Codec.Factory<Codec> codecFactory = mock(Codec.Factory.class);
+        when(codecFactory.create(any(Configuration.class))).thenReturn(codec);
+        final ServerStatus serverStatus = mock(ServerStatus.class);
+        when(serverStatus.getDetailedMessageRecordingStrategy()).thenReturn(ServerStatus.MessageDetailRecordingStrategy.NEVER);
+        journal = mock(Journal.class);
+        acknowledger = mock(MessageQueueAcknowledger.class);
+
+        decodingProcessor = new DecodingProcessor(ImmutableMap.of("test", codecFactory),
+                serverStatus,
+                new MetricRegistry(),
+                journal,
+                acknowledger,
+                Optional.empty(),
+                new Timer(),
+                new Timer());
+    }
+
+    @Test
+    void decodesJournalEntry() throws Exception {
+        final RawMessage rawMessage = new RawMessage("hello".getBytes(StandardCharsets.UTF_8));
+        rawMessage.addSourceNode("input-id", new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"));
+        rawMessage.setCodecName("test");
+        rawMessage.setCodecConfig(Configuration.EMPTY_CONFIGURATION);
+        final MessageEvent event = new MessageEvent();
+        event.setEncodedRaw(rawMessage.encode(), 42L);
+
+        decodingProcessor.onEvent(event, 0L, false);
+
+        final Message message = event.getMessage();
+        assertThat(message).isNotNull();
+        assertThat(message.getMessage()).isEqualTo("hello");
+        assertThat(message.getMessageQueueId()).isEqualTo(42L);
+        assertThat(message.getSourceInputId()).isEqualTo("input-id");
+        assertThat(event.getEncodedRaw()).isNull();
+        verify(journal, never()).markJournalOffsetCommitted(anyLong());
+    }
+
+    @Test
+    void commitsUndecodableJournalEntry() throws Exception {
+        final MessageEvent event = new MessageEvent();
+        event.setEncodedRaw(new byte[]{1, 2, 3}, 42L);
+
+        decodingProcessor.onEvent(event, 0L, false);
+
+        assertThat(event.getMessage()).isNull();
+        assertThat(event.getMessages()).isNull();
+        assertThat(event.getEncodedRaw()).isNull();
+        verify(journal).markJournalOffsetCommitted(42L);
+        verify(acknowledger, never()).acknowledge(any(Object.class));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.buffers.MessageEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ProcessBufferBatchHandlerTest {
+    private ProcessBufferProcessor processor;
+    private List<List<String>> processedBatches;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        processor = mock(ProcessBufferProcessor.class);
+        processedBatches = new ArrayList<>();
+        doAnswer(invocation -> {
+            final MessageEvent event = invocation.getArgument(0);
+            final List<Message> batch = invocation.getArgument(1);
+            batch.add(event.getMessage());
+            return null;
+        }).when(processor).decode(any(MessageEvent.class), anyList());
+        doAnswer(invocation -> {
+            final List<Message> batch = invocation.getArgument(0);
+            processedBatches.add(batch.stream().map(Message::getMessage).toList());
+            return null;
+        }).when(processor).processBatch(anyList());
+    }
+
+    @Test
+    void processesBatchWhenFull() throws Exception {
+        final ProcessBufferBatchHandler handler = new ProcessBufferBatchHandler(processor, 0, 1, 2);
+
+        handler.onEvent(event("1"), 0, false);
+        assertThat(processedBatches).isEmpty();
+
+        handler.onEvent(event("2"), 1, false);
+        handler.onEvent(event("3"), 2, false);
+        handler.onEvent(event("4"), 3, false);
+
+        assertThat(processedBatches).containsExactly(List.of("1", "2"), List.of("3", "4"));
+    }
+
+    @Test
+    void processesPendingMessagesAtEndOfBatch() throws Exception {
+        final ProcessBufferBatchHandler handler = new ProcessBufferBatchHandler(processor, 0, 1, 100);
+
+        handler.onEvent(event("1"), 0, false);
+        handler.onEvent(event("2"), 1, true);
+        handler.onEvent(event("3"), 2, true);
+
+        assertThat(processedBatches).containsExactly(List.of("1", "2"), List.of("3"));
+    }
+
+    @Test
+    void onlyDecodesEventsOfItsShard() throws Exception {
+        final ProcessBufferBatchHandler handler = new ProcessBufferBatchHandler(processor, 1, 2, 100);
+        final MessageEvent otherShardEvent = event("2");
+
+        handler.onEvent(event("1"), 0, false);
+        handler.onEvent(otherShardEvent, 2, false);
+        handler.onEvent(event("3"), 3, false);
+        // The end of the batch belongs to the other shard, but pending messages are still processed
+        handler.onEvent(event("4"), 4, true);
+
+        assertThat(processedBatches).containsExactly(List.of("3"));
+        assertThat(otherShardEvent.getMessage()).isNotNull();
+    }
+
+    @Test
+    void doesNotProcessEmptyBatches() throws Exception {
+        final ProcessBufferBatchHandler handler = new ProcessBufferBatchHandler(processor, 1, 2, 100);
+
+        handler.onEvent(event("1"), 0, true);
+
+        verify(processor, never()).processBatch(anyList());
+    }
+
+    private static MessageEvent event(String message) {
+        final MessageEvent event = new MessageEvent();
+        event.setMessage(new Message(message, "source", Tools.nowUTC()));
+        return event;
+    }
+}
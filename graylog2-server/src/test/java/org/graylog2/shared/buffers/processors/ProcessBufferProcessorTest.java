@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.eventbus.EventBus;
+import de.huxhorn.sulky.ulid.ULID;
+import org.graylog.aws.migrations.V20200505121200_EncryptAWSSecretKey;
+import org.graylog.aws.processors.instancelookup.AWSInstanceNameLookupProcessor;
+import org.graylog.aws.processors.instancelookup.InstanceLookupTable;
+import org.graylog.failure.FailureSubmissionService;
+import org.graylog.failure.ProcessingFailureCause;
+import org.graylog.plugins.map.config.S3GeoIpFileService;
+import org.graylog.plugins.map.geoip.GeoIpVendorResolverService;
+import org.graylog.plugins.map.geoip.processor.GeoIpProcessor;
+import org.graylog.plugins.pipelineprocessor.db.RuleMetricsConfigDto;
+import org.graylog.plugins.pipelineprocessor.processors.ConfigurationStateUpdater;
+import org.graylog.plugins.pipelineprocessor.processors.PipelineInterpreter;
+import org.graylog2.Configuration;
+import org.graylog2.buffers.OutputBuffer;
+import org.graylog2.messageprocessors.MessageFilterChainProcessor;
+import org.graylog2.messageprocessors.OrderedMessageProcessors;
+import org.graylog2.messageprocessors.StreamMatcherFilterProcessor;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Messages;
+import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.plugin.filters.MessageFilter;
+import org.graylog2.plugin.messageprocessors.MessageProcessor;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.shared.messageq.MessageQueueAcknowledger;
+import org.graylog2.streams.StreamMetrics;
+import org.graylog2.streams.StreamRouter;
+import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessBufferProcessorTest {
+    private OrderedMessageProcessors orderedMessageProcessors;
+    private OutputBuffer outputBuffer;
+    private FailureSubmissionService failureSubmissionService;
+    private ProcessBufferProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        orderedMessageProcessors = mock(OrderedMessageProcessors.class);
+        outputBuffer = mock(OutputBuffer.class);
+        failureSubmissionService = mock(FailureSubmissionService.class);
+        when(failureSubmissionService.submitProcessingErrors(any())).thenReturn(true);
+        final ULID ulid = new ULID();
+        final Stream defaultStream = mock(Stream.class);
+        when(defaultStream.getId()).thenReturn("default");
+
+        processor = new ProcessBufferProcessor(new MetricRegistry(),
+                orderedMessageProcessors,
+                outputBuffer,
+                mock(ProcessingStatusRecorder.class),
+                ulid,
+                new MessageULIDGenerator(ulid),
+                mock(DecodingProcessor.class),
+                () -> defaultStream,
+                failureSubmissionService,
+                mock(StreamMetrics.class));
+    }
+
+    @Test
+    void processesBatchAtOnceIfProcessorsIsolateFailures() {
+        final RecordingProcessor messageProcessor = new RecordingProcessor(true, null);
+        when(orderedMessageProcessors.iterator()).thenAnswer(invocation -> List.<MessageProcessor>of(messageProcessor).iterator());
+
+        processor.processBatch(List.of(message("1"), message("2"), message("3")));
+
+        assertThat(messageProcessor.invocations).containsExactly(List.of("1", "2", "3"));
+        verify(outputBuffer).insertBlocking(anyList());
+    }
+
+    @Test
+    void recordsBatchFailureOnEveryMessageWithoutProcessingItAgain() {
+        final RecordingProcessor messageProcessor = new RecordingProcessor(true, "2");
+        final RecordingProcessor nextProcessor = new RecordingProcessor(true, null);
+        when(orderedMessageProcessors.iterator()).thenAnswer(invocation -> List.<MessageProcessor>of(messageProcessor, nextProcessor).iterator());
+        final List<Message> batch = List.of(message("1"), message("2"), message("3"));
+
+        processor.processBatch(batch);
+
+        assertThat(messageProcessor.invocations).containsExactly(List.of("1", "2", "3"));
+        assertThat(nextProcessor.invocations).containsExactly(List.of("1", "2", "3"));
+        assertThat(batch).allSatisfy(message -> assertThat(message.processingErrors())
+                .extracting(Message.ProcessingError::getCause)
+                .containsExactly(ProcessingFailureCause.UNKNOWN));
+        verify(failureSubmissionService, never()).submitUnknownProcessingError(any(), anyString());
+        verify(failureSubmissionService, times(3)).submitProcessingErrors(any());
+        verify(outputBuffer).insertBlocking(anyList());
+    }
+
+    @Test
+    void processesMessagesOneByOneOnlyInProcessorsWhichDoNotIsolateFailures() {
+        final RecordingProcessor messageProcessor = new RecordingProcessor(false, "2");
+        final RecordingProcessor nextProcessor = new RecordingProcessor(true, null);
+        when(orderedMessageProcessors.iterator()).thenAnswer(invocation -> List.<MessageProcessor>of(messageProcessor, nextProcessor).iterator());
+        final Message failing = message("2");
+
+        processor.processBatch(List.of(message("1"), failing, message("3")));
+
+        assertThat(messageProcessor.invocations).containsExactly(List.of("1"), List.of("2"), List.of("3"));
+        assertThat(nextProcessor.invocations).containsExactly(List.of("1", "3"));
+        verify(failureSubmissionService).submitUnknownProcessingError(eq(failing), anyString());
+        verify(outputBuffer).insertBlocking(argThat((List<Message> messages) -> messages.size() == 2));
+        verify(outputBuffer, never()).insertBlocking(any(Message.class));
+    }
+
+    @Test
+    void processesBatchAtOnceWithDefaultProcessors() {
+        final List<MessageProcessor> defaultProcessors = defaultProcessors().stream()
+                .map(Mockito::spy)
+                .collect(Collectors.toList());
+        when(orderedMessageProcessors.iterator()).thenAnswer(invocation -> defaultProcessors.iterator());
+
+        final List<Message> batch = List.of(message("1"), message("2"), message("3"));
+
+        processor.processBatch(batch);
+
+        assertThat(batch).allSatisfy(message -> assertThat(message.processingErrors()).isEmpty());
+        for (MessageProcessor messageProcessor : defaultProcessors) {
+            assertThat(messageProcessor.isolatesMessageFailures()).isTrue();
+            verify(messageProcessor).process(argThat(messages -> Iterables.size(messages) == 3));
+        }
+        verify(outputBuffer).insertBlocking(argThat((List<Message> messages) -> messages.size() == 3));
+    }
+
+    private static List<MessageProcessor> defaultProcessors() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final ServerStatus serverStatus = mock(ServerStatus.class);
+        when(serverStatus.getDetailedMessageRecordingStrategy()).thenReturn(ServerStatus.MessageDetailRecordingStrategy.NEVER);
+        final ClusterConfigService clusterConfigService = mock(ClusterConfigService.class);
+        when(clusterConfigService.getOrDefault(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(clusterConfigService.get(V20200505121200_EncryptAWSSecretKey.MigrationCompleted.class))
+                .thenReturn(V20200505121200_EncryptAWSSecretKey.MigrationCompleted.create());
+
+        final MessageFilter messageFilter = mock(MessageFilter.class);
+        when(messageFilter.getName()).thenReturn("filter");
+        final ConfigurationStateUpdater stateUpdater = mock(ConfigurationStateUpdater.class);
+        when(stateUpdater.getLatestState()).thenReturn(new PipelineInterpreter.State(ImmutableMap.of(),
+                ImmutableSetMultimap.of(), RuleMetricsConfigDto.createDefault(), metricRegistry, 1, true));
+
+        return List.of(
+                new AWSInstanceNameLookupProcessor(clusterConfigService, mock(InstanceLookupTable.class), metricRegistry,
+                        mock(Configuration.class)),
+                new GeoIpProcessor(clusterConfigService, mock(ScheduledExecutorService.class), new EventBus(),
+                        metricRegistry, mock(GeoIpVendorResolverService.class, Mockito.RETURNS_MOCKS), serverStatus,
+                        mock(S3GeoIpFileService.class)),
+                new MessageFilterChainProcessor(metricRegistry, Set.of(messageFilter),
+                        mock(MessageQueueAcknowledger.class), serverStatus),
+                new PipelineInterpreter(mock(MessageQueueAcknowledger.class), metricRegistry, stateUpdater),
+                new StreamMatcherFilterProcessor(metricRegistry, serverStatus, mock(StreamRouter.class)));
+    }
+
+    private static Message message(String message) {
+        return new Message(message, "source", Tools.nowUTC());
+    }
+
+    private static class RecordingProcessor implements MessageProcessor {
+        private final boolean isolatesMessageFailures;
+        private final String failingMessage;
+        private final List<List<String>> invocations = new ArrayList<>();
+
+        RecordingProcessor(boolean isolatesMessageFailures, String failingMessage) {
+            this.isolatesMessageFailures = isolatesMessageFailures;
+            this.failingMessage = failingMessage;
+        }
+
+        @Override
+        public Messages process(Messages messages) {
+            final List<String> processed = new ArrayList<>();
+            messages.forEach(message -> processed.add(message.getMessage()));
+            invocations.add(processed);
+            if (processed.contains(failingMessage)) {
+                throw new IllegalStateException("Unable to process message " + failingMessage);
+            }
+            return messages;
+        }
+
+        @Override
+        public boolean isolatesMessageFailures() {
+            return isolatesMessageFailures;
+        }
+    }
+}
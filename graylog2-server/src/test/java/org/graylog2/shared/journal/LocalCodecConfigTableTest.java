@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.journal;
+
+import com.google.common.collect.ImmutableMap;
+import org.graylog2.plugin.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalCodecConfigTableTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path journalDir;
+
+    @Before
+    public void setUp() throws IOException {
+        journalDir = temporaryFolder.newFolder().toPath();
+    }
+
+    @Test
+    public void reusesVersionForEqualConfiguration() {
+        final LocalCodecConfigTable table = new LocalCodecConfigTable(journalDir);
+
+        final long version = table.version("input-1", new Configuration(ImmutableMap.of("port", 1234)));
+
+        assertThat(version).isEqualTo(0L);
+        assertThat(table.version("input-1", new Configuration(ImmutableMap.of("port", 1234)))).isEqualTo(version);
+        assertThat(table.version("input-2", new Configuration(ImmutableMap.of("port", 1234)))).isEqualTo(0L);
+    }
+
+    @Test
+    public void addsVersionForChangedConfiguration() {
+        final LocalCodecConfigTable table = new LocalCodecConfigTable(journalDir);
+
+        assertThat(table.version("input-1", new Configuration(ImmutableMap.of("port", 1234)))).isEqualTo(0L);
+        assertThat(table.version("input-1", new Configuration(ImmutableMap.of("port", 4321)))).isEqualTo(1L);
+
+        assertThat(table.get("input-1", 0L).getInt("port")).isEqualTo(1234);
+        assertThat(table.get("input-1", 1L).getInt("port")).isEqualTo(4321);
+    }
+
+    @Test
+    public void returnsNullForUnknownVersion() {
+        final LocalCodecConfigTable table = new LocalCodecConfigTable(journalDir);
+        table.version("input-1", new Configuration(ImmutableMap.of("port", 1234)));
+
+        assertThat(table.get("input-1", 1L)).isNull();
+        assertThat(table.get("input-2", 0L)).isNull();
+    }
+
+    @Test
+    public void persistsConfigurationsInJournalDirectory() {
+        final LocalCodecConfigTable table = new LocalCodecConfigTable(journalDir);
+        table.version("input-1", new Configuration(ImmutableMap.of("port", 1234)));
+        table.version("input-1", new Configuration(ImmutableMap.of("port", 4321)));
+
+        assertThat(journalDir.resolve(LocalCodecConfigTable.FILE_NAME)).exists();
+
+        final LocalCodecConfigTable reloaded = new LocalCodecConfigTable(journalDir);
+        assertThat(reloaded.get("input-1", 0L).getInt("port")).isEqualTo(1234);
+        assertThat(reloaded.get("input-1", 1L).getInt("port")).isEqualTo(4321);
+        assertThat(reloaded.version("input-1", new Configuration(ImmutableMap.of("port", 4321)))).isEqualTo(1L);
+        assertThat(reloaded.version("input-1", new Configuration(ImmutableMap.of("port", 1234)))).isEqualTo(2L);
+    }
+}
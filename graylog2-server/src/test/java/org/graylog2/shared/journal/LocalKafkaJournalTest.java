@@ -18,6 +18,7 @@ package org.graylog2.shared.journal;
 
 import com.codahale.metrics.MetricRegistry;
 import com.github.joschi.jadconfig.util.Size;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
@@ -30,6 +31,7 @@ import org.graylog.shaded.kafka09.utils.FileLock;
 import org.graylog2.Configuration;
 import org.graylog2.audit.NullAuditEventSender;
 import org.graylog2.plugin.InstantMillisProvider;
+import org.graylog2.plugin.KafkaJournalConfiguration;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.lifecycles.Lifecycle;
 import org.graylog2.plugin.system.FilePersistedNodeIdProvider;
@@ -56,6 +58,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
@@ -136,6 +140,191 @@ public class LocalKafkaJournalTest {
         assertEquals("message", new String(firstMessage.getPayload(), UTF_8));
     }
 
+    @Test
+    public void partitionedWriteAndRead() throws Exception {
+        final LocalKafkaJournal journal = new LocalKafkaJournal(journalDirectory.toPath(),
+                scheduler,
+                Size.megabytes(100L),
+                Duration.standardHours(1),
+                Size.megabytes(5L),
+                Duration.standardHours(1),
+                1_000_000,
+                Duration.standardMinutes(1),
+                100,
+                3,
+                KafkaJournalConfiguration.COMPRESSION_NONE,
+                new MetricRegistry(),
+                serverStatus);
+
+        assertThat(journal.getPartitions()).isEqualTo(3);
+
+        final long firstOffset = journal.write(1, ImmutableList.of(
+                journal.createEntry("id1".getBytes(UTF_8), "message1".getBytes(UTF_8)),
+                journal.createEntry("id2".getBytes(UTF_8), "message2".getBytes(UTF_8))));
+        final long secondOffset = journal.write(2, ImmutableList.of(
+                journal.createEntry("id3".getBytes(UTF_8), "message3".getBytes(UTF_8))));
+
+        assertThat(journal.partitionOf(firstOffset)).isEqualTo(1);
+        assertThat(journal.partitionOf(secondOffset)).isEqualTo(2);
+        assertThat(journal.getLogEndOffset()).isEqualTo(3);
+
+        assertThat(journal.readPartition(0, 10)).isEmpty();
+        final List<Journal.JournalReadEntry> firstPartition = journal.readPartition(1, 10);
+        assertThat(firstPartition).extracting(entry -> new String(entry.getPayload(), UTF_8))
+                .containsExactly("message1", "message2");
+        assertThat(firstPartition).extracting(entry -> journal.partitionOf(entry.getOffset())).containsOnly(1);
+        assertThat(firstPartition.get(1).getOffset()).isEqualTo(firstOffset);
+
+        final List<Journal.JournalReadEntry> secondPartition = journal.read(10);
+        assertThat(secondPartition).extracting(entry -> new String(entry.getPayload(), UTF_8))
+                .containsExactly("message3");
+        assertThat(journal.read(10)).isEmpty();
+        assertThat(journal.getNextReadOffset()).isEqualTo(3);
+
+        assertThat(journal.getCommittedOffset()).isEqualTo(LocalKafkaJournal.DEFAULT_COMMITTED_OFFSET);
+        journal.markJournalOffsetCommitted(firstOffset);
+        assertThat(journal.getCommittedOffset()).isEqualTo(1L);
+        journal.markJournalOffsetCommitted(secondOffset);
+        assertThat(journal.getCommittedOffset()).isEqualTo(2L);
+    }
+
+    @Test
+    public void drainsPartitionsAfterPartitionCountHasBeenLowered() throws Exception {
+        final LocalKafkaJournal journal = partitionedJournal(2);
+        journal.startAsync().awaitRunning();
+        journal.write(1, ImmutableList.of(journal.createEntry("id1".getBytes(UTF_8), "message1".getBytes(UTF_8))));
+        journal.stopAsync().awaitTerminated();
+        assertThat(journalDirectory.toPath().resolve("messagejournal-1")).isDirectory();
+
+        final LocalKafkaJournal lowered = partitionedJournal(1);
+        lowered.startAsync().awaitRunning();
+        assertThat(lowered.getPartitions()).isEqualTo(2);
+        assertThat(lowered.getWritablePartitions()).isEqualTo(1);
+        assertThat(lowered.size()).isGreaterThan(0);
+        // new messages are only written to the configured partitions
+        final long offset = lowered.write(ImmutableList.of(lowered.createEntry("id2".getBytes(UTF_8), "message2".getBytes(UTF_8))));
+        assertThat(lowered.partitionOf(offset)).isEqualTo(0);
+
+        final List<Journal.JournalReadEntry> drained = lowered.readPartition(1, 10);
+        assertThat(drained).extracting(entry -> new String(entry.getPayload(), UTF_8)).containsExactly("message1");
+        lowered.markJournalOffsetCommitted(drained.get(0).getOffset());
+        lowered.stopAsync().awaitTerminated();
+
+        final LocalKafkaJournal restarted = partitionedJournal(1);
+        assertThat(restarted.getPartitions()).isEqualTo(1);
+        assertThat(restarted.read(10)).extracting(entry -> new String(entry.getPayload(), UTF_8)).containsExactly("message2");
+        assertThat(journalDirectory.toPath().resolve("messagejournal-1")).doesNotExist();
+        assertThat(journalDirectory.toPath().resolve("graylog2-committed-read-offset-1")).doesNotExist();
+    }
+
+    @Test
+    public void truncatesEveryPartition() throws Exception {
+        final LocalKafkaJournal journal = partitionedJournal(3);
+        for (int i = 0; i < 6; i++) {
+            journal.write(i % 3, ImmutableList.of(journal.createEntry(("id" + i).getBytes(UTF_8), ("message" + i).getBytes(UTF_8))));
+        }
+
+        journal.truncateTo(4);
+
+        final List<Long> offsets = new ArrayList<>();
+        for (int partition = 0; partition < 3; partition++) {
+            journal.readPartition(partition, 10).forEach(entry -> offsets.add(entry.getOffset()));
+        }
+        assertThat(offsets).containsExactlyInAnyOrder(0L, 1L, 2L, 3L);
+        assertThat(journal.getLogEndOffset()).isEqualTo(4);
+    }
+
+    private LocalKafkaJournal partitionedJournal(int partitions) {
+        return new LocalKafkaJournal(journalDirectory.toPath(),
+                scheduler,
+                Size.megabytes(100L),
+                Duration.standardHours(1),
+                Size.megabytes(5L),
+                Duration.standardHours(1),
+                1_000_000,
+                Duration.standardMinutes(1),
+                100,
+                partitions,
+                KafkaJournalConfiguration.COMPRESSION_NONE,
+                new MetricRegistry(),
+                serverStatus);
+    }
+
+    @Test
+    public void compressedWriteAndRead() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final LocalKafkaJournal journal = new LocalKafkaJournal(journalDirectory.toPath(),
+                scheduler,
+                Size.megabytes(100L),
+                Duration.standardHours(1),
+                Size.megabytes(5L),
+                Duration.standardHours(1),
+                1_000_000,
+                Duration.standardMinutes(1),
+                100,
+                1,
+                "snappy",
+                metricRegistry,
+                serverStatus);
+
+        final String payload = randomAlphanumeric(100).repeat(10);
+        final List<Journal.Entry> entries = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            entries.add(journal.createEntry(("id" + i).getBytes(UTF_8), (i + payload).getBytes(UTF_8)));
+        }
+        assertThat(journal.write(entries)).isEqualTo(99L);
+        assertThat(journal.write(Collections.singletonList(journal.createEntry("id100".getBytes(UTF_8), "100".getBytes(UTF_8)))))
+                .isEqualTo(100L);
+
+        assertThat(journal.getLogEndOffset()).isEqualTo(101L);
+        assertThat(journal.size()).isLessThan(100L * payload.length() / 2);
+        assertThat(journal.uncompressedSize()).isGreaterThan(100L * payload.length());
+        assertThat(metricRegistry.getGauges()).containsKey(LocalKafkaJournal.class.getName() + ".sizeUncompressed");
+
+        // starting in the middle of a compressed message set only returns the requested messages
+        final List<Journal.JournalReadEntry> middle = journal.read(10L, 5L);
+        assertThat(middle).extracting(Journal.JournalReadEntry::getOffset).containsExactly(10L, 11L, 12L, 13L, 14L);
+        assertThat(new String(middle.get(0).getPayload(), UTF_8)).isEqualTo(10 + payload);
+
+        final List<Journal.JournalReadEntry> all = journal.readNext(0L, 1000L);
+        assertThat(all).hasSize(101);
+        assertThat(all).extracting(Journal.JournalReadEntry::getOffset).isSorted();
+        assertThat(new String(all.get(100).getPayload(), UTF_8)).isEqualTo("100");
+    }
+
+    @Test
+    public void keepsUncompressedSizeAcrossRestarts() throws Exception {
+        final LocalKafkaJournal journal = compressedJournal();
+        journal.startAsync().awaitRunning();
+        final String payload = randomAlphanumeric(100).repeat(10);
+        final List<Journal.Entry> entries = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            entries.add(journal.createEntry(("id" + i).getBytes(UTF_8), (i + payload).getBytes(UTF_8)));
+        }
+        journal.write(entries);
+        final long uncompressedSize = journal.uncompressedSize();
+        journal.stopAsync().awaitTerminated();
+
+        final LocalKafkaJournal restarted = compressedJournal();
+        assertThat(restarted.uncompressedSize()).isEqualTo(uncompressedSize).isGreaterThan(restarted.size());
+    }
+
+    private LocalKafkaJournal compressedJournal() {
+        return new LocalKafkaJournal(journalDirectory.toPath(),
+                scheduler,
+                Size.megabytes(100L),
+                Duration.standardHours(1),
+                Size.megabytes(5L),
+                Duration.standardHours(1),
+                1_000_000,
+                Duration.standardMinutes(1),
+                100,
+                1,
+                "snappy",
+                new MetricRegistry(),
+                serverStatus);
+    }
+
     @Test
     public void readAtLeastOne() throws Exception {
         final Journal journal = new LocalKafkaJournal(journalDirectory.toPath(),
@@ -29,8 +29,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.joda.time.DateTimeZone.UTC;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class LocalKafkaMessageQueueAcknowledgerTest {
@@ -96,4 +99,28 @@ public class LocalKafkaMessageQueueAcknowledgerTest {
 
         verify(kafkaJournal).markJournalOffsetCommitted(2L);
     }
+
+    @Test
+    void acknowledgeMessagesOfPartitions() {
+        when(kafkaJournal.partitionOf(anyLong())).thenAnswer(invocation -> (int) (invocation.<Long>getArgument(0) % 2));
+
+        final Message firstMessage = new Message("message", "source", DateTime.now(UTC));
+        firstMessage.setMessageQueueId(1L);
+
+        final Message secondMessage = new Message("message", "source", DateTime.now(UTC));
+        secondMessage.setMessageQueueId(4L);
+
+        final Message thirdMessage = new Message("message", "source", DateTime.now(UTC));
+        thirdMessage.setMessageQueueId(3L);
+
+        final Message fourthMessage = new Message("message", "source", DateTime.now(UTC));
+        fourthMessage.setMessageQueueId(2L);
+
+        acknowledger.acknowledge(ImmutableList.of(firstMessage, secondMessage, thirdMessage, fourthMessage));
+
+        verify(kafkaJournal).markJournalOffsetCommitted(3L);
+        verify(kafkaJournal).markJournalOffsetCommitted(4L);
+        verify(kafkaJournal, never()).markJournalOffsetCommitted(1L);
+        verify(kafkaJournal, never()).markJournalOffsetCommitted(2L);
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.messageq.localkafka;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.KafkaJournalConfiguration;
+import org.graylog2.shared.buffers.RawMessageEvent;
+import org.graylog2.shared.journal.Journal;
+import org.graylog2.shared.journal.LocalKafkaJournal;
+import org.graylog2.shared.messageq.MessageQueueWriter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocalKafkaMessageQueueWriterTest {
+    private final LocalKafkaJournal journal = mock(LocalKafkaJournal.class);
+
+    @Test
+    void distributesEntriesRoundRobin() {
+        when(journal.getWritablePartitions()).thenReturn(3);
+        final LocalKafkaMessageQueueWriter writer = writer(KafkaJournalConfiguration.PARTITIONING_ROUND_ROBIN);
+
+        final List<Integer> partitions = LongStream.range(0, 6)
+                .mapToObj(sequence -> writer.partitionFor(event("input"), sequence))
+                .collect(Collectors.toList());
+
+        assertThat(writer.writablePartitions()).isEqualTo(3);
+        assertThat(partitions).containsExactly(0, 1, 2, 0, 1, 2);
+    }
+
+    @Test
+    void writesEntriesOfAnInputToTheSamePartition() {
+        when(journal.getWritablePartitions()).thenReturn(3);
+        final LocalKafkaMessageQueueWriter writer = writer(KafkaJournalConfiguration.PARTITIONING_INPUT);
+
+        final Set<Integer> partitions = LongStream.range(0, 6)
+                .mapToObj(sequence -> writer.partitionFor(event("input"), sequence))
+                .collect(Collectors.toSet());
+
+        assertThat(partitions).hasSize(1);
+    }
+
+    @Test
+    void writesEntriesToTheGivenPartition() throws Exception {
+        when(journal.getWritablePartitions()).thenReturn(3);
+        final LocalKafkaMessageQueueWriter writer = writer(KafkaJournalConfiguration.PARTITIONING_INPUT);
+
+        writer.write(2, List.of(event("input"), event("other-input")));
+
+        verify(journal).write(eq(2), argThat((List<Journal.Entry> entries) -> entries.size() == 2));
+    }
+
+    private LocalKafkaMessageQueueWriter writer(String partitioning) {
+        return new LocalKafkaMessageQueueWriter(journal, new JournalPartitionSignals(new Semaphore(0), 3),
+                partitioning, new MessageQueueWriter.Metrics.Provider(new MetricRegistry()).get());
+    }
+
+    private static RawMessageEvent event(String inputId) {
+        final RawMessageEvent event = new RawMessageEvent();
+        event.setInputId(inputId);
+        event.setEncodedRawMessage("message".getBytes(StandardCharsets.UTF_8));
+        event.setMessageIdBytes("id".getBytes(StandardCharsets.UTF_8));
+        return event;
+    }
+}
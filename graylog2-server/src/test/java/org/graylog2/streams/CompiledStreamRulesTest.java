@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.streams;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import org.bson.types.ObjectId;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.plugin.streams.StreamRuleType;
+import org.graylog2.streams.matchers.StreamRuleMock;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the compiled stream router engine routes messages exactly like the sequential one.
+ */
+class CompiledStreamRulesTest {
+    private static final String[] FIELDS = {"source", "facility", "action", "count", "empty"};
+    private static final String[] VALUES = {"foo", "bar", "foobar", " foo ", "a-b", "ab", "abc", "1", "5", "12", "", "FOO"};
+    private static final String[] REGEXES = {"^foo", "bar$", "a.*b", "(foo|bar)", "[0-9]+", "(a)\\1", "(?<n>a)", "(?<n>b)", "(?i)foo", "["};
+    private static final String[] INPUTS = {"input-a", "INPUT-A", "input-b"};
+    private static final StreamRuleType[] TYPES = {
+            StreamRuleType.EXACT, StreamRuleType.CONTAINS, StreamRuleType.REGEX, StreamRuleType.PRESENCE,
+            StreamRuleType.GREATER, StreamRuleType.SMALLER, StreamRuleType.MATCH_INPUT, StreamRuleType.ALWAYS_MATCH
+    };
+
+    private StreamFaultManager streamFaultManager;
+    private StreamMetrics streamMetrics;
+    private Stream defaultStream;
+
+    @BeforeEach
+    void setUp() {
+        streamFaultManager = mock(StreamFaultManager.class);
+        when(streamFaultManager.getStreamProcessingTimeout()).thenReturn(1000L);
+        streamMetrics = new StreamMetrics(new MetricRegistry());
+        defaultStream = mock(Stream.class);
+    }
+
+    private StreamRouterEngine newEngine(List<Stream> streams, StreamRouterEngineType engineType) {
+        return new StreamRouterEngine(streams, streamFaultManager, streamMetrics,
+                () -> defaultStream, new MetricRegistry(), engineType);
+    }
+
+    @Test
+    void compiledEngineRoutesLikeSequentialEngine() {
+        final Random random = new Random(42L);
+
+        for (int round = 0; round < 20; round++) {
+            final List<Stream> streams = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                streams.add(randomStream(random, "stream-" + round + "-" + i));
+            }
+
+            final StreamRouterEngine sequential = newEngine(streams, StreamRouterEngineType.SEQUENTIAL);
+            final StreamRouterEngine compiled = newEngine(streams, StreamRouterEngineType.COMPILED);
+
+            for (int i = 0; i < 200; i++) {
+                final Message message = randomMessage(random);
+
+                assertThat(new HashSet<>(compiled.match(message)))
+                        .as("Message fields: %s", message.getFields())
+                        .isEqualTo(new HashSet<>(sequential.match(message)));
+            }
+        }
+    }
+
+    @Test
+    void compiledEngineRemovesMatchesFromDefaultStream() {
+        final StreamMock stream = new StreamMock(ImmutableMap.of("_id", new ObjectId(), "title", "test", "matching_type", Stream.MatchingType.OR));
+        stream.setRemoveMatchesFromDefaultStream(true);
+        stream.setStreamRules(List.of(rule(stream, StreamRuleType.CONTAINS, "source", "foo", false)));
+
+        final StreamRouterEngine engine = newEngine(List.of(stream), StreamRouterEngineType.COMPILED);
+        final Message message = new Message("test", "localhost", new DateTime(DateTimeZone.UTC));
+        message.addField("source", "some foo");
+        message.addStream(defaultStream);
+
+        assertThat(engine.match(message)).containsExactly(stream);
+        assertThat(message.getStreams()).doesNotContain(defaultStream);
+    }
+
+    private Stream randomStream(Random random, String title) {
+        final Stream.MatchingType matchingType = random.nextBoolean() ? Stream.MatchingType.AND : Stream.MatchingType.OR;
+        final StreamMock stream = new StreamMock(ImmutableMap.of("_id", new ObjectId(), "title", title, "matching_type", matchingType));
+
+        final int ruleCount = random.nextInt(4);
+        final List<StreamRule> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            final StreamRuleType type = TYPES[random.nextInt(TYPES.length)];
+            final String field = FIELDS[random.nextInt(FIELDS.length)];
+            final String value = switch (type) {
+                case REGEX -> REGEXES[random.nextInt(REGEXES.length)];
+                case MATCH_INPUT -> INPUTS[random.nextInt(INPUTS.length)];
+                default -> VALUES[random.nextInt(VALUES.length)];
+            };
+            rules.add(rule(stream, type, field, value, random.nextInt(4) == 0));
+        }
+        stream.setStreamRules(rules);
+
+        return stream;
+    }
+
+    private static StreamRule rule(Stream stream, StreamRuleType type, String field, String value, boolean inverted) {
+        return new StreamRuleMock(ImmutableMap.<String, Object>builder()
+                .put("_id", new ObjectId())
+                .put("field", field)
+                .put("value", value)
+                .put("type", type.toInteger())
+                .put("inverted", inverted)
+                .put("stream_id", stream.getId())
+                .build());
+    }
+
+    private static Message randomMessage(Random random) {
+        final Message message = new Message("test", "localhost", new DateTime(DateTimeZone.UTC));
+        for (String field : FIELDS) {
+            if (random.nextInt(3) > 0) {
+                message.addField(field, VALUES[random.nextInt(VALUES.length)]);
+            }
+        }
+        if (random.nextBoolean()) {
+            message.addField(Message.FIELD_GL2_SOURCE_INPUT, INPUTS[random.nextInt(INPUTS.length)]);
+        }
+        return message;
+    }
+}
@@ -24,22 +24,24 @@ import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.plugin.streams.StreamRule;
 import org.graylog2.plugin.streams.StreamRuleType;
-import org.graylog2.shared.SuppressForbidden;
 import org.graylog2.streams.matchers.StreamRuleMock;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import javax.inject.Provider;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -48,12 +50,22 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+@RunWith(Parameterized.class)
 public class StreamRouterEngineTest {
     @Rule
     public final MockitoRule mockitoRule = MockitoJUnit.rule();
 
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<StreamRouterEngineType> engineTypes() {
+        return Arrays.asList(StreamRouterEngineType.values());
+    }
+
+    @Parameterized.Parameter
+    public StreamRouterEngineType engineType;
+
     @Mock
     private StreamFaultManager streamFaultManager;
     @Mock
@@ -69,10 +81,9 @@ public class StreamRouterEngineTest {
         when(streamFaultManager.getStreamProcessingTimeout()).thenReturn(250L);
     }
 
-    @SuppressForbidden("Executors#newSingleThreadExecutor() is okay for tests")
     private StreamRouterEngine newEngine(List<Stream> streams) {
-        return new StreamRouterEngine(streams, Executors.newSingleThreadExecutor(), streamFaultManager, streamMetrics,
-                defaultStreamProvider, new MetricRegistry());
+        return new StreamRouterEngine(streams, streamFaultManager, streamMetrics,
+                defaultStreamProvider, new MetricRegistry(), engineType);
     }
 
     @Test
@@ -765,6 +776,27 @@ public class StreamRouterEngineTest {
                 Lists.newArrayList(stream), engine.match(message2));
     }
 
+    @Test
+    public void testRegexTimeoutRegistersStreamFault() {
+        final StreamMock stream = getStreamMock("test");
+        final StreamRuleMock rule = new StreamRuleMock(ImmutableMap.of(
+                "_id", new ObjectId(),
+                "field", "testfield",
+                "value", "(.*a){25}",
+                "type", StreamRuleType.REGEX.toInteger(),
+                "stream_id", stream.getId()
+        ));
+
+        stream.setStreamRules(Lists.newArrayList(rule));
+
+        final StreamRouterEngine engine = newEngine(Lists.newArrayList(stream));
+        final Message message = getMessage();
+        message.addField("testfield", "aaaaaaaaaaaaaaaaaaaaaaaa!");
+
+        assertThat(engine.match(message)).isEmpty();
+        verify(streamFaultManager).registerFailure(stream);
+    }
+
     private StreamMock getStreamMock(String title) {
         return getStreamMock(title, Stream.MatchingType.AND);
     }
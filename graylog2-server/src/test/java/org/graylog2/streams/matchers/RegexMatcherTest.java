@@ -19,10 +19,13 @@ package org.graylog2.streams.matchers;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.streams.StreamRule;
 import org.graylog2.plugin.streams.StreamRuleType;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -158,6 +161,30 @@ public class RegexMatcherTest extends MatcherTest {
         assertTrue(matcher.match(msg, rule));
     }
 
+    @Test
+    public void testTimeLimitedMatch() {
+        StreamRule rule = getSampleRule();
+        rule.setValue("^foo");
+
+        Message msg = getSampleMessage();
+        msg.addField("something", "foobar");
+
+        StreamRuleMatcher matcher = new RegexMatcher(100, TimeUnit.MILLISECONDS);
+        assertTrue(matcher.match(msg, rule));
+    }
+
+    @Test
+    public void testTimeLimitedMatchAbortsCatastrophicBacktracking() {
+        StreamRule rule = getSampleRule();
+        rule.setValue("(.*a){25}");
+
+        Message msg = getSampleMessage();
+        msg.addField("something", "aaaaaaaaaaaaaaaaaaaaaaaa!");
+
+        StreamRuleMatcher matcher = new RegexMatcher(50, TimeUnit.MILLISECONDS);
+        assertThatThrownBy(() -> matcher.match(msg, rule)).isInstanceOf(UncheckedTimeoutException.class);
+    }
+
     @Override
     protected StreamRule getSampleRule() {
         StreamRule rule = super.getSampleRule();
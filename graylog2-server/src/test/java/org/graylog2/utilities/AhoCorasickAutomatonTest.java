@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AhoCorasickAutomatonTest {
+    private static BitSet match(AhoCorasickAutomaton automaton, String text) {
+        final BitSet matches = new BitSet();
+        automaton.matchAll(text, matches);
+        return matches;
+    }
+
+    private static BitSet bits(int... ids) {
+        final BitSet bitSet = new BitSet();
+        for (int id : ids) {
+            bitSet.set(id);
+        }
+        return bitSet;
+    }
+
+    @Test
+    void findsAllPatterns() {
+        final AhoCorasickAutomaton automaton = AhoCorasickAutomaton.builder()
+                .add("he", 0)
+                .add("she", 1)
+                .add("his", 2)
+                .add("hers", 3)
+                .build();
+
+        assertThat(match(automaton, "ushers")).isEqualTo(bits(0, 1, 3));
+        assertThat(match(automaton, "this")).isEqualTo(bits(2));
+        assertThat(match(automaton, "nothing")).isEqualTo(new BitSet());
+        assertThat(match(automaton, "")).isEqualTo(new BitSet());
+    }
+
+    @Test
+    void supportsOverlappingAndSharedPatterns() {
+        final AhoCorasickAutomaton automaton = AhoCorasickAutomaton.builder()
+                .add("aaa", 0)
+                .add("aa", 1)
+                .add("aa", 2)
+                .add("abaab", 3)
+                .build();
+
+        assertThat(match(automaton, "abaa")).isEqualTo(bits(1, 2));
+        assertThat(match(automaton, "xabaabx")).isEqualTo(bits(1, 2, 3));
+        assertThat(match(automaton, "aaaa")).isEqualTo(bits(0, 1, 2));
+    }
+
+    @Test
+    void emptyPatternMatchesEverything() {
+        final AhoCorasickAutomaton automaton = AhoCorasickAutomaton.builder()
+                .add("", 0)
+                .add("foo", 1)
+                .build();
+
+        assertThat(match(automaton, "")).isEqualTo(bits(0));
+        assertThat(match(automaton, "a foo")).isEqualTo(bits(0, 1));
+    }
+
+    @Test
+    void keepsExistingMatches() {
+        final AhoCorasickAutomaton automaton = AhoCorasickAutomaton.builder().add("foo", 1).build();
+        final BitSet matches = bits(5);
+
+        automaton.matchAll("foo", matches);
+
+        assertThat(matches).isEqualTo(bits(1, 5));
+    }
+}
@@ -107,6 +107,14 @@ const CSVFileAdapterFieldSet = ({ config, handleFormEvent, validationState, vali
            onChange={handleFormEvent}
            help="Enable if the keys in the lookup table are in CIDR notation and lookups will be done with IPs"
            wrapperClassName="col-md-offset-3 col-md-9" />
+    <Input type="checkbox"
+           id="memory_mapped"
+           name="memory_mapped"
+           label="Memory-mapped index"
+           checked={config.memory_mapped}
+           onChange={handleFormEvent}
+           help="Enable for large files to keep the data in an on-disk index in the data directory instead of on the heap."
+           wrapperClassName="col-md-offset-3 col-md-9" />
   </fieldset>
 );
 
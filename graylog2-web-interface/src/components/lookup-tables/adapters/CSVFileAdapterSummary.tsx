@@ -43,6 +43,8 @@ const CSVFileAdapterSummary = ({ dataAdapter }: Props) => {
       <dd>{config.case_insensitive_lookup ? 'yes' : 'no'}</dd>
       <dt>CIDR lookup</dt>
       <dd>{config.cidr_lookup ? 'yes' : 'no'}</dd>
+      <dt>Memory-mapped index</dt>
+      <dd>{config.memory_mapped ? 'yes' : 'no'}</dd>
     </dl>
   );
 };
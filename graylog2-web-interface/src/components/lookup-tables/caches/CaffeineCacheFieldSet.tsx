@@ -66,6 +66,13 @@ const CaffeineCacheFieldSet = ({ config }: Props, ref: any) => {
     setValues({ ...values, config: auxValConfig });
   };
 
+  const handleSnapshotUpdate = (value: number, unit: string, enabled: boolean) => {
+    const snapshotConfig = { snapshot_enabled: enabled, snapshot_interval: value, snapshot_interval_unit: unit };
+
+    setStateConfig({ ...stateConfig, ...snapshotConfig });
+    setValues({ ...values, config: { ...values.config, ...snapshotConfig } });
+  };
+
   return (
     <fieldset ref={ref}>
       <FormikFormGroup type="text"
@@ -95,6 +102,27 @@ const CaffeineCacheFieldSet = ({ config }: Props, ref: any) => {
                      defaultEnabled={config.expire_after_write > 0}
                      labelClassName="col-sm-3"
                      wrapperClassName="col-sm-9" />
+      <TimeUnitInput label="Refresh after write"
+                     help="If enabled, entries older than the specified time are still returned while they are reloaded in the background. Should be shorter than the expiration times."
+                     update={handleUpdate('refresh_after_write')}
+                     name="config.refresh_after_write"
+                     unitName="config.refresh_after_write_unit"
+                     value={stateConfig.refresh_after_write}
+                     unit={stateConfig.refresh_after_write_unit || 'SECONDS'}
+                     defaultEnabled={config.refresh_after_write > 0}
+                     labelClassName="col-sm-3"
+                     wrapperClassName="col-sm-9" />
+      <TimeUnitInput label="Persist snapshots"
+                     help="If enabled, the cache entries are written to the data directory in the specified interval and on shutdown. They are loaded again on startup."
+                     update={handleSnapshotUpdate}
+                     name="config.snapshot_interval"
+                     unitName="config.snapshot_interval_unit"
+                     value={stateConfig.snapshot_interval || 5}
+                     unit={stateConfig.snapshot_interval_unit || 'MINUTES'}
+                     units={['SECONDS', 'MINUTES', 'HOURS']}
+                     defaultEnabled={!!config.snapshot_enabled}
+                     labelClassName="col-sm-3"
+                     wrapperClassName="col-sm-9" />
       <Input type="checkbox"
              id="ignore_null"
              name="ignore_null"
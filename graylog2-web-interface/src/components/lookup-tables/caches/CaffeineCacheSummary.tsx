@@ -50,6 +50,20 @@ const CaffeineCacheSummary = ({ cache }: Props) => (
                   unit={cache.config.expire_after_write_unit} />
       </Value>
     </SummaryRow>
+    <SummaryRow>
+      <Title>Refresh after write:</Title>
+      <Value>
+        <TimeUnit value={cache.config.refresh_after_write || 0}
+                  unit={cache.config.refresh_after_write_unit || 'SECONDS'} />
+      </Value>
+    </SummaryRow>
+    <SummaryRow>
+      <Title>Persist snapshots:</Title>
+      <Value>
+        <TimeUnit value={cache.config.snapshot_enabled ? (cache.config.snapshot_interval || 5) : 0}
+                  unit={cache.config.snapshot_interval_unit || 'MINUTES'} />
+      </Value>
+    </SummaryRow>
   </SummaryContainer>
 );
 
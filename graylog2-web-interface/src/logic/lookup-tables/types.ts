@@ -31,6 +31,11 @@ export type LookupTableCacheConfig = {
   expire_after_write?: number,
   expire_after_write_unit?: 'NANOSECONDS' | 'MICROSECONDS' | 'MILLISECONDS' | 'SECONDS' | 'MINUTES' | 'HOURS' | 'DAYS' | null,
   ignore_null?: boolean,
+  refresh_after_write?: number,
+  refresh_after_write_unit?: 'NANOSECONDS' | 'MICROSECONDS' | 'MILLISECONDS' | 'SECONDS' | 'MINUTES' | 'HOURS' | 'DAYS' | null,
+  snapshot_enabled?: boolean,
+  snapshot_interval?: number,
+  snapshot_interval_unit?: 'NANOSECONDS' | 'MICROSECONDS' | 'MILLISECONDS' | 'SECONDS' | 'MINUTES' | 'HOURS' | 'DAYS' | null,
 };
 
 export type LookupTableCache = GenericEntityType & {
@@ -48,6 +53,7 @@ export type LookupTableDataAdapterConfig = {
   check_interval?: number,
   case_insensitive_lookup?: boolean,
   cidr_lookup?: boolean,
+  memory_mapped?: boolean,
 };
 
 export type LookupTableAdapter = GenericEntityType & {